@@ -36,6 +36,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -93,45 +94,82 @@ public class AutocompleteSearch {
 
                 final TopFieldDocs topDocs = indexSearcher.search(query, MAX_SEARCH_RESULTS, SORT_BY_LOOKUP_KEY, true, true);
 
+                // only read the objects from the database if the index does not hold all response attributes
+                final boolean stored = FullTextIndex.STORED_ATTRIBUTES.containsAll(responseAttributes);
+
                 for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
                     final Document doc = indexSearcher.doc(scoreDoc.doc);
-                    final Map<String, Object> result = Maps.newLinkedHashMap();
-                    final RpslObject rpslObject;
-
-                    try {
-                        rpslObject =   objectDao.getByKey(
-                                            ObjectType.getByName(doc.get(FullTextIndex.OBJECT_TYPE_FIELD_NAME)),
-                                            doc.get(FullTextIndex.LOOKUP_KEY_FIELD_NAME)
-                                        );
-
-                    } catch (EmptyResultDataAccessException ex) {
-                        LOGGER.info("seems like object has been deleted from database");
-                        continue;
+                    final Map<String, Object> result = stored ? getResultFromIndex(doc, responseAttributes) : getResultFromDatabase(doc, responseAttributes);
+                    if (result != null) {
+                        results.add(result);
                     }
+                }
 
-                    result.put("key", rpslObject.getKey().toString());
-                    result.put("type", rpslObject.getType().getName());
+                return results;
+        });
+    }
 
-                    for (final AttributeType attribute : responseAttributes) {
-                        final ObjectTemplate template = ObjectTemplate.getTemplate(rpslObject.getType());
+    private Map<String, Object> getResultFromIndex(final Document doc, final Set<AttributeType> responseAttributes) {
+        final Map<String, Object> result = Maps.newLinkedHashMap();
+        final ObjectType objectType = ObjectType.getByName(doc.get(FullTextIndex.OBJECT_TYPE_FIELD_NAME));
 
-                        if (template.getMultipleAttributes().contains(attribute)) {
-                            result.put(attribute.getName(), filterValues(attribute, rpslObject));
-                        } else {
-                            result.put(attribute.getName(), filterValue(attribute, rpslObject.containsAttribute(attribute) ? rpslObject.findAttribute(attribute).getValue() : null));
-                        }
-                    }
+        result.put("key", doc.get(FullTextIndex.LOOKUP_KEY_FIELD_NAME));
+        result.put("type", objectType.getName());
 
-                    results.add(result);
-                }
+        for (final AttributeType attribute : responseAttributes) {
+            final ObjectTemplate template = ObjectTemplate.getTemplate(objectType);
+            final String[] values = doc.getValues(attribute.getName());
 
-                return results;
-        });
+            // stored values are already filtered by the index
+            if (template.getMultipleAttributes().contains(attribute)) {
+                result.put(attribute.getName(), Arrays.stream(values).map(this::removeComment).collect(Collectors.toList()));
+            } else {
+                result.put(attribute.getName(), values.length > 0 ? removeComment(values[0]) : null);
+            }
+        }
+
+        return result;
+    }
+
+    @Nullable
+    private Map<String, Object> getResultFromDatabase(final Document doc, final Set<AttributeType> responseAttributes) {
+        final Map<String, Object> result = Maps.newLinkedHashMap();
+        final RpslObject rpslObject;
+
+        try {
+            rpslObject =   objectDao.getByKey(
+                                ObjectType.getByName(doc.get(FullTextIndex.OBJECT_TYPE_FIELD_NAME)),
+                                doc.get(FullTextIndex.LOOKUP_KEY_FIELD_NAME)
+                            );
+
+        } catch (EmptyResultDataAccessException ex) {
+            LOGGER.info("seems like object has been deleted from database");
+            return null;
+        }
+
+        result.put("key", rpslObject.getKey().toString());
+        result.put("type", rpslObject.getType().getName());
+
+        for (final AttributeType attribute : responseAttributes) {
+            final ObjectTemplate template = ObjectTemplate.getTemplate(rpslObject.getType());
+
+            if (template.getMultipleAttributes().contains(attribute)) {
+                result.put(attribute.getName(), filterValues(attribute, rpslObject));
+            } else {
+                result.put(attribute.getName(), filterValue(attribute, rpslObject.containsAttribute(attribute) ? rpslObject.findAttribute(attribute).getValue() : null));
+            }
+        }
+
+        return result;
     }
 
     @Nullable
     private String filterValue(final AttributeType type, final String attributeValue) {
-        return attributeValue == null ? null : COMMENT_PATTERN.matcher( fullTextIndex.filterRpslAttribute(type, attributeValue)).replaceFirst("").trim();
+        return attributeValue == null ? null : removeComment(fullTextIndex.filterRpslAttribute(type, attributeValue));
+    }
+
+    private String removeComment(final String value) {
+        return COMMENT_PATTERN.matcher(value).replaceFirst("").trim();
     }
 
     private List<String> filterValues(final AttributeType attributeType, final RpslObject rpslObject) {
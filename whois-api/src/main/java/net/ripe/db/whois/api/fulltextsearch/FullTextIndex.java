@@ -8,10 +8,13 @@ import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
 import net.ripe.db.whois.common.dao.jdbc.JdbcStreamingHelper;
 import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
 import net.ripe.db.whois.common.domain.serials.SerialEntry;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
@@ -23,12 +26,16 @@ import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.facet.FacetField;
 import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -38,11 +45,13 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
 
 import javax.annotation.Nullable;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
+import java.io.File;
 import java.io.IOException;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -51,9 +60,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Lists.newArrayListWithExpectedSize;
@@ -72,6 +85,25 @@ public class FullTextIndex extends RebuildableIndex {
 
     static final String[] FIELD_NAMES;
 
+    // values of these attributes are stored in the index, so autocomplete can return them without a database lookup
+    public static final Set<AttributeType> STORED_ATTRIBUTES = Sets.immutableEnumSet(
+            AttributeType.ABUSE_MAILBOX,
+            AttributeType.AS_NAME,
+            AttributeType.MNT_BY,
+            AttributeType.MNTNER,
+            AttributeType.NETNAME,
+            AttributeType.NIC_HDL,
+            AttributeType.ORG_NAME,
+            AttributeType.ORGANISATION,
+            AttributeType.PERSON,
+            AttributeType.ROLE);
+
+    // change when the document fields change, so an existing index is rebuilt
+    private static final String INDEX_VERSION = "2";
+
+    // how quickly the reader is reopened when a search waits for a serial
+    private static final double NRT_MIN_STALE_SECONDS = 0.025;
+
     private static final Set<AttributeType> SKIPPED_ATTRIBUTES = Sets.newEnumSet(Sets.newHashSet(AttributeType.CERTIF, AttributeType.CHANGED, AttributeType.SOURCE), AttributeType.class);
     private static final Set<AttributeType> FILTERED_ATTRIBUTES = Sets.newEnumSet(Sets.newHashSet(AttributeType.AUTH), AttributeType.class);
 
@@ -79,7 +111,7 @@ public class FullTextIndex extends RebuildableIndex {
     private static final FieldType LOOKUP_KEY_FIELD_TYPE;
     private static final FieldType FILTERED_ATTRIBUTE_FIELD_TYPE;
     private static final FieldType ATTRIBUTE_FIELD_TYPE;
-
+    private static final FieldType STORED_ATTRIBUTE_FIELD_TYPE;
 
     static {
         final List<String> names = newArrayListWithExpectedSize(AttributeType.values().length);
@@ -116,22 +148,52 @@ public class FullTextIndex extends RebuildableIndex {
         ATTRIBUTE_FIELD_TYPE.setStored(false);
         ATTRIBUTE_FIELD_TYPE.setTokenized(true);
         ATTRIBUTE_FIELD_TYPE.freeze();
+
+        STORED_ATTRIBUTE_FIELD_TYPE = new FieldType(ATTRIBUTE_FIELD_TYPE);
+        STORED_ATTRIBUTE_FIELD_TYPE.setStored(true);
+        STORED_ATTRIBUTE_FIELD_TYPE.freeze();
     }
 
     private final JdbcTemplate jdbcTemplate;
     private final String source;
     private final FacetsConfig facetsConfig;
+    private final int batchSize;
+    private final int rebuildShards;
+    private final boolean nrtEnabled;
+    private final int nrtMaxStaleMs;
+    private final int nrtWaitMs;
+    private final SerialTailer serialTailer;
+
+    private SerialTailer.Subscription subscription;
+
+    // the serial the index (committed or not) is up to date with
+    private final Object appliedMonitor = new Object();
+    private volatile Applied applied;
 
     @Autowired
     FullTextIndex(
             @Qualifier("whoisSlaveDataSource") final DataSource dataSource,
             @Value("${whois.source}") final String source,
             @Value("${dir.fulltext.index:}") final String indexDir,
-            @Value("${fulltext.search.max.concurrent:10}") final int maxConcurrentSearches) {
-        super(LOGGER, indexDir, maxConcurrentSearches);
+            @Value("${fulltext.search.max.concurrent:10}") final int maxConcurrentSearches,
+            @Value("${fulltext.search.target.latency.msecs:1000}") final int targetSearchLatencyMs,
+            @Value("${fulltext.search.max.queue.msecs:10000}") final int maxSearchQueueMs,
+            @Value("${fulltext.index.update.batch.size:1000}") final int batchSize,
+            @Value("${fulltext.index.rebuild.shards:0}") final int rebuildShards,
+            @Value("${fulltext.index.nrt.enabled:false}") final boolean nrtEnabled,
+            @Value("${fulltext.index.nrt.max.stale.msecs:1000}") final int nrtMaxStaleMs,
+            @Value("${fulltext.index.nrt.wait.msecs:5000}") final int nrtWaitMs,
+            final SerialTailer serialTailer) {
+        super(LOGGER, indexDir, new SearchAdmission(maxConcurrentSearches, targetSearchLatencyMs, maxSearchQueueMs));
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.source = source;
         this.facetsConfig = new FacetsConfig();
+        this.batchSize = batchSize;
+        this.rebuildShards = rebuildShards;
+        this.nrtEnabled = nrtEnabled;
+        this.nrtMaxStaleMs = nrtMaxStaleMs;
+        this.nrtWaitMs = nrtWaitMs;
+        this.serialTailer = serialTailer;
     }
 
     @PostConstruct
@@ -160,14 +222,35 @@ public class FullTextIndex extends RebuildableIndex {
                                 rebuild(indexWriter, taxonomyWriter);
                                 return;
                             }
+
+                            final String committedVersion = getCommitData(indexWriter, "version");
+                            if (!INDEX_VERSION.equals(committedVersion)) {
+                                LOGGER.warn("Index {} has version {}, rebuild", indexDir, committedVersion);
+                                rebuild(indexWriter, taxonomyWriter);
+                                return;
+                            }
                         }
                     }
                 }
         );
+
+        if (nrtEnabled) {
+            subscription = serialTailer.subscribe("FullTextIndex", getIndexSerial(), this::changed);
+        }
+    }
+
+    @Override
+    protected void opened(final IndexTemplate index) {
+        if (nrtEnabled) {
+            index.startReopenThread(nrtMaxStaleMs / 1000.0, NRT_MIN_STALE_SECONDS);
+        }
     }
 
     @PreDestroy
     public void destroy() {
+        if (subscription != null) {
+            subscription.close();
+        }
         cleanup();
     }
 
@@ -180,6 +263,19 @@ public class FullTextIndex extends RebuildableIndex {
         indexWriter.deleteAll();
         final int maxSerial = JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd();
 
+        // facet ordinals of the object types are known up front, so parallel threads don't contend on the taxonomy
+        final TaxonomyWriter preloadedTaxonomyWriter = new PreloadedTaxonomyWriter(taxonomyWriter, getObjectTypeCategories());
+
+        if (rebuildShards > 1) {
+            rebuildSharded(indexWriter, preloadedTaxonomyWriter);
+        } else {
+            rebuildStreaming(indexWriter, preloadedTaxonomyWriter);
+        }
+
+        updateMetadata(indexWriter, source, maxSerial);
+    }
+
+    private void rebuildStreaming(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
         // sadly Executors don't offer a bounded/blocking submit() implementation
         int numThreads = Runtime.getRuntime().availableProcessors();
         final ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(numThreads * 64);
@@ -217,8 +313,100 @@ public class FullTextIndex extends RebuildableIndex {
         } catch (InterruptedException e) {
             LOGGER.error("shutdown", e);
         }
+    }
 
-        updateMetadata(indexWriter, source, maxSerial);
+    /**
+     * Split the objects by object_id range, build an index for each range in parallel, each with its own writer, and
+     * add them to the index in one go.
+     */
+    private void rebuildSharded(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) throws IOException {
+        if (!isEnabled()) {
+            // without an index directory the shards would end up in the root directory
+            rebuildStreaming(indexWriter, taxonomyWriter);
+            return;
+        }
+
+        final int[] objectIds = jdbcTemplate.queryForObject(
+                "SELECT IFNULL(MIN(object_id), 0), IFNULL(MAX(object_id), 0) FROM last WHERE sequence_id != 0",
+                (rs, rowNum) -> new int[]{rs.getInt(1), rs.getInt(2)});
+        final int shardSize = (objectIds[1] - objectIds[0]) / rebuildShards + 1;
+
+        final File shardsDir = new File(indexDir, "shards");
+        FileSystemUtils.deleteRecursively(shardsDir);
+
+        final List<Directory> directories = Lists.newArrayList();
+        final List<Future<Integer>> shards = Lists.newArrayList();
+        final ExecutorService executorService = Executors.newFixedThreadPool(rebuildShards);
+        try {
+            for (int shard = 0; shard < rebuildShards; shard++) {
+                final int fromObjectId = objectIds[0] + shard * shardSize;
+                final Directory directory = FSDirectory.open(new File(shardsDir, Integer.toString(shard)).toPath());
+                directories.add(directory);
+                shards.add(executorService.submit(() -> rebuildShard(directory, taxonomyWriter, fromObjectId, fromObjectId + shardSize)));
+            }
+
+            int nrIndexed = 0;
+            for (final Future<Integer> shard : shards) {
+                nrIndexed += shard.get();
+            }
+            LOGGER.info("Indexed {} objects in {} shards", nrIndexed, rebuildShards);
+
+            indexWriter.addIndexes(directories.toArray(new Directory[0]));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted rebuilding shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Rebuilding shard", e.getCause());
+        } finally {
+            executorService.shutdownNow();
+            IOUtils.closeWhileHandlingException(directories);
+            FileSystemUtils.deleteRecursively(shardsDir);
+        }
+    }
+
+    private int rebuildShard(final Directory directory, final TaxonomyWriter taxonomyWriter, final int fromObjectId, final int toObjectId) throws IOException {
+        final IndexWriterConfig config = new IndexWriterConfig(INDEX_ANALYZER).setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+
+        try (IndexWriter shardWriter = new IndexWriter(directory, config)) {
+            final int nrIndexed = JdbcStreamingHelper.executeStreaming(jdbcTemplate, "" +
+                            "SELECT object_id, object " +
+                            "FROM last " +
+                            "WHERE sequence_id != 0 " +
+                            "AND object_id >= ? " +
+                            "AND object_id < ?",
+                    preparedStatement -> {
+                        preparedStatement.setInt(1, fromObjectId);
+                        preparedStatement.setInt(2, toObjectId);
+                    },
+                    new ResultSetExtractor<Integer>() {
+                        @Override
+                        public Integer extractData(final ResultSet rs) throws SQLException, DataAccessException {
+                            int nrIndexed = 0;
+
+                            while (rs.next()) {
+                                new DatabaseObjectProcessor(rs.getInt(1), rs.getBytes(2), shardWriter, taxonomyWriter).run();
+                                nrIndexed++;
+                            }
+
+                            return nrIndexed;
+                        }
+                    });
+
+            shardWriter.commit();
+            LOGGER.debug("Indexed {} objects with object_id in [{}, {})", nrIndexed, fromObjectId, toObjectId);
+            return nrIndexed;
+        }
+    }
+
+    private static List<FacetLabel> getObjectTypeCategories() {
+        final List<FacetLabel> categories = Lists.newArrayList();
+        for (final ObjectType objectType : ObjectType.values()) {
+            categories.add(new FacetLabel(OBJECT_TYPE_FIELD_NAME, objectType.getName()));
+        }
+        return categories;
     }
 
     @Scheduled(fixedDelayString = "${fulltext.index.update.interval.msecs:60000}")
@@ -234,48 +422,156 @@ public class FullTextIndex extends RebuildableIndex {
         }
     }
 
+    private int getIndexSerial() {
+        final AtomicInteger serial = new AtomicInteger();
+        apply((indexWriter, taxonomyWriter) -> serial.set(Integer.parseInt(getCommitData(indexWriter, "serial"))));
+        return serial.get();
+    }
+
+    /**
+     * In near-real-time mode, apply the changes from the serial tailer to the index as soon as they appear.
+     *
+     * The changes are not committed, but become visible to searches when the reopen thread refreshes the reader.
+     * They are committed by the regular {@link #scheduledUpdate()}, which does not read serials itself.
+     */
+    private boolean changed(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+        if (!isEnabled()) {
+            return true;
+        }
+
+        return apply((indexWriter, taxonomyWriter) -> applyChanges(indexWriter, taxonomyWriter, fromExclusive, toInclusive, changes));
+    }
+
+    private void applyChanges(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final int fromExclusive, final int toInclusive, final List<SerialChange> changes) throws IOException {
+        final int last = Integer.parseInt(getCommitData(indexWriter, "serial"));
+        if (last >= toInclusive) {
+            // already applied by the scheduled update, or an index ahead of the database which it rebuilds
+            setApplied(indexWriter, last);
+            return;
+        }
+
+        for (int from = last; from < fromExclusive; from += batchSize) {
+            applySerials(indexWriter, taxonomyWriter, from, Math.min(fromExclusive, from + batchSize));
+        }
+
+        for (final SerialChange change : changes) {
+            if (change.getSerialId() > last) {
+                applySerialEntry(indexWriter, taxonomyWriter, change.getSerialEntry());
+            }
+        }
+
+        updateMetadata(indexWriter, source, toInclusive);
+    }
+
     @Override
     protected void update(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) throws IOException {
-        final int end = JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd();
+        final int databaseEnd = JdbcRpslObjectOperations.getSerials(jdbcTemplate).getEnd();
         final int last = Integer.parseInt(getCommitData(indexWriter, "serial"));
-        if (last > end) {
-            LOGGER.warn("Index serial ({}) higher than database serial ({}), rebuilding", last, end);
+        if (last > databaseEnd) {
+            LOGGER.warn("Index serial ({}) higher than database serial ({}), rebuilding", last, databaseEnd);
             rebuild(indexWriter, taxonomyWriter);
-        } else if (last < end) {
+            return;
+        }
+
+        // in near-real-time mode, only what the serial tailer delivered but was rolled back from the index is read here
+        final int end = subscription != null ? Math.min(databaseEnd, subscription.getCheckpoint()) : databaseEnd;
+        if (last < end) {
             LOGGER.debug("Updating index {} from {} to {}", indexDir, last, end);
 
             final Stopwatch stopwatch = Stopwatch.createStarted();
-            for (int serial = last + 1; serial <= end; serial++) {
-                final SerialEntry serialEntry = JdbcRpslObjectOperations.getSerialEntry(jdbcTemplate, serial);
-                if (serialEntry == null) {
-                    // suboptimal;there could be big gaps in serial entries.
-                    continue;
-                }
-
-                final RpslObject rpslObject = serialEntry.getRpslObject();
-
-                switch (serialEntry.getOperation()) {
-                    case UPDATE:
-                        deleteEntry(indexWriter, rpslObject);
-                        addEntry(indexWriter, taxonomyWriter, rpslObject);
-                        break;
-                    case DELETE:
-                        deleteEntry(indexWriter, rpslObject);
-                        break;
-                }
+            for (int from = last; from < end; from += batchSize) {
+                applySerials(indexWriter, taxonomyWriter, from, Math.min(end, from + batchSize));
             }
 
             LOGGER.debug("Updated index {} in {}", indexDir, stopwatch.stop());
         }
 
-        updateMetadata(indexWriter, source, end);
+        if (subscription == null || last < end) {
+            updateMetadata(indexWriter, source, end);
+        }
+    }
+
+    private void applySerials(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final int fromExclusive, final int toInclusive) throws IOException {
+        for (final SerialEntry serialEntry : JdbcRpslObjectOperations.getSerialEntries(jdbcTemplate, fromExclusive, toInclusive)) {
+            applySerialEntry(indexWriter, taxonomyWriter, serialEntry);
+        }
+    }
+
+    private void applySerialEntry(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final SerialEntry serialEntry) throws IOException {
+        final RpslObject rpslObject = serialEntry.getRpslObject();
+
+        switch (serialEntry.getOperation()) {
+            case UPDATE:
+                deleteEntry(indexWriter, rpslObject);
+                addEntry(indexWriter, taxonomyWriter, rpslObject);
+                break;
+            case DELETE:
+                deleteEntry(indexWriter, rpslObject);
+                break;
+        }
     }
 
     private void updateMetadata(final IndexWriter indexWriter, final String source, final int serial) {
         final Map<String, String> metadata = Maps.newHashMap();
         metadata.put("serial", Integer.toString(serial));
         metadata.put("source", source);
+        metadata.put("version", INDEX_VERSION);
         indexWriter.setLiveCommitData(new HashMap<>(metadata).entrySet(), true);
+
+        setApplied(indexWriter, serial);
+    }
+
+    private void setApplied(final IndexWriter indexWriter, final int serial) {
+        synchronized (appliedMonitor) {
+            applied = new Applied(serial, indexWriter.getMaxCompletedSequenceNumber(), indexWriter);
+            appliedMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Search once the index includes the given serial, so a caller can see its own update.
+     *
+     * Only waits in near-real-time mode, and at most fulltext.index.nrt.wait.msecs; after that the search is
+     * done on the index as it is.
+     */
+    public <T> T search(final int minSerial, final IndexTemplate.SearchCallback<T> searchCallback) throws IOException {
+        if (minSerial > 0 && nrtEnabled && isEnabled()) {
+            if (!waitForSerial(minSerial)) {
+                LOGGER.debug("Index {} does not include serial {} after {}ms", indexDir, minSerial, nrtWaitMs);
+            }
+        }
+
+        return search(searchCallback);
+    }
+
+    private boolean waitForSerial(final int serial) throws IOException {
+        final IndexTemplate index = this.index;
+        final long deadline = System.currentTimeMillis() + nrtWaitMs;
+
+        Applied applied;
+        synchronized (appliedMonitor) {
+            while (true) {
+                applied = this.applied;
+                if (applied != null && index.isCurrentWriter(applied.indexWriter) && applied.serial >= serial) {
+                    break;
+                }
+
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+
+                try {
+                    appliedMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+
+        final long remaining = deadline - System.currentTimeMillis();
+        return remaining > 0 && index.waitForGeneration(applied.generation, (int) remaining);
     }
 
     private void addEntry(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter, final RpslObject rpslObject) throws IOException {
@@ -294,7 +590,7 @@ public class FullTextIndex extends RebuildableIndex {
         document.add(new StringField(LOOKUP_KEY_FIELD_NAME, rpslObject.getKey().toString(), Field.Store.YES));
 
         for (final RpslAttribute attribute : filterRpslObject(rpslObject).getAttributes()) {
-            document.add(new Field(attribute.getKey(), attribute.getValue().trim(), FILTERED_ATTRIBUTES.contains(attribute.getType()) ? FILTERED_ATTRIBUTE_FIELD_TYPE : ATTRIBUTE_FIELD_TYPE));
+            document.add(new Field(attribute.getKey(), attribute.getValue().trim(), getFieldType(attribute.getType())));
         }
 
         document.add(new FacetField(OBJECT_TYPE_FIELD_NAME, rpslObject.getType().getName()));
@@ -302,6 +598,14 @@ public class FullTextIndex extends RebuildableIndex {
         indexWriter.addDocument(facetsConfig.build(taxonomyWriter, document));
     }
 
+    private static FieldType getFieldType(@Nullable final AttributeType attributeType) {
+        if (FILTERED_ATTRIBUTES.contains(attributeType)) {
+            return FILTERED_ATTRIBUTE_FIELD_TYPE;
+        }
+
+        return STORED_ATTRIBUTES.contains(attributeType) ? STORED_ATTRIBUTE_FIELD_TYPE : ATTRIBUTE_FIELD_TYPE;
+    }
+
     public RpslObject filterRpslObject(final RpslObject rpslObject) {
 
         List<RpslAttribute> attributes = Lists.newArrayList();
@@ -385,6 +689,18 @@ public class FullTextIndex extends RebuildableIndex {
         return !StringUtils.isBlank(indexDir);
     }
 
+    private static final class Applied {
+        private final int serial;
+        private final long generation;
+        private final IndexWriter indexWriter;
+
+        private Applied(final int serial, final long generation, final IndexWriter indexWriter) {
+            this.serial = serial;
+            this.generation = generation;
+            this.indexWriter = indexWriter;
+        }
+    }
+
     @Nullable
     private String getCommitData(final IndexWriter indexWriter, final String key) {
         final Iterable<Map.Entry<String, String>> commitData = indexWriter.getLiveCommitData();
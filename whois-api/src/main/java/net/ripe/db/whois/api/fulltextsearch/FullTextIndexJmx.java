@@ -0,0 +1,47 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "FullTextIndex", description = "Fulltext index")
+public class FullTextIndexJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FullTextIndexJmx.class);
+
+    private final FullTextIndex fullTextIndex;
+
+    @Autowired
+    public FullTextIndexJmx(final FullTextIndex fullTextIndex) {
+        super(LOGGER);
+        this.fullTextIndex = fullTextIndex;
+    }
+
+    @ManagedOperation(description = "Show the concurrency limit and queueing of searches")
+    public String getSearchStatistics() {
+        return invokeOperation("Search statistics", "", () -> {
+            final SearchAdmission searchAdmission = fullTextIndex.getSearchAdmission();
+            return String.format("limit: %d, in flight: %d, waiting: %d, admitted: %d, queued: %d, rejected: %d, average queue time: %dms, maximum queue time: %dms",
+                    searchAdmission.getLimit(),
+                    searchAdmission.getInFlight(),
+                    searchAdmission.getWaiting(),
+                    searchAdmission.getAdmitted(),
+                    searchAdmission.getQueued(),
+                    searchAdmission.getRejected(),
+                    searchAdmission.getAverageQueueTimeMs(),
+                    searchAdmission.getMaxQueueTimeMs());
+        });
+    }
+
+    @ManagedOperation(description = "Rebuild the index next to the current one, and switch to it when done")
+    public String rebuild() {
+        return invokeOperation("Rebuild fulltext index", "", () -> {
+            fullTextIndex.rebuild();
+            return "Rebuilt fulltext index";
+        });
+    }
+}
@@ -58,6 +58,7 @@ import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static net.ripe.db.whois.api.fulltextsearch.FullTextIndex.INDEX_ANALYZER;
@@ -109,6 +110,7 @@ public class FullTextSearch {
         @QueryParam("hl.simple.post") @DefaultValue("</b>") final String highlightPost,
         @QueryParam("wt") @DefaultValue("xml") final String writerType,
         @QueryParam("facet") @DefaultValue("false") final String facet,
+        @QueryParam("min-serial") final String minSerial,
         @Context final HttpServletRequest request) {
         try {
             return ok(search(
@@ -121,11 +123,14 @@ public class FullTextSearch {
                     .setHighlightPost(highlightPost)
                     .setFormat(writerType)
                     .setFacet(facet)
+                    .setMinSerial(minSerial)
                     .build(), request));
         } catch (IllegalArgumentException e) {
             return badRequest(e.getMessage());
         } catch (QueryException qe) {
             throw RestServiceHelper.createWebApplicationException(qe, request);
+        } catch (RejectedExecutionException e) {
+            return serviceUnavailable(e.getMessage());
         } catch (Exception e) {
             LOGGER.error(e.getMessage(), e);
             return internalServerError("Unexpected error");
@@ -140,6 +145,10 @@ public class FullTextSearch {
         return javax.ws.rs.core.Response.status(Response.Status.BAD_REQUEST).entity(message).build();
     }
 
+    private Response serviceUnavailable(final String message) {
+        return javax.ws.rs.core.Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(message).build();
+    }
+
     private Response internalServerError(final String message) {
         return javax.ws.rs.core.Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(message).build();
     }
@@ -165,7 +174,7 @@ public class FullTextSearch {
         }
 
         try {
-            return fullTextIndex.search(
+            return fullTextIndex.search(searchRequest.getMinSerial(),
                     new IndexTemplate.AccountingSearchCallback<SearchResponse>(accessControlListManager, request.getRemoteAddr(), source) {
 
                 @Override
@@ -15,16 +15,16 @@ import net.ripe.db.whois.query.domain.QueryException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager;
+import org.apache.lucene.facet.taxonomy.SearcherTaxonomyManager.SearcherAndTaxonomy;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
-import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyReader;
 import org.apache.lucene.facet.taxonomy.directory.DirectoryTaxonomyWriter;
-import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.ReaderManager;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -49,11 +49,17 @@ public class IndexTemplate implements Closeable {
     private final Directory index;
     private final Semaphore updateLock = new Semaphore(1);
 
-    private IndexWriter indexWriter;
-    private ReaderManager readerManager;
+    private volatile IndexWriter indexWriter;
+    // searcher and taxonomy reader are acquired (and reopened) together, so facet ordinals always match the index
+    private volatile SearcherTaxonomyManager searcherManager;
     private DirectoryTaxonomyWriter taxonomyWriter;
     private IndexWriterConfig config;
 
+    // near-real-time: changes applied without a commit become visible when the searcher is reopened
+    private ControlledRealTimeReopenThread<SearcherAndTaxonomy> reopenThread;
+    private double targetMaxStaleSec;
+    private double targetMinStaleSec;
+
     public IndexTemplate(final String directory, final IndexWriterConfig config) throws IOException {
         if (StringUtils.isEmpty(directory)) {
             LOGGER.warn("Using RAM directory for index");
@@ -81,7 +87,7 @@ public class IndexTemplate implements Closeable {
         updateLock.acquireUninterruptibly();
 
         try {
-            closeWhileHandlingException(readerManager, indexWriter, taxonomyWriter, index, taxonomy);
+            closeWhileHandlingException(reopenThread, searcherManager, indexWriter, taxonomyWriter, index, taxonomy);
         } finally {
             updateLock.release();
         }
@@ -98,7 +104,35 @@ public class IndexTemplate implements Closeable {
             taxonomyWriter.commit();
             indexWriter.commit();
 
-            readerManager.maybeRefresh();
+            searcherManager.maybeRefresh();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unexpected", e);
+            rollback();
+            throw e;
+        } catch (OutOfMemoryError e) {
+            LOGGER.error("Unexpected", e);
+            createNewWriters();
+            throw e;
+        } finally {
+            updateLock.release();
+        }
+    }
+
+    /**
+     * Apply changes without committing them. They are visible to searches once the reader is reopened, and
+     * are made durable by the next {@link #write(WriteCallback)}.
+     *
+     * Uncommitted changes are lost if the writers are recreated, see {@link #isCurrentWriter(IndexWriter)}.
+     */
+    public void apply(final WriteCallback writeCallback) throws IOException {
+        updateLock.acquireUninterruptibly();
+
+        try {
+            writeCallback.write(indexWriter, taxonomyWriter);
+
+            if (reopenThread == null) {
+                searcherManager.maybeRefresh();
+            }
         } catch (IOException | RuntimeException e) {
             LOGGER.error("Unexpected", e);
             rollback();
@@ -112,6 +146,62 @@ public class IndexTemplate implements Closeable {
         }
     }
 
+    /**
+     * Reopen the reader in the background, at most targetMaxStaleSec after a change, and within targetMinStaleSec
+     * when a search is waiting for a change (see {@link #waitForGeneration(long, int)}).
+     */
+    public void startReopenThread(final double targetMaxStaleSec, final double targetMinStaleSec) {
+        updateLock.acquireUninterruptibly();
+
+        try {
+            this.targetMaxStaleSec = targetMaxStaleSec;
+            this.targetMinStaleSec = targetMinStaleSec;
+            startReopenThread();
+        } finally {
+            updateLock.release();
+        }
+    }
+
+    private void startReopenThread() {
+        closeWhileHandlingException(reopenThread);
+        reopenThread = new ControlledRealTimeReopenThread<>(indexWriter, searcherManager, targetMaxStaleSec, targetMinStaleSec);
+        reopenThread.setName("IndexReopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+    }
+
+    /**
+     * Wait until changes up to the given sequence number (as returned by the index writer) are visible to searches.
+     *
+     * @return false if the changes did not become visible within maxMs
+     */
+    public boolean waitForGeneration(final long generation, final int maxMs) throws IOException {
+        final ControlledRealTimeReopenThread<SearcherAndTaxonomy> reopenThread = this.reopenThread;
+        if (reopenThread == null) {
+            searcherManager.maybeRefreshBlocking();
+            return true;
+        }
+
+        try {
+            return reopenThread.waitForGeneration(generation, maxMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (IllegalArgumentException e) {
+            // generation of a writer that was since recreated
+            return false;
+        }
+    }
+
+    /**
+     * The writers are recreated after a failure, discarding uncommitted changes.
+     *
+     * @return if changes made with the given writer are still in the index
+     */
+    public boolean isCurrentWriter(final IndexWriter indexWriter) {
+        return this.indexWriter == indexWriter;
+    }
+
     private void rollback() throws IOException {
         try {
             indexWriter.rollback();
@@ -132,7 +222,11 @@ public class IndexTemplate implements Closeable {
         taxonomyWriter.commit();
         indexWriter.commit();
 
-        readerManager = new ReaderManager(indexWriter, false, false);
+        searcherManager = new SearcherTaxonomyManager(indexWriter, true, null, taxonomyWriter);
+
+        if (reopenThread != null) {
+            startReopenThread();
+        }
     }
 
     private static void addFacetCategories(final TaxonomyWriter taxonomyWriter) throws IOException {
@@ -143,27 +237,21 @@ public class IndexTemplate implements Closeable {
     }
 
     public <T> T read(final ReadCallback<T> readCallback) throws IOException {
-        DirectoryReader indexReader = null;
-        TaxonomyReader taxonomyReader = null;
+        return search((indexReader, taxonomyReader, indexSearcher) -> readCallback.read(indexReader, taxonomyReader));
+    }
 
-        try {
-            indexReader = readerManager.acquire();
-            taxonomyReader = new DirectoryTaxonomyReader(taxonomy);
+    public <T> T search(final SearchCallback<T> searchCallback) throws IOException {
+        final SearcherTaxonomyManager searcherManager = this.searcherManager;
+        final SearcherAndTaxonomy searcherAndTaxonomy = searcherManager.acquire();
 
-            return readCallback.read(indexReader, taxonomyReader);
+        try {
+            final IndexSearcher indexSearcher = searcherAndTaxonomy.searcher;
+            return searchCallback.search(indexSearcher.getIndexReader(), searcherAndTaxonomy.taxonomyReader, indexSearcher);
         } finally {
-            closeWhileHandlingException(taxonomyReader);
-            readerManager.release(indexReader);
+            searcherManager.release(searcherAndTaxonomy);
         }
     }
 
-    public <T> T search(final SearchCallback<T> searchCallback) throws IOException {
-        return read((final IndexReader indexReader, final TaxonomyReader taxonomyReader) -> {
-            final IndexSearcher indexSearcher = new IndexSearcher(indexReader);
-            return searchCallback.search(indexReader, taxonomyReader, indexSearcher);
-        });
-    }
-
     public interface WriteCallback {
         void write(IndexWriter indexWriter, TaxonomyWriter taxonomyWriter) throws IOException;
     }
@@ -187,6 +275,8 @@ public class IndexTemplate implements Closeable {
 
         private int accountingLimit = -1;
         private int accountedObjects = 0;
+        // already accounted by an earlier attempt, when the search is retried on a rebuilt index
+        private int reportedObjects = 0;
 
         private final boolean shouldDoAccounting;
 
@@ -206,11 +296,13 @@ public class IndexTemplate implements Closeable {
                 throw new QueryException(QueryCompletionInfo.BLOCKED, QueryMessages.accessDeniedTemporarily(remoteAddress));
             }
 
+            accountedObjects = 0;
             try {
                 return doSearch(indexReader, taxonomyReader, indexSearcher);
             } finally {
-                if (shouldDoAccounting && accountedObjects > 0) {
-                    accessControlListManager.accountPersonalObjects(remoteAddress, accountedObjects);
+                if (shouldDoAccounting && accountedObjects > reportedObjects) {
+                    accessControlListManager.accountPersonalObjects(remoteAddress, accountedObjects - reportedObjects);
+                    reportedObjects = accountedObjects;
                 }
             }
         }
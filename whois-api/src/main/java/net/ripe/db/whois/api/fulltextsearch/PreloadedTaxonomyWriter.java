@@ -0,0 +1,75 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Taxonomy writer that returns the ordinals of known categories without going to the underlying writer.
+ *
+ * The taxonomy writer synchronises on category lookups, so threads building documents in parallel (e.g. during a
+ * rebuild) would otherwise wait for each other on every facet. Unknown categories are added to the underlying writer.
+ */
+class PreloadedTaxonomyWriter implements TaxonomyWriter {
+    private final TaxonomyWriter taxonomyWriter;
+    private final Map<FacetLabel, Integer> ordinals;
+
+    PreloadedTaxonomyWriter(final TaxonomyWriter taxonomyWriter, final Iterable<FacetLabel> categories) throws IOException {
+        this.taxonomyWriter = taxonomyWriter;
+
+        final ImmutableMap.Builder<FacetLabel, Integer> builder = ImmutableMap.builder();
+        for (final FacetLabel category : categories) {
+            builder.put(category, taxonomyWriter.addCategory(category));
+        }
+        this.ordinals = builder.build();
+    }
+
+    @Override
+    public int addCategory(final FacetLabel categoryPath) throws IOException {
+        final Integer ordinal = ordinals.get(categoryPath);
+        return ordinal != null ? ordinal : taxonomyWriter.addCategory(categoryPath);
+    }
+
+    @Override
+    public int getParent(final int ordinal) throws IOException {
+        return taxonomyWriter.getParent(ordinal);
+    }
+
+    @Override
+    public int getSize() {
+        return taxonomyWriter.getSize();
+    }
+
+    @Override
+    public void setLiveCommitData(final Iterable<Map.Entry<String, String>> commitUserData) {
+        taxonomyWriter.setLiveCommitData(commitUserData);
+    }
+
+    @Override
+    public Iterable<Map.Entry<String, String>> getLiveCommitData() {
+        return taxonomyWriter.getLiveCommitData();
+    }
+
+    @Override
+    public long prepareCommit() throws IOException {
+        return taxonomyWriter.prepareCommit();
+    }
+
+    @Override
+    public long commit() throws IOException {
+        return taxonomyWriter.commit();
+    }
+
+    @Override
+    public void rollback() throws IOException {
+        taxonomyWriter.rollback();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the underlying writer is owned by the index template
+    }
+}
@@ -1,30 +1,51 @@
 package net.ripe.db.whois.api.fulltextsearch;
 
 import com.google.common.base.Stopwatch;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.store.AlreadyClosedException;
 import org.slf4j.Logger;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.concurrent.Semaphore;
 
+/**
+ * Index that can be rebuilt from scratch while it is being searched and updated.
+ *
+ * A rebuild builds a new index next to the current one (a shadow index), catches up with the changes made in the
+ * meantime, and then switches searches and updates over to it. The name of the directory holding the current index
+ * is kept in a file in the index directory, so the switch is kept on restart.
+ */
 public abstract class RebuildableIndex {
+    private static final String CURRENT_FILE = "current";
+    private static final String GENERATION_PREFIX = "generation-";
+
     private final Logger logger;
 
     private final Semaphore updateLock = new Semaphore(1);
+    private final Semaphore rebuildLock = new Semaphore(1);
 
-    private final Semaphore searchLock;
+    private final SearchAdmission searchAdmission;
 
     protected final String indexDir;
-    protected IndexTemplate index;
+    protected volatile IndexTemplate index;
+
+    private IndexWriterConfig config;
+    private String currentDir;
 
-    protected RebuildableIndex(final Logger logger, final String indexDir, final int maxConcurrentSearches) {
+    protected RebuildableIndex(final Logger logger, final String indexDir, final SearchAdmission searchAdmission) {
         this.logger = logger;
         this.indexDir = indexDir;
-        this.searchLock = new Semaphore(maxConcurrentSearches, true);
+        this.searchAdmission = searchAdmission;
     }
 
     protected void init(final IndexWriterConfig config, final IndexTemplate.WriteCallback initializer) {
@@ -33,8 +54,13 @@ public abstract class RebuildableIndex {
         }
 
         try {
-            index = new IndexTemplate(indexDir, config);
+            this.config = config;
+            this.currentDir = readCurrentDir();
+            deleteUnusedGenerations();
+
+            index = new IndexTemplate(currentDir, config);
             index.write(initializer);
+            opened(index);
         } catch (IOException e) {
             throw new IllegalStateException(String.format("Initializing index in %s", indexDir), e);
         } finally {
@@ -42,11 +68,70 @@ public abstract class RebuildableIndex {
         }
     }
 
+    /**
+     * Called when an index is opened, before it is searched.
+     */
+    protected void opened(final IndexTemplate index) {
+    }
+
     protected void cleanup() {
         IOUtils.closeQuietly(index);
     }
 
     public final void rebuild() {
+        if (StringUtils.isBlank(indexDir)) {
+            rebuildInPlace();
+            return;
+        }
+
+        rebuildLock.acquireUninterruptibly();
+
+        final String shadowDir = new File(indexDir, GENERATION_PREFIX + System.currentTimeMillis()).getPath();
+        IndexTemplate shadow = null;
+        try {
+            logger.info("Rebuilding index {} in {}", indexDir, shadowDir);
+
+            final Stopwatch stopwatch = Stopwatch.createStarted();
+            shadow = new IndexTemplate(shadowDir, config);
+            shadow.write(this::rebuild);
+            logger.info("Rebuilt index {} in {}", shadowDir, stopwatch);
+
+            final IndexTemplate previous;
+            final String previousDir;
+
+            updateLock.acquireUninterruptibly();
+            try {
+                // changes made to the current index during the rebuild
+                shadow.write(this::update);
+                opened(shadow);
+
+                writeCurrentDir(shadowDir);
+                previous = index;
+                previousDir = currentDir;
+                index = shadow;
+                currentDir = shadowDir;
+                shadow = null;
+            } finally {
+                updateLock.release();
+            }
+
+            logger.info("Switched index {} to {} in {}", indexDir, currentDir, stopwatch.stop());
+
+            IOUtils.closeQuietly(previous);
+            deleteIndex(previousDir);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Rebuilding index: {}", indexDir, e);
+        } finally {
+            if (shadow != null) {
+                IOUtils.closeQuietly(shadow);
+                deleteIndex(shadowDir);
+            }
+
+            rebuildLock.release();
+        }
+    }
+
+    private void rebuildInPlace() {
         try {
             updateLock.acquireUninterruptibly();
             logger.info("Rebuilding index {}", indexDir);
@@ -81,6 +166,28 @@ public abstract class RebuildableIndex {
         }
     }
 
+    /**
+     * Apply changes without committing them, see {@link IndexTemplate#apply(IndexTemplate.WriteCallback)}.
+     *
+     * @return false if the changes were not applied
+     */
+    public final boolean apply(IndexTemplate.WriteCallback writeCallback) {
+        if (!updateLock.tryAcquire()) {
+            logger.debug("Indexing in progress, skipping apply for {}", indexDir);
+            return false;
+        }
+
+        try {
+            index.apply(writeCallback);
+            return true;
+        } catch (IOException e) {
+            logger.error("Applying to index: {}", indexDir, e);
+            return false;
+        } finally {
+            updateLock.release();
+        }
+    }
+
     public void delete(final Query query) {
         if (!updateLock.tryAcquire()) {
             logger.warn("Indexing in progress, skipping delete for {}", query.toString());
@@ -102,12 +209,84 @@ public abstract class RebuildableIndex {
         }
 
         try {
-            searchLock.acquire();
-            return index.search(searchCallback);
+            searchAdmission.acquire();
         } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
             throw new IllegalStateException(ie);
+        }
+
+        final long start = System.nanoTime();
+        try {
+            final IndexTemplate current = index;
+            try {
+                return current.search(searchCallback);
+            } catch (AlreadyClosedException e) {
+                if (current == index) {
+                    throw e;
+                }
+
+                // switched to a rebuilt index
+                return index.search(searchCallback);
+            }
         } finally {
-            searchLock.release();
+            searchAdmission.release(System.nanoTime() - start);
+        }
+    }
+
+    public SearchAdmission getSearchAdmission() {
+        return searchAdmission;
+    }
+
+    private String readCurrentDir() throws IOException {
+        if (StringUtils.isBlank(indexDir)) {
+            return indexDir;
+        }
+
+        final File currentFile = new File(indexDir, CURRENT_FILE);
+        if (!currentFile.exists()) {
+            return indexDir;
+        }
+
+        final File generation = new File(indexDir, new String(Files.readAllBytes(currentFile.toPath()), StandardCharsets.UTF_8).trim());
+        if (!generation.isDirectory()) {
+            logger.warn("Index {} does not exist, using {}", generation, indexDir);
+            return indexDir;
+        }
+
+        return generation.getPath();
+    }
+
+    private void writeCurrentDir(final String directory) throws IOException {
+        final File currentFile = new File(indexDir, CURRENT_FILE);
+        final File tempFile = new File(indexDir, CURRENT_FILE + ".tmp");
+        Files.write(tempFile.toPath(), new File(directory).getName().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempFile.toPath(), currentFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // left behind by an interrupted rebuild
+    private void deleteUnusedGenerations() {
+        if (StringUtils.isBlank(indexDir)) {
+            return;
+        }
+
+        final File[] generations = new File(indexDir).listFiles((dir, name) -> name.startsWith(GENERATION_PREFIX));
+        if (generations != null) {
+            for (final File generation : generations) {
+                if (!generation.getPath().equals(currentDir)) {
+                    logger.info("Deleting unused index {}", generation);
+                    FileUtils.deleteQuietly(generation);
+                }
+            }
+        }
+    }
+
+    private void deleteIndex(final String directory) {
+        if (directory.equals(indexDir)) {
+            // index created before rebuilds were done in a separate directory
+            FileUtils.deleteQuietly(new File(directory, "index"));
+            FileUtils.deleteQuietly(new File(directory, "taxonomy"));
+        } else {
+            FileUtils.deleteQuietly(new File(directory));
         }
     }
 
@@ -0,0 +1,149 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of concurrent searches on an index.
+ *
+ * The limit adapts to the search latency: it grows by one after a search within the target latency (up to the
+ * maximum), and shrinks by 10% after a slower one. Searches are admitted without locking while below the limit;
+ * searches over the limit wait (at most the maximum queue time) for a search to finish.
+ */
+public class SearchAdmission {
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final long maxQueueNanos;
+
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Object monitor = new Object();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalQueueNanos = new LongAdder();
+    private final AtomicLong maxQueueTimeNanos = new AtomicLong();
+
+    public SearchAdmission(final int maxLimit, final long targetLatencyMs, final long maxQueueMs) {
+        if (maxLimit < 1) {
+            throw new IllegalArgumentException("Invalid maximum concurrent searches: " + maxLimit);
+        }
+
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.maxQueueNanos = TimeUnit.MILLISECONDS.toNanos(maxQueueMs);
+        this.limit = new AtomicInteger(maxLimit);
+    }
+
+    /**
+     * @throws RejectedExecutionException if the search could not be admitted within the maximum queue time
+     */
+    public void acquire() throws InterruptedException {
+        if (tryAcquire()) {
+            admitted.increment();
+            return;
+        }
+
+        queued.increment();
+        final long start = System.nanoTime();
+
+        synchronized (monitor) {
+            waiting.incrementAndGet();
+            try {
+                while (!tryAcquire()) {
+                    final long remaining = maxQueueNanos - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        rejected.increment();
+                        throw new RejectedExecutionException("Too many concurrent searches");
+                    }
+
+                    TimeUnit.NANOSECONDS.timedWait(monitor, remaining);
+                }
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        final long queueNanos = System.nanoTime() - start;
+        totalQueueNanos.add(queueNanos);
+        maxQueueTimeNanos.accumulateAndGet(queueNanos, Math::max);
+        admitted.increment();
+    }
+
+    /**
+     * @param latencyNanos how long the admitted search took
+     */
+    public void release(final long latencyNanos) {
+        inFlight.decrementAndGet();
+        adjustLimit(latencyNanos);
+
+        if (waiting.get() > 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void adjustLimit(final long latencyNanos) {
+        final int current = limit.get();
+        final int next = latencyNanos > targetLatencyNanos ?
+                Math.max(1, current - Math.max(1, current / 10)) :
+                Math.min(maxLimit, current + 1);
+
+        if (next != current) {
+            limit.compareAndSet(current, next);
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    // average over the queued searches
+    public long getAverageQueueTimeMs() {
+        final long queued = this.queued.sum() - this.rejected.sum();
+        return queued == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalQueueNanos.sum() / queued);
+    }
+
+    public long getMaxQueueTimeMs() {
+        return TimeUnit.NANOSECONDS.toMillis(maxQueueTimeNanos.get());
+    }
+}
@@ -19,6 +19,7 @@ public final class SearchRequest {
     private final String highlightPost;
     private final boolean facet;
     private final String format;
+    private final int minSerial;
 
     private SearchRequest(
                 final int rows,
@@ -28,7 +29,8 @@ public final class SearchRequest {
                 final String highlightPre,
                 final String highlightPost,
                 final boolean facet,
-                final String format) {
+                final String format,
+                final int minSerial) {
         Validate.notNull(query, "No query parameter.");
         Validate.isTrue(!query.isEmpty(), "Invalid query");
         Validate.isTrue(XML_FORMAT.equals(format) || JSON_FORMAT.equals(format), "invalid format " + format);
@@ -42,6 +44,7 @@ public final class SearchRequest {
         this.highlightPost = highlightPost;
         this.facet = facet;
         this.format = format;
+        this.minSerial = minSerial;
     }
 
     public String getQuery() {
@@ -76,6 +79,11 @@ public final class SearchRequest {
         return this.format;
     }
 
+    // search only once the index includes this serial (0 for any)
+    public int getMinSerial() {
+        return this.minSerial;
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(SearchRequest.class)
@@ -87,6 +95,7 @@ public final class SearchRequest {
                 .add("highlightPost", highlightPost)
                 .add("facet", facet)
                 .add("format", format)
+                .add("minSerial", minSerial)
                 .toString();
     }
 
@@ -100,6 +109,7 @@ public final class SearchRequest {
         private String highlightPost;
         private String format;
         private boolean facet;
+        private int minSerial;
 
         public SearchRequestBuilder setRows(final String rows) {
             this.rows = getIntValue(rows);
@@ -141,6 +151,11 @@ public final class SearchRequest {
             return this;
         }
 
+        public SearchRequestBuilder setMinSerial(final String minSerial) {
+            this.minSerial = minSerial == null ? 0 : getIntValue(minSerial);
+            return this;
+        }
+
         public SearchRequest build() {
             return new SearchRequest(
                             rows,
@@ -150,7 +165,8 @@ public final class SearchRequest {
                             highlightPre,
                             highlightPost,
                             facet,
-                            format);
+                            format,
+                            minSerial);
         }
 
         // helper methods
@@ -24,6 +24,7 @@ import javax.ws.rs.ext.Provider;
 import javax.xml.bind.UnmarshalException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @Provider
 @Component
@@ -69,6 +70,11 @@ public class DefaultExceptionMapper implements ExceptionMapper<Exception> {
             return Response.status(Response.Status.BAD_REQUEST).entity(createErrorEntity(((QueryException) exception).getMessages())).build();
         }
 
+        if (exception instanceof RejectedExecutionException) {
+            // too many concurrent searches
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(createErrorEntity(exception.getMessage())).build();
+        }
+
         LOGGER.error("Unexpected", exception);
         return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(createErrorEntity(exception.getMessage())).build();
     }
@@ -20,6 +20,7 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.ext.ExceptionMapper;
 import javax.ws.rs.ext.Provider;
+import java.util.concurrent.RejectedExecutionException;
 
 @Provider
 @Component
@@ -75,6 +76,11 @@ public class RdapExceptionMapper implements ExceptionMapper<Exception> {
             return Response.status(HttpServletResponse.SC_BAD_REQUEST).entity(createErrorEntity(HttpServletResponse.SC_BAD_REQUEST, exception.getMessage())).build();
         }
 
+        if (exception instanceof RejectedExecutionException) {
+            // too many concurrent searches
+            return createErrorResponse(Response.Status.SERVICE_UNAVAILABLE, exception.getMessage());
+        }
+
         if (exception instanceof IllegalStateException) {
             return Response.status(HttpServletResponse.SC_INTERNAL_SERVER_ERROR).entity(createErrorEntity(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, exception.getMessage())).build();
         }
@@ -0,0 +1,58 @@
+package net.ripe.db.whois.api.rdap;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.IndexReader;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Object ids found by a search, for as long as searches use the same index reader.
+ *
+ * Entries are keyed on the identity of the reader rather than its version: a rebuilt index starts again at the
+ * same version, and a near-real-time reader can see changes that are not committed yet.
+ */
+class RdapSearchCache {
+    private final Cache<List<String>, CachedSearch> cache;
+
+    RdapSearchCache(final int maximumSize) {
+        this.cache = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+    }
+
+    @Nullable
+    List<Integer> get(final IndexReader indexReader, final List<String> key) {
+        final Object readerKey = getReaderKey(indexReader);
+        if (readerKey == null) {
+            return null;
+        }
+
+        final CachedSearch cached = cache.getIfPresent(key);
+        return cached != null && cached.readerKey == readerKey ? cached.objectIds : null;
+    }
+
+    void put(final IndexReader indexReader, final List<String> key, final List<Integer> objectIds) {
+        final Object readerKey = getReaderKey(indexReader);
+        if (readerKey != null) {
+            cache.put(key, new CachedSearch(readerKey, objectIds));
+        }
+    }
+
+    // null if the reader can't be cached on
+    @Nullable
+    private static Object getReaderKey(final IndexReader indexReader) {
+        final IndexReader.CacheHelper cacheHelper = indexReader.getReaderCacheHelper();
+        return cacheHelper != null ? cacheHelper.getKey() : null;
+    }
+
+    private static final class CachedSearch {
+        private final Object readerKey;
+        private final List<Integer> objectIds;
+
+        private CachedSearch(final Object readerKey, final List<Integer> objectIds) {
+            this.readerKey = readerKey;
+            this.objectIds = Collections.unmodifiableList(objectIds);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package net.ripe.db.whois.api.rdap;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -11,6 +12,7 @@ import net.ripe.db.whois.api.rdap.domain.RdapRequestType;
 import net.ripe.db.whois.api.rest.RestServiceHelper;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.Identifiable;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.Source;
@@ -26,7 +28,6 @@ import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.core.LowerCaseFilter;
 import org.apache.lucene.analysis.core.WhitespaceTokenizer;
 import org.apache.lucene.analysis.miscellaneous.WordDelimiterGraphFilter;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.facet.taxonomy.TaxonomyReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
@@ -42,7 +43,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.http.HttpServletRequest;
@@ -63,6 +63,7 @@ import java.net.URI;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -95,6 +96,8 @@ public class WhoisRdapService {
     private final AccessControlListManager accessControlListManager;
     private final RdapRequestValidator rdapRequestValidator;
 
+    private final RdapSearchCache searchCache;
+
     @Autowired
     public WhoisRdapService(final RdapQueryHandler rdapQueryHandler,
                             @Qualifier("jdbcRpslObjectSlaveDao") final RpslObjectDao objectDao,
@@ -106,7 +109,8 @@ public class WhoisRdapService {
                             @Value("${rdap.public.baseUrl:}") final String baseUrl,
                             final AccessControlListManager accessControlListManager,
                             final RdapRequestValidator rdapRequestValidator,
-                            @Value("${rdap.search.max.results:100}") final int maxResultSize) {
+                            @Value("${rdap.search.max.results:100}") final int maxResultSize,
+                            @Value("${rdap.search.cache.size:10000}") final int searchCacheSize) {
         this.rdapQueryHandler = rdapQueryHandler;
         this.objectDao = objectDao;
         this.abuseCFinder = abuseCFinder;
@@ -118,6 +122,7 @@ public class WhoisRdapService {
         this.accessControlListManager = accessControlListManager;
         this.rdapRequestValidator = rdapRequestValidator;
         this.maxResultSize = maxResultSize;
+        this.searchCache = new RdapSearchCache(searchCacheSize);
     }
 
     @GET
@@ -333,7 +338,29 @@ public class WhoisRdapService {
                         protected List<RpslObject> doSearch(IndexReader indexReader, TaxonomyReader taxonomyReader, IndexSearcher indexSearcher) throws IOException {
                             final Stopwatch stopWatch = Stopwatch.createStarted();
 
-                            final List<RpslObject> results = Lists.newArrayList();
+                            final List<Integer> objectIds = getObjectIds(indexReader, indexSearcher);
+
+                            // objects deleted from the database but not from the index yet are skipped
+                            final List<RpslObject> results = Lists.newArrayListWithExpectedSize(objectIds.size());
+                            if (!objectIds.isEmpty()) {
+                                objectDao.load(objectIds.stream().map(objectId -> (Identifiable) () -> objectId).collect(Collectors.toList()), results);
+                            }
+
+                            for (final RpslObject rpslObject : results) {
+                                account(rpslObject);
+                            }
+
+                            LOGGER.debug("Found {} objects in {}", results.size(), stopWatch.stop());
+                            return results;
+                        }
+
+                        private List<Integer> getObjectIds(final IndexReader indexReader, final IndexSearcher indexSearcher) throws IOException {
+                            final List<String> key = ImmutableList.<String>builder().add(fields).add(term.trim().toLowerCase()).build();
+                            final List<Integer> cached = searchCache.get(indexReader, key);
+                            if (cached != null) {
+                                return cached;
+                            }
+
                             try {
                                 final QueryParser queryParser = new MultiFieldQueryParser(fields, new RdapAnalyzer());
                                 queryParser.setAllowLeadingWildcard(true);
@@ -343,23 +370,14 @@ public class WhoisRdapService {
                                 // but case sensitivity also depends on field type
                                 final org.apache.lucene.search.Query query = queryParser.parse(term.toLowerCase());
 
+                                final List<Integer> objectIds = Lists.newArrayList();
                                 final TopDocs topDocs = indexSearcher.search(query, maxResultSize, SORT_BY_OBJECT_TYPE);
                                 for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
-                                    final Document document = indexSearcher.doc(scoreDoc.doc);
-
-                                    final RpslObject rpslObject;
-                                    try {
-                                        rpslObject = objectDao.getById(getObjectId(document));
-                                    } catch (EmptyResultDataAccessException e) {
-                                        // object was deleted from the database but index was not updated yet
-                                        continue;
-                                    }
-                                    account(rpslObject);
-                                    results.add(rpslObject);
+                                    objectIds.add(getObjectId(indexSearcher.doc(scoreDoc.doc)));
                                 }
 
-                                LOGGER.debug("Found {} objects in {}", results.size(), stopWatch.stop());
-                                return results;
+                                searchCache.put(indexReader, key, objectIds);
+                                return objectIds;
 
                             } catch (ParseException e) {
                                 LOGGER.error("handleSearch", e);
@@ -372,11 +390,15 @@ public class WhoisRdapService {
                 throw new NotFoundException("not found");
             }
 
-            final Iterable<LocalDateTime> lastUpdateds = objects.stream().map(input -> objectDao.getLastUpdated(input.getObjectId())).collect(Collectors.toList());
+            final Map<Integer, LocalDateTime> lastUpdated = objectDao.getLastUpdated(objects.stream().map(RpslObject::getObjectId).collect(Collectors.toList()));
+
+            // deleted since they were loaded
+            final List<RpslObject> results = objects.stream().filter(input -> lastUpdated.containsKey(input.getObjectId())).collect(Collectors.toList());
+            final Iterable<LocalDateTime> lastUpdateds = results.stream().map(input -> lastUpdated.get(input.getObjectId())).collect(Collectors.toList());
 
             return Response.ok(rdapObjectMapper.mapSearch(
                     getRequestUrl(request),
-                    objects,
+                    results,
                     lastUpdateds,
                     maxResultSize))
                     .header(CONTENT_TYPE, CONTENT_TYPE_RDAP_JSON)
@@ -0,0 +1,48 @@
+package net.ripe.db.whois.api.rest;
+
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.common.jdbc.driver.SqlMetrics;
+import net.ripe.db.whois.query.acl.AccessControlListManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+/**
+ * Statistics of the SQL statements executed through the logging driver, for trusted clients only.
+ */
+@Component
+@Path("/admin")
+public class SqlMetricsService {
+
+    private final SqlMetrics sqlMetrics;
+    private final AccessControlListManager accessControlListManager;
+
+    @Autowired
+    public SqlMetricsService(final SqlMetrics sqlMetrics, final AccessControlListManager accessControlListManager) {
+        this.sqlMetrics = sqlMetrics;
+        this.accessControlListManager = accessControlListManager;
+    }
+
+    @GET
+    @Produces(MediaType.TEXT_PLAIN)
+    @Path("/sql-metrics")
+    public Response sqlMetrics(
+            @Context final HttpServletRequest request,
+            @QueryParam("limit") @DefaultValue("50") final int limit) {
+
+        if (!accessControlListManager.isTrusted(InetAddresses.forString(request.getRemoteAddr()))) {
+            return Response.status(Response.Status.FORBIDDEN).build();
+        }
+
+        return Response.ok(sqlMetrics.report(limit)).build();
+    }
+}
@@ -11,6 +11,7 @@ import net.ripe.db.whois.common.ip.Ipv6Resource;
 import net.ripe.db.whois.common.iptree.IpEntry;
 import net.ripe.db.whois.common.iptree.Ipv4Tree;
 import net.ripe.db.whois.common.iptree.Ipv6Tree;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -31,17 +32,20 @@ public class ResourceHolderSearch {
     private final Ipv6Tree ipv6Tree;
     private final Maintainers maintainers;
     private final RpslObjectDao rpslObjectDao;
+    private final ResourceHierarchyCache resourceHierarchyCache;
 
     @Autowired
     public ResourceHolderSearch(
             final Ipv4Tree ipv4Tree,
             final Ipv6Tree ipv6Tree,
             final Maintainers maintainers,
-            final RpslObjectDao rpslObjectDao) {
+            final RpslObjectDao rpslObjectDao,
+            final ResourceHierarchyCache resourceHierarchyCache) {
         this.ipv4Tree = ipv4Tree;
         this.ipv6Tree = ipv6Tree;
         this.maintainers = maintainers;
         this.rpslObjectDao = rpslObjectDao;
+        this.resourceHierarchyCache = resourceHierarchyCache;
     }
 
     /**
@@ -53,6 +57,11 @@ public class ResourceHolderSearch {
             return null;
         }
 
+        return resourceHierarchyCache.get("resource-holder", rpslObject, () -> resolveResourceHolder(rpslObject));
+    }
+
+    @Nullable
+    private ResourceHolder resolveResourceHolder(final RpslObject rpslObject) {
         final RpslObject org = lookupOrganisation(rpslObject.getValueOrNullForAttribute(AttributeType.ORG));
         if (org != null) {
             return new ResourceHolder(org.getKey(), org.findAttribute(AttributeType.ORG_NAME).getCleanValue());
@@ -107,7 +116,7 @@ public class ResourceHolderSearch {
     @Nullable
     private RpslObject lookup(final IpEntry ipEntry) {
         try {
-            return rpslObjectDao.getById(ipEntry.getObjectId());
+            return addDependency(rpslObjectDao.getById(ipEntry.getObjectId()));
         } catch (EmptyResultDataAccessException e) {
             return null;
         }
@@ -120,12 +129,18 @@ public class ResourceHolderSearch {
         }
 
         try {
-            return rpslObjectDao.getByKey(ObjectType.ORGANISATION, orgKey);
+            return addDependency(rpslObjectDao.getByKey(ObjectType.ORGANISATION, orgKey));
         } catch (EmptyResultDataAccessException e) {
+            resourceHierarchyCache.addMissingDependency(ObjectType.ORGANISATION, orgKey);
             return null;
         }
     }
 
+    private RpslObject addDependency(final RpslObject rpslObject) {
+        resourceHierarchyCache.addDependency(rpslObject);
+        return rpslObject;
+    }
+
     private List<? extends IpEntry> findParentsInTree(final IpInterval interval) {
         if (interval instanceof Ipv4Resource) {
             return ipv4Tree.findAllLessSpecific((Ipv4Resource)interval);
@@ -319,6 +319,23 @@ public class AutocompleteServiceTestIntegration extends AbstractIntegrationTest
         assertThat(getValues(query("ww", "admin-c", "remarks"), "remarks"), contains("[remarks1, remarks2]"));
     }
 
+    @Test
+    public void key_type_stored_attributes_returned() {
+        databaseHelper.addObject(
+                "person:  person test # comment\n" +
+                "nic-hdl: ww1-test\n" +
+                "mnt-by:  OWNER1-MNT\n" +
+                "mnt-by:  OWNER2-MNT # comment\n" +
+                "source:  TEST");
+        rebuildIndex();
+
+        final List<Map<String, Object>> response = query("ww", "admin-c", "person", "mnt-by");
+
+        assertThat(response, hasSize(1));
+        assertThat(getValues(response, "person"), contains("person test"));
+        assertThat(getValues(response, "mnt-by"), contains("[OWNER1-MNT, OWNER2-MNT]"));
+    }
+
     @Test
     public void key_type_auth_attributes_returned() {
         databaseHelper.addObject(
@@ -0,0 +1,107 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import net.ripe.db.whois.api.AbstractIntegrationTest;
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+@Category(IntegrationTest.class)
+public class FullTextIndexNrtTestIntegration extends AbstractIntegrationTest {
+    private static final int WAIT_MSECS = 1000;
+
+    @Autowired FullTextIndex fullTextIndex;
+    @Autowired SerialTailer serialTailer;
+
+    @BeforeClass
+    public static void setProperty() {
+        System.setProperty("dir.fulltext.index", "var${jvmId:}/idx-nrt");
+        System.setProperty("fulltext.index.nrt.enabled", "true");
+        System.setProperty("fulltext.index.nrt.wait.msecs", String.valueOf(WAIT_MSECS));
+        // changes are only committed by an explicit update
+        System.setProperty("fulltext.index.update.interval.msecs", "3600000");
+    }
+
+    @AfterClass
+    public static void clearProperty() {
+        System.clearProperty("dir.fulltext.index");
+        System.clearProperty("fulltext.index.nrt.enabled");
+        System.clearProperty("fulltext.index.nrt.wait.msecs");
+        System.clearProperty("fulltext.index.update.interval.msecs");
+    }
+
+    @Before
+    public void setUp() {
+        fullTextIndex.rebuild();
+    }
+
+    @Test
+    public void update_searchable_before_commit() throws IOException {
+        databaseHelper.addObject("mntner: NRT-MNT\nsource: TEST");
+        final int serial = getLastSerial();
+
+        serialTailer.poll();
+
+        assertThat(count(serial, "NRT-MNT"), is(1));
+    }
+
+    @Test
+    public void search_waits_for_change() throws Exception {
+        final int serial = getLastSerial() + 1;
+
+        final CompletableFuture<Void> change = CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(WAIT_MSECS / 4);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            databaseHelper.addObject("mntner: LATE-MNT\nsource: TEST");
+            serialTailer.poll();
+        });
+
+        try {
+            final long start = System.currentTimeMillis();
+            assertThat(count(serial, "LATE-MNT"), is(1));
+            assertThat(System.currentTimeMillis() - start, lessThan((long) WAIT_MSECS));
+        } finally {
+            change.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void search_waits_until_timeout() throws IOException {
+        databaseHelper.addObject("mntner: NRT-MNT\nsource: TEST");
+        final int serial = getLastSerial();
+        serialTailer.poll();
+
+        final long start = System.currentTimeMillis();
+        // the serial is never written, the search is done on the index as it is
+        assertThat(count(serial + 1, "NRT-MNT"), is(1));
+        assertThat(System.currentTimeMillis() - start, greaterThanOrEqualTo((long) WAIT_MSECS));
+    }
+
+    private int count(final int minSerial, final String key) throws IOException {
+        return fullTextIndex.search(minSerial, (indexReader, taxonomyReader, indexSearcher) ->
+                indexSearcher.count(new TermQuery(new Term(FullTextIndex.LOOKUP_KEY_FIELD_NAME, key))));
+    }
+
+    private int getLastSerial() {
+        return databaseHelper.getWhoisTemplate().queryForObject("SELECT MAX(serial_id) FROM serials", Integer.class);
+    }
+}
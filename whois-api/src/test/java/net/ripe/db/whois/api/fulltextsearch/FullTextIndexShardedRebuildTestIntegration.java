@@ -0,0 +1,152 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.api.AbstractIntegrationTest;
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.facet.FacetResult;
+import org.apache.lucene.facet.FacetsCollector;
+import org.apache.lucene.facet.FacetsConfig;
+import org.apache.lucene.facet.LabelAndValue;
+import org.apache.lucene.facet.taxonomy.FacetLabel;
+import org.apache.lucene.facet.taxonomy.FastTaxonomyFacetCounts;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+@Category(IntegrationTest.class)
+public class FullTextIndexShardedRebuildTestIntegration extends AbstractIntegrationTest {
+
+    @Autowired FullTextIndex fullTextIndex;
+    @Autowired @Qualifier("whoisSlaveDataSource") DataSource whoisSlaveDataSource;
+    @Autowired SerialTailer serialTailer;
+    @Value("${whois.source}") String source;
+
+    private FullTextIndex shardedIndex;
+
+    @BeforeClass
+    public static void setProperty() {
+        System.setProperty("dir.fulltext.index", "var${jvmId:}/idx-sequential");
+    }
+
+    @AfterClass
+    public static void clearProperty() {
+        System.clearProperty("dir.fulltext.index");
+    }
+
+    @Before
+    public void setUp() {
+        databaseHelper.addObject("mntner: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("person: Test Person\nnic-hdl: TP1-TEST\nsource: TEST");
+        databaseHelper.addObject("role: Test Role\nnic-hdl: TR1-TEST\nsource: TEST");
+        databaseHelper.addObject("organisation: ORG-TO1-TEST\norg-name: Test Organisation\nsource: TEST");
+        databaseHelper.addObject("aut-num: AS3333\nas-name: TEST-AS\nsource: TEST");
+        databaseHelper.addObject("inetnum: 10.0.0.0 - 10.0.0.255\nnetname: TEST-NET\nsource: TEST");
+        databaseHelper.addObject("inet6num: 2001:db8::/32\nnetname: TEST-NET\nsource: TEST");
+        databaseHelper.addObject("domain: 0.0.10.in-addr.arpa\nsource: TEST");
+        databaseHelper.addObject("route: 10.0.0.0/24\norigin: AS3333\nsource: TEST");
+        databaseHelper.addObject("mntner: OTHER-MNT\nsource: TEST");
+
+        fullTextIndex.rebuild();
+
+        shardedIndex = new FullTextIndex(whoisSlaveDataSource, source, "var" + System.getProperty("jvmId", "") + "/idx-sharded",
+                10, 1000, 10000, 1000, 4, false, 1000, 5000, serialTailer);
+        shardedIndex.init();
+        shardedIndex.rebuild();
+    }
+
+    @After
+    public void tearDown() {
+        shardedIndex.destroy();
+    }
+
+    @Test
+    public void same_documents_as_sequential_rebuild() throws IOException {
+        final Map<String, String> documents = getDocuments(fullTextIndex);
+
+        assertThat(documents.size(), is(10));
+        assertThat(getDocuments(shardedIndex), is(documents));
+    }
+
+    @Test
+    public void same_facets_as_sequential_rebuild() throws IOException {
+        final Map<String, Integer> facets = getFacets(fullTextIndex);
+
+        assertThat(facets.get(ObjectType.MNTNER.getName()), is(2));
+        assertThat(getFacets(shardedIndex), is(facets));
+    }
+
+    @Test
+    public void facet_ordinals_preserved_by_add_indexes() throws IOException {
+        for (final ObjectType objectType : ObjectType.values()) {
+            final FacetLabel label = new FacetLabel(FullTextIndex.OBJECT_TYPE_FIELD_NAME, objectType.getName());
+            final int ordinal = getOrdinal(fullTextIndex, label);
+
+            assertThat(ordinal, not(is(-1)));
+            assertThat(objectType.getName(), getOrdinal(shardedIndex, label), is(ordinal));
+        }
+
+        // every document counts towards the facet of its own object type
+        for (final String key : new String[]{"OWNER-MNT", "TP1-TEST", "AS3333", "10.0.0.0 - 10.0.0.255"}) {
+            assertThat(key, getFacets(shardedIndex, key), is(getFacets(fullTextIndex, key)));
+        }
+    }
+
+    private static Map<String, String> getDocuments(final FullTextIndex index) throws IOException {
+        return index.search((indexReader, taxonomyReader, indexSearcher) -> {
+            final Map<String, String> documents = Maps.newHashMap();
+            for (final ScoreDoc scoreDoc : indexSearcher.search(new MatchAllDocsQuery(), Integer.MAX_VALUE).scoreDocs) {
+                final Document document = indexSearcher.doc(scoreDoc.doc);
+                documents.put(document.get(FullTextIndex.LOOKUP_KEY_FIELD_NAME),
+                        document.get(FullTextIndex.OBJECT_TYPE_FIELD_NAME) + " " + document.get(FullTextIndex.PRIMARY_KEY_FIELD_NAME));
+            }
+            return documents;
+        });
+    }
+
+    private static Map<String, Integer> getFacets(final FullTextIndex index) throws IOException {
+        return getFacets(index, null);
+    }
+
+    private static Map<String, Integer> getFacets(final FullTextIndex index, final String lookupKey) throws IOException {
+        return index.search((indexReader, taxonomyReader, indexSearcher) -> {
+            final FacetsCollector facetsCollector = new FacetsCollector();
+            indexSearcher.search(lookupKey == null ?
+                    new MatchAllDocsQuery() :
+                    new TermQuery(new Term(FullTextIndex.LOOKUP_KEY_FIELD_NAME, lookupKey)), facetsCollector);
+
+            final FacetResult facetResult = new FastTaxonomyFacetCounts(taxonomyReader, new FacetsConfig(), facetsCollector)
+                    .getTopChildren(ObjectType.values().length, FullTextIndex.OBJECT_TYPE_FIELD_NAME);
+
+            final Map<String, Integer> facets = Maps.newHashMap();
+            for (final LabelAndValue labelAndValue : facetResult.labelValues) {
+                facets.put(labelAndValue.label, labelAndValue.value.intValue());
+            }
+            return facets;
+        });
+    }
+
+    private static int getOrdinal(final FullTextIndex index, final FacetLabel label) throws IOException {
+        return index.search((indexReader, taxonomyReader, indexSearcher) -> taxonomyReader.getOrdinal(label));
+    }
+}
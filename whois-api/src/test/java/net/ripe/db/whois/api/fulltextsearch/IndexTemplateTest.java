@@ -0,0 +1,108 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class IndexTemplateTest {
+    private IndexTemplate subject;
+
+    @Before
+    public void setUp() throws IOException {
+        subject = new IndexTemplate("", new IndexWriterConfig(FullTextIndex.INDEX_ANALYZER));
+    }
+
+    @After
+    public void tearDown() {
+        subject.close();
+    }
+
+    @Test
+    public void write_is_committed_and_searchable() throws IOException {
+        final AtomicReference<IndexWriter> writer = new AtomicReference<>();
+        subject.write((indexWriter, taxonomyWriter) -> {
+            writer.set(indexWriter);
+            indexWriter.addDocument(document("first"));
+        });
+
+        assertThat(writer.get().hasUncommittedChanges(), is(false));
+        assertThat(numDocs(), is(1));
+    }
+
+    @Test
+    public void apply_without_reopen_thread_is_searchable_before_commit() throws IOException {
+        final AtomicReference<IndexWriter> writer = new AtomicReference<>();
+        subject.apply((indexWriter, taxonomyWriter) -> {
+            writer.set(indexWriter);
+            indexWriter.addDocument(document("first"));
+        });
+
+        assertThat(writer.get().hasUncommittedChanges(), is(true));
+        assertThat(numDocs(), is(1));
+    }
+
+    @Test
+    public void apply_with_reopen_thread_is_searchable_after_wait_for_generation() throws IOException {
+        subject.startReopenThread(60, 0.01);
+
+        final AtomicReference<IndexWriter> writer = new AtomicReference<>();
+        subject.apply((indexWriter, taxonomyWriter) -> {
+            writer.set(indexWriter);
+            indexWriter.addDocument(document("first"));
+        });
+
+        // the reader is only reopened every minute, unless a search waits for the change
+        assertThat(subject.waitForGeneration(writer.get().getMaxCompletedSequenceNumber(), 5000), is(true));
+        assertThat(writer.get().hasUncommittedChanges(), is(true));
+        assertThat(numDocs(), is(1));
+    }
+
+    @Test
+    public void wait_for_generation_not_reached() throws IOException {
+        subject.startReopenThread(60, 0.01);
+
+        final AtomicReference<IndexWriter> writer = new AtomicReference<>();
+        subject.apply((indexWriter, taxonomyWriter) -> writer.set(indexWriter));
+
+        assertThat(subject.waitForGeneration(writer.get().getMaxCompletedSequenceNumber() + 100, 100), is(false));
+    }
+
+    @Test
+    public void writers_recreated_after_failure() throws IOException {
+        final AtomicReference<IndexWriter> writer = new AtomicReference<>();
+        subject.apply((indexWriter, taxonomyWriter) -> {
+            writer.set(indexWriter);
+            indexWriter.addDocument(document("first"));
+        });
+        assertThat(subject.isCurrentWriter(writer.get()), is(true));
+
+        // rolled back, including the changes applied before
+        subject.write((indexWriter, taxonomyWriter) -> {
+            throw new IOException("write");
+        });
+
+        assertThat(subject.isCurrentWriter(writer.get()), is(false));
+        assertThat(numDocs(), is(0));
+    }
+
+    private int numDocs() throws IOException {
+        return subject.read((indexReader, taxonomyReader) -> indexReader.numDocs());
+    }
+
+    private static Document document(final String key) {
+        final Document document = new Document();
+        document.add(new StringField(FullTextIndex.LOOKUP_KEY_FIELD_NAME, key, Field.Store.YES));
+        return document;
+    }
+}
@@ -0,0 +1,217 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.query.acl.AccessControlListManager;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.facet.taxonomy.TaxonomyReader;
+import org.apache.lucene.facet.taxonomy.TaxonomyWriter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RebuildableIndexTest {
+    private static final String REMOTE_ADDRESS = "10.0.0.1";
+    private static final InetAddress REMOTE_INET_ADDRESS = InetAddresses.forString(REMOTE_ADDRESS);
+    private static final RpslObject PERSON = RpslObject.parse("person: Test Person\nnic-hdl: TP1-TEST\nsource: TEST");
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock AccessControlListManager accessControlListManager;
+
+    private TestIndex subject;
+
+    @After
+    public void tearDown() {
+        if (subject != null) {
+            subject.cleanup();
+        }
+    }
+
+    @Test
+    public void rebuild_switches_to_new_generation() throws IOException {
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+
+        final String current = readCurrentFile();
+        assertThat(current, startsWith("generation-"));
+        assertThat(new File(folder.getRoot(), current).isDirectory(), is(true));
+        assertThat(new File(folder.getRoot(), "current.tmp").exists(), is(false));
+
+        // index from before generations were used
+        assertThat(new File(folder.getRoot(), "index").exists(), is(false));
+        assertThat(new File(folder.getRoot(), "taxonomy").exists(), is(false));
+
+        assertThat(count(subject, "rebuild-1"), is(1));
+    }
+
+    @Test
+    public void previous_generation_deleted_after_rebuild() throws IOException, InterruptedException {
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+        final String previous = readCurrentFile();
+
+        // generation names are in milliseconds
+        Thread.sleep(5);
+        subject.rebuild();
+
+        assertThat(readCurrentFile(), not(is(previous)));
+        assertThat(new File(folder.getRoot(), previous).exists(), is(false));
+        assertThat(generations(), arrayWithSize(1));
+        assertThat(count(subject, "rebuild-1"), is(0));
+        assertThat(count(subject, "rebuild-2"), is(1));
+    }
+
+    @Test
+    public void current_generation_opened_on_restart() throws IOException {
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+        subject.cleanup();
+
+        subject = new TestIndex(folder.getRoot());
+
+        assertThat(count(subject, "rebuild-1"), is(1));
+    }
+
+    @Test
+    public void unused_generations_deleted_on_init() throws IOException {
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+        subject.cleanup();
+        final String current = readCurrentFile();
+
+        // left behind by an interrupted rebuild
+        folder.newFolder("generation-1");
+
+        subject = new TestIndex(folder.getRoot());
+
+        assertThat(generations(), arrayWithSize(1));
+        assertThat(new File(folder.getRoot(), current).isDirectory(), is(true));
+    }
+
+    @Test
+    public void missing_generation_uses_index_directory() throws IOException {
+        Files.write(new File(folder.getRoot(), "current").toPath(), "generation-1".getBytes(StandardCharsets.UTF_8));
+
+        subject = new TestIndex(folder.getRoot());
+
+        assertThat(new File(folder.getRoot(), "index").isDirectory(), is(true));
+        assertThat(count(subject, "rebuild-1"), is(0));
+    }
+
+    @Test
+    public void search_retried_on_rebuilt_index() throws IOException {
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+
+        final AtomicInteger attempts = new AtomicInteger();
+        final int count = subject.search((indexReader, taxonomyReader, indexSearcher) -> {
+            if (attempts.incrementAndGet() == 1) {
+                subject.rebuild();
+                throw new AlreadyClosedException("switched");
+            }
+            return indexSearcher.count(new TermQuery(new Term(FullTextIndex.LOOKUP_KEY_FIELD_NAME, "rebuild-2")));
+        });
+
+        assertThat(attempts.get(), is(2));
+        assertThat(count, is(1));
+    }
+
+    @Test
+    public void retried_search_accounted_once() throws IOException {
+        when(accessControlListManager.isUnlimited(REMOTE_INET_ADDRESS)).thenReturn(false);
+        when(accessControlListManager.isDenied(REMOTE_INET_ADDRESS)).thenReturn(false);
+        when(accessControlListManager.canQueryPersonalObjects(REMOTE_INET_ADDRESS)).thenReturn(true);
+        when(accessControlListManager.requiresAcl(any(RpslObject.class), any(Source.class))).thenReturn(true);
+        when(accessControlListManager.getPersonalObjects(REMOTE_INET_ADDRESS)).thenReturn(10);
+
+        subject = new TestIndex(folder.getRoot());
+        subject.rebuild();
+
+        final AtomicInteger attempts = new AtomicInteger();
+        subject.search(new IndexTemplate.AccountingSearchCallback<Void>(accessControlListManager, REMOTE_ADDRESS, Source.slave("TEST")) {
+            @Override
+            protected Void doSearch(final IndexReader indexReader, final TaxonomyReader taxonomyReader, final IndexSearcher indexSearcher) {
+                // the same objects are found again on the rebuilt index
+                account(PERSON);
+                account(PERSON);
+
+                if (attempts.incrementAndGet() == 1) {
+                    subject.rebuild();
+                    throw new AlreadyClosedException("switched");
+                }
+                return null;
+            }
+        });
+
+        assertThat(attempts.get(), is(2));
+        verify(accessControlListManager).accountPersonalObjects(REMOTE_INET_ADDRESS, 2);
+    }
+
+    private String readCurrentFile() throws IOException {
+        return new String(Files.readAllBytes(new File(folder.getRoot(), "current").toPath()), StandardCharsets.UTF_8);
+    }
+
+    private File[] generations() {
+        return folder.getRoot().listFiles((dir, name) -> name.startsWith("generation-"));
+    }
+
+    private static int count(final RebuildableIndex index, final String key) throws IOException {
+        return index.search((indexReader, taxonomyReader, indexSearcher) ->
+                indexSearcher.count(new TermQuery(new Term(FullTextIndex.LOOKUP_KEY_FIELD_NAME, key))));
+    }
+
+    private static final class TestIndex extends RebuildableIndex {
+        private final AtomicInteger rebuilds = new AtomicInteger();
+
+        private TestIndex(final File indexDir) {
+            super(LoggerFactory.getLogger(TestIndex.class), indexDir.getPath(), new SearchAdmission(10, 1000, 1000));
+            init(new IndexWriterConfig(FullTextIndex.INDEX_ANALYZER), this::update);
+        }
+
+        @Override
+        protected void update(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) {
+        }
+
+        @Override
+        protected void rebuild(final IndexWriter indexWriter, final TaxonomyWriter taxonomyWriter) throws IOException {
+            indexWriter.deleteAll();
+
+            final Document document = new Document();
+            document.add(new StringField(FullTextIndex.LOOKUP_KEY_FIELD_NAME, "rebuild-" + rebuilds.incrementAndGet(), Field.Store.YES));
+            indexWriter.addDocument(document);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.ripe.db.whois.api.fulltextsearch;
+
+import org.junit.Test;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+
+public class SearchAdmissionTest {
+
+    @Test
+    public void admit_up_to_limit() throws Exception {
+        final SearchAdmission subject = new SearchAdmission(2, 1000, 10);
+
+        subject.acquire();
+        subject.acquire();
+
+        try {
+            subject.acquire();
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertThat(e.getMessage(), is("Too many concurrent searches"));
+        }
+
+        assertThat(subject.getInFlight(), is(2));
+        assertThat(subject.getAdmitted(), is(2L));
+        assertThat(subject.getRejected(), is(1L));
+    }
+
+    @Test
+    public void waiting_search_admitted_on_release() throws Exception {
+        final SearchAdmission subject = new SearchAdmission(1, 1000, 10000);
+        subject.acquire();
+
+        final Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            subject.release(0);
+        });
+        thread.start();
+
+        subject.acquire();
+        thread.join();
+
+        assertThat(subject.getInFlight(), is(1));
+        assertThat(subject.getQueued(), is(1L));
+        assertThat(subject.getRejected(), is(0L));
+    }
+
+    @Test
+    public void limit_adapts_to_latency() throws Exception {
+        final SearchAdmission subject = new SearchAdmission(20, 100, 10);
+
+        subject.acquire();
+        subject.release(TimeUnit.SECONDS.toNanos(1));
+        assertThat(subject.getLimit(), is(18));
+
+        subject.acquire();
+        subject.release(TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(subject.getLimit(), is(19));
+
+        for (int i = 0; i < 100; i++) {
+            subject.acquire();
+            subject.release(TimeUnit.SECONDS.toNanos(1));
+        }
+        assertThat(subject.getLimit(), is(1));
+    }
+}
@@ -0,0 +1,27 @@
+package net.ripe.db.whois.api.httpserver;
+
+import org.junit.Test;
+
+import javax.ws.rs.core.Response;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class DefaultExceptionMapperTest {
+    private final DefaultExceptionMapper subject = new DefaultExceptionMapper();
+
+    @Test
+    public void rejected_search_is_service_unavailable() {
+        final Response response = subject.toResponse(new RejectedExecutionException("Too many concurrent searches"));
+
+        assertThat(response.getStatus(), is(Response.Status.SERVICE_UNAVAILABLE.getStatusCode()));
+    }
+
+    @Test
+    public void unexpected_exception_is_internal_server_error() {
+        final Response response = subject.toResponse(new NullPointerException());
+
+        assertThat(response.getStatus(), is(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()));
+    }
+}
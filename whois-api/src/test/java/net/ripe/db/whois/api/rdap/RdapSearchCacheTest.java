@@ -0,0 +1,111 @@
+package net.ripe.db.whois.api.rdap;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class RdapSearchCacheTest {
+    private static final List<String> KEY = ImmutableList.of("person", "role", "org-name", "test");
+    private static final List<String> OTHER_KEY = ImmutableList.of("domain", "test");
+
+    private RAMDirectory directory;
+    private IndexWriter indexWriter;
+    private DirectoryReader reader;
+
+    private final RdapSearchCache subject = new RdapSearchCache(10);
+
+    @Before
+    public void setUp() throws IOException {
+        directory = new RAMDirectory();
+        indexWriter = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+        addDocument("first");
+        indexWriter.commit();
+        reader = DirectoryReader.open(indexWriter);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        reader.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    @Test
+    public void hit_on_same_reader() {
+        subject.put(reader, KEY, ImmutableList.of(1, 2));
+
+        assertThat(subject.get(reader, KEY), contains(1, 2));
+    }
+
+    @Test
+    public void miss_on_other_search() {
+        subject.put(reader, KEY, ImmutableList.of(1, 2));
+
+        assertThat(subject.get(reader, OTHER_KEY), is(nullValue()));
+    }
+
+    @Test
+    public void invalidated_by_uncommitted_change() throws IOException {
+        subject.put(reader, KEY, ImmutableList.of(1, 2));
+
+        // near-real-time reader, no commit
+        addDocument("second");
+        final DirectoryReader changed = DirectoryReader.openIfChanged(reader, indexWriter);
+        try {
+            assertThat(changed, not(nullValue()));
+            assertThat(subject.get(changed, KEY), is(nullValue()));
+
+            subject.put(changed, KEY, ImmutableList.of(1, 2, 3));
+            assertThat(subject.get(changed, KEY), contains(1, 2, 3));
+            assertThat(subject.get(reader, KEY), is(nullValue()));
+        } finally {
+            changed.close();
+        }
+    }
+
+    @Test
+    public void invalidated_by_rebuilt_index() throws IOException {
+        subject.put(reader, KEY, ImmutableList.of(1, 2));
+
+        // a rebuilt index
+        try (RAMDirectory otherDirectory = new RAMDirectory();
+             IndexWriter otherWriter = new IndexWriter(otherDirectory, new IndexWriterConfig(new StandardAnalyzer()))) {
+            otherWriter.addDocument(document("first"));
+            otherWriter.commit();
+
+            try (DirectoryReader other = DirectoryReader.open(otherWriter)) {
+                assertThat(other.getReaderCacheHelper().getKey(), not(sameInstance(reader.getReaderCacheHelper().getKey())));
+                assertThat(subject.get(other, KEY), is(nullValue()));
+            }
+        }
+    }
+
+    private void addDocument(final String key) throws IOException {
+        indexWriter.addDocument(document(key));
+    }
+
+    private static Document document(final String key) {
+        final Document document = new Document();
+        document.add(new StringField("lookup-key", key, Field.Store.YES));
+        return document;
+    }
+}
@@ -3,8 +3,12 @@ package net.ripe.db.whois.api.rest;
 import net.ripe.db.whois.api.AbstractIntegrationTest;
 import net.ripe.db.whois.api.ZonemasterDummy;
 import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.Message;
+import net.ripe.db.whois.common.Messages;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.dns.DnsCheckRequest;
+import net.ripe.db.whois.update.dns.DnsCheckResponse;
+import net.ripe.db.whois.update.dns.zonemaster.ZonemasterDnsGateway;
 import net.ripe.db.whois.update.dns.zonemaster.ZonemasterRestClient;
 import net.ripe.db.whois.update.dns.zonemaster.domain.StartDomainTestRequest;
 import net.ripe.db.whois.update.dns.zonemaster.domain.StartDomainTestResponse;
@@ -19,6 +23,7 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -56,6 +61,34 @@ public class ZonemasterTestIntegration extends AbstractIntegrationTest {
         assertThat(response.getResult(), is("b3a92c89c92414ed"));
     }
 
+    @Test
+    public void domain_check_with_async_client() {
+        zonemasterDummy.whenThen(ZonemasterRequest.Method.START_DOMAIN_TEST.getMethod(), "{\"jsonrpc\":\"2.0\",\"id\":4,\"result\":\"c45a3f8256c4a155\"}\n");
+        zonemasterDummy.whenThen(ZonemasterRequest.Method.TEST_PROGRESS.getMethod(), "{\"jsonrpc\":\"2.0\",\"id\":5,\"result\":\"50\"}\n");
+        zonemasterDummy.whenThen(ZonemasterRequest.Method.TEST_PROGRESS.getMethod(), "{\"jsonrpc\":\"2.0\",\"id\":5,\"result\":\"100\"}\n");
+        zonemasterDummy.whenThen(ZonemasterRequest.Method.GET_TEST_RESULTS.getMethod(), "{\"jsonrpc\":\"2.0\",\"id\":6,\"result\":{\"hash_id\":\"c45a3f8256c4a155\",\"results\":[" +
+                "{\"module\":\"DELEGATION\",\"level\":\"ERROR\",\"message\":\"Nameserver ns1.ripe.net does not answer\"}," +
+                "{\"module\":\"SYSTEM\",\"level\":\"INFO\",\"message\":\"Using version v1.0.16\"}]}}\n");
+        final RpslObject domainObject = RpslObject.parse(
+            "domain:    2.0.10.in-addr.arpa\n" +
+            "nserver:   ns1.ripe.net\n" +
+            "nserver:   ns2.ripe.net\n" +
+            "source:    TEST");
+        final DnsCheckRequest request = new DnsCheckRequest(createUpdate(domainObject), domainObject.getKey().toString(), "ns1.ripe.net ns2.ripe.net");
+        final ZonemasterDnsGateway gateway = new ZonemasterDnsGateway(zonemasterRestClient, 10, 60);
+
+        try {
+            final DnsCheckResponse response = gateway.performDnsCheck(request).join();
+            // the cached result is returned, without any further requests to zonemaster
+            final DnsCheckResponse cached = gateway.performDnsCheck(request).join();
+
+            assertThat(response.getMessages(), contains(new Message(Messages.Type.ERROR, "Nameserver ns1.ripe.net does not answer")));
+            assertThat(cached.getMessages(), is(response.getMessages()));
+        } finally {
+            gateway.stop();
+        }
+    }
+
     // helper methods
 
     private static Update createUpdate(final RpslObject rpslObject) {
@@ -55,6 +55,20 @@ public class QueryParser {
         searchKey = SPACE_JOINER.join(searchKeys);
     }
 
+    private QueryParser(final String originalStringQuery, final String searchKey, final OptionSet options, final boolean hasSubstitutions) {
+        this.originalStringQuery = originalStringQuery;
+        this.searchKey = searchKey;
+        this.options = options;
+        this.hasSubstitutions = hasSubstitutions;
+    }
+
+    /**
+     * The given query, which has the same options as this one (parsed without search key) followed by the search key.
+     */
+    public QueryParser withSearchKey(final String query, final String searchKey, final boolean hasSubstitutions) {
+        return new QueryParser(query, searchKey, options, hasSubstitutions);
+    }
+
     public String getSearchKey() {
         return searchKey;
     }
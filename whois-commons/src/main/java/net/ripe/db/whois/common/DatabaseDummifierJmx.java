@@ -79,7 +79,7 @@ public class DatabaseDummifierJmx extends JmxBase {
             @Override
             public String call() {
                 validateJdbcUrl(user, pass);
-                final SimpleDataSourceFactory simpleDataSourceFactory = new SimpleDataSourceFactory("org.mariadb.jdbc.Driver");
+                final SimpleDataSourceFactory simpleDataSourceFactory = new SimpleDataSourceFactory("org.mariadb.jdbc.Driver", 100, 0);
                 final DataSource dataSource = simpleDataSourceFactory.createDataSource(jdbcUrl, user, pass);
                 jdbcTemplate = new JdbcTemplate(dataSource);
 
@@ -0,0 +1,92 @@
+package net.ripe.db.whois.common.collect;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Like {@link IterableTransformer}, but maps windows of consecutive elements at a time, so lookups for the elements
+ * (e.g. in the database) can be done for the whole window at once.
+ */
+public abstract class WindowedIterableTransformer<T> implements Iterable<T> {
+    final Iterable<? extends T> wrap;
+    final int windowSize;
+    Collection<T> head;
+
+    public WindowedIterableTransformer(final Iterable<? extends T> wrap, final int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+
+        this.wrap = wrap;
+        this.windowSize = windowSize;
+        head = null;
+    }
+
+    /**
+     * efficiently add extra headers, as in iterable elements at the beginning of the iterable
+     * headers are not fed into apply() but passed down directly
+     */
+    public WindowedIterableTransformer<T> setHeader(T... header) {
+        head = Arrays.asList(header);
+        return this;
+    }
+
+    /**
+     * <tt>window</tt> holds at most window size consecutive elements, in order.
+     * <tt>result</tt> is empty on call, should be filled with returned elements (or left empty).
+     * Trying to add null elements will throw NullPointerException.
+     */
+    public abstract void apply(final List<T> window, final Deque<T> result);
+
+    @Override
+    public Iterator<T> iterator() {
+        return new WindowIterator(head);
+    }
+
+    private final class WindowIterator implements Iterator<T> {
+        final Iterator<? extends T> it = wrap.iterator();
+
+        final Deque<T> results;
+
+        WindowIterator(Collection<T> header) {
+            if (header != null) {
+                results = new ArrayDeque<>(header);
+            } else {
+                results = new ArrayDeque<>();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (results.isEmpty() && it.hasNext()) {
+                final List<T> window = new ArrayList<>(windowSize);
+                while (window.size() < windowSize && it.hasNext()) {
+                    window.add(it.next());
+                }
+
+                apply(window, results);
+            }
+            return !results.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            return results.pop();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
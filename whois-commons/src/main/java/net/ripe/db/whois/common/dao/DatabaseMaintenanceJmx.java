@@ -62,6 +62,20 @@ public class DatabaseMaintenanceJmx extends JmxBase {
         });
     }
 
+    @ManagedOperation(description = "Rebuild all indexes into shadow tables while updates continue, and switch to them when done")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "comment", description = "Optional comment for invoking the operation")
+    })
+    public void rebuildIndexesOnline(final String comment) {
+        backgroundOperation("Rebuild indexes online", comment, new Callable<Void>() {
+            @Override
+            public Void call() {
+                indexDao.rebuildOnline();
+                return null;
+            }
+        });
+    }
+
     @ManagedOperation(description = "Rebuild indexes for specified object")
     @ManagedOperationParameters({
             @ManagedOperationParameter(name = "objectId", description = "Id of the object to rebuild"),
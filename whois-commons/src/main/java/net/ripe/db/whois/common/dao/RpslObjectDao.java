@@ -11,6 +11,7 @@ import java.time.LocalDateTime;
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 // these should return Collection<> instead of List<> to allow for greater flexibility in implementation
@@ -19,6 +20,8 @@ public interface RpslObjectDao extends ProxyLoader<Identifiable, RpslObject> {
 
     LocalDateTime getLastUpdated(int objectId);
 
+    Map<Integer, LocalDateTime> getLastUpdated(Collection<Integer> objectIds);
+
     RpslObject getByKey(ObjectType type, CIString key);
 
     RpslObject getByKey(ObjectType type, String searchKey);
@@ -50,4 +53,11 @@ public interface RpslObjectDao extends ProxyLoader<Identifiable, RpslObject> {
     List<RpslObjectInfo> findMemberOfByObjectTypeWithoutMbrsByRef(ObjectType objectType, String attributeValue);
 
     Collection<RpslObjectInfo> relatedTo(RpslObject identifiable, Set<ObjectType> excludeObjectTypes);
+
+    /**
+     * Related objects of each of the given objects, looked up together.
+     *
+     * @return the related objects, in the same order as the given objects
+     */
+    List<Collection<RpslObjectInfo>> relatedTo(List<RpslObject> rpslObjects, Set<ObjectType> excludeObjectTypes);
 }
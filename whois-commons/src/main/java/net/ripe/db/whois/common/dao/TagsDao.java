@@ -4,12 +4,24 @@ package net.ripe.db.whois.common.dao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Tag;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface TagsDao {
 
     List<Tag> getTags(Integer objectId);
 
+    /**
+     * Tags of the given objects in one query, by object id. Objects without tags are left out.
+     */
+    Map<Integer, List<Tag>> getTags(Collection<Integer> objectIds);
+
+    /**
+     * Tags of the objects with an object id in the given (inclusive) range, by object id. Objects without tags are left out.
+     */
+    Map<Integer, List<Tag>> getTagsInRange(int fromObjectId, int toObjectId);
+
     List<Tag> getTagsOfType(CIString type);
 
     void createTag(Tag tag);
@@ -1,5 +1,24 @@
 package net.ripe.db.whois.common.dao;
 
+import net.ripe.db.whois.common.domain.CIString;
+
+import java.util.Set;
+
 public interface UpdateLockDao {
+    /**
+     * Exclusive lock, no other update can run until the current transaction ends.
+     */
     void setUpdateLock();
+
+    /**
+     * Lock only the given resources (e.g. object keys) until the current transaction ends.
+     * Updates locking other resources can run concurrently, but not while an exclusive lock is held.
+     */
+    void setUpdateLock(Set<CIString> resources);
+
+    /**
+     * Exclusive lock taken with resource locks before the serial is written, until the current transaction ends.
+     * Serials are read up to the last one (e.g. by NRTM), so they must be committed in order.
+     */
+    void setSerialLock();
 }
@@ -3,6 +3,11 @@ package net.ripe.db.whois.common.dao.jdbc;
 public interface IndexDao {
     void rebuild();
 
+    /**
+     * Rebuild all indexes into shadow tables and swap them in, only blocking updates for the final catch up.
+     */
+    void rebuildOnline();
+
     void rebuildForObject(int objectId);
 
     void pause();
@@ -32,6 +32,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
 public class JdbcIndexDao implements IndexDao {
@@ -44,6 +45,8 @@ public class JdbcIndexDao implements IndexDao {
     private final UpdateLockDao updateLockDao;
     private final AttributeSanitizer attributeSanitizer;
     private final ConcurrentState state;
+    private final OnlineIndexRebuild onlineIndexRebuild;
+    private final AtomicBoolean rebuildingOnline = new AtomicBoolean();
     private enum Phase {KEYS, OTHER}
 
     @Autowired
@@ -52,6 +55,7 @@ public class JdbcIndexDao implements IndexDao {
         this.updateLockDao = updateLockDao;
         this.attributeSanitizer = attributeSanitizer;
         this.state = new ConcurrentState();
+        this.onlineIndexRebuild = new OnlineIndexRebuild(dataSource, updateLockDao);
     }
 
     @Override
@@ -63,6 +67,19 @@ public class JdbcIndexDao implements IndexDao {
         rebuildForObjects(objectIds, Phase.OTHER);
     }
 
+    @Override
+    public void rebuildOnline() {
+        if (!rebuildingOnline.compareAndSet(false, true)) {
+            throw new IllegalStateException("Online index rebuild already running");
+        }
+
+        try {
+            onlineIndexRebuild.rebuild();
+        } finally {
+            rebuildingOnline.set(false);
+        }
+    }
+
     @Override
     public void pause() {
         state.set(false);
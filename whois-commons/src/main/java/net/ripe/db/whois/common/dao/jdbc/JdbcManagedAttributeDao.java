@@ -25,7 +25,7 @@ public class JdbcManagedAttributeDao {
     private final Maintainers maintainers;
 
     @Autowired
-    public JdbcManagedAttributeDao(@Qualifier("whoisSlaveDataSource") final DataSource dataSource,
+    public JdbcManagedAttributeDao(@Qualifier("whoisReadOnlyDataSource") final DataSource dataSource,
                                    final Maintainers maintainers) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.maintainers = maintainers;
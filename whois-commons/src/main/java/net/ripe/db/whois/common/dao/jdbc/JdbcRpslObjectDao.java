@@ -11,6 +11,8 @@ import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectInfoResultSetExtractor
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectRowMapper;
 import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
 import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
+import net.ripe.db.whois.common.dao.jdbc.index.JdbcReferenceResolver;
+import net.ripe.db.whois.common.dao.jdbc.index.ReferenceResolver;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Identifiable;
 import net.ripe.db.whois.common.domain.Timestamp;
@@ -33,6 +35,7 @@ import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.dao.RecoverableDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 
@@ -51,6 +54,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 
 @Repository
 @Primary
@@ -62,11 +66,13 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final SourceContext sourceContext;
+    private final ReferenceResolver referenceResolver;
 
     @Autowired
     public JdbcRpslObjectDao(@Qualifier("sourceAwareDataSource") final DataSource dataSource, final SourceContext sourceContext) {
         this.jdbcTemplate = new JdbcTemplate(dataSource);
         this.sourceContext = sourceContext;
+        this.referenceResolver = new JdbcReferenceResolver(jdbcTemplate);
     }
 
     @Override
@@ -177,6 +183,21 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
         return (Timestamp.fromSeconds(timestamp)).toLocalDateTime();
     }
 
+    @Override
+    public Map<Integer, LocalDateTime> getLastUpdated(final Collection<Integer> objectIds) {
+        final Map<Integer, LocalDateTime> lastUpdated = Maps.newHashMapWithExpectedSize(objectIds.size());
+        if (objectIds.isEmpty()) {
+            return lastUpdated;
+        }
+
+        new NamedParameterJdbcTemplate(jdbcTemplate).query(
+                "SELECT object_id, timestamp FROM last WHERE object_id IN (:objectIds)",
+                Collections.singletonMap("objectIds", objectIds),
+                (RowCallbackHandler) rs -> lastUpdated.put(rs.getInt(1), Timestamp.fromSeconds(rs.getLong(2)).toLocalDateTime()));
+
+        return lastUpdated;
+    }
+
     @Override
     public RpslObject getByKey(final ObjectType type, final String key) {
         return getById(findByKey(type, key).getObjectId());
@@ -328,22 +349,57 @@ public class JdbcRpslObjectDao implements RpslObjectDao {
     public Collection<RpslObjectInfo> relatedTo(final RpslObject identifiable, final Set<ObjectType> excludeObjectTypes) {
         final LinkedHashSet<RpslObjectInfo> result = Sets.newLinkedHashSet();
 
-        for (final RpslAttribute attribute : identifiable.findAttributes(RELATED_TO_ATTRIBUTES)) {
+        forEachRelatedKey(identifiable, excludeObjectTypes, (objectType, referenceValue) -> {
+            for (RpslObjectInfo rpslObjectInfo : findByKeyInIndex(objectType, referenceValue.toString())) {
+                if (rpslObjectInfo.getObjectId() != identifiable.getObjectId()) {
+                    result.add(rpslObjectInfo);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    @Override
+    public List<Collection<RpslObjectInfo>> relatedTo(final List<RpslObject> rpslObjects, final Set<ObjectType> excludeObjectTypes) {
+        final Map<ObjectType, Set<CIString>> keysByType = Maps.newEnumMap(ObjectType.class);
+        for (final RpslObject rpslObject : rpslObjects) {
+            forEachRelatedKey(rpslObject, excludeObjectTypes, (objectType, referenceValue) ->
+                    keysByType.computeIfAbsent(objectType, type -> Sets.newHashSet()).add(referenceValue));
+        }
+
+        // one lookup per referenced object type for the keys of all objects
+        final Map<ObjectType, Map<CIString, RpslObjectInfo>> referencesByType = Maps.newEnumMap(ObjectType.class);
+        for (final Map.Entry<ObjectType, Set<CIString>> entry : keysByType.entrySet()) {
+            referencesByType.put(entry.getKey(), referenceResolver.resolve(entry.getKey(), entry.getValue()));
+        }
+
+        final List<Collection<RpslObjectInfo>> result = Lists.newArrayListWithExpectedSize(rpslObjects.size());
+        for (final RpslObject rpslObject : rpslObjects) {
+            final LinkedHashSet<RpslObjectInfo> related = Sets.newLinkedHashSet();
+
+            forEachRelatedKey(rpslObject, excludeObjectTypes, (objectType, referenceValue) -> {
+                final RpslObjectInfo rpslObjectInfo = referencesByType.get(objectType).get(referenceValue);
+                if (rpslObjectInfo != null && rpslObjectInfo.getObjectId() != rpslObject.getObjectId()) {
+                    related.add(rpslObjectInfo);
+                }
+            });
+
+            result.add(related);
+        }
+
+        return result;
+    }
+
+    private static void forEachRelatedKey(final RpslObject rpslObject, final Set<ObjectType> excludeObjectTypes, final BiConsumer<ObjectType, CIString> consumer) {
+        for (final RpslAttribute attribute : rpslObject.findAttributes(RELATED_TO_ATTRIBUTES)) {
             for (final CIString referenceValue : attribute.getReferenceValues()) {
                 for (final ObjectType objectType : attribute.getType().getReferences(referenceValue)) {
-                    if (excludeObjectTypes.contains(objectType)) {
-                        continue;
-                    }
-
-                    for (RpslObjectInfo rpslObjectInfo : findByKeyInIndex(objectType, referenceValue.toString())) {
-                        if (rpslObjectInfo.getObjectId() != identifiable.getObjectId()) {
-                            result.add(rpslObjectInfo);
-                        }
+                    if (!excludeObjectTypes.contains(objectType)) {
+                        consumer.accept(objectType, referenceValue);
                     }
                 }
             }
         }
-
-        return result;
     }
 }
@@ -7,19 +7,17 @@ import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
 import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
 import net.ripe.db.whois.common.dao.jdbc.domain.RpslObjectRowMapper;
+import net.ripe.db.whois.common.dao.jdbc.index.BatchIndexWriter;
 import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
-import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
+import net.ripe.db.whois.common.dao.jdbc.index.JdbcReferenceResolver;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.Identifiable;
 import net.ripe.db.whois.common.domain.Timestamp;
 import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
 import net.ripe.db.whois.common.domain.serials.SerialEntry;
 import net.ripe.db.whois.common.domain.serials.SerialRange;
-import net.ripe.db.whois.common.rpsl.AttributeTemplate;
-import net.ripe.db.whois.common.rpsl.AttributeType;
-import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -39,6 +37,7 @@ import org.springframework.stereotype.Component;
 import javax.annotation.CheckForNull;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
@@ -57,48 +56,11 @@ public class JdbcRpslObjectOperations {
     }
 
     public static Set<CIString> insertIntoTablesIgnoreMissing(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject) {
-        final Set<CIString> missingReferences = Sets.newHashSet();
-        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObject.getType());
+        final BatchIndexWriter indexWriter = new BatchIndexWriter(jdbcTemplate, new JdbcReferenceResolver(jdbcTemplate));
+        indexWriter.addToIndex(rpslObjectInfo, rpslObject);
 
-        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
-        for (final AttributeType keyAttributeType : keyAttributes) {
-            missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, keyAttributeType));
-        }
-
-        for (final AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
-            final AttributeType attributeType = attributeTemplate.getAttributeType();
-            if (!keyAttributes.contains(attributeType)) {
-                missingReferences.addAll(insertAttributeIndex(jdbcTemplate, rpslObjectInfo, rpslObject, attributeType));
-            }
-        }
-
-        return missingReferences;
-    }
-
-    private static Set<CIString> insertAttributeIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo, final RpslObject rpslObject, final AttributeType attributeType) {
-        final Set<CIString> missingReferences = Sets.newHashSet();
-
-        final IndexStrategy indexStrategy = IndexStrategies.get(attributeType);
-
-        final Set<CIString> uniqueValues = Sets.newHashSet();
-        final List<RpslAttribute> attributes = rpslObject.findAttributes(attributeType);
-        for (final RpslAttribute attribute : attributes) {
-            for (final CIString value : attribute.getReferenceValues()) {
-                if (uniqueValues.add(value)) {
-                    try {
-                        final int rows = indexStrategy.addToIndex(jdbcTemplate, rpslObjectInfo, rpslObject, value.toString());
-                        if (rows < 1) {
-                            throw new DataIntegrityViolationException("Rows affected: " + rows);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        LOGGER.debug("Missing reference: " + value, e);
-                        missingReferences.add(value);
-                    }
-                }
-            }
-        }
-
-        return missingReferences;
+        final Set<CIString> missingReferences = indexWriter.flush().get(rpslObjectInfo.getObjectId());
+        return missingReferences == null ? Collections.emptySet() : missingReferences;
     }
 
     public static RpslObjectUpdateInfo lookupRpslObjectUpdateInfo(final JdbcTemplate jdbcTemplate, final ObjectType type, final String pkey) {
@@ -130,11 +92,7 @@ public class JdbcRpslObjectOperations {
     }
 
     public static void deleteFromTables(final JdbcTemplate jdbcTemplate, final RpslObjectInfo rpslObjectInfo) {
-        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(rpslObjectInfo.getObjectType());
-
-        for (AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
-            IndexStrategies.get(attributeTemplate.getAttributeType()).removeFromIndex(jdbcTemplate, rpslObjectInfo);
-        }
+        IndexStrategies.removeFromIndexes(jdbcTemplate, rpslObjectInfo);
     }
 
     public static void copyToHistoryAndUpdateSerials(final JdbcTemplate jdbcTemplate, final RpslObjectUpdateInfo rpslObjectInfo) {
@@ -410,6 +368,46 @@ public class JdbcRpslObjectOperations {
         }
     }
 
+    /**
+     * Serial entries with serial_id in (fromExclusive, toInclusive], in serial order, in a single query.
+     */
+    public static List<SerialEntry> getSerialEntries(final JdbcTemplate jdbcTemplate, final int fromExclusive, final int toInclusive) {
+        return Lists.transform(getSerialChanges(jdbcTemplate, fromExclusive, toInclusive), SerialChange::getSerialEntry);
+    }
+
+    /**
+     * As {@link #getSerialEntries(JdbcTemplate, int, int)}, with the serial of every entry.
+     */
+    public static List<SerialChange> getSerialChanges(final JdbcTemplate jdbcTemplate, final int fromExclusive, final int toInclusive) {
+        return jdbcTemplate.query("" +
+                "SELECT serials.operation," +
+                "       serials.atlast," +
+                "       serials.object_id," +
+                "       last.timestamp," +
+                "       COALESCE(legacy_history.timestamp, rdp_history.timestamp)," +
+                "       IF(last.sequence_id, last.object, COALESCE(legacy_history.object," +
+                "                                         rdp_history.object))," +
+                "       serials.serial_id " +
+                "FROM   serials" +
+                "       LEFT JOIN last" +
+                "              ON last.object_id = serials.object_id" +
+                "       LEFT JOIN history legacy_history" +
+                "              ON legacy_history.object_id = serials.object_id" +
+                "                 AND legacy_history.sequence_id = serials.sequence_id" +
+                "       LEFT JOIN history rdp_history" +
+                "              ON rdp_history.object_id = serials.object_id" +
+                "                 AND rdp_history.sequence_id = serials.sequence_id - 1 " +
+                "WHERE  serials.serial_id > ? " +
+                "AND    serials.serial_id <= ? " +
+                "ORDER BY serials.serial_id", (rs, rowNum) -> {
+            try {
+                return new SerialChange(rs.getInt(7), new SerialEntry(Operation.getByCode(rs.getInt(1)), rs.getBoolean(2), rs.getInt(3), rs.getInt(4), rs.getInt(5), rs.getBytes(6)));
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Failed at serial_id " + rs.getInt(7), e);
+            }
+        }, fromExclusive, toInclusive);
+    }
+
     @CheckForNull
     public static SerialEntry getSerialEntryForNrtm(final JdbcTemplate jdbcTemplate, final int serialId) {
         try {
@@ -14,7 +14,7 @@ import javax.sql.DataSource;
 public class JdbcRpslObjectSlaveDao extends JdbcRpslObjectDao {
 
     @Autowired
-    public JdbcRpslObjectSlaveDao(@Qualifier("whoisSlaveDataSource") final DataSource dataSource, final SourceContext sourceContext) {
+    public JdbcRpslObjectSlaveDao(@Qualifier("whoisReadOnlyDataSource") final DataSource dataSource, final SourceContext sourceContext) {
         super(dataSource, sourceContext);
     }
 
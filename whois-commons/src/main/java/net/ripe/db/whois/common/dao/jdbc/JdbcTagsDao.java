@@ -1,5 +1,7 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import net.ripe.db.whois.common.aspects.RetryFor;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.CIString;
@@ -9,7 +11,9 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.RecoverableDataAccessException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -17,7 +21,10 @@ import javax.sql.DataSource;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 @RetryFor(RecoverableDataAccessException.class)
@@ -39,6 +46,40 @@ public class JdbcTagsDao implements TagsDao {
                 objectId);
     }
 
+    @Override
+    public Map<Integer, List<Tag>> getTags(final Collection<Integer> objectIds) {
+        final Map<Integer, List<Tag>> tags = Maps.newHashMap();
+        if (objectIds.isEmpty()) {
+            return tags;
+        }
+
+        new NamedParameterJdbcTemplate(jdbcTemplate).query("" +
+                "SELECT object_id, tag_id, data " +
+                "FROM tags " +
+                "WHERE object_id IN (:objectIds)",
+                Collections.singletonMap("objectIds", objectIds),
+                new TagsByObjectIdHandler(tags));
+
+        return tags;
+    }
+
+    @Override
+    public Map<Integer, List<Tag>> getTagsInRange(final int fromObjectId, final int toObjectId) {
+        final Map<Integer, List<Tag>> tags = Maps.newHashMap();
+
+        // range scan over the primary key
+        jdbcTemplate.query("" +
+                "SELECT object_id, tag_id, data " +
+                "FROM tags " +
+                "WHERE object_id BETWEEN ? AND ? " +
+                "ORDER BY object_id, tag_id",
+                new TagsByObjectIdHandler(tags),
+                fromObjectId,
+                toObjectId);
+
+        return tags;
+    }
+
     @Override
     public List<Tag> getTagsOfType(final CIString type) {
         return jdbcTemplate.query("" +
@@ -124,6 +165,21 @@ public class JdbcTagsDao implements TagsDao {
         createTags(creates);
     }
 
+    private static class TagsByObjectIdHandler implements RowCallbackHandler {
+        private final TagRowMapper tagRowMapper = new TagRowMapper();
+        private final Map<Integer, List<Tag>> tags;
+
+        private TagsByObjectIdHandler(final Map<Integer, List<Tag>> tags) {
+            this.tags = tags;
+        }
+
+        @Override
+        public void processRow(final ResultSet rs) throws SQLException {
+            final Tag tag = tagRowMapper.mapRow(rs, 0);
+            tags.computeIfAbsent(tag.getObjectId(), objectId -> Lists.newArrayList()).add(tag);
+        }
+    }
+
     private static class TagRowMapper implements RowMapper<Tag> {
         @Override
         public Tag mapRow(final ResultSet rs, final int rowNum) throws SQLException {
@@ -1,6 +1,8 @@
 package net.ripe.db.whois.common.dao.jdbc;
 
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.domain.CIString;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -9,9 +11,16 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Set;
 
 @Repository
 class JdbcUpdateLockDao implements UpdateLockDao {
+    // resources are hashed onto a fixed number of rows, a collision only means two updates run one after another
+    static final int RESOURCE_LOCK_STRIPES = 1 << 16;
+
+    // outside the range of hashed resources
+    static final int SERIAL_LOCK_RESOURCE_ID = RESOURCE_LOCK_STRIPES;
+
     private final JdbcTemplate jdbcTemplate;
 
     @Autowired
@@ -22,11 +31,46 @@ class JdbcUpdateLockDao implements UpdateLockDao {
     @Override
     @Transactional(propagation = Propagation.MANDATORY)
     public void setUpdateLock() {
+        checkIsolationLevel();
+
+        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setUpdateLock(final Set<CIString> resources) {
+        checkIsolationLevel();
+
+        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 LOCK IN SHARE MODE", Integer.class);
+
+        // always lock in ascending order, so concurrent updates cannot deadlock on each other
+        for (final Integer resourceId : getResourceIds(resources)) {
+            lockResource(resourceId);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void setSerialLock() {
+        lockResource(SERIAL_LOCK_RESOURCE_ID);
+    }
+
+    private void lockResource(final int resourceId) {
+        jdbcTemplate.update("INSERT INTO update_lock_resource (resource_id) VALUES (?) ON DUPLICATE KEY UPDATE resource_id = resource_id", resourceId);
+    }
+
+    private void checkIsolationLevel() {
         final String isolationLevel = jdbcTemplate.queryForObject("select @@tx_isolation", String.class);
         if (!isolationLevel.equals("READ-COMMITTED")) {
             throw new IllegalStateException("Invalid isolation level: " + isolationLevel);
         }
+    }
 
-        jdbcTemplate.queryForObject("SELECT global_lock FROM update_lock WHERE global_lock = 0 FOR UPDATE", Integer.class);
+    static Set<Integer> getResourceIds(final Set<CIString> resources) {
+        final Set<Integer> resourceIds = Sets.newTreeSet();
+        for (final CIString resource : resources) {
+            resourceIds.add(Math.floorMod(resource.toLowerCase().hashCode(), RESOURCE_LOCK_STRIPES));
+        }
+        return resourceIds;
     }
 }
@@ -0,0 +1,224 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.dao.jdbc.index.BatchIndexWriter;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategy;
+import net.ripe.db.whois.common.dao.jdbc.index.JdbcReferenceResolver;
+import net.ripe.db.whois.common.dao.jdbc.index.ShadowIndexTables;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rebuilds all index tables without blocking updates, see {@link IndexDao#rebuildOnline()}.
+ *
+ * The objects in last are read from a consistent snapshot and indexed into shadow tables. The changes made since the
+ * snapshot are then caught up from the serials, until only a few remain. Those are indexed while holding the update
+ * lock, after which the shadow tables replace the index tables in a single RENAME.
+ *
+ * Unlike {@link JdbcIndexDao#rebuild()}, objects in last are not sanitized.
+ */
+class OnlineIndexRebuild {
+    private static final Logger LOGGER = LoggerFactory.getLogger(OnlineIndexRebuild.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int LOG_EVERY = 100_000;
+
+    // serials are not necessarily committed in order, so every catch up starts this many serials before the previous one
+    private static final int SERIAL_OVERLAP = 1000;
+    private static final int MAX_CATCH_UP_ROUNDS = 10;
+    private static final int MAX_SERIALS_UNDER_LOCK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final UpdateLockDao updateLockDao;
+    private final ShadowIndexTables shadowIndexTables;
+
+    OnlineIndexRebuild(final DataSource dataSource, final UpdateLockDao updateLockDao) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        this.updateLockDao = updateLockDao;
+        this.shadowIndexTables = new ShadowIndexTables(dataSource);
+    }
+
+    void rebuild() {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+        boolean swapped = false;
+
+        try {
+            shadowIndexTables.create();
+
+            int serialId = indexSnapshot();
+            LOGGER.info("Indexed snapshot up to serial {} in {}", serialId, stopwatch);
+
+            for (int round = 0; round < MAX_CATCH_UP_ROUNDS; round++) {
+                final int lastSerialId = getLastSerialId(jdbcTemplate);
+                if (lastSerialId - serialId <= MAX_SERIALS_UNDER_LOCK) {
+                    break;
+                }
+
+                catchUp(serialId, lastSerialId);
+                serialId = lastSerialId;
+            }
+
+            final int fromSerialId = serialId;
+            transactionTemplate.execute(status -> {
+                updateLockDao.setUpdateLock();
+
+                final Stopwatch lockStopwatch = Stopwatch.createStarted();
+                catchUp(fromSerialId, getLastSerialId(jdbcTemplate));
+                shadowIndexTables.swap();
+
+                LOGGER.info("Switched to rebuilt indexes, updates were blocked for {}", lockStopwatch);
+                return null;
+            });
+
+            swapped = true;
+            LOGGER.info("Rebuilt indexes online in {}", stopwatch);
+        } finally {
+            if (!swapped) {
+                try {
+                    shadowIndexTables.drop();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Dropping shadow index tables", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the last serial included in the snapshot
+     */
+    private int indexSnapshot() {
+        return jdbcTemplate.execute((ConnectionCallback<Integer>) connection -> {
+            final boolean autoCommit = connection.getAutoCommit();
+            final int isolation = connection.getTransactionIsolation();
+
+            try {
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setAutoCommit(false);
+
+                final JdbcTemplate snapshotTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+                snapshotTemplate.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+
+                final int serialId = getLastSerialId(snapshotTemplate);
+
+                // all primary keys first, so references between objects in different batches are resolved
+                final IndexingRowCallbackHandler keys = new IndexingRowCallbackHandler(true);
+                JdbcStreamingHelper.executeStreaming(snapshotTemplate, "SELECT object_id, object FROM last WHERE sequence_id != 0", keys);
+                keys.flush();
+
+                final IndexingRowCallbackHandler other = new IndexingRowCallbackHandler(false);
+                JdbcStreamingHelper.executeStreaming(snapshotTemplate, "SELECT object_id, object FROM last WHERE sequence_id != 0", other);
+                other.flush();
+
+                connection.commit();
+                return serialId;
+            } finally {
+                connection.rollback();
+                connection.setAutoCommit(autoCommit);
+                connection.setTransactionIsolation(isolation);
+            }
+        });
+    }
+
+    private void catchUp(final int fromSerialId, final int toSerialId) {
+        final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        final List<Integer> objectIds = jdbcTemplate.queryForList(
+                "SELECT DISTINCT object_id FROM serials WHERE serial_id > ? AND serial_id <= ?",
+                Integer.class,
+                Math.max(0, fromSerialId - SERIAL_OVERLAP),
+                toSerialId);
+
+        shadowIndexTables.deleteObjects(objectIds);
+
+        indexObjects(objectIds, new IndexingRowCallbackHandler(true));
+        indexObjects(objectIds, new IndexingRowCallbackHandler(false));
+
+        LOGGER.info("Caught up {} objects changed up to serial {} in {}", objectIds.size(), toSerialId, stopwatch);
+    }
+
+    private void indexObjects(final List<Integer> objectIds, final IndexingRowCallbackHandler handler) {
+        final NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (final List<Integer> partition : Lists.partition(objectIds, BATCH_SIZE)) {
+            namedParameterJdbcTemplate.query(
+                    "SELECT object_id, object FROM last WHERE object_id IN (:objectIds) AND sequence_id != 0",
+                    new MapSqlParameterSource("objectIds", partition),
+                    handler);
+        }
+        handler.flush();
+    }
+
+    private static int getLastSerialId(final JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id), 0) FROM serials", Integer.class);
+    }
+
+    private class IndexingRowCallbackHandler implements RowCallbackHandler {
+        private final boolean keys;
+        private final BatchIndexWriter batchIndexWriter;
+        private final Stopwatch stopwatch = Stopwatch.createStarted();
+
+        private int count;
+
+        private IndexingRowCallbackHandler(final boolean keys) {
+            this.keys = keys;
+
+            final JdbcTemplate shadowTemplate = shadowIndexTables.getJdbcTemplate();
+            final Map<AttributeType, IndexStrategy> shadowStrategies = shadowIndexTables.getIndexStrategies();
+            this.batchIndexWriter = new BatchIndexWriter(shadowTemplate, new JdbcReferenceResolver(shadowTemplate, shadowStrategies), shadowStrategies, BATCH_SIZE);
+        }
+
+        @Override
+        public void processRow(final ResultSet rs) throws SQLException {
+            final int objectId = rs.getInt(1);
+            try {
+                final RpslObject object = RpslObject.parse(objectId, rs.getBytes(2));
+                final RpslObjectInfo objectInfo = new RpslObjectInfo(objectId, object.getType(), object.getKey());
+                if (keys) {
+                    batchIndexWriter.addKeysToIndex(objectInfo, object);
+                } else {
+                    batchIndexWriter.addOtherToIndex(objectInfo, object);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Rebuilding indexes: {}", objectId, e);
+            }
+
+            if (++count % BATCH_SIZE == 0) {
+                flush();
+            }
+
+            if (count % LOG_EVERY == 0) {
+                LOGGER.info("Indexed {} of {} objects in {}", keys ? "keys" : "other attributes", count, stopwatch);
+            }
+        }
+
+        void flush() {
+            final int missingReferences = batchIndexWriter.flush().size();
+            if (missingReferences > 0) {
+                LOGGER.debug("Missing references in {} objects", missingReferences);
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeTemplate;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.annotation.CheckForNull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * Writes the index rows of many objects with one JDBC batch per index table, instead of one statement per attribute value.
+ *
+ * References are not looked up one by one, but collected until {@link #flush()} and then resolved per referenced object type
+ * through a {@link ReferenceResolver}. Not thread safe.
+ */
+public class BatchIndexWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchIndexWriter.class);
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private static final CIString ANY = ciString("ANY");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceResolver referenceResolver;
+    private final Map<AttributeType, IndexStrategy> indexStrategies;
+    private final int batchSize;
+
+    private final IndexStatementBatch statementBatch = new IndexStatementBatch();
+    private final List<PendingReference> pendingReferences = Lists.newArrayList();
+    private final Map<Integer, Set<CIString>> missingReferences = Maps.newLinkedHashMap();
+
+    public BatchIndexWriter(final JdbcTemplate jdbcTemplate, final ReferenceResolver referenceResolver) {
+        this(jdbcTemplate, referenceResolver, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchIndexWriter(final JdbcTemplate jdbcTemplate, final ReferenceResolver referenceResolver, final int batchSize) {
+        this(jdbcTemplate, referenceResolver, IndexStrategies.getIndexStrategies(), batchSize);
+    }
+
+    /**
+     * @param indexStrategies the strategies to write the index rows with, see {@link IndexStrategies#getIndexStrategies(java.util.function.UnaryOperator)}
+     */
+    public BatchIndexWriter(final JdbcTemplate jdbcTemplate, final ReferenceResolver referenceResolver, final Map<AttributeType, IndexStrategy> indexStrategies, final int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceResolver = referenceResolver;
+        this.indexStrategies = indexStrategies;
+        this.batchSize = batchSize;
+    }
+
+    public void addToIndex(final RpslObjectInfo objectInfo, final RpslObject object) {
+        addKeysToIndex(objectInfo, object);
+        addOtherToIndex(objectInfo, object);
+    }
+
+    /**
+     * Index only the primary key attributes, e.g. for all objects before any references between them are indexed.
+     */
+    public void addKeysToIndex(final RpslObjectInfo objectInfo, final RpslObject object) {
+        for (final AttributeType keyAttributeType : ObjectTemplate.getTemplate(object.getType()).getKeyAttributes()) {
+            addAttributeIndex(objectInfo, object, keyAttributeType);
+        }
+    }
+
+    /**
+     * Index all attributes except the primary key attributes.
+     */
+    public void addOtherToIndex(final RpslObjectInfo objectInfo, final RpslObject object) {
+        final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(object.getType());
+        final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
+
+        for (final AttributeTemplate attributeTemplate : objectTemplate.getAttributeTemplates()) {
+            final AttributeType attributeType = attributeTemplate.getAttributeType();
+            if (!keyAttributes.contains(attributeType)) {
+                addAttributeIndex(objectInfo, object, attributeType);
+            }
+        }
+    }
+
+    private void addAttributeIndex(final RpslObjectInfo objectInfo, final RpslObject object, final AttributeType attributeType) {
+        final IndexStrategy indexStrategy = indexStrategies.get(attributeType);
+
+        final Set<CIString> uniqueValues = Sets.newHashSet();
+        for (final RpslAttribute attribute : object.findAttributes(attributeType)) {
+            for (final CIString value : attribute.getReferenceValues()) {
+                if (!uniqueValues.add(value)) {
+                    continue;
+                }
+
+                try {
+                    if (indexStrategy instanceof IndexWithReference) {
+                        final IndexWithReference referenceStrategy = (IndexWithReference) indexStrategy;
+                        pendingReferences.add(new PendingReference(objectInfo, referenceStrategy, referenceStrategy.getReferencedTypes(object.getType()), value));
+                    } else {
+                        final int rows = indexStrategy.addToIndex(statementBatch, objectInfo, object, value.toString());
+                        if (rows < 1) {
+                            throw new DataIntegrityViolationException("Rows affected: " + rows);
+                        }
+                    }
+                } catch (IllegalArgumentException e) {
+                    LOGGER.debug("Missing reference: " + value, e);
+                    addMissingReference(objectInfo, value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolve all pending references and write all index rows.
+     *
+     * @return the missing references per object id, for all objects added since the last flush
+     */
+    public Map<Integer, Set<CIString>> flush() {
+        try {
+            // write the primary keys first, so objects referencing themselves (or each other) are resolved
+            statementBatch.execute(jdbcTemplate, batchSize);
+
+            final Map<ObjectType, Map<CIString, RpslObjectInfo>> resolved = resolveReferences();
+            for (final PendingReference pendingReference : pendingReferences) {
+                final RpslObjectInfo reference = pendingReference.getReference(resolved);
+                if (reference == null) {
+                    LOGGER.debug("Missing reference: {}", pendingReference.value);
+                    addMissingReference(pendingReference.objectInfo, pendingReference.value);
+                } else {
+                    pendingReference.indexStrategy.addToIndex(statementBatch, pendingReference.objectInfo, reference.getObjectId());
+                }
+            }
+
+            statementBatch.execute(jdbcTemplate, batchSize);
+            return Maps.newLinkedHashMap(missingReferences);
+        } finally {
+            pendingReferences.clear();
+            missingReferences.clear();
+        }
+    }
+
+    private Map<ObjectType, Map<CIString, RpslObjectInfo>> resolveReferences() {
+        final Map<ObjectType, Set<CIString>> keysByType = Maps.newEnumMap(ObjectType.class);
+        for (final PendingReference pendingReference : pendingReferences) {
+            for (final ObjectType referencedType : pendingReference.referencedTypes) {
+                keysByType.computeIfAbsent(referencedType, type -> Sets.newHashSet()).add(pendingReference.value);
+            }
+        }
+
+        final Map<ObjectType, Map<CIString, RpslObjectInfo>> resolved = Maps.newEnumMap(ObjectType.class);
+        for (final Map.Entry<ObjectType, Set<CIString>> entry : keysByType.entrySet()) {
+            final ObjectType objectType = entry.getKey();
+            final Set<CIString> keys = entry.getValue();
+
+            final Map<CIString, RpslObjectInfo> references = Maps.newHashMap();
+            if (objectType == ObjectType.MNTNER && keys.remove(ANY)) {
+                references.put(ANY, new RpslObjectInfo(0, ObjectType.MNTNER, ANY));
+            }
+
+            if (!keys.isEmpty()) {
+                references.putAll(referenceResolver.resolve(objectType, keys));
+            }
+
+            resolved.put(objectType, references);
+        }
+
+        return resolved;
+    }
+
+    private void addMissingReference(final RpslObjectInfo objectInfo, final CIString value) {
+        missingReferences.computeIfAbsent(objectInfo.getObjectId(), objectId -> Sets.newLinkedHashSet()).add(value);
+    }
+
+    private static final class PendingReference {
+        private final RpslObjectInfo objectInfo;
+        private final IndexWithReference indexStrategy;
+        private final Set<ObjectType> referencedTypes;
+        private final CIString value;
+
+        private PendingReference(final RpslObjectInfo objectInfo, final IndexWithReference indexStrategy, final Set<ObjectType> referencedTypes, final CIString value) {
+            this.objectInfo = objectInfo;
+            this.indexStrategy = indexStrategy;
+            this.referencedTypes = referencedTypes;
+            this.value = value;
+        }
+
+        @CheckForNull
+        private RpslObjectInfo getReference(final Map<ObjectType, Map<CIString, RpslObjectInfo>> resolved) {
+            for (final ObjectType referencedType : referencedTypes) {
+                final RpslObjectInfo reference = resolved.getOrDefault(referencedType, Collections.emptyMap()).get(value);
+                if (reference != null) {
+                    return reference;
+                }
+            }
+
+            return null;
+        }
+    }
+}
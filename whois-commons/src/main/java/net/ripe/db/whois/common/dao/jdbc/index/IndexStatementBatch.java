@@ -0,0 +1,89 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.Validate;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records the statements issued by {@link IndexStrategy#addToIndex} instead of executing them,
+ * so they can be executed as one JDBC batch per statement later on.
+ *
+ * Statements are executed in the order they were first recorded, e.g. the UPDATE of local-as runs after the INSERT into inet_rtr.
+ */
+class IndexStatementBatch extends JdbcTemplate {
+    private final Map<String, Set<List<Object>>> statements = Maps.newLinkedHashMap();
+
+    @Override
+    public int update(final String sql, final Object... args) {
+        statements.computeIfAbsent(sql, key -> Sets.newLinkedHashSet()).add(Arrays.asList(args));
+        return 1;
+    }
+
+    void execute(final JdbcTemplate jdbcTemplate, final int batchSize) {
+        try {
+            for (final Map.Entry<String, Set<List<Object>>> statement : statements.entrySet()) {
+                final List<Object[]> batchArgs = Lists.newArrayListWithExpectedSize(statement.getValue().size());
+                for (final List<Object> args : statement.getValue()) {
+                    batchArgs.add(args.toArray());
+                }
+
+                for (final List<Object[]> partition : Lists.partition(batchArgs, batchSize)) {
+                    for (final int rows : jdbcTemplate.batchUpdate(statement.getKey(), partition)) {
+                        if (rows == 0 || rows == Statement.EXECUTE_FAILED) {
+                            throw new DataIntegrityViolationException("Rows affected: " + rows + " by " + statement.getKey());
+                        }
+                    }
+                }
+            }
+        } finally {
+            statements.clear();
+        }
+    }
+
+    /**
+     * Execute all statements in a single JDBC batch, without checking the number of affected rows.
+     * Only numeric arguments (i.e. object ids) are supported, as they are inlined into the statements.
+     */
+    void executeUnchecked(final JdbcTemplate jdbcTemplate) {
+        try {
+            final List<String> sql = Lists.newArrayList();
+            for (final Map.Entry<String, Set<List<Object>>> statement : statements.entrySet()) {
+                for (final List<Object> args : statement.getValue()) {
+                    sql.add(inline(statement.getKey(), args));
+                }
+            }
+
+            if (!sql.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql.toArray(new String[0]));
+            }
+        } finally {
+            statements.clear();
+        }
+    }
+
+    private static String inline(final String sql, final List<Object> args) {
+        final StringBuilder result = new StringBuilder(sql.length() + 16);
+        int arg = 0;
+        for (final char c : sql.toCharArray()) {
+            if (c == '?') {
+                final Object value = args.get(arg++);
+                Validate.isTrue(value instanceof Number, "Only numeric arguments can be inlined: " + value);
+                result.append(value);
+            } else {
+                result.append(c);
+            }
+        }
+
+        Validate.isTrue(arg == args.size(), "Unexpected number of arguments for: " + sql);
+        return result.toString();
+    }
+}
@@ -2,34 +2,74 @@ package net.ripe.db.whois.common.dao.jdbc.index;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.rpsl.AttributeTemplate;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import org.apache.commons.lang.Validate;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
 
 public final class IndexStrategies {
     private static final Map<AttributeType, IndexStrategy> INDEX_BY_ATTRIBUTE;
     private static final Map<ObjectType, List<IndexStrategy>> INDEXES_REFERING_OBJECT;
+    private static final Set<String> INDEX_TABLES;
 
     static {
-        final IndexStrategy[] indexStrategies = {
-                new IndexWithReference(AttributeType.ABUSE_C, "abuse_c", "pe_ro_id"),
-                new IndexWithValueAndType(AttributeType.ABUSE_MAILBOX, "abuse_mailbox", "abuse_mailbox"),
+        final IndexStrategy[] indexStrategies = createIndexStrategies(UnaryOperator.identity());
+        INDEX_BY_ATTRIBUTE = indexByAttribute(indexStrategies);
+
+        final Map<ObjectType, List<IndexStrategy>> indexesReferingObject = Maps.newEnumMap(ObjectType.class);
+        for (final ObjectType objectType : ObjectType.values()) {
+            final List<IndexStrategy> indexesRefererringCurrentObject = Lists.newArrayList();
+            for (final IndexStrategy indexStrategy : indexStrategies) {
+                if (indexStrategy.getAttributeType().getReferences().contains(objectType)) {
+                    indexesRefererringCurrentObject.add(indexStrategy);
+                }
+            }
+
+            indexesReferingObject.put(objectType, Collections.unmodifiableList(indexesRefererringCurrentObject));
+        }
+        INDEXES_REFERING_OBJECT = Collections.unmodifiableMap(indexesReferingObject);
+
+        final Set<String> indexTables = Sets.newTreeSet();
+        for (final IndexStrategy indexStrategy : indexStrategies) {
+            if (indexStrategy.getLookupTableName() != null) {
+                indexTables.add(indexStrategy.getLookupTableName());
+            }
+        }
+        INDEX_TABLES = Collections.unmodifiableSet(indexTables);
+    }
+
+    private IndexStrategies() {
+    }
+
+    /**
+     * @param table the table to write to, for the name of each index table
+     */
+    private static IndexStrategy[] createIndexStrategies(final UnaryOperator<String> table) {
+        return new IndexStrategy[]{
+                new IndexWithReference(AttributeType.ABUSE_C, table.apply("abuse_c"), "pe_ro_id"),
+                new IndexWithValueAndType(AttributeType.ABUSE_MAILBOX, table.apply("abuse_mailbox"), "abuse_mailbox"),
                 new Unindexed(AttributeType.ADDRESS),
-                new IndexWithReference(AttributeType.ADMIN_C, "admin_c", "pe_ro_id"),
+                new IndexWithReference(AttributeType.ADMIN_C, table.apply("admin_c"), "pe_ro_id"),
                 new Unindexed(AttributeType.AGGR_BNDRY),
                 new Unindexed(AttributeType.AGGR_MTD),
                 new Unindexed(AttributeType.ALIAS),
                 new Unindexed(AttributeType.ASSIGNMENT_SIZE),
-                new IndexWithAsBlock(AttributeType.AS_BLOCK),
+                new IndexWithAsBlock(AttributeType.AS_BLOCK, table.apply("as_block")),
                 new Unindexed(AttributeType.AS_NAME),
-                new IndexWithValue(AttributeType.AS_SET, "as_set", "as_set"),
-                new IndexWithAuth(AttributeType.AUTH, "auth", "auth"),
-                new IndexWithReference(AttributeType.AUTHOR, "author", "pe_ro_id"),
-                new IndexWithValue(AttributeType.AUT_NUM, "aut_num", "aut_num"),
+                new IndexWithValue(AttributeType.AS_SET, table.apply("as_set"), "as_set"),
+                new IndexWithAuth(AttributeType.AUTH, table.apply("auth"), "auth"),
+                new IndexWithReference(AttributeType.AUTHOR, table.apply("author"), "pe_ro_id"),
+                new IndexWithValue(AttributeType.AUT_NUM, table.apply("aut_num"), "aut_num"),
                 new Unindexed(AttributeType.CERTIF),
                 new Unindexed(AttributeType.CHANGED),
                 new Unindexed(AttributeType.COMPONENTS),
@@ -37,46 +77,46 @@ public final class IndexStrategies {
                 new Unindexed(AttributeType.CREATED),
                 new Unindexed(AttributeType.DEFAULT),
                 new Unindexed(AttributeType.DESCR),
-                new IndexWithValue(AttributeType.DOMAIN, "domain", "domain"),
-                new IndexWithValue(AttributeType.DS_RDATA, "ds_rdata", "ds_rdata"),
+                new IndexWithValue(AttributeType.DOMAIN, table.apply("domain"), "domain"),
+                new IndexWithValue(AttributeType.DS_RDATA, table.apply("ds_rdata"), "ds_rdata"),
                 new Unindexed(AttributeType.ENCRYPTION),
                 new Unindexed(AttributeType.EXPORT),
                 new Unindexed(AttributeType.EXPORT_VIA),
                 new Unindexed(AttributeType.EXPORT_COMPS),
-                new IndexWithValueAndType(AttributeType.E_MAIL, "e_mail", "e_mail"),
+                new IndexWithValueAndType(AttributeType.E_MAIL, table.apply("e_mail"), "e_mail"),
                 new Unindexed(AttributeType.FAX_NO),
                 new Unindexed(AttributeType.FILTER),
-                new IndexWithValue(AttributeType.FILTER_SET, "filter_set", "filter_set"),
-                new IndexWithValue(AttributeType.FINGERPR, "fingerpr", "fingerpr"),
-                new IndexWithReference(AttributeType.FORM, "form", "form_id"),
+                new IndexWithValue(AttributeType.FILTER_SET, table.apply("filter_set"), "filter_set"),
+                new IndexWithValue(AttributeType.FINGERPR, table.apply("fingerpr"), "fingerpr"),
+                new IndexWithReference(AttributeType.FORM, table.apply("form"), "form_id"),
                 new Unindexed(AttributeType.GEOLOC),
                 new Unindexed(AttributeType.HOLES),
-                new IndexWithIfAddr(AttributeType.IFADDR),
+                new IndexWithIfAddr(AttributeType.IFADDR, table.apply("ifaddr")),
                 new Unindexed(AttributeType.IMPORT),
                 new Unindexed(AttributeType.IMPORT_VIA),
-                new IndexWithInet6num(AttributeType.INET6NUM),
-                new IndexWithInetnum(AttributeType.INETNUM),
-                new IndexWithValue(AttributeType.INET_RTR, "inet_rtr", "inet_rtr"),
+                new IndexWithInet6num(AttributeType.INET6NUM, table.apply("inet6num")),
+                new IndexWithInetnum(AttributeType.INETNUM, table.apply("inetnum")),
+                new IndexWithValue(AttributeType.INET_RTR, table.apply("inet_rtr"), "inet_rtr"),
                 new Unindexed(AttributeType.INJECT),
                 new Unindexed(AttributeType.INTERFACE),
-                new IndexWithValue(AttributeType.IRT, "irt", "irt"),
-                new IndexWithValue(AttributeType.IRT_NFY, "irt_nfy", "irt_nfy"),
-                new IndexWithValue(AttributeType.KEY_CERT, "key_cert", "key_cert"),
+                new IndexWithValue(AttributeType.IRT, table.apply("irt"), "irt"),
+                new IndexWithValue(AttributeType.IRT_NFY, table.apply("irt_nfy"), "irt_nfy"),
+                new IndexWithValue(AttributeType.KEY_CERT, table.apply("key_cert"), "key_cert"),
                 new Unindexed(AttributeType.LANGUAGE),
                 new Unindexed(AttributeType.LAST_MODIFIED),
-                new IndexWithLocalAs(AttributeType.LOCAL_AS),
-                new IndexWithReference(AttributeType.MBRS_BY_REF, "mbrs_by_ref", "mnt_id"),
+                new IndexWithLocalAs(AttributeType.LOCAL_AS, table.apply("inet_rtr")),
+                new IndexWithReference(AttributeType.MBRS_BY_REF, table.apply("mbrs_by_ref"), "mnt_id"),
                 new Unindexed(AttributeType.MEMBERS),
-                new IndexWithMemberOf(AttributeType.MEMBER_OF),
+                new IndexWithMemberOf(AttributeType.MEMBER_OF, table.apply("member_of")),
                 new Unindexed(AttributeType.METHOD),
-                new IndexWithMaintainer(AttributeType.MNTNER, "mntner", "mntner"),
-                new IndexWithReference(AttributeType.MNT_BY, "mnt_by", "mnt_id"),
-                new IndexWithReference(AttributeType.MNT_DOMAINS, "mnt_domains", "mnt_id"),
-                new IndexWithReference(AttributeType.MNT_IRT, "mnt_irt", "irt_id"),
-                new IndexWithReference(AttributeType.MNT_LOWER, "mnt_lower", "mnt_id"),
-                new IndexWithValue(AttributeType.MNT_NFY, "mnt_nfy", "mnt_nfy"),
-                new IndexWithReference(AttributeType.MNT_REF, "mnt_ref", "mnt_id"),
-                new IndexWithMntRoutes(AttributeType.MNT_ROUTES),
+                new IndexWithMaintainer(AttributeType.MNTNER, table.apply("mntner"), "mntner"),
+                new IndexWithReference(AttributeType.MNT_BY, table.apply("mnt_by"), "mnt_id"),
+                new IndexWithReference(AttributeType.MNT_DOMAINS, table.apply("mnt_domains"), "mnt_id"),
+                new IndexWithReference(AttributeType.MNT_IRT, table.apply("mnt_irt"), "irt_id"),
+                new IndexWithReference(AttributeType.MNT_LOWER, table.apply("mnt_lower"), "mnt_id"),
+                new IndexWithValue(AttributeType.MNT_NFY, table.apply("mnt_nfy"), "mnt_nfy"),
+                new IndexWithReference(AttributeType.MNT_REF, table.apply("mnt_ref"), "mnt_id"),
+                new IndexWithMntRoutes(AttributeType.MNT_ROUTES, table.apply("mnt_routes")),
                 new Unindexed(AttributeType.MP_DEFAULT),
                 new Unindexed(AttributeType.MP_EXPORT),
                 new Unindexed(AttributeType.MP_FILTER),
@@ -85,64 +125,50 @@ public final class IndexStrategies {
                 new Unindexed(AttributeType.MP_PEER),
                 new Unindexed(AttributeType.MP_PEERING),
                 new Unindexed(AttributeType.NETNAME),   // TODO: [AH] ATM this is handled by JdbcInetnumDao/JdbcInet6numDao as a special case
-                new IndexWithValueAndType(AttributeType.NIC_HDL, "person_role", "nic_hdl"),
-                new IndexWithValueAndType(AttributeType.NOTIFY, "notify", "notify"),
-                new IndexWithNServer(AttributeType.NSERVER, "nserver", "host"),
-                new IndexWithReference(AttributeType.ORG, "org", "org_id"),
+                new IndexWithValueAndType(AttributeType.NIC_HDL, table.apply("person_role"), "nic_hdl"),
+                new IndexWithValueAndType(AttributeType.NOTIFY, table.apply("notify"), "notify"),
+                new IndexWithNServer(AttributeType.NSERVER, table.apply("nserver"), "host"),
+                new IndexWithReference(AttributeType.ORG, table.apply("org"), "org_id"),
                 new Unindexed(AttributeType.ORG_TYPE),
-                new IndexWithValue(AttributeType.ORGANISATION, "organisation", "organisation"),
-                new IndexWithName(AttributeType.ORG_NAME, "org_name"),
+                new IndexWithValue(AttributeType.ORGANISATION, table.apply("organisation"), "organisation"),
+                new IndexWithName(AttributeType.ORG_NAME, table.apply("org_name")),
                 new IndexWithOrigin(AttributeType.ORIGIN),
                 new Unindexed(AttributeType.OWNER),
                 new Unindexed(AttributeType.PEER),
                 new Unindexed(AttributeType.PEERING),
-                new IndexWithValue(AttributeType.PEERING_SET, "peering_set", "peering_set"),
-                new IndexWithNameAndType(AttributeType.PERSON, ObjectType.PERSON, "names"),
+                new IndexWithValue(AttributeType.PEERING_SET, table.apply("peering_set"), "peering_set"),
+                new IndexWithNameAndType(AttributeType.PERSON, ObjectType.PERSON, table.apply("names")),
                 new Unindexed(AttributeType.PHONE),
-                new IndexWithReference(AttributeType.PING_HDL, "ping_hdl", "pe_ro_id"),
+                new IndexWithReference(AttributeType.PING_HDL, table.apply("ping_hdl"), "pe_ro_id"),
                 new Unindexed(AttributeType.PINGABLE),
-                new IndexWithValue(AttributeType.POEM, "poem", "poem"),
-                new IndexWithValue(AttributeType.POETIC_FORM, "poetic_form", "poetic_form"),
-                new IndexWithValue(AttributeType.REF_NFY, "ref_nfy", "ref_nfy"),
+                new IndexWithValue(AttributeType.POEM, table.apply("poem"), "poem"),
+                new IndexWithValue(AttributeType.POETIC_FORM, table.apply("poetic_form"), "poetic_form"),
+                new IndexWithValue(AttributeType.REF_NFY, table.apply("ref_nfy"), "ref_nfy"),
                 new Unindexed(AttributeType.REMARKS),
-                new IndexWithNameAndType(AttributeType.ROLE, ObjectType.ROLE, "names"),
-                new IndexWithRoute(AttributeType.ROUTE),
-                new IndexWithRoute6(AttributeType.ROUTE6),
-                new IndexWithValue(AttributeType.ROUTE_SET, "route_set", "route_set"),
-                new IndexWithValue(AttributeType.RTR_SET, "rtr_set", "rtr_set"),
+                new IndexWithNameAndType(AttributeType.ROLE, ObjectType.ROLE, table.apply("names")),
+                new IndexWithRoute(AttributeType.ROUTE, table.apply("route")),
+                new IndexWithRoute6(AttributeType.ROUTE6, table.apply("route6")),
+                new IndexWithValue(AttributeType.ROUTE_SET, table.apply("route_set"), "route_set"),
+                new IndexWithValue(AttributeType.RTR_SET, table.apply("rtr_set"), "rtr_set"),
                 new Unindexed(AttributeType.SIGNATURE),
                 new Unindexed(AttributeType.SOURCE),
-                new IndexWithReference(AttributeType.SPONSORING_ORG, "sponsoring_org", "org_id"),
-                new IndexWithValueAndType(AttributeType.STATUS, "status", "status"),
-                new IndexWithReference(AttributeType.TECH_C, "tech_c", "pe_ro_id"),
+                new IndexWithReference(AttributeType.SPONSORING_ORG, table.apply("sponsoring_org"), "org_id"),
+                new IndexWithValueAndType(AttributeType.STATUS, table.apply("status"), "status"),
+                new IndexWithReference(AttributeType.TECH_C, table.apply("tech_c"), "pe_ro_id"),
                 new Unindexed(AttributeType.TEXT),
-                new IndexWithValue(AttributeType.UPD_TO, "upd_to", "upd_to"),
-                new IndexWithReference(AttributeType.ZONE_C, "zone_c", "pe_ro_id")
+                new IndexWithValue(AttributeType.UPD_TO, table.apply("upd_to"), "upd_to"),
+                new IndexWithReference(AttributeType.ZONE_C, table.apply("zone_c"), "pe_ro_id")
         };
+    }
 
+    private static Map<AttributeType, IndexStrategy> indexByAttribute(final IndexStrategy[] indexStrategies) {
         final Map<AttributeType, IndexStrategy> indexByAttribute = Maps.newEnumMap(AttributeType.class);
         for (final IndexStrategy indexStrategy : indexStrategies) {
             final AttributeType attributeType = indexStrategy.getAttributeType();
             final IndexStrategy previous = indexByAttribute.put(attributeType, indexStrategy);
             Validate.isTrue(previous == null, "Multiple definitions for: " + attributeType);
         }
-        INDEX_BY_ATTRIBUTE = Collections.unmodifiableMap(indexByAttribute);
-
-        final Map<ObjectType, List<IndexStrategy>> indexesReferingObject = Maps.newEnumMap(ObjectType.class);
-        for (final ObjectType objectType : ObjectType.values()) {
-            final List<IndexStrategy> indexesRefererringCurrentObject = Lists.newArrayList();
-            for (final IndexStrategy indexStrategy : indexStrategies) {
-                if (indexStrategy.getAttributeType().getReferences().contains(objectType)) {
-                    indexesRefererringCurrentObject.add(indexStrategy);
-                }
-            }
-
-            indexesReferingObject.put(objectType, Collections.unmodifiableList(indexesRefererringCurrentObject));
-        }
-        INDEXES_REFERING_OBJECT = Collections.unmodifiableMap(indexesReferingObject);
-    }
-
-    private IndexStrategies() {
+        return Collections.unmodifiableMap(indexByAttribute);
     }
 
     public static IndexStrategy get(final AttributeType attributeType) {
@@ -152,4 +178,39 @@ public final class IndexStrategies {
     public static List<IndexStrategy> getReferencing(final ObjectType objectType) {
         return INDEXES_REFERING_OBJECT.get(objectType);
     }
+
+    public static Map<AttributeType, IndexStrategy> getIndexStrategies() {
+        return INDEX_BY_ATTRIBUTE;
+    }
+
+    /**
+     * Index strategies that write to other tables than the index tables, e.g. copies of them.
+     *
+     * Only the tables written to are replaced: referenced objects are resolved by the caller, e.g. through a
+     * {@link JdbcReferenceResolver} for the same strategies.
+     *
+     * @param table the table to write to, for the name of each index table
+     */
+    public static Map<AttributeType, IndexStrategy> getIndexStrategies(final UnaryOperator<String> table) {
+        return indexByAttribute(createIndexStrategies(table));
+    }
+
+    /**
+     * @return the names of the tables written by the index strategies
+     */
+    public static Set<String> getIndexTables() {
+        return INDEX_TABLES;
+    }
+
+    /**
+     * Remove an object from all indexes of its object type, sending the deletes to the database as a single batch.
+     */
+    public static void removeFromIndexes(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
+        final IndexStatementBatch statementBatch = new IndexStatementBatch();
+        for (final AttributeTemplate attributeTemplate : ObjectTemplate.getTemplate(objectInfo.getObjectType()).getAttributeTemplates()) {
+            get(attributeTemplate.getAttributeType()).removeFromIndex(statementBatch, objectInfo);
+        }
+
+        statementBatch.executeUnchecked(jdbcTemplate);
+    }
 }
@@ -13,7 +13,11 @@ import java.util.List;
 
 class IndexWithAsBlock extends IndexStrategyWithSingleLookupTable {
     public IndexWithAsBlock(final AttributeType attributeType) {
-        super(attributeType, "as_block");
+        this(attributeType, "as_block");
+    }
+
+    public IndexWithAsBlock(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
@@ -24,7 +28,7 @@ class IndexWithAsBlock extends IndexStrategyWithSingleLookupTable {
         }
 
         return jdbcTemplate.update(
-                "INSERT INTO as_block (object_id, begin_as, end_as) VALUES (?, ?, ?)",
+                String.format("INSERT INTO %s (object_id, begin_as, end_as) VALUES (?, ?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 asBlockRange.getBegin(),
                 asBlockRange.getEnd());
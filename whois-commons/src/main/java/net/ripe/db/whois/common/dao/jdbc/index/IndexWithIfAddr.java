@@ -20,7 +20,11 @@ class IndexWithIfAddr extends IndexStrategyWithSingleLookupTable {
     private final Splitter SPACE_SPLITTER = Splitter.on(' ').trimResults().omitEmptyStrings();
 
     public IndexWithIfAddr(final AttributeType attributeType) {
-        super(attributeType, "ifaddr");
+        this(attributeType, "ifaddr");
+    }
+
+    public IndexWithIfAddr(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
@@ -31,7 +35,7 @@ class IndexWithIfAddr extends IndexStrategyWithSingleLookupTable {
         }
 
         return jdbcTemplate.update(
-                "INSERT INTO ifaddr (object_id, ifaddr) VALUES (?, ?)",
+                String.format("INSERT INTO %s (object_id, ifaddr) VALUES (?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 ifaddr.begin());
     }
@@ -15,7 +15,11 @@ import java.util.List;
 class IndexWithInet6num extends IndexStrategyWithSingleLookupTable {
 
     public IndexWithInet6num(final AttributeType attributeType) {
-        super(attributeType, "inet6num");
+        this(attributeType, "inet6num");
+    }
+
+    public IndexWithInet6num(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     // MariaDB bug workaround: if 64-bit integer has its msb bit set, the comparison fails
@@ -29,7 +33,7 @@ class IndexWithInet6num extends IndexStrategyWithSingleLookupTable {
         final String netname = netnameAttribute == null ? "" : netnameAttribute.toString();
 
         return jdbcTemplate.update(
-                "INSERT INTO inet6num (object_id, i6_msb, i6_lsb, prefix_length, netname) VALUES (?, ?, ?, ?, ?)",
+                String.format("INSERT INTO %s (object_id, i6_msb, i6_lsb, prefix_length, netname) VALUES (?, ?, ?, ?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 Long.toString(Ipv6Resource.msb(resource.begin())),
                 Long.toString(Ipv6Resource.lsb(resource.begin())),
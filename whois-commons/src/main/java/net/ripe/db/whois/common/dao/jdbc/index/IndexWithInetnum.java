@@ -14,7 +14,11 @@ import java.util.List;
 
 class IndexWithInetnum extends IndexStrategyWithSingleLookupTable {
     public IndexWithInetnum(final AttributeType attributeType) {
-        super(attributeType, "inetnum");
+        this(attributeType, "inetnum");
+    }
+
+    public IndexWithInetnum(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
@@ -26,7 +30,7 @@ class IndexWithInetnum extends IndexStrategyWithSingleLookupTable {
         final String netname = netnameAttribute == null ? "" : netnameAttribute.toString();
 
         return jdbcTemplate.update(
-                "INSERT INTO inetnum (object_id, begin_in, end_in, netname) VALUES (?, ?, ?, ?)",
+                String.format("INSERT INTO %s (object_id, begin_in, end_in, netname) VALUES (?, ?, ?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 resource.begin(),
                 resource.end(),
@@ -11,13 +11,17 @@ import java.util.List;
 class IndexWithLocalAs extends IndexStrategyWithSingleLookupTable {
 
     public IndexWithLocalAs(final AttributeType attributeType) {
-        super(attributeType, "inet_rtr");
+        this(attributeType, "inet_rtr");
+    }
+
+    public IndexWithLocalAs(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
     public int addToIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo, final RpslObject object, final String value) {
         return jdbcTemplate.update(
-                "UPDATE inet_rtr SET local_as = ? WHERE object_id = ?",
+                String.format("UPDATE %s SET local_as = ? WHERE object_id = ?", lookupTableName),
                 value,
                 objectInfo.getObjectId());
     }
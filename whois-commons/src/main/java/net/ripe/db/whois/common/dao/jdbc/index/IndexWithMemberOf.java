@@ -11,6 +11,7 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -18,7 +19,11 @@ import static net.ripe.db.whois.common.collect.CollectionHelper.uniqueResult;
 
 class IndexWithMemberOf extends IndexWithReference {
     IndexWithMemberOf(final AttributeType attributeType) {
-        super(attributeType, "member_of", "set_id");
+        this(attributeType, "member_of");
+    }
+
+    IndexWithMemberOf(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName, "set_id");
     }
 
     @Override
@@ -32,6 +37,11 @@ class IndexWithMemberOf extends IndexWithReference {
         return addToIndex(jdbcTemplate, objectInfo, reference);
     }
 
+    @Override
+    Set<ObjectType> getReferencedTypes(final ObjectType objectType) {
+        return Collections.singleton(ObjectType.getByFirstAttribute(getReferenceAttribute(objectType)));
+    }
+
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
         final List<RpslObjectInfo> result = Lists.newArrayList();
@@ -14,7 +14,11 @@ import java.util.List;
 
 class IndexWithMntRoutes extends IndexWithReference {
     IndexWithMntRoutes(final AttributeType attributeType) {
-        super(attributeType, "mnt_routes", "mnt_id");
+        this(attributeType, "mnt_routes");
+    }
+
+    IndexWithMntRoutes(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName, "mnt_id");
     }
 
     @Override
@@ -26,7 +30,7 @@ class IndexWithMntRoutes extends IndexWithReference {
 
         final int existing = jdbcTemplate.queryForObject(
                 "SELECT COUNT(*) " +
-                "FROM mnt_routes " +
+                "FROM " + lookupTableName + " " +
                 "WHERE object_id = ? " +
                 "AND " + lookupColumnName + " = ? " +
                 "AND object_type = ?",
@@ -40,7 +44,7 @@ class IndexWithMntRoutes extends IndexWithReference {
         }
 
         return jdbcTemplate.update(
-                "INSERT INTO mnt_routes " +
+                "INSERT INTO " + lookupTableName + " " +
                 "(object_id, " + lookupColumnName + ", object_type) " +
                 "VALUES (?, ?, ?)",
                 objectInfo.getObjectId(),
@@ -50,7 +54,7 @@ class IndexWithMntRoutes extends IndexWithReference {
 
     @Override
     public List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value) {
-        return Lists.newArrayList(findInIndex(jdbcTemplate, value, "mnt_routes"));
+        return Lists.newArrayList(findInIndex(jdbcTemplate, value, lookupTableName));
     }
 
     private List<RpslObjectInfo> findInIndex(final JdbcTemplate jdbcTemplate, final String value, final String lookupTableName) {
@@ -72,6 +76,6 @@ class IndexWithMntRoutes extends IndexWithReference {
 
     @Override
     public void removeFromIndex(final JdbcTemplate jdbcTemplate, final RpslObjectInfo objectInfo) {
-        jdbcTemplate.update("DELETE FROM mnt_routes WHERE object_id = ?", objectInfo.getObjectId());
+        jdbcTemplate.update(String.format("DELETE FROM %s WHERE object_id = ?", lookupTableName), objectInfo.getObjectId());
     }
 }
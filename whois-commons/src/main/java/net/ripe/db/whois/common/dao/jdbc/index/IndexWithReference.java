@@ -47,6 +47,10 @@ class IndexWithReference extends IndexStrategySimpleLookup {
         return referenceStrategies;
     }
 
+    Set<ObjectType> getReferencedTypes(final ObjectType objectType) {
+        return attributeType.getReferences();
+    }
+
     @CheckForNull
     RpslObjectInfo getReference(final JdbcTemplate jdbcTemplate, final String pkey) {
         for (final IndexStrategy referenceStrategy : getReferenceStrategies()) {
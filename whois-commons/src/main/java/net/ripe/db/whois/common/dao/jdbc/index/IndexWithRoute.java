@@ -16,7 +16,11 @@ import java.util.regex.Pattern;
 class IndexWithRoute extends IndexStrategyWithSingleLookupTable {
 
     public IndexWithRoute(final AttributeType attributeType) {
-        super(attributeType, "route");
+        this(attributeType, "route");
+    }
+
+    public IndexWithRoute(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
@@ -25,7 +29,7 @@ class IndexWithRoute extends IndexStrategyWithSingleLookupTable {
         final String origin = object.getValueForAttribute(AttributeType.ORIGIN).toString();
 
         return jdbcTemplate.update(
-                "INSERT INTO route (object_id, prefix, prefix_length, origin) VALUES (?, ?, ?, ?)",
+                String.format("INSERT INTO %s (object_id, prefix, prefix_length, origin) VALUES (?, ?, ?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 ipRange.begin(),
                 ipRange.getPrefixLength(),
@@ -15,7 +15,11 @@ import java.util.regex.Pattern;
 
 class IndexWithRoute6 extends IndexStrategyWithSingleLookupTable {
     public IndexWithRoute6(final AttributeType attributeType) {
-        super(attributeType, "route6");
+        this(attributeType, "route6");
+    }
+
+    public IndexWithRoute6(final AttributeType attributeType, final String lookupTableName) {
+        super(attributeType, lookupTableName);
     }
 
     @Override
@@ -24,7 +28,7 @@ class IndexWithRoute6 extends IndexStrategyWithSingleLookupTable {
         final String origin = object.getValueForAttribute(AttributeType.ORIGIN).toString();
 
         return jdbcTemplate.update(
-                "INSERT INTO route6 (object_id, r6_msb, r6_lsb, prefix_length, origin) VALUES (?, ?, ?, ?, ?)",
+                String.format("INSERT INTO %s (object_id, r6_msb, r6_lsb, prefix_length, origin) VALUES (?, ?, ?, ?, ?)", lookupTableName),
                 objectInfo.getObjectId(),
                 Ipv6Resource.msb(resource.begin()),
                 Ipv6Resource.lsb(resource.begin()),
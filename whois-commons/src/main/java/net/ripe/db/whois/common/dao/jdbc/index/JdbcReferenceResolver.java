@@ -0,0 +1,87 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.collect.CollectionHelper;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import org.apache.commons.lang.Validate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+
+/**
+ * Resolves references with one query per referenced object type, looking up all keys in the index table of the primary key.
+ */
+public class JdbcReferenceResolver implements ReferenceResolver {
+    private static final int MAX_KEYS_PER_QUERY = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<AttributeType, IndexStrategy> indexStrategies;
+
+    public JdbcReferenceResolver(final JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, IndexStrategies.getIndexStrategies());
+    }
+
+    /**
+     * @param indexStrategies the strategies whose lookup tables hold the primary keys
+     */
+    public JdbcReferenceResolver(final JdbcTemplate jdbcTemplate, final Map<AttributeType, IndexStrategy> indexStrategies) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.indexStrategies = indexStrategies;
+    }
+
+    @Override
+    public Map<CIString, RpslObjectInfo> resolve(final ObjectType objectType, final Set<CIString> keys) {
+        final Set<AttributeType> keyAttributes = ObjectTemplate.getTemplate(objectType).getKeyAttributes();
+        Validate.isTrue(keyAttributes.size() == 1, "We can never have a reference to a composed key");
+        final IndexStrategy indexStrategy = indexStrategies.get(keyAttributes.iterator().next());
+
+        final Map<CIString, RpslObjectInfo> references = Maps.newHashMapWithExpectedSize(keys.size());
+        if (indexStrategy.getLookupTableName() == null || indexStrategy.getLookupColumnName() == null) {
+            for (final CIString key : keys) {
+                final RpslObjectInfo reference = CollectionHelper.uniqueResult(indexStrategy.findInIndex(jdbcTemplate, key, objectType));
+                if (reference != null) {
+                    references.put(key, reference);
+                }
+            }
+            return references;
+        }
+
+        final String query = MessageFormat.format("" +
+                        "SELECT {0}.{1}, l.object_id, l.object_type, l.pkey " +
+                        "  FROM {0} " +
+                        "  JOIN last l ON l.object_id = {0}.object_id " +
+                        "  WHERE {0}.{1} IN (:keys) " +
+                        "  AND l.object_type = :objectType " +
+                        "  AND l.sequence_id != 0 ",
+                indexStrategy.getLookupTableName(),
+                indexStrategy.getLookupColumnName());
+
+        final NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (final List<CIString> partition : Iterables.partition(keys, MAX_KEYS_PER_QUERY)) {
+            final MapSqlParameterSource parameters = new MapSqlParameterSource()
+                    .addValue("keys", Lists.transform(partition, CIString::toString))
+                    .addValue("objectType", ObjectTypeIds.getId(objectType));
+
+            namedParameterJdbcTemplate.query(query, parameters, (RowCallbackHandler) rs -> {
+                references.put(ciString(rs.getString(1)), new RpslObjectInfo(rs.getInt(2), ObjectTypeIds.getType(rs.getInt(3)), rs.getString(4)));
+            });
+        }
+
+        return references;
+    }
+}
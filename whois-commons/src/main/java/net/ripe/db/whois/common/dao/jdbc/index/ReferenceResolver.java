@@ -0,0 +1,18 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves referenced primary keys of a single object type to the referenced objects, used by {@link BatchIndexWriter}
+ * and for the related objects of query results.
+ * Keys which cannot be resolved are left out of the returned map.
+ */
+public interface ReferenceResolver {
+
+    Map<CIString, RpslObjectInfo> resolve(ObjectType objectType, Set<CIString> keys);
+}
@@ -0,0 +1,100 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Copies of the index tables, which can be filled while the index tables themselves are in use, and then swapped
+ * with them in one statement.
+ *
+ * The shadow tables are written through {@link #getIndexStrategies()}, index strategies that are given the names of
+ * the shadow tables instead of those of the index tables.
+ */
+public class ShadowIndexTables {
+    private static final String SHADOW_SUFFIX = "_shadow";
+    private static final String OLD_SUFFIX = "_old";
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private final Set<String> tables;
+    private final Map<AttributeType, IndexStrategy> indexStrategies;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShadowIndexTables(final DataSource dataSource) {
+        this.tables = IndexStrategies.getIndexTables();
+        this.indexStrategies = IndexStrategies.getIndexStrategies(table -> table + SHADOW_SUFFIX);
+        // not the data source itself, so it is never bound to a transaction on the index tables
+        this.jdbcTemplate = new JdbcTemplate(new DelegatingDataSource(dataSource));
+    }
+
+    /**
+     * Index strategies writing to the shadow tables, to be used with {@link #getJdbcTemplate()}.
+     */
+    public Map<AttributeType, IndexStrategy> getIndexStrategies() {
+        return indexStrategies;
+    }
+
+    /**
+     * The returned template uses its own connections, so writes to the shadow tables are never part of a transaction
+     * on the index tables.
+     */
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    public void create() {
+        for (final String table : tables) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table + SHADOW_SUFFIX);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table + OLD_SUFFIX);
+            jdbcTemplate.execute("CREATE TABLE " + table + SHADOW_SUFFIX + " LIKE " + table);
+        }
+    }
+
+    public void deleteObjects(final Collection<Integer> objectIds) {
+        final NamedParameterJdbcTemplate namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        for (final List<Integer> partition : Iterables.partition(objectIds, MAX_IDS_PER_QUERY)) {
+            for (final String table : tables) {
+                namedParameterJdbcTemplate.update(
+                        "DELETE FROM " + table + SHADOW_SUFFIX + " WHERE object_id IN (:objectIds)",
+                        new MapSqlParameterSource("objectIds", partition));
+            }
+        }
+    }
+
+    /**
+     * Replace all index tables by their shadow copies in a single RENAME, and drop the previous index tables.
+     *
+     * RENAME TABLE commits the current transaction, so it is executed on a connection of its own: a caller holding
+     * the update lock keeps it until the index tables are swapped.
+     */
+    public void swap() {
+        final List<String> renames = Lists.newArrayListWithExpectedSize(tables.size() * 2);
+        for (final String table : tables) {
+            renames.add(table + " TO " + table + OLD_SUFFIX);
+            renames.add(table + SHADOW_SUFFIX + " TO " + table);
+        }
+
+        jdbcTemplate.execute("RENAME TABLE " + Joiner.on(", ").join(renames));
+
+        for (final String table : tables) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table + OLD_SUFFIX);
+        }
+    }
+
+    public void drop() {
+        for (final String table : tables) {
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table + SHADOW_SUFFIX);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package net.ripe.db.whois.common.domain.serials;
+
+import net.ripe.db.whois.common.rpsl.RpslObject;
+
+/**
+ * A serial entry with the serial it was read from.
+ */
+public class SerialChange {
+    private final int serialId;
+    private final SerialEntry serialEntry;
+
+    public SerialChange(final int serialId, final SerialEntry serialEntry) {
+        this.serialId = serialId;
+        this.serialEntry = serialEntry;
+    }
+
+    public int getSerialId() {
+        return serialId;
+    }
+
+    public SerialEntry getSerialEntry() {
+        return serialEntry;
+    }
+
+    public Operation getOperation() {
+        return serialEntry.getOperation();
+    }
+
+    public RpslObject getRpslObject() {
+        return serialEntry.getRpslObject();
+    }
+
+    public int getObjectId() {
+        return serialEntry.getRpslObject().getObjectId();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s %s", serialId, serialEntry.getOperation(), serialEntry.getRpslObject().getFormattedKey());
+    }
+}
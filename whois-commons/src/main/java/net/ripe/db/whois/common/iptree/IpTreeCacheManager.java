@@ -191,15 +191,18 @@ public class IpTreeCacheManager {
         cache.put(source, cacheEntry);
     }
 
-    public void update(final SourceConfiguration sourceConfiguration) {
-        update(sourceConfiguration, sourceConfiguration.getJdbcTemplate());
+    /**
+     * @return false if the tree was not updated, because another thread was busy updating it or the update failed
+     */
+    public boolean update(final SourceConfiguration sourceConfiguration) {
+        return update(sourceConfiguration, sourceConfiguration.getJdbcTemplate());
     }
 
     public void updateTransactional(final SourceConfiguration sourceConfiguration) {
         update(sourceConfiguration, this.jdbcTemplate);
     }
 
-    private void update(final SourceConfiguration sourceConfiguration, final JdbcTemplate jdbcTemplate) {
+    private boolean update(final SourceConfiguration sourceConfiguration, final JdbcTemplate jdbcTemplate) {
         final CIString source = sourceConfiguration.getSource().getName();
         final CacheEntry cacheEntry = cache.get(source);
         if (cacheEntry == null) {
@@ -210,12 +213,15 @@ public class IpTreeCacheManager {
         if (cacheEntry.updateLock.tryAcquire()) {
             try {
                 update(jdbcTemplate, cacheEntry);
+                return true;
             } catch (DataAccessException e) {
                 LOGGER.warn("Unable to update {} due to {}", sourceConfiguration, e.getMessage());
             } finally {
                 cacheEntry.updateLock.release();
             }
         }
+
+        return false;
     }
 
     private void update(final JdbcTemplate jdbcTemplate, final CacheEntry cacheEntry) {
@@ -6,6 +6,9 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.serials.SerialTailer;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceConfiguration;
 import net.ripe.db.whois.common.source.SourceContext;
@@ -27,22 +30,35 @@ import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps the ip trees up to date with the serials.
+ *
+ * The tree of the main source on the slave database is updated when the {@link SerialTailer} sees a change of an
+ * object in the trees, the trees of the other (GRS) sources are on other databases and are updated on a schedule.
+ */
 @Component
 public class IpTreeUpdater {
     private static final Logger LOGGER = LoggerFactory.getLogger(IpTreeUpdater.class);
 
     public static final int TREE_UPDATE_IN_SECONDS = 10;
 
+    // the object types read into the trees by the IpTreeCacheManager
+    private static final Set<ObjectType> TREE_TYPES = Sets.immutableEnumSet(ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN);
+
     private final IpTreeCacheManager ipTreeCacheManager;
+    private final SerialTailer serialTailer;
 
     private SourceContext sourceContext;
     private Set<SourceConfiguration> sourceConfigurationForSlave;
+    private Set<SourceConfiguration> sourceConfigurationForSchedule;
 
     private ExecutorService executorService;
+    private SerialTailer.Subscription subscription;
 
     @Autowired
-    public IpTreeUpdater(final IpTreeCacheManager ipTreeCacheManager) {
+    public IpTreeUpdater(final IpTreeCacheManager ipTreeCacheManager, final SerialTailer serialTailer) {
         this.ipTreeCacheManager = ipTreeCacheManager;
+        this.serialTailer = serialTailer;
     }
 
     @Autowired(required = false)
@@ -86,10 +102,22 @@ public class IpTreeUpdater {
         });
 
         rebuild();
+
+        final Set<SourceConfiguration> tailedSourceConfiguration = Sets.filter(sourceConfigurationForSlave, input -> input.getSource().equals(sourceContext.getWhoisSlaveSource()));
+        sourceConfigurationForSchedule = Sets.newLinkedHashSet(Sets.difference(sourceConfigurationForSlave, tailedSourceConfiguration));
+        for (final SourceConfiguration sourceConfiguration : tailedSourceConfiguration) {
+            subscription = serialTailer.subscribe("IpTreeUpdater", (fromExclusive, toInclusive, changes) -> update(sourceConfiguration, changes));
+            // catch up with the changes made between the rebuild and the subscription
+            ipTreeCacheManager.update(sourceConfiguration);
+        }
     }
 
     @PreDestroy
     public void stop() {
+        if (subscription != null) {
+            subscription.close();
+        }
+
         executorService.shutdownNow();
     }
 
@@ -116,9 +144,20 @@ public class IpTreeUpdater {
         }
     }
 
-    @Scheduled(fixedDelay = TREE_UPDATE_IN_SECONDS * 1000)
+    /**
+     * Update the trees of all sources.
+     */
     public void update() {
-        invokeAll(sourceConfigurationForSlave, new OperationCallback() {
+        update(sourceConfigurationForSlave);
+    }
+
+    @Scheduled(fixedDelay = TREE_UPDATE_IN_SECONDS * 1000)
+    public void updateScheduled() {
+        update(sourceConfigurationForSchedule);
+    }
+
+    private void update(final Set<SourceConfiguration> sourceConfigurations) {
+        invokeAll(sourceConfigurations, new OperationCallback() {
             @Override
             public void execute(final SourceConfiguration sourceConfiguration) {
                 ipTreeCacheManager.update(sourceConfiguration);
@@ -126,6 +165,17 @@ public class IpTreeUpdater {
         });
     }
 
+    private boolean update(final SourceConfiguration sourceConfiguration, final List<SerialChange> changes) {
+        for (final SerialChange change : changes) {
+            if (TREE_TYPES.contains(change.getRpslObject().getType())) {
+                // the tree reads the changes since its own serial, it can also be updated on the master after an update
+                return ipTreeCacheManager.update(sourceConfiguration);
+            }
+        }
+
+        return true;
+    }
+
     public void updateTransactional() {
         ipTreeCacheManager.updateTransactional(sourceContext.getCurrentSourceConfiguration());
     }
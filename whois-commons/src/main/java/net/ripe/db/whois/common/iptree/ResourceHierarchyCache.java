@@ -0,0 +1,445 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.ip.Interval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.source.SourceConfiguration;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static net.ripe.db.whois.common.rpsl.ObjectType.AUT_NUM;
+import static net.ripe.db.whois.common.rpsl.ObjectType.INET6NUM;
+import static net.ripe.db.whois.common.rpsl.ObjectType.INETNUM;
+import static net.ripe.db.whois.common.rpsl.ObjectType.ORGANISATION;
+import static net.ripe.db.whois.common.rpsl.ObjectType.ROLE;
+
+/**
+ * Remembers values resolved by walking up the resource hierarchy (e.g. the effective abuse-c or resource holder).
+ *
+ * Every value is stored for the resource it was resolved for, together with the objects that were read to resolve
+ * it (registered with {@link #addDependency(RpslObject)}), and the keys it looked up without finding an object
+ * (registered with {@link #addMissingDependency(ObjectType, CIString)}). Using the serials, a value is evicted when:
+ * - one of the objects it was resolved from changed, or an object it did not find was created, or
+ * - an inetnum or inet6num containing the resource was created, updated or deleted, as that may change the parents.
+ *
+ * The changes of the main source are delivered by the {@link SerialTailer}, the serials of other sources are polled.
+ */
+@Component
+public class ResourceHierarchyCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceHierarchyCache.class);
+
+    private static final ThreadLocal<Dependencies> DEPENDENCIES = new ThreadLocal<>();
+
+    // the object types values are resolved from
+    private static final Set<ObjectType> DEPENDENCY_TYPES = Sets.immutableEnumSet(INETNUM, INET6NUM, AUT_NUM, ORGANISATION, ROLE);
+
+    private final SourceContext sourceContext;
+    private final SerialTailer serialTailer;
+    private final boolean enabled;
+
+    private final Cache<Key, Entry> cache;
+    private final Map<CIString, SourceState> sources = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private CIString tailedSource;
+    private SerialTailer.Subscription subscription;
+    // only used from the delivery thread of the subscription
+    private int tailedSerial = -1;
+
+    @Autowired
+    public ResourceHierarchyCache(final SourceContext sourceContext,
+                                  final SerialTailer serialTailer,
+                                  @Value("${resource.hierarchy.cache.enabled:false}") final boolean enabled,
+                                  @Value("${resource.hierarchy.cache.size:100000}") final int size) {
+        this.sourceContext = sourceContext;
+        this.serialTailer = serialTailer;
+        this.enabled = enabled;
+        this.cache = CacheBuilder.newBuilder().maximumSize(size).build();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            tailedSource = sourceContext.getWhoisSlaveSource().getName();
+            subscription = serialTailer.subscribe("ResourceHierarchyCache", this::evict);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * @param name     what is resolved, the same resource can have a value for each name
+     * @param resource the inetnum, inet6num or aut-num
+     * @param loader   resolves the value, registering the objects it reads
+     */
+    @CheckForNull
+    @SuppressWarnings("unchecked")
+    public <T> T get(final String name, final RpslObject resource, final Supplier<T> loader) {
+        if (!enabled || resource.getObjectId() == 0) {
+            return loader.get();
+        }
+
+        final SourceConfiguration sourceConfiguration = sourceContext.getCurrentSourceConfiguration();
+        final Key key = new Key(name, sourceConfiguration.getSource().getName(), resource.getObjectId());
+
+        final Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            addDependencies(cached.dependencies);
+            return (T) cached.value;
+        }
+
+        if (!key.source.equals(tailedSource)) {
+            try {
+                sources.computeIfAbsent(key.source, source -> new SourceState(sourceConfiguration));
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to read serials of {}: {}", key.source, e.getMessage());
+                return loader.get();
+            }
+        }
+
+        final long evictionsBefore = evictions.get();
+        final Dependencies outerDependencies = DEPENDENCIES.get();
+        final Dependencies dependencies = new Dependencies();
+        dependencies.add(resource);
+        DEPENDENCIES.set(dependencies);
+
+        final T value;
+        try {
+            value = loader.get();
+        } finally {
+            DEPENDENCIES.set(outerDependencies);
+        }
+
+        addDependencies(dependencies);
+
+        // the value may be based on objects evicted while it was resolved
+        if (evictions.get() == evictionsBefore) {
+            cache.put(key, new Entry(value, getInterval(resource), dependencies));
+        }
+
+        return value;
+    }
+
+    /**
+     * Register an object read while resolving a value.
+     */
+    public void addDependency(@Nullable final RpslObject rpslObject) {
+        final Dependencies dependencies = DEPENDENCIES.get();
+        if (dependencies != null && rpslObject != null) {
+            dependencies.add(rpslObject);
+        }
+    }
+
+    /**
+     * Register a key looked up while resolving a value, for which no object was found.
+     */
+    public void addMissingDependency(final ObjectType objectType, final CIString pkey) {
+        final Dependencies dependencies = DEPENDENCIES.get();
+        if (dependencies != null) {
+            dependencies.addMissing(objectType, pkey);
+        }
+    }
+
+    /**
+     * Register the dependencies on this thread in the given dependencies, including those of values served from the
+     * cache, until the tracking is closed.
+     */
+    public Tracking trackDependencies(final Dependencies dependencies) {
+        final Dependencies outerDependencies = DEPENDENCIES.get();
+        DEPENDENCIES.set(dependencies);
+        return () -> DEPENDENCIES.set(outerDependencies);
+    }
+
+    private static void addDependencies(final Dependencies added) {
+        final Dependencies dependencies = DEPENDENCIES.get();
+        if (dependencies != null) {
+            dependencies.addAll(added);
+        }
+    }
+
+    boolean evict(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+        if (fromExclusive < tailedSerial) {
+            LOGGER.info("Serials of {} went back from {} to {}, clearing cache", tailedSource, tailedSerial, fromExclusive);
+            evictions.incrementAndGet();
+            cache.asMap().keySet().removeIf(key -> key.source.equals(tailedSource));
+        }
+
+        final Set<Integer> changedObjectIds = Sets.newHashSet();
+        final SetMultimap<ObjectType, CIString> changedKeys = HashMultimap.create();
+        final List<Interval<?>> changedIntervals = Lists.newArrayList();
+
+        for (final SerialChange change : changes) {
+            final RpslObject rpslObject = change.getRpslObject();
+            if (DEPENDENCY_TYPES.contains(rpslObject.getType())) {
+                changedObjectIds.add(rpslObject.getObjectId());
+                changedKeys.put(rpslObject.getType(), rpslObject.getKey());
+
+                final Interval<?> interval = getInterval(rpslObject);
+                if (interval != null) {
+                    changedIntervals.add(interval);
+                }
+            }
+        }
+
+        evict(tailedSource, changedObjectIds, changedKeys, changedIntervals);
+        tailedSerial = toInclusive;
+        return true;
+    }
+
+    @Scheduled(fixedDelay = IpTreeUpdater.TREE_UPDATE_IN_SECONDS * 1000)
+    public void evict() {
+        for (final SourceState sourceState : sources.values()) {
+            try {
+                evict(sourceState);
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to evict {} due to {}", sourceState.sourceConfiguration, e.getMessage());
+            }
+        }
+    }
+
+    private void evict(final SourceState sourceState) {
+        final CIString source = sourceState.sourceConfiguration.getSource().getName();
+        final long fromExclusive = sourceState.lastSerial;
+        final long toInclusive = getLastSerial(sourceState.sourceConfiguration);
+
+        if (toInclusive == fromExclusive) {
+            return;
+        }
+
+        if (toInclusive < fromExclusive) {
+            LOGGER.info("Serials of {} went back from {} to {}, clearing cache", source, fromExclusive, toInclusive);
+            evictions.incrementAndGet();
+            cache.asMap().keySet().removeIf(key -> key.source.equals(source));
+            sourceState.lastSerial = toInclusive;
+            return;
+        }
+
+        final Set<Integer> changedObjectIds = Sets.newHashSet();
+        final SetMultimap<ObjectType, CIString> changedKeys = HashMultimap.create();
+        final List<Interval<?>> changedIntervals = Lists.newArrayList();
+
+        sourceState.sourceConfiguration.getJdbcTemplate().query("" +
+                        "SELECT last.object_type, last.pkey, last.object_id " +
+                        "FROM serials " +
+                        "LEFT JOIN last ON last.object_id = serials.object_id " +
+                        "WHERE serials.serial_id > ? " +
+                        "AND serials.serial_id <= ? " +
+                        "AND last.object_type in (?, ?, ?, ?, ?)",
+                rs -> {
+                    final ObjectType objectType = ObjectTypeIds.getType(rs.getInt(1));
+                    changedObjectIds.add(rs.getInt(3));
+                    changedKeys.put(objectType, CIString.ciString(rs.getString(2)));
+
+                    final Interval<?> interval = getInterval(objectType, rs.getString(2));
+                    if (interval != null) {
+                        changedIntervals.add(interval);
+                    }
+                },
+                fromExclusive, toInclusive,
+                ObjectTypeIds.getId(INETNUM),
+                ObjectTypeIds.getId(INET6NUM),
+                ObjectTypeIds.getId(AUT_NUM),
+                ObjectTypeIds.getId(ORGANISATION),
+                ObjectTypeIds.getId(ROLE));
+
+        evict(source, changedObjectIds, changedKeys, changedIntervals);
+        sourceState.lastSerial = toInclusive;
+    }
+
+    private void evict(final CIString source, final Set<Integer> changedObjectIds, final SetMultimap<ObjectType, CIString> changedKeys, final List<Interval<?>> changedIntervals) {
+        if (!changedObjectIds.isEmpty()) {
+            evictions.incrementAndGet();
+            cache.asMap().entrySet().removeIf(cacheEntry ->
+                    cacheEntry.getKey().source.equals(source) && cacheEntry.getValue().isAffected(changedObjectIds, changedKeys, changedIntervals));
+        }
+    }
+
+    public void clear() {
+        evictions.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private static long getLastSerial(final SourceConfiguration sourceConfiguration) {
+        return sourceConfiguration.getJdbcTemplate().queryForObject("SELECT IFNULL(MAX(serial_id),0) FROM serials", Long.class);
+    }
+
+    @CheckForNull
+    private static Interval<?> getInterval(final RpslObject rpslObject) {
+        return getInterval(rpslObject.getType(), rpslObject.getKey().toString());
+    }
+
+    @CheckForNull
+    private static Interval<?> getInterval(final ObjectType objectType, final String pkey) {
+        try {
+            switch (objectType) {
+                case INETNUM:
+                    return Ipv4Resource.parse(pkey);
+                case INET6NUM:
+                    return Ipv6Resource.parse(pkey);
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean contains(final Interval<?> interval, final Interval<?> other) {
+        return interval.getClass().equals(other.getClass()) && ((Interval<Interval>) interval).contains(other);
+    }
+
+    public interface Tracking extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * The objects read and the keys not found while resolving a value, only changed by the thread resolving it.
+     */
+    public static final class Dependencies {
+        private final Set<Integer> objectIds = Sets.newHashSet();
+        private final SetMultimap<ObjectType, CIString> missingKeys = HashMultimap.create();
+
+        public void add(final RpslObject rpslObject) {
+            if (rpslObject.getObjectId() != 0) {
+                objectIds.add(rpslObject.getObjectId());
+            }
+        }
+
+        public void addMissing(final ObjectType objectType, final CIString pkey) {
+            missingKeys.put(objectType, pkey);
+        }
+
+        private void addAll(final Dependencies dependencies) {
+            objectIds.addAll(dependencies.objectIds);
+            missingKeys.putAll(dependencies.missingKeys);
+        }
+
+        /**
+         * @param changedKeys the object types and primary keys of the changed objects
+         */
+        public boolean isAffected(final Set<Integer> changedObjectIds, final SetMultimap<ObjectType, CIString> changedKeys) {
+            for (final Integer objectId : objectIds) {
+                if (changedObjectIds.contains(objectId)) {
+                    return true;
+                }
+            }
+
+            for (final Map.Entry<ObjectType, CIString> missingKey : missingKeys.entries()) {
+                if (changedKeys.containsEntry(missingKey.getKey(), missingKey.getValue())) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static final class SourceState {
+        private final SourceConfiguration sourceConfiguration;
+        private volatile long lastSerial;
+
+        private SourceState(final SourceConfiguration sourceConfiguration) {
+            this.sourceConfiguration = sourceConfiguration;
+            this.lastSerial = getLastSerial(sourceConfiguration);
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final Interval<?> interval;
+        private final Dependencies dependencies;
+
+        private Entry(@Nullable final Object value, @Nullable final Interval<?> interval, final Dependencies dependencies) {
+            this.value = value;
+            this.interval = interval;
+            this.dependencies = dependencies;
+        }
+
+        private boolean isAffected(final Set<Integer> changedObjectIds, final SetMultimap<ObjectType, CIString> changedKeys, final List<Interval<?>> changedIntervals) {
+            if (dependencies.isAffected(changedObjectIds, changedKeys)) {
+                return true;
+            }
+
+            if (interval != null) {
+                for (final Interval<?> changedInterval : changedIntervals) {
+                    if (contains(changedInterval, interval)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static final class Key {
+        private final String name;
+        private final CIString source;
+        private final int objectId;
+
+        private Key(final String name, final CIString source, final int objectId) {
+            this.name = name;
+            this.source = source;
+            this.objectId = objectId;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+
+            final Key key = (Key) o;
+            return objectId == key.objectId && name.equals(key.name) && source.equals(key.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, source, objectId);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package net.ripe.db.whois.common.jdbc;
+
+import com.google.common.base.Joiner;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "DataSources", description = "Connection pool statistics")
+public class DataSourcesJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataSourcesJmx.class);
+
+    private final InstrumentedDataSources instrumentedDataSources;
+
+    @Autowired
+    public DataSourcesJmx(final InstrumentedDataSources instrumentedDataSources) {
+        super(LOGGER);
+        this.instrumentedDataSources = instrumentedDataSources;
+    }
+
+    @ManagedOperation(description = "Connection acquire latency, hold time and pool usage per data source")
+    public String getStatistics() {
+        return invokeOperation("Get data source statistics", "", () -> Joiner.on('\n').join(instrumentedDataSources.getDataSources()));
+    }
+}
@@ -0,0 +1,221 @@
+package net.ripe.db.whois.common.jdbc;
+
+import com.mchange.v2.c3p0.DataSources;
+import com.mchange.v2.c3p0.PooledDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures how long it takes to get a connection from a pool, and how long connections are held, so latency in the
+ * pool can be told apart from latency in the database.
+ *
+ * Connections held for longer than the leak threshold are logged (once) as possible leaks. Leaks are only checked
+ * when a connection is requested, at most once a minute.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InstrumentedDataSource.class);
+
+    private static final long LEAK_CHECK_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    // weight of the most recent acquire in the moving average
+    private static final double AVERAGE_WEIGHT = 0.1;
+
+    private final String name;
+    private final long leakThresholdNanos;
+    private final boolean leakStackTraces;
+
+    private final LatencyHistogram acquireLatency = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    private final LongAdder acquireFailures = new LongAdder();
+    private final AtomicLong lastFailureNanos = new AtomicLong();
+    private final AtomicLong lastLeakCheckNanos = new AtomicLong(System.nanoTime());
+    private final Set<Checkout> checkouts = ConcurrentHashMap.newKeySet();
+
+    private volatile double averageAcquireNanos;
+    private volatile boolean failed;
+
+    public InstrumentedDataSource(final String name, final DataSource dataSource, final int leakThresholdSeconds, final boolean leakStackTraces) {
+        super(dataSource);
+        this.name = name;
+        this.leakThresholdNanos = leakThresholdSeconds > 0 ? TimeUnit.SECONDS.toNanos(leakThresholdSeconds) : Long.MAX_VALUE;
+        this.leakStackTraces = leakStackTraces;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        final long start = System.nanoTime();
+        checkLeaks(start);
+
+        final Connection connection;
+        try {
+            connection = super.getConnection();
+        } catch (SQLException | RuntimeException e) {
+            acquired(start, false);
+            throw e;
+        }
+
+        acquired(start, true);
+        return checkout(connection);
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        final long start = System.nanoTime();
+        checkLeaks(start);
+
+        final Connection connection;
+        try {
+            connection = super.getConnection(username, password);
+        } catch (SQLException | RuntimeException e) {
+            acquired(start, false);
+            throw e;
+        }
+
+        acquired(start, true);
+        return checkout(connection);
+    }
+
+    private void acquired(final long start, final boolean success) {
+        final long nanos = System.nanoTime() - start;
+        acquireLatency.record(nanos);
+
+        if (success) {
+            failed = false;
+            averageAcquireNanos = averageAcquireNanos == 0 ? nanos : AVERAGE_WEIGHT * nanos + (1 - AVERAGE_WEIGHT) * averageAcquireNanos;
+        } else {
+            acquireFailures.increment();
+            lastFailureNanos.set(System.nanoTime());
+            failed = true;
+        }
+    }
+
+    private Connection checkout(final Connection connection) {
+        final Checkout checkout = new Checkout(connection);
+        checkouts.add(checkout);
+        return (Connection) Proxy.newProxyInstance(connection.getClass().getClassLoader(), new Class<?>[]{Connection.class}, checkout);
+    }
+
+    /**
+     * @return false if getting a connection failed, and the last failure was less than the given time ago
+     */
+    public boolean isHealthy(final long retryAfterMs) {
+        return !failed || System.nanoTime() - lastFailureNanos.get() > TimeUnit.MILLISECONDS.toNanos(retryAfterMs);
+    }
+
+    public double getAverageAcquireNanos() {
+        return averageAcquireNanos;
+    }
+
+    public LatencyHistogram getAcquireLatency() {
+        return acquireLatency;
+    }
+
+    public LatencyHistogram getHoldTime() {
+        return holdTime;
+    }
+
+    public long getAcquireFailures() {
+        return acquireFailures.sum();
+    }
+
+    public int getCheckedOut() {
+        return checkouts.size();
+    }
+
+    void checkLeaks(final long now) {
+        final long lastLeakCheck = lastLeakCheckNanos.get();
+        if (now - lastLeakCheck < LEAK_CHECK_INTERVAL_NANOS || !lastLeakCheckNanos.compareAndSet(lastLeakCheck, now)) {
+            return;
+        }
+
+        for (final Checkout checkout : checkouts) {
+            final long heldNanos = now - checkout.startNanos;
+            if (heldNanos > leakThresholdNanos && !checkout.reported) {
+                checkout.reported = true;
+                LOGGER.warn("{} connection held by {} for {}s, possible leak", name, checkout.threadName, TimeUnit.NANOSECONDS.toSeconds(heldNanos), checkout.stackTrace);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder(name)
+                .append(": acquire ").append(acquireLatency)
+                .append(", failures=").append(getAcquireFailures())
+                .append(", hold ").append(holdTime)
+                .append(", checked out=").append(getCheckedOut());
+
+        final DataSource target = getTargetDataSource();
+        if (target instanceof PooledDataSource) {
+            final PooledDataSource pooledDataSource = (PooledDataSource) target;
+            try {
+                builder.append(", pool busy=").append(pooledDataSource.getNumBusyConnectionsDefaultUser())
+                        .append(" idle=").append(pooledDataSource.getNumIdleConnectionsDefaultUser())
+                        .append(" waiting=").append(pooledDataSource.getNumThreadsAwaitingCheckoutDefaultUser());
+            } catch (SQLException e) {
+                builder.append(", pool unavailable: ").append(e.getMessage());
+            }
+        }
+
+        return builder.toString();
+    }
+
+    public void close() {
+        try {
+            DataSources.destroy(getTargetDataSource());
+        } catch (SQLException e) {
+            LOGGER.error("Closing {}", name, e);
+        }
+    }
+
+    private final class Checkout implements InvocationHandler {
+        private final Connection target;
+        private final long startNanos = System.nanoTime();
+        private final String threadName = Thread.currentThread().getName();
+        private final Throwable stackTrace = leakStackTraces ? new Throwable("Checked out") : null;
+        private volatile boolean reported;
+
+        private Checkout(final Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    if (checkouts.remove(this)) {
+                        holdTime.record(System.nanoTime() - startNanos);
+                    }
+                    break;
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
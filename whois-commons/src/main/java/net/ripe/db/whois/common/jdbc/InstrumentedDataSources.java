@@ -0,0 +1,52 @@
+package net.ripe.db.whois.common.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import com.mchange.v2.c3p0.PooledDataSource;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Wraps every connection pool defined as a bean in an {@link InstrumentedDataSource} named after the bean, and keeps
+ * track of all instrumented data sources for reporting.
+ *
+ * Pools defined as inner beans are left alone, they are instrumented by the bean that owns them (if at all).
+ */
+@Component
+public class InstrumentedDataSources implements BeanPostProcessor {
+    private final int leakThresholdSeconds;
+    private final boolean leakStackTraces;
+    private final List<InstrumentedDataSource> dataSources = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public InstrumentedDataSources(@Value("${whois.db.pool.leak.threshold.seconds:600}") final int leakThresholdSeconds,
+                                   @Value("${whois.db.pool.leak.stacktraces:false}") final boolean leakStackTraces) {
+        this.leakThresholdSeconds = leakThresholdSeconds;
+        this.leakStackTraces = leakStackTraces;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+        if (bean instanceof PooledDataSource && !beanName.contains(BeanFactoryUtils.GENERATED_BEAN_NAME_SEPARATOR)) {
+            return instrument(beanName, (DataSource) bean);
+        }
+
+        return bean;
+    }
+
+    public InstrumentedDataSource instrument(final String name, final DataSource dataSource) {
+        final InstrumentedDataSource instrumentedDataSource = new InstrumentedDataSource(name, dataSource, leakThresholdSeconds, leakStackTraces);
+        dataSources.add(instrumentedDataSource);
+        return instrumentedDataSource;
+    }
+
+    public List<InstrumentedDataSource> getDataSources() {
+        return ImmutableList.copyOf(dataSources);
+    }
+}
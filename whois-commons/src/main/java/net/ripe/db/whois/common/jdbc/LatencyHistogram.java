@@ -0,0 +1,97 @@
+package net.ripe.db.whois.common.jdbc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts latencies in fixed buckets, without locking, so it can be updated on every call.
+ *
+ * Percentiles are approximated by the upper bound of the bucket they fall in.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_UPPER_BOUNDS_MICROS = {
+            100, 250, 500,
+            1_000, 2_500, 5_000,
+            10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000,
+            10_000_000, Long.MAX_VALUE};
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MICROS.length);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(final long nanos) {
+        final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+        int bucket = 0;
+        while (micros > BUCKET_UPPER_BOUNDS_MICROS[bucket]) {
+            bucket++;
+        }
+
+        buckets.incrementAndGet(bucket);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        final long count = getCount();
+        return count == 0 ? 0 : getTotalNanos() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket containing the percentile, capped at the maximum latency seen
+     */
+    public long getPercentileNanos(final double percentile) {
+        long total = 0;
+        for (int bucket = 0; bucket < buckets.length(); bucket++) {
+            total += buckets.get(bucket);
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < buckets.length(); bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(getMaxNanos(), TimeUnit.MICROSECONDS.toNanos(BUCKET_UPPER_BOUNDS_MICROS[bucket]));
+            }
+        }
+
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.2fms p50=%.2fms p99=%.2fms max=%.2fms",
+                getCount(),
+                toMillis(getMeanNanos()),
+                toMillis(getPercentileNanos(50)),
+                toMillis(getPercentileNanos(99)),
+                toMillis(getMaxNanos()));
+    }
+
+    private static double toMillis(final long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
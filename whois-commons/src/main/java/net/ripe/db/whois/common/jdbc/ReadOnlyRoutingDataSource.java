@@ -0,0 +1,129 @@
+package net.ripe.db.whois.common.jdbc;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Spreads read-only connections over a set of slaves, weighted by health.
+ *
+ * A slave is picked at random, weighted by the inverse of its average connection acquire time, so a slave that is
+ * slow to hand out connections gets less traffic. A slave that failed to hand out a connection is skipped for a
+ * while; if it fails, the next slave (in order of weight) is tried.
+ *
+ * Consecutive connections can go to different slaves, which may be at different replication positions: only use this
+ * for lookups that don't depend on earlier reads (e.g. not for reading serials).
+ */
+public class ReadOnlyRoutingDataSource extends AbstractDataSource {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadOnlyRoutingDataSource.class);
+
+    private static final long RETRY_FAILED_AFTER_MS = 10_000;
+
+    private final List<InstrumentedDataSource> dataSources;
+
+    /**
+     * @param dataSource the primary slave, which is not closed by {@link #close()}
+     * @param additionalUrls comma separated JDBC urls of additional slaves (if any), using the same credentials
+     */
+    public ReadOnlyRoutingDataSource(final InstrumentedDataSources instrumentedDataSources,
+                                     final DataSourceFactory dataSourceFactory,
+                                     final String name,
+                                     final DataSource dataSource,
+                                     final String additionalUrls,
+                                     final String username,
+                                     final String password) {
+        this.dataSources = Lists.newArrayList(dataSource instanceof InstrumentedDataSource ?
+                (InstrumentedDataSource) dataSource :
+                instrumentedDataSources.instrument(name, dataSource));
+
+        for (final String url : Splitter.on(',').omitEmptyStrings().trimResults().split(additionalUrls)) {
+            final String slaveName = name + "-" + dataSources.size();
+            LOGGER.info("Routing read-only connections for {} also to {} ({})", name, slaveName, url);
+            dataSources.add(instrumentedDataSources.instrument(slaveName, dataSourceFactory.createDataSource(url, username, password)));
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (dataSources.size() == 1) {
+            return dataSources.get(0).getConnection();
+        }
+
+        SQLException exception = null;
+        for (final InstrumentedDataSource dataSource : select()) {
+            try {
+                return dataSource.getConnection();
+            } catch (SQLException e) {
+                LOGGER.warn("Unable to get connection from {}: {}", dataSource.getName(), e.getMessage());
+                exception = e;
+            }
+        }
+
+        throw exception;
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        throw new UnsupportedOperationException("Connections are routed with the configured credentials");
+    }
+
+    /**
+     * @return all slaves, the first picked by weight, the others in order of weight
+     */
+    List<InstrumentedDataSource> select() {
+        final double[] weights = new double[dataSources.size()];
+        double totalWeight = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = getWeight(dataSources.get(i));
+            totalWeight += weights[i];
+        }
+
+        final List<Integer> order = Lists.newArrayListWithExpectedSize(weights.length);
+        for (int i = 0; i < weights.length; i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparingDouble((Integer i) -> weights[i]).reversed());
+
+        if (totalWeight > 0) {
+            double random = ThreadLocalRandom.current().nextDouble(totalWeight);
+            for (int i = 0; i < weights.length; i++) {
+                random -= weights[i];
+                if (random < 0) {
+                    order.remove(Integer.valueOf(i));
+                    order.add(0, i);
+                    break;
+                }
+            }
+        }
+
+        final List<InstrumentedDataSource> selected = Lists.newArrayListWithExpectedSize(weights.length);
+        for (final Integer i : order) {
+            selected.add(dataSources.get(i));
+        }
+        return selected;
+    }
+
+    private static double getWeight(final InstrumentedDataSource dataSource) {
+        if (!dataSource.isHealthy(RETRY_FAILED_AFTER_MS)) {
+            return 0;
+        }
+
+        // a connection from the pool takes microseconds, so a millisecond keeps new (or idle) slaves from dominating
+        return 1.0 / (1_000_000 + dataSource.getAverageAcquireNanos());
+    }
+
+    public void close() {
+        for (final InstrumentedDataSource dataSource : dataSources.subList(1, dataSources.size())) {
+            dataSource.close();
+        }
+    }
+}
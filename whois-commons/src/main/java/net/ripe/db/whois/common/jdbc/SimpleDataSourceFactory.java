@@ -12,10 +12,16 @@ import java.beans.PropertyVetoException;
 public class SimpleDataSourceFactory implements DataSourceFactory {
 
     private final String driverClass;
+    private final int maxPoolSize;
+    private final int maxStatementsPerConnection;
 
     @Autowired
-    public SimpleDataSourceFactory(@Value("${whois.db.driver}") String driverClass) {
+    public SimpleDataSourceFactory(@Value("${whois.db.driver}") String driverClass,
+                                   @Value("${whois.db.pool.max.size:100}") final int maxPoolSize,
+                                   @Value("${whois.db.pool.statements.per.connection:50}") final int maxStatementsPerConnection) {
         this.driverClass = driverClass;
+        this.maxPoolSize = maxPoolSize;
+        this.maxStatementsPerConnection = maxStatementsPerConnection;
     }
 
     @Override
@@ -28,8 +34,10 @@ public class SimpleDataSourceFactory implements DataSourceFactory {
             cpds.setPassword(password);
 
             cpds.setMinPoolSize(0);
-            cpds.setMaxPoolSize(100);
+            cpds.setMaxPoolSize(maxPoolSize);
             cpds.setMaxIdleTime(7200);
+            cpds.setMaxStatementsPerConnection(maxStatementsPerConnection);
+            cpds.setStatementCacheNumDeferredCloseThreads(1);
             cpds.setPreferredTestQuery("SELECT 1");
             cpds.setIdleConnectionTestPeriod(15);
 
@@ -11,10 +11,12 @@ class ConnectionInvocationHandler implements InvocationHandler {
 
     private final Connection target;
     private final LoggingHandler loggingHandler;
+    private final SqlMetrics sqlMetrics;
 
-    public ConnectionInvocationHandler(final Connection target, final LoggingHandler loggingHandler) {
+    public ConnectionInvocationHandler(final Connection target, final LoggingHandler loggingHandler, final SqlMetrics sqlMetrics) {
         this.target = target;
         this.loggingHandler = loggingHandler;
+        this.sqlMetrics = sqlMetrics;
     }
 
     @Override
@@ -22,10 +24,10 @@ class ConnectionInvocationHandler implements InvocationHandler {
         final Object result = method.invoke(target, args);
 
         if (result instanceof PreparedStatement && args != null && args.length > 0) {
-            final InvocationHandler invocationHandler = new PreparedStatementInvocationHandler(loggingHandler, (PreparedStatement) result, (String) args[0]);
+            final InvocationHandler invocationHandler = new PreparedStatementInvocationHandler(loggingHandler, sqlMetrics, (PreparedStatement) result, (String) args[0]);
             return Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class}, invocationHandler);
         } else if (result instanceof Statement) {
-            final InvocationHandler invocationHandler = new StatementInvocationHandler(loggingHandler, (Statement) result);
+            final InvocationHandler invocationHandler = new StatementInvocationHandler(loggingHandler, sqlMetrics, (Statement) result);
             return Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{Statement.class}, invocationHandler);
         }
 
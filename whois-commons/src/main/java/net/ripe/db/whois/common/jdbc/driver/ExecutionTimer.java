@@ -0,0 +1,21 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+final class ExecutionTimer {
+    private ExecutionTimer() {
+    }
+
+    static Object invoke(final SqlStatistics sqlStatistics, final Object target, final Method method, final Object[] args) throws IllegalAccessException, InvocationTargetException {
+        final long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            final Object result = method.invoke(target, args);
+            failed = false;
+            return result;
+        } finally {
+            sqlStatistics.executed(System.nanoTime() - start, failed);
+        }
+    }
+}
@@ -32,12 +32,18 @@ public class LoggingDriver implements Driver {
 
     // FIXME: [AH] design issue: LoggingHandler is passed down to Connections, but on multiple/reinitialized ApplicationContexts, JDBC is keeping a dangling reference to it
     private LoggingHandler loggingHandler;
+    private SqlMetrics sqlMetrics;
 
     @Autowired(required = false)
     public void setLoggingHandler(final LoggingHandler loggingHandler) {
         this.loggingHandler = loggingHandler;
     }
 
+    @Autowired(required = false)
+    public void setSqlMetrics(final SqlMetrics sqlMetrics) {
+        this.sqlMetrics = sqlMetrics;
+    }
+
     @PostConstruct
     @SuppressWarnings("EmptyCatchBlock")
     public synchronized void init() {
@@ -79,7 +85,7 @@ public class LoggingDriver implements Driver {
         // TODO: [AH] don't create proxies if no logginghandler defined (ergo no logging is going to take place)
         final Target target = getTarget(url);
         final Connection connection = DriverManager.getConnection(target.getUrl(), info);
-        final ConnectionInvocationHandler invocationHandler = new ConnectionInvocationHandler(connection, target.getLoggingHandler());
+        final ConnectionInvocationHandler invocationHandler = new ConnectionInvocationHandler(connection, target.getLoggingHandler(), target.getSqlMetrics());
 
         return (Connection) Proxy.newProxyInstance(connection.getClass().getClassLoader(), new Class<?>[]{Connection.class}, invocationHandler);
     }
@@ -109,7 +115,7 @@ public class LoggingDriver implements Driver {
 
         final String targetUrl = StringUtils.stripEnd(urlBuilder.toString(), URL_DELIMITERS);
 
-        target = new Target(targetUrl, loggingHandler);
+        target = new Target(targetUrl, loggingHandler, sqlMetrics);
 
         targets.put(url, target);
         return target;
@@ -180,10 +186,12 @@ public class LoggingDriver implements Driver {
     static class Target {
         private final String url;
         private final LoggingHandler loggingHandler;
+        private final SqlMetrics sqlMetrics;
 
-        Target(final String url, final LoggingHandler loggingHandler) {
+        Target(final String url, final LoggingHandler loggingHandler, final SqlMetrics sqlMetrics) {
             this.url = url;
             this.loggingHandler = loggingHandler;
+            this.sqlMetrics = sqlMetrics;
         }
 
         public String getUrl() {
@@ -193,5 +201,9 @@ public class LoggingDriver implements Driver {
         public LoggingHandler getLoggingHandler() {
             return loggingHandler;
         }
+
+        public SqlMetrics getSqlMetrics() {
+            return sqlMetrics;
+        }
     }
 }
@@ -15,19 +15,22 @@ class PreparedStatementInvocationHandler implements InvocationHandler {
     private static final List SET_METHODS = Lists.newArrayList("setAsciiStream", "setBigDecimal", "setBinaryStream", "setBoolean", "setByte", "setBytes", "setCharacterStream", "setDate", "setDouble", "setFloat", "setInt", "setLong", "setObject", "setShort", "setString", "setTime", "setTimestamp", "setURL");
 
     private final LoggingHandler loggingHandler;
+    private final SqlMetrics sqlMetrics;
     private final PreparedStatement target;
     private final String sql;
     private final SortedMap<Integer, Object> parameters = Maps.newTreeMap();
 
-    public PreparedStatementInvocationHandler(final LoggingHandler loggingHandler, final PreparedStatement target, final String sql) {
+    public PreparedStatementInvocationHandler(final LoggingHandler loggingHandler, final SqlMetrics sqlMetrics, final PreparedStatement target, final String sql) {
         this.loggingHandler = loggingHandler;
+        this.sqlMetrics = sqlMetrics;
         this.target = target;
         this.sql = sql;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
-        final Object result = method.invoke(target, args);
+        final SqlStatistics sqlStatistics = method.getName().startsWith("execute") && sqlMetrics != null && sqlMetrics.sample() ? sqlMetrics.get(sql) : null;
+        final Object result = sqlStatistics == null ? method.invoke(target, args) : ExecutionTimer.invoke(sqlStatistics, target, method, args);
 
         if (SET_METHODS.contains(method.getName()) && args[0] instanceof Integer) {
             parameters.put((Integer) args[0], args[1]);
@@ -41,7 +44,7 @@ class PreparedStatementInvocationHandler implements InvocationHandler {
             final StatementInfo statementInfo = new StatementInfo(sql, parameters);
 
             final ResultSet resultSet = (ResultSet) result;
-            final ResultSetInvocationHandler invocationHandler = new ResultSetInvocationHandler(loggingHandler, statementInfo, resultSet);
+            final ResultSetInvocationHandler invocationHandler = new ResultSetInvocationHandler(loggingHandler, statementInfo, resultSet, sqlStatistics);
 
             return Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, invocationHandler);
         }
@@ -16,19 +16,28 @@ class ResultSetInvocationHandler implements InvocationHandler {
     private final LoggingHandler loggingHandler;
     private final StatementInfo statementInfo;
     private final ResultSet target;
+    private final SqlStatistics sqlStatistics;
 
     private final List<List<String>> rows = Lists.newArrayList();
+    private long rowCount;
+    private long blobBytes;
+    private boolean closed;
 
-    public ResultSetInvocationHandler(final LoggingHandler loggingHandler, final StatementInfo statementInfo, final ResultSet target) {
+    public ResultSetInvocationHandler(final LoggingHandler loggingHandler, final StatementInfo statementInfo, final ResultSet target, final SqlStatistics sqlStatistics) {
         this.loggingHandler = loggingHandler;
         this.statementInfo = statementInfo;
         this.target = target;
+        this.sqlStatistics = sqlStatistics;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
         final Object result = method.invoke(target, args);
 
+        if (sqlStatistics != null) {
+            measure(method.getName(), result);
+        }
+
         if (loggingHandler != null) {
             if (method.getName().equals("next") && (Boolean) result) {
                 handleNext();
@@ -41,6 +50,32 @@ class ResultSetInvocationHandler implements InvocationHandler {
         return result;
     }
 
+    private void measure(final String methodName, final Object result) throws SQLException {
+        switch (methodName) {
+            case "next":
+                if ((Boolean) result) {
+                    rowCount++;
+                }
+                break;
+            case "getBytes":
+                if (result != null) {
+                    blobBytes += ((byte[]) result).length;
+                }
+                break;
+            case "getBlob":
+                if (result != null) {
+                    blobBytes += ((Blob) result).length();
+                }
+                break;
+            case "close":
+                if (!closed) {
+                    closed = true;
+                    sqlStatistics.fetched(rowCount, blobBytes);
+                }
+                break;
+        }
+    }
+
     private void handleNext() throws SQLException {
         final ResultSetMetaData md = target.getMetaData();
 
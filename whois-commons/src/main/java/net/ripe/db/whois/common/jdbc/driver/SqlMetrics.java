@@ -0,0 +1,101 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import com.google.common.base.Joiner;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates statistics of the statements executed through the {@link LoggingDriver}, per normalised SQL: literals
+ * and IN lists are replaced by placeholders, so all executions of a DAO query end up in the same entry.
+ *
+ * Only a fraction (whois.db.sql.metrics.sample.rate) of the executions is measured, if configured.
+ *
+ * Only data sources with a jdbc:log: url go through the driver: by default that is the master, the slave is measured
+ * if whois.db.slave.url (and whois.db.driver) are configured the same way.
+ */
+@Component
+public class SqlMetrics {
+    static final String OTHER = "(other)";
+
+    private static final int MAX_STATEMENTS = 1000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final boolean enabled;
+    private final double sampleRate;
+
+    private final LoadingCache<String, String> normalised = CacheBuilder.newBuilder()
+            .maximumSize(MAX_STATEMENTS * 10)
+            .build(CacheLoader.from(SqlMetrics::normalise));
+
+    private final ConcurrentMap<String, SqlStatistics> statistics = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SqlMetrics(@Value("${whois.db.sql.metrics.enabled:true}") final boolean enabled,
+                      @Value("${whois.db.sql.metrics.sample.rate:1.0}") final double sampleRate) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return true if the next execution should be measured
+     */
+    boolean sample() {
+        return enabled && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    SqlStatistics get(final String sql) {
+        final String key = normalised.getUnchecked(sql);
+
+        final SqlStatistics sqlStatistics = statistics.get(key);
+        if (sqlStatistics != null) {
+            return sqlStatistics;
+        }
+
+        // statements built with literals could otherwise fill up the map
+        return statistics.size() < MAX_STATEMENTS ?
+                statistics.computeIfAbsent(key, SqlStatistics::new) :
+                statistics.computeIfAbsent(OTHER, SqlStatistics::new);
+    }
+
+    /**
+     * @return statistics per normalised statement, in order of total execution time
+     */
+    public List<SqlStatistics> getStatistics() {
+        return statistics.values().stream()
+                .sorted(Comparator.comparingLong((SqlStatistics sqlStatistics) -> sqlStatistics.getLatency().getTotalNanos()).reversed())
+                .collect(Collectors.toList());
+    }
+
+    public String report(final int limit) {
+        return String.format("sample rate %s\n%s", enabled ? sampleRate : 0, Joiner.on('\n').join(getStatistics().stream().limit(limit).iterator()));
+    }
+
+    public void reset() {
+        statistics.clear();
+    }
+
+    static String normalise(final String sql) {
+        String result = STRING_LITERAL.matcher(sql).replaceAll("?");
+        result = NUMBER_LITERAL.matcher(result).replaceAll("?");
+        result = PARAMETER_LIST.matcher(result).replaceAll("(?)");
+        result = ROW_LIST.matcher(result).replaceAll("(?)");
+        return WHITESPACE.matcher(result).replaceAll(" ").trim();
+    }
+}
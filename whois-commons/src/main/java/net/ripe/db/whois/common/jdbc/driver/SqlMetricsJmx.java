@@ -0,0 +1,41 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "SqlMetrics", description = "Statistics of SQL statements executed through the logging driver")
+public class SqlMetricsJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SqlMetricsJmx.class);
+
+    private final SqlMetrics sqlMetrics;
+
+    @Autowired
+    public SqlMetricsJmx(final SqlMetrics sqlMetrics) {
+        super(LOGGER);
+        this.sqlMetrics = sqlMetrics;
+    }
+
+    @ManagedOperation(description = "Statistics per normalised statement, in order of total execution time")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "limit", description = "Maximum number of statements")
+    })
+    public String getStatistics(final int limit) {
+        return invokeOperation("Get SQL statistics", Integer.toString(limit), () -> sqlMetrics.report(limit));
+    }
+
+    @ManagedOperation(description = "Reset statistics")
+    public void reset() {
+        invokeOperation("Reset SQL statistics", "", () -> {
+            sqlMetrics.reset();
+            return null;
+        });
+    }
+}
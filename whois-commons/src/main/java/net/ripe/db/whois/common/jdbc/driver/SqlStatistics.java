@@ -0,0 +1,67 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import net.ripe.db.whois.common.jdbc.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executions, latency, rows fetched and blob bytes read of one normalised SQL statement.
+ */
+public class SqlStatistics {
+    private final String sql;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder blobBytes = new LongAdder();
+
+    SqlStatistics(final String sql) {
+        this.sql = sql;
+    }
+
+    void executed(final long nanos, final boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    void fetched(final long rows, final long blobBytes) {
+        this.rows.add(rows);
+        this.blobBytes.add(blobBytes);
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public long getExecutions() {
+        return latency.getCount();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getBlobBytes() {
+        return blobBytes.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s total=%.0fms errors=%d rows=%d blob_bytes=%d\n    %s",
+                latency,
+                latency.getTotalNanos() / 1_000_000.0,
+                getErrors(),
+                getRows(),
+                getBlobBytes(),
+                sql);
+    }
+}
@@ -8,23 +8,28 @@ import java.sql.Statement;
 
 class StatementInvocationHandler implements InvocationHandler {
     private final LoggingHandler loggingHandler;
+    private final SqlMetrics sqlMetrics;
     private final Statement target;
 
 
-    public StatementInvocationHandler(final LoggingHandler loggingHandler, final Statement target) {
+    public StatementInvocationHandler(final LoggingHandler loggingHandler, final SqlMetrics sqlMetrics, final Statement target) {
         this.loggingHandler = loggingHandler;
+        this.sqlMetrics = sqlMetrics;
         this.target = target;
     }
 
     @Override
     public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
-        final Object result = method.invoke(target, args);
+        final SqlStatistics sqlStatistics = method.getName().startsWith("execute") && sqlMetrics != null && sqlMetrics.sample() ?
+                sqlMetrics.get(args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : SqlMetrics.OTHER) :
+                null;
+        final Object result = sqlStatistics == null ? method.invoke(target, args) : ExecutionTimer.invoke(sqlStatistics, target, method, args);
 
         if (result instanceof ResultSet && args != null && args.length > 0) {
             final StatementInfo statementInfo = new StatementInfo((String) args[0]);
 
             final ResultSet resultSet = (ResultSet) result;
-            final ResultSetInvocationHandler invocationHandler = new ResultSetInvocationHandler(loggingHandler, statementInfo, resultSet);
+            final ResultSetInvocationHandler invocationHandler = new ResultSetInvocationHandler(loggingHandler, statementInfo, resultSet, sqlStatistics);
 
             return Proxy.newProxyInstance(target.getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, invocationHandler);
         }
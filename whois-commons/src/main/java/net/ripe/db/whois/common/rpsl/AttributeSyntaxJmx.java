@@ -0,0 +1,40 @@
+package net.ripe.db.whois.common.rpsl;
+
+import com.google.common.cache.CacheStats;
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "AttributeSyntax", description = "Attribute syntax validation")
+public class AttributeSyntaxJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AttributeSyntaxJmx.class);
+
+    public AttributeSyntaxJmx() {
+        super(LOGGER);
+    }
+
+    @ManagedOperation(description = "Show the hit rate of the syntax validation result cache")
+    public String getCacheStatistics() {
+        return invokeOperation("Syntax cache statistics", "", () -> {
+            final CacheStats cacheStats = AttributeSyntax.AttributeSyntaxParser.getCacheStats();
+            return String.format("size: %d, requests: %d, hits: %d, hit rate: %.2f%%, evictions: %d",
+                    AttributeSyntax.AttributeSyntaxParser.getCacheSize(),
+                    cacheStats.requestCount(),
+                    cacheStats.hitCount(),
+                    cacheStats.hitRate() * 100,
+                    cacheStats.evictionCount());
+        });
+    }
+
+    @ManagedOperation(description = "Clear the syntax validation result cache")
+    public String clearCache() {
+        return invokeOperation("Clear syntax cache", "", () -> {
+            AttributeSyntax.AttributeSyntaxParser.clearCache();
+            return "Syntax cache cleared";
+        });
+    }
+}
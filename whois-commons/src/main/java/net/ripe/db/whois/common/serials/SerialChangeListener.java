@@ -0,0 +1,18 @@
+package net.ripe.db.whois.common.serials;
+
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface SerialChangeListener {
+    /**
+     * Called from the delivery thread of the subscription, with consecutive ranges of serials.
+     *
+     * @param fromExclusive the checkpoint of the subscription
+     * @param toInclusive the checkpoint after these changes, a range can be empty if its serials were skipped as missing
+     * @param changes the changes in (fromExclusive, toInclusive], in serial order; shared with other subscribers
+     * @return false (or throw) if the changes could not be processed: they are delivered again on a later poll
+     */
+    boolean changed(int fromExclusive, int toInclusive, List<SerialChange> changes);
+}
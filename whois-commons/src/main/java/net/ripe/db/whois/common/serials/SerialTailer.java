@@ -0,0 +1,328 @@
+package net.ripe.db.whois.common.serials;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Reads new serials once for all subscribers, instead of every subscriber polling the serials table on its own.
+ *
+ * Every range of serials is read and parsed once, and handed to all subscribers that are behind. Each subscription
+ * has its own checkpoint, delivery thread and bounded queue of ranges: a subscriber with a full queue is not read
+ * for until it has caught up, without holding back the others. A subscriber that fails is not read for again until
+ * a later poll, backing off up to {@link #MAX_BACKOFF_POLLS} polls while it keeps failing.
+ *
+ * Serials are not necessarily committed in order, so a range ends before the first missing serial. A serial that is
+ * still missing once a later serial has been committed for longer than the gap timeout (e.g. the serial of a rolled
+ * back transaction) is skipped.
+ *
+ * Only the changes of the main source on the slave database are tailed. The ip tree of the main source is updated
+ * when it changes, but still reads the changes since its own serial, as the trees are also updated from the master
+ * after an update. The trees of the GRS sources (other databases), NRTM sessions (each from a serial of the client)
+ * and the authoritative resources (not from serials) keep reading their own.
+ */
+@Component
+public class SerialTailer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SerialTailer.class);
+
+    static final int MAX_BACKOFF_POLLS = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final int queueSize;
+    private final long gapTimeoutMs;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private volatile long polls;
+
+    // the last serial at each poll within the gap timeout, and the last one before it: serials up to that are settled
+    private final Deque<PolledEnd> polledEnds = new ArrayDeque<>();
+
+    @Autowired
+    public SerialTailer(@Qualifier("whoisSlaveDataSource") final DataSource dataSource,
+                        @Value("${serials.tailer.batch.size:1000}") final int batchSize,
+                        @Value("${serials.tailer.queue.size:10}") final int queueSize,
+                        @Value("${serials.tailer.gap.timeout.msecs:5000}") final long gapTimeoutMs) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.batchSize = batchSize;
+        this.queueSize = queueSize;
+        this.gapTimeoutMs = gapTimeoutMs;
+    }
+
+    /**
+     * Subscribe to the changes after the last serial in the database.
+     */
+    public Subscription subscribe(final String name, final SerialChangeListener listener) {
+        return subscribe(name, getLastSerialId(), listener);
+    }
+
+    public Subscription subscribe(final String name, final int fromExclusive, final SerialChangeListener listener) {
+        final Subscription subscription = new Subscription(name, fromExclusive, listener);
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (final Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${serials.tailer.interval.msecs:200}")
+    public synchronized void poll() {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+
+        polls++;
+
+        try {
+            final int end = getLastSerialId();
+            for (final Subscription subscription : subscriptions) {
+                subscription.rewindIfAhead(end);
+            }
+            addPolledEnd(end);
+
+            while (read(end)) {
+            }
+        } catch (DataAccessException e) {
+            LOGGER.warn("Unable to read serials due to {}: {}", e.getClass(), e.getMessage());
+        }
+    }
+
+    /**
+     * Read the next range for the subscriptions that are behind and have room in their queue.
+     *
+     * @return false if there was nothing (more) to read
+     */
+    boolean read(final int end) {
+        final List<Subscription> behind = subscriptions.stream()
+                .filter(subscription -> subscription.isBehind(end))
+                .collect(Collectors.toList());
+        if (behind.isEmpty()) {
+            return false;
+        }
+
+        final int from = behind.stream().mapToInt(subscription -> subscription.position).min().getAsInt();
+        final List<SerialChange> read = getSerialChanges(from, Math.min(end, from + batchSize));
+
+        final int to = getContiguousEnd(from, Math.min(end, from + batchSize), read);
+        if (to == from) {
+            return false;
+        }
+
+        final List<SerialChange> changes = ImmutableList.copyOf(read.stream()
+                .filter(change -> change.getSerialId() <= to)
+                .iterator());
+
+        for (final Subscription subscription : behind) {
+            subscription.offer(from, to, changes);
+        }
+        return true;
+    }
+
+    private void addPolledEnd(final int end) {
+        final long now = System.currentTimeMillis();
+        if (!polledEnds.isEmpty() && polledEnds.getLast().end > end) {
+            polledEnds.clear();
+        }
+        polledEnds.addLast(new PolledEnd(now, end));
+
+        while (polledEnds.size() > 1 && now - Iterables.get(polledEnds, 1).timeMs >= gapTimeoutMs) {
+            polledEnds.removeFirst();
+        }
+    }
+
+    private int getSettledEnd() {
+        final PolledEnd first = polledEnds.peekFirst();
+        return first != null && System.currentTimeMillis() - first.timeMs >= gapTimeoutMs ? first.end : 0;
+    }
+
+    /**
+     * @return the last serial in (fromExclusive, toInclusive] before the first missing serial that is not settled
+     */
+    private int getContiguousEnd(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+        final int settledEnd = getSettledEnd();
+
+        int expected = fromExclusive + 1;
+        for (final SerialChange change : changes) {
+            final int serialId = change.getSerialId();
+            if (serialId > expected) {
+                if (expected > settledEnd) {
+                    return expected - 1;
+                }
+                LOGGER.warn("Serials {} to {} missing, skipping them", expected, serialId - 1);
+            }
+            expected = serialId + 1;
+        }
+
+        if (expected <= toInclusive) {
+            if (expected > settledEnd) {
+                return expected - 1;
+            }
+            LOGGER.warn("Serials {} to {} missing, skipping them", expected, toInclusive);
+        }
+        return toInclusive;
+    }
+
+    int getLastSerialId() {
+        return jdbcTemplate.queryForObject("SELECT IFNULL(MAX(serial_id), 0) FROM serials", Integer.class);
+    }
+
+    List<SerialChange> getSerialChanges(final int fromExclusive, final int toInclusive) {
+        return JdbcRpslObjectOperations.getSerialChanges(jdbcTemplate, fromExclusive, toInclusive);
+    }
+
+    public final class Subscription {
+        private final String name;
+        private final SerialChangeListener listener;
+        private final BlockingQueue<Batch> queue;
+        private final Thread thread;
+
+        // read up to (and queued) and delivered up to, both only go back on failure or rewind
+        private volatile int position;
+        private volatile int checkpoint;
+        private volatile boolean closed;
+
+        // after a failure, not read for until this poll
+        private volatile long retryPoll;
+        private int failures;
+
+        private Subscription(final String name, final int fromExclusive, final SerialChangeListener listener) {
+            this.name = name;
+            this.listener = listener;
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+            this.position = fromExclusive;
+            this.checkpoint = fromExclusive;
+            this.thread = new Thread(this::deliver, "SerialTailer-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCheckpoint() {
+            return checkpoint;
+        }
+
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+            thread.interrupt();
+        }
+
+        private synchronized boolean isBehind(final int end) {
+            return !closed && polls >= retryPoll && position < end && queue.remainingCapacity() > 0;
+        }
+
+        private synchronized void offer(final int from, final int to, final List<SerialChange> changes) {
+            final int fromExclusive = position;
+            if (fromExclusive >= to) {
+                return;
+            }
+
+            final List<SerialChange> batch = fromExclusive <= from ? changes : changes.stream()
+                    .filter(change -> change.getSerialId() > fromExclusive)
+                    .collect(Collectors.toList());
+
+            if (queue.offer(new Batch(fromExclusive, to, batch))) {
+                position = to;
+            }
+        }
+
+        private synchronized void rewindIfAhead(final int end) {
+            if (position > end) {
+                LOGGER.info("Serials went back from {} to {}, rewinding {}", position, end, name);
+                queue.clear();
+                position = end;
+                checkpoint = end;
+            }
+        }
+
+        private void deliver() {
+            while (!closed) {
+                final Batch batch;
+                try {
+                    batch = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (batch.fromExclusive != checkpoint) {
+                    // queued before a failure or rewind
+                    continue;
+                }
+
+                boolean delivered;
+                try {
+                    delivered = listener.changed(batch.fromExclusive, batch.toInclusive, batch.changes);
+                } catch (RuntimeException e) {
+                    LOGGER.warn("{} failed on serials {} to {}", name, batch.fromExclusive, batch.toInclusive, e);
+                    delivered = false;
+                }
+
+                synchronized (this) {
+                    if (checkpoint != batch.fromExclusive) {
+                        continue;
+                    }
+
+                    if (delivered) {
+                        checkpoint = batch.toInclusive;
+                        failures = 0;
+                    } else {
+                        queue.clear();
+                        position = checkpoint;
+                        failures++;
+                        retryPoll = polls + Math.min(1L << Math.min(failures - 1, 30), MAX_BACKOFF_POLLS);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final class PolledEnd {
+        private final long timeMs;
+        private final int end;
+
+        private PolledEnd(final long timeMs, final int end) {
+            this.timeMs = timeMs;
+            this.end = end;
+        }
+    }
+
+    private static final class Batch {
+        private final int fromExclusive;
+        private final int toInclusive;
+        private final List<SerialChange> changes;
+
+        private Batch(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+            this.fromExclusive = fromExclusive;
+            this.toInclusive = toInclusive;
+            this.changes = changes;
+        }
+    }
+}
@@ -34,6 +34,27 @@ CREATE TABLE `mailupdates` (
 ) ENGINE=InnoDB AUTO_INCREMENT=467880 DEFAULT CHARSET=latin1;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
+--
+-- Table structure for table `outgoing_mail`
+--
+
+DROP TABLE IF EXISTS `outgoing_mail`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!40101 SET character_set_client = utf8 */;
+CREATE TABLE `outgoing_mail` (
+  `id` int(10) unsigned NOT NULL AUTO_INCREMENT,
+  `message` longblob NOT NULL,
+  `attempts` int(10) unsigned NOT NULL DEFAULT '0',
+  `next_attempt` int(10) unsigned NOT NULL,
+  `claim_host` varchar(80) DEFAULT NULL,
+  `claim_uuid` varchar(80) DEFAULT NULL,
+  `changed` int(10) unsigned DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `outgoing_mail_claim_uuid_idx` (`claim_uuid`),
+  KEY `outgoing_mail_next_attempt_idx` (`next_attempt`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
 --
 -- Table structure for table `version`
 --
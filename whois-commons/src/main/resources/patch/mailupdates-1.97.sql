@@ -0,0 +1,18 @@
+-- add outgoing mail table, so notifications are queued and delivered in the background
+
+DROP TABLE IF EXISTS `outgoing_mail`;
+CREATE TABLE `outgoing_mail` (
+  `id` int(10) unsigned NOT NULL AUTO_INCREMENT,
+  `message` longblob NOT NULL,
+  `attempts` int(10) unsigned NOT NULL DEFAULT '0',
+  `next_attempt` int(10) unsigned NOT NULL,
+  `claim_host` varchar(80) DEFAULT NULL,
+  `claim_uuid` varchar(80) DEFAULT NULL,
+  `changed` int(10) unsigned DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `outgoing_mail_claim_uuid_idx` (`claim_uuid`),
+  KEY `outgoing_mail_next_attempt_idx` (`next_attempt`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+TRUNCATE version;
+INSERT INTO version VALUES ('mailupdates-1.97');
@@ -0,0 +1,10 @@
+-- add resource lock table, so updates of unrelated objects no longer wait for each other
+
+DROP TABLE IF EXISTS `update_lock_resource`;
+CREATE TABLE `update_lock_resource` (
+  `resource_id` int(11) NOT NULL,
+  PRIMARY KEY (`resource_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=latin1;
+
+TRUNCATE version;
+INSERT INTO version VALUES ('whois-1.97');
@@ -0,0 +1,53 @@
+package net.ripe.db.whois.common.collect;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class WindowedIterableTransformerTest {
+
+    @Test
+    public void empty_input() {
+        final List<List<Integer>> windows = Lists.newArrayList();
+
+        assertThat(getOddFilteringIterable(windows), emptyIterable());
+        assertThat(windows, emptyIterable());
+    }
+
+    @Test
+    public void windows() {
+        final List<List<Integer>> windows = Lists.newArrayList();
+
+        assertThat(getOddFilteringIterable(windows, 1, 2, 3, 4, 5), contains(1, 3, 5));
+        assertThat(windows, contains(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+    }
+
+    @Test
+    public void header() {
+        final WindowedIterableTransformer<Integer> subject = getOddFilteringIterable(Lists.newArrayList(), 2, 4, 5);
+        subject.setHeader(0);
+
+        assertThat(subject, contains(0, 5));
+    }
+
+    private static WindowedIterableTransformer<Integer> getOddFilteringIterable(final List<List<Integer>> windows, final Integer... values) {
+        return new WindowedIterableTransformer<Integer>(Arrays.asList(values), 2) {
+            @Override
+            public void apply(final List<Integer> window, final Deque<Integer> result) {
+                windows.add(window);
+                for (final Integer value : window) {
+                    if (value % 2 == 1) {
+                        result.add(value);
+                    }
+                }
+            }
+        };
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -349,6 +350,21 @@ public class JdbcRpslObjectDaoIntegrationTest extends AbstractDaoIntegrationTest
         assertThat(result, hasSize(0));
     }
 
+    @Test
+    public void related_to_multiple_objects() {
+        final RpslObject person = databaseHelper.addObject(RpslObject.parse("person:Brian Riddle\nnic-hdl:BRD-RIPE"));
+        final RpslObject role1 = databaseHelper.addObject(RpslObject.parse("role:RIPE NCC Operations\nadmin-c:BRD-RIPE\ntech-c:OPS4-RIPE\nnic-hdl:OPS4-RIPE"));
+        final RpslObject role2 = databaseHelper.addObject(RpslObject.parse("role:RIPE NCC Support\nadmin-c:brd-ripe\ntech-c:OPS4-RIPE\nnic-hdl:OPS5-RIPE"));
+
+        final List<Collection<RpslObjectInfo>> result = subject.relatedTo(Arrays.asList(role1, role2), Collections.<ObjectType>emptySet());
+
+        assertThat(result, hasSize(2));
+        assertThat(result.get(0), contains(new RpslObjectInfo(person.getObjectId(), ObjectType.PERSON, "BRD-RIPE")));
+        assertThat(result.get(1), contains(
+                new RpslObjectInfo(person.getObjectId(), ObjectType.PERSON, "BRD-RIPE"),
+                new RpslObjectInfo(role1.getObjectId(), ObjectType.ROLE, "OPS4-RIPE")));
+    }
+
     @Test
     public void getByKey_not_normalized() {
         final RpslObject rpslObject = RpslObject.parse("" +
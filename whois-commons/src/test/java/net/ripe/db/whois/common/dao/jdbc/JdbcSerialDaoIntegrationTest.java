@@ -19,7 +19,9 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.Temporal;
+import java.util.List;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -209,6 +211,44 @@ public class JdbcSerialDaoIntegrationTest extends AbstractDaoIntegrationTest {
         assertThat(subject.getAgeOfExactOrNextExistingSerial(12345), is(nullValue()));
     }
 
+    // getSerialEntries()
+
+    @Test
+    public void getSerialEntries_same_as_single_serial_entries() {
+        databaseHelper.addObject("mntner:DEV-MNT");
+        databaseHelper.updateObject("mntner:DEV-MNT\nremarks:updated");
+        databaseHelper.addObject("person:Denis Walker\nnic-hdl:DW-RIPE");
+        databaseHelper.deleteObject(RpslObject.parse("mntner:DEV-MNT\nremarks:updated"));
+
+        final List<SerialEntry> serialEntries = JdbcRpslObjectOperations.getSerialEntries(databaseHelper.getWhoisTemplate(), 0, 4);
+
+        assertThat(serialEntries, hasSize(4));
+        for (int serialId = 1; serialId <= 4; serialId++) {
+            final SerialEntry expected = JdbcRpslObjectOperations.getSerialEntry(databaseHelper.getWhoisTemplate(), serialId);
+            final SerialEntry serialEntry = serialEntries.get(serialId - 1);
+
+            assertThat(serialEntry.getOperation(), is(expected.getOperation()));
+            assertThat(serialEntry.isAtLast(), is(expected.isAtLast()));
+            assertThat(serialEntry.getRpslObject(), is(expected.getRpslObject()));
+            assertThat(serialEntry.getRpslObject().getObjectId(), is(expected.getRpslObject().getObjectId()));
+        }
+
+        assertThat(serialEntries.get(3).getOperation(), is(Operation.DELETE));
+    }
+
+    @Test
+    public void getSerialEntries_from_exclusive_to_inclusive() {
+        databaseHelper.addObject("aut-num:AS4294967207");
+        databaseHelper.addObject("person:Denis Walker\nnic-hdl:DW-RIPE");
+        databaseHelper.addObject("mntner:DEV-MNT");
+
+        final List<SerialEntry> serialEntries = JdbcRpslObjectOperations.getSerialEntries(databaseHelper.getWhoisTemplate(), 1, 2);
+
+        assertThat(serialEntries, hasSize(1));
+        assertThat(serialEntries.get(0).getRpslObject().getKey().toString(), is("DW-RIPE"));
+        assertThat(JdbcRpslObjectOperations.getSerialEntries(databaseHelper.getWhoisTemplate(), 3, 10), hasSize(0));
+    }
+
     // helper methods
 
     // get duration in seconds between two timestamps
@@ -15,8 +15,11 @@ import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -54,6 +57,31 @@ public class JdbcTagsDaoIntegrationTest extends AbstractDaoIntegrationTest {
         assertTrue(tags.isEmpty());
     }
 
+    @Test
+    public void findTagsOfObjects() {
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(2, \"unref\", \"25\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(3, \"unref\", \"10\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(5, \"unref\", \"5\")");
+
+        final Map<Integer, List<Tag>> tags = subject.getTags(Arrays.asList(2, 4, 5));
+
+        assertThat(tags.keySet(), containsInAnyOrder(2, 5));
+        assertThat(tags.get(2).get(0).getValue(), is("25"));
+        assertThat(tags.get(5).get(0).getValue(), is("5"));
+    }
+
+    @Test
+    public void findTagsInRange() {
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(2, \"unref\", \"25\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(3, \"unref\", \"10\")");
+        databaseHelper.getWhoisTemplate().update("INSERT INTO tags(object_id, tag_id, data) VALUES(5, \"unref\", \"5\")");
+
+        final Map<Integer, List<Tag>> tags = subject.getTagsInRange(3, 5);
+
+        assertThat(tags.keySet(), containsInAnyOrder(3, 5));
+        assertThat(tags.get(3).get(0).getValue(), is("10"));
+    }
+
     @Test
     public void createTag() {
         subject.createTag(new Tag(CIString.ciString("unref"), 2, "15"));
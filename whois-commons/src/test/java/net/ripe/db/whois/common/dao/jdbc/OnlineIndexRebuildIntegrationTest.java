@@ -0,0 +1,90 @@
+package net.ripe.db.whois.common.dao.jdbc;
+
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.dao.jdbc.index.IndexStrategies;
+import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+@Category(IntegrationTest.class)
+public class OnlineIndexRebuildIntegrationTest extends AbstractDaoIntegrationTest {
+    @Autowired IndexDao subject;
+
+    @Before
+    public void setup() {
+        databaseHelper.setCurrentSourceToMaster();
+
+        databaseHelper.addObject("mntner: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("as-set: AS-TEST\nmbrs-by-ref: OWNER-MNT\ntech-c: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("aut-num: AS3333\nas-name: TEST-AS\nmember-of: AS-TEST\ntech-c: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("inet-rtr: test.ripe.net\nlocal-as: AS3333\nifaddr: 10.0.0.1 masklen 32\ntech-c: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        databaseHelper.addObject("route: 10.0.0.0/24\norigin: AS3333\nmnt-routes: OWNER-MNT\nmnt-by: OWNER-MNT\nsource: TEST");
+    }
+
+    @After
+    public void cleanup() {
+        sourceContext.removeCurrentSource();
+    }
+
+    @Test
+    public void rebuild_restores_index_tables() {
+        final Map<String, Integer> counts = countIndexRows();
+        assertThat(counts.get("member_of"), is(1));
+        assertThat(counts.get("mnt_routes"), is(1));
+
+        for (final String table : IndexStrategies.getIndexTables()) {
+            whoisTemplate.update("DELETE FROM " + table);
+        }
+
+        subject.rebuildOnline();
+
+        assertThat(countIndexRows(), is(counts));
+        assertThat(whoisTemplate.queryForObject("SELECT local_as FROM inet_rtr WHERE inet_rtr = 'test.ripe.net'", String.class), is("AS3333"));
+        assertThat(whoisTemplate.queryForObject("" +
+                "SELECT l.pkey FROM member_of " +
+                "JOIN last l ON l.object_id = member_of.set_id", String.class), is("AS-TEST"));
+        assertThat(whoisTemplate.queryForObject("" +
+                "SELECT l.pkey FROM mnt_routes " +
+                "JOIN last l ON l.object_id = mnt_routes.mnt_id", String.class), is("OWNER-MNT"));
+    }
+
+    @Test
+    public void rebuild_replaces_stale_rows() {
+        final Map<String, Integer> counts = countIndexRows();
+
+        whoisTemplate.update("UPDATE inet_rtr SET local_as = ''");
+        whoisTemplate.update("INSERT INTO mnt_routes (object_id, mnt_id, object_type) SELECT object_id, 0, object_type FROM mnt_routes");
+
+        subject.rebuildOnline();
+
+        assertThat(countIndexRows(), is(counts));
+        assertThat(whoisTemplate.queryForObject("SELECT local_as FROM inet_rtr WHERE inet_rtr = 'test.ripe.net'", String.class), is("AS3333"));
+    }
+
+    @Test
+    public void rebuild_leaves_no_shadow_tables() {
+        subject.rebuildOnline();
+
+        assertThat(whoisTemplate.queryForList("SHOW TABLES LIKE '%\\_shadow'", String.class), is(empty()));
+        assertThat(whoisTemplate.queryForList("SHOW TABLES LIKE '%\\_old'", String.class), is(empty()));
+    }
+
+    private Map<String, Integer> countIndexRows() {
+        final Map<String, Integer> counts = Maps.newTreeMap();
+        for (final String table : IndexStrategies.getIndexTables()) {
+            counts.put(table, whoisTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class));
+        }
+        return counts;
+    }
+}
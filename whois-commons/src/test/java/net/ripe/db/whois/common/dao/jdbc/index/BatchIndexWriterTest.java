@@ -0,0 +1,122 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItems;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchIndexWriterTest {
+    @Mock JdbcTemplate jdbcTemplate;
+
+    private final Map<ObjectType, Map<CIString, RpslObjectInfo>> existing = Maps.newEnumMap(ObjectType.class);
+
+    private BatchIndexWriter subject;
+
+    @Before
+    public void setup() {
+        subject = new BatchIndexWriter(jdbcTemplate, (objectType, keys) -> {
+            final Map<CIString, RpslObjectInfo> result = Maps.newHashMap();
+            for (final CIString key : keys) {
+                final RpslObjectInfo objectInfo = existing.getOrDefault(objectType, Maps.newHashMap()).get(key);
+                if (objectInfo != null) {
+                    result.put(key, objectInfo);
+                }
+            }
+            return result;
+        });
+
+        existing.put(ObjectType.MNTNER, Maps.newHashMap());
+        existing.get(ObjectType.MNTNER).put(ciString("TEST-MNT"), new RpslObjectInfo(10, ObjectType.MNTNER, "TEST-MNT"));
+        existing.put(ObjectType.ROLE, Maps.newHashMap());
+        existing.get(ObjectType.ROLE).put(ciString("TR1-TEST"), new RpslObjectInfo(11, ObjectType.ROLE, "TR1-TEST"));
+    }
+
+    @Test
+    public void references_written_in_batches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        final RpslObject object = RpslObject.parse("" +
+                "mntner: OWNER-MNT\n" +
+                "admin-c: TR1-TEST\n" +
+                "mnt-by: TEST-MNT\n" +
+                "mnt-by: OTHER-MNT\n" +
+                "source: TEST");
+
+        subject.addToIndex(new RpslObjectInfo(1, ObjectType.MNTNER, "OWNER-MNT"), object);
+        final Map<Integer, Set<CIString>> missing = subject.flush();
+
+        assertThat(missing.get(1), contains(ciString("OTHER-MNT")));
+
+        final ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(sql.capture(), args.capture());
+
+        assertThat(sql.getAllValues(), contains(
+                "INSERT INTO mntner (object_id, mntner) VALUES (?, ?)",
+                "INSERT INTO admin_c (object_id, pe_ro_id, object_type) VALUES (?, ?, ?)",
+                "INSERT INTO mnt_by (object_id, mnt_id, object_type) VALUES (?, ?, ?)"));
+
+        assertThat(Arrays.asList(args.getAllValues().get(1).get(0)), contains((Object) 1, 11, ObjectTypeIds.getId(ObjectType.MNTNER)));
+        assertThat(Arrays.asList(args.getAllValues().get(2).get(0)), contains((Object) 1, 10, ObjectTypeIds.getId(ObjectType.MNTNER)));
+    }
+
+    @Test
+    public void any_maintainer_is_not_resolved() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        final RpslObject object = RpslObject.parse("" +
+                "route-set: RS-TEST\n" +
+                "mbrs-by-ref: ANY\n" +
+                "source: TEST");
+
+        subject.addToIndex(new RpslObjectInfo(1, ObjectType.ROUTE_SET, "RS-TEST"), object);
+
+        assertThat(subject.flush().isEmpty(), is(true));
+
+        @SuppressWarnings("unchecked")
+        final ArgumentCaptor<List<Object[]>> args = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq("INSERT INTO mbrs_by_ref (object_id, mnt_id, object_type) VALUES (?, ?, ?)"), args.capture());
+        assertThat(Arrays.asList(args.getValue().get(0)), contains((Object) 1, 0, ObjectTypeIds.getId(ObjectType.ROUTE_SET)));
+    }
+
+    @Test
+    public void remove_from_indexes_in_single_batch() {
+        IndexStrategies.removeFromIndexes(jdbcTemplate, new RpslObjectInfo(1, ObjectType.MNTNER, "OWNER-MNT"));
+
+        final ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).batchUpdate(sql.capture());
+
+        assertThat(sql.getAllValues(), hasItems(
+                "DELETE FROM mntner WHERE object_id = 1",
+                "DELETE FROM admin_c WHERE object_id = 1",
+                "DELETE FROM mnt_by WHERE object_id = 1"));
+    }
+}
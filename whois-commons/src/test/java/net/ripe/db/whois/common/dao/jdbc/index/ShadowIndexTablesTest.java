@@ -0,0 +1,92 @@
+package net.ripe.db.whois.common.dao.jdbc.index;
+
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ShadowIndexTablesTest {
+    @Mock JdbcTemplate jdbcTemplate;
+
+    private ShadowIndexTables subject;
+
+    @Before
+    public void setup() {
+        subject = new ShadowIndexTables(mock(DataSource.class));
+    }
+
+    @Test
+    public void index_tables() {
+        assertThat(IndexStrategies.getIndexTables().contains("mnt_by"), is(true));
+        assertThat(IndexStrategies.getIndexTables().contains("last"), is(false));
+    }
+
+    @Test
+    public void strategies_use_shadow_tables() {
+        for (final IndexStrategy indexStrategy : subject.getIndexStrategies().values()) {
+            final String lookupTableName = IndexStrategies.get(indexStrategy.getAttributeType()).getLookupTableName();
+            if (lookupTableName == null) {
+                assertThat(indexStrategy.getLookupTableName(), is(nullValue()));
+            } else {
+                assertThat(indexStrategy.getLookupTableName(), is(lookupTableName + "_shadow"));
+            }
+        }
+    }
+
+    @Test
+    public void index_strategies_unchanged() {
+        assertThat(IndexStrategies.get(AttributeType.MNT_BY).getLookupTableName(), is("mnt_by"));
+    }
+
+    @Test
+    public void insert_into_shadow_table() {
+        final RpslObject object = RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\nnetname: TEST-NET\nsource: TEST");
+
+        subject.getIndexStrategies().get(AttributeType.INETNUM).addToIndex(jdbcTemplate, new RpslObjectInfo(1, ObjectType.INETNUM, "10.0.0.0 - 10.0.0.255"), object, "10.0.0.0 - 10.0.0.255");
+
+        verify(jdbcTemplate).update(eq("INSERT INTO inetnum_shadow (object_id, begin_in, end_in, netname) VALUES (?, ?, ?, ?)"), eq(1), anyLong(), anyLong(), eq("TEST-NET"));
+    }
+
+    @Test
+    public void update_shadow_table() {
+        final RpslObject object = RpslObject.parse("inet-rtr: test.ripe.net\nlocal-as: AS3333\nsource: TEST");
+
+        subject.getIndexStrategies().get(AttributeType.LOCAL_AS).addToIndex(jdbcTemplate, new RpslObjectInfo(1, ObjectType.INET_RTR, "test.ripe.net"), object, "AS3333");
+
+        verify(jdbcTemplate).update("UPDATE inet_rtr_shadow SET local_as = ? WHERE object_id = ?", "AS3333", 1);
+    }
+
+    @Test
+    public void resolved_member_of_into_shadow_table() {
+        final IndexWithReference memberOf = (IndexWithReference) subject.getIndexStrategies().get(AttributeType.MEMBER_OF);
+
+        memberOf.addToIndex(jdbcTemplate, new RpslObjectInfo(1, ObjectType.AUT_NUM, "AS3333"), 2);
+
+        verify(jdbcTemplate).update(eq("INSERT INTO member_of_shadow (object_id, set_id, object_type) VALUES (?, ?, ?)"), eq(1), eq(2), anyInt());
+    }
+
+    @Test
+    public void delete_from_shadow_table() {
+        subject.getIndexStrategies().get(AttributeType.MNT_ROUTES).removeFromIndex(jdbcTemplate, new RpslObjectInfo(1, ObjectType.ROUTE, "10.0.0.0/24AS3333"));
+
+        verify(jdbcTemplate).update("DELETE FROM mnt_routes_shadow WHERE object_id = ?", 1);
+    }
+}
@@ -0,0 +1,186 @@
+package net.ripe.db.whois.common.iptree;
+
+import com.google.common.collect.HashMultimap;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceConfiguration;
+import net.ripe.db.whois.common.source.SourceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ResourceHierarchyCacheTest {
+    private static final RpslObject INETNUM = new RpslObject(10, RpslObject.parse("inetnum: 10.0.0.0 - 10.0.0.255\nsource: TEST"));
+    private static final RpslObject ORGANISATION = new RpslObject(20, RpslObject.parse("organisation: ORG-TEST1-TEST\nsource: TEST"));
+
+    @Mock SourceContext sourceContext;
+    @Mock SourceConfiguration sourceConfiguration;
+    @Mock JdbcTemplate jdbcTemplate;
+    @Mock SerialTailer serialTailer;
+
+    private ResourceHierarchyCache subject;
+    private final AtomicInteger loads = new AtomicInteger();
+    private Source source = Source.slave("TEST");
+    private int serial = 1;
+
+    @Before
+    public void setup() {
+        when(sourceContext.getCurrentSourceConfiguration()).thenReturn(sourceConfiguration);
+        when(sourceContext.getWhoisSlaveSource()).thenReturn(Source.slave("TEST"));
+        when(sourceConfiguration.getSource()).thenAnswer(invocation -> source);
+
+        subject = new ResourceHierarchyCache(sourceContext, serialTailer, true, 100);
+        subject.init();
+    }
+
+    @Test
+    public void value_is_cached() {
+        assertThat(get(), is("ORG-TEST1-TEST"));
+        assertThat(get(), is("ORG-TEST1-TEST"));
+
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void evict_unrelated_change() throws Exception {
+        get();
+        changed(ObjectType.INETNUM, "192.168.0.0 - 192.168.0.255", 30);
+
+        get();
+
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void evict_dependency_changed() throws Exception {
+        get();
+        changed(ObjectType.ORGANISATION, "ORG-TEST1-TEST", 20);
+
+        get();
+
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void evict_parent_created() throws Exception {
+        get();
+        changed(ObjectType.INETNUM, "10.0.0.0 - 10.0.255.255", 40);
+
+        get();
+
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void evict_missing_dependency_created() throws Exception {
+        final String value = subject.get("test", INETNUM, () -> {
+            loads.incrementAndGet();
+            subject.addMissingDependency(ObjectType.ORGANISATION, ciString("ORG-TEST1-TEST"));
+            return null;
+        });
+        assertThat(value, is(nullValue()));
+
+        changed(ObjectType.ORGANISATION, "ORG-TEST1-TEST", 20);
+
+        get();
+
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void evict_serials_went_back() {
+        get();
+        changed(ObjectType.INETNUM, "192.168.0.0 - 192.168.0.255", 30);
+        subject.evict(0, 1, Collections.emptyList());
+
+        get();
+
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void evict_polled_source() throws Exception {
+        source = Source.slave("TEST-GRS");
+        when(sourceConfiguration.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(1L, 2L);
+
+        get();
+        changed(ObjectType.ORGANISATION, "ORG-TEST1-TEST", 20);
+        get();
+        assertThat(loads.get(), is(1));
+
+        polled(ObjectType.ORGANISATION, "ORG-TEST1-TEST", 20);
+        get();
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void tracked_dependencies_include_cached_values() {
+        get();
+
+        final ResourceHierarchyCache.Dependencies dependencies = new ResourceHierarchyCache.Dependencies();
+        try (ResourceHierarchyCache.Tracking ignored = subject.trackDependencies(dependencies)) {
+            get();
+        }
+
+        assertThat(loads.get(), is(1));
+        assertThat(dependencies.isAffected(Collections.singleton(20), HashMultimap.create()), is(true));
+        assertThat(dependencies.isAffected(Collections.singleton(30), HashMultimap.create()), is(false));
+    }
+
+    private String get() {
+        return subject.get("test", INETNUM, () -> {
+            loads.incrementAndGet();
+            subject.addDependency(ORGANISATION);
+            return ORGANISATION.getKey().toString();
+        });
+    }
+
+    private void changed(final ObjectType objectType, final String pkey, final int objectId) {
+        final RpslObject rpslObject = new RpslObject(objectId, RpslObject.parse(String.format("%s: %s\nsource: TEST", objectType.getName(), pkey)));
+        final SerialEntry serialEntry = SerialEntry.createSerialEntryWithoutTimestamps(Operation.UPDATE, true, objectId, rpslObject.toByteArray());
+
+        subject.evict(serial, serial + 1, Collections.singletonList(new SerialChange(serial + 1, serialEntry)));
+        serial++;
+    }
+
+    private void polled(final ObjectType objectType, final String pkey, final int objectId) throws Exception {
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getInt(1)).thenReturn(ObjectTypeIds.getId(objectType));
+        when(resultSet.getString(2)).thenReturn(pkey);
+        when(resultSet.getInt(3)).thenReturn(objectId);
+
+        doAnswer(invocation -> {
+            ((RowCallbackHandler) invocation.getArgument(1)).processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any());
+
+        subject.evict();
+    }
+}
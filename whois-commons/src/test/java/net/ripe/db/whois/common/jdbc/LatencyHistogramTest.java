@@ -0,0 +1,35 @@
+package net.ripe.db.whois.common.jdbc;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void empty() {
+        final LatencyHistogram subject = new LatencyHistogram();
+
+        assertThat(subject.getCount(), is(0L));
+        assertThat(subject.getMeanNanos(), is(0L));
+        assertThat(subject.getPercentileNanos(99), is(0L));
+    }
+
+    @Test
+    public void percentiles_by_bucket() {
+        final LatencyHistogram subject = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            subject.record(TimeUnit.MICROSECONDS.toNanos(200));
+        }
+        subject.record(TimeUnit.MILLISECONDS.toNanos(30));
+
+        assertThat(subject.getCount(), is(100L));
+        assertThat(subject.getPercentileNanos(50), is(TimeUnit.MICROSECONDS.toNanos(250)));
+        assertThat(subject.getPercentileNanos(99), is(TimeUnit.MICROSECONDS.toNanos(250)));
+        assertThat(subject.getPercentileNanos(100), is(TimeUnit.MILLISECONDS.toNanos(30)));
+        assertThat(subject.getMaxNanos(), is(TimeUnit.MILLISECONDS.toNanos(30)));
+    }
+}
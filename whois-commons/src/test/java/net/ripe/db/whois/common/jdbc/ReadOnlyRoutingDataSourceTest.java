@@ -0,0 +1,66 @@
+package net.ripe.db.whois.common.jdbc;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReadOnlyRoutingDataSourceTest {
+    @Mock DataSourceFactory dataSourceFactory;
+    @Mock DataSource primary;
+    @Mock DataSource additional;
+    @Mock Connection connection;
+
+    private ReadOnlyRoutingDataSource subject;
+
+    @Before
+    public void setup() {
+        when(dataSourceFactory.createDataSource("jdbc:mariadb://slave2/WHOIS", "user", "pass")).thenReturn(additional);
+        subject = new ReadOnlyRoutingDataSource(new InstrumentedDataSources(600, false), dataSourceFactory, "slave", primary, "jdbc:mariadb://slave2/WHOIS", "user", "pass");
+    }
+
+    @Test
+    public void failed_slave_skipped() throws SQLException {
+        when(primary.getConnection()).thenThrow(new SQLException("down"));
+        when(additional.getConnection()).thenReturn(connection);
+
+        for (int i = 0; i < 100; i++) {
+            subject.getConnection().close();
+        }
+
+        assertThat(subject.select().get(0).getName(), is("slave-1"));
+        assertThat(subject.select().get(1).getName(), is("slave"));
+        verify(connection, times(100)).close();
+    }
+
+    @Test
+    public void instrumented_slave_used_as_is() {
+        final InstrumentedDataSource slave = new InstrumentedDataSource("whoisSlaveDataSource", primary, 600, false);
+
+        subject = new ReadOnlyRoutingDataSource(new InstrumentedDataSources(600, false), dataSourceFactory, "whoisReadOnlyDataSource", slave, "jdbc:mariadb://slave2/WHOIS", "user", "pass");
+
+        assertThat(subject.select(), hasItem(sameInstance(slave)));
+    }
+
+    @Test(expected = SQLException.class)
+    public void all_slaves_failed() throws SQLException {
+        when(primary.getConnection()).thenThrow(new SQLException("down"));
+        when(additional.getConnection()).thenThrow(new SQLException("down"));
+
+        subject.getConnection();
+    }
+}
@@ -0,0 +1,54 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class SqlMetricsTest {
+
+    @Test
+    public void normalise_literals() {
+        assertThat(SqlMetrics.normalise("SELECT object_id FROM last WHERE pkey = 'AS3333' AND object_type = 2 AND sequence_id != 0"),
+                is("SELECT object_id FROM last WHERE pkey = ? AND object_type = ? AND sequence_id != ?"));
+    }
+
+    @Test
+    public void normalise_escaped_quotes() {
+        assertThat(SqlMetrics.normalise("SELECT 1 FROM names WHERE name = 'o''brien \\' x'"),
+                is("SELECT ? FROM names WHERE name = ?"));
+    }
+
+    @Test
+    public void normalise_lists_and_whitespace() {
+        assertThat(SqlMetrics.normalise("SELECT l.object_id\n  FROM last l JOIN names n1 ON n1.object_id = l.object_id\n WHERE l.object_id IN (?, ?,?)"),
+                is("SELECT l.object_id FROM last l JOIN names n1 ON n1.object_id = l.object_id WHERE l.object_id IN (?)"));
+        assertThat(SqlMetrics.normalise("INSERT INTO mnt_by (object_id, mnt_by, object_type) VALUES (?, ?, ?), (?, ?, ?),(?, ?, ?)"),
+                is("INSERT INTO mnt_by (object_id, mnt_by, object_type) VALUES (?)"));
+    }
+
+    @Test
+    public void same_statistics_for_same_shape() {
+        final SqlMetrics subject = new SqlMetrics(true, 1.0);
+
+        final SqlStatistics first = subject.get("SELECT * FROM last WHERE object_id = 1");
+        final SqlStatistics second = subject.get("SELECT * FROM last WHERE object_id = 2");
+        first.executed(1_000_000, false);
+        second.executed(2_000_000, true);
+        second.fetched(1, 100);
+
+        assertThat(second, is(sameInstance(first)));
+        assertThat(first.getExecutions(), is(2L));
+        assertThat(first.getErrors(), is(1L));
+        assertThat(first.getBlobBytes(), is(100L));
+        assertThat(subject.getStatistics().size(), is(1));
+    }
+
+    @Test
+    public void sampling_disabled() {
+        assertThat(new SqlMetrics(false, 1.0).sample(), is(false));
+        assertThat(new SqlMetrics(true, 0).sample(), is(false));
+        assertThat(new SqlMetrics(true, 1.0).sample(), is(true));
+    }
+}
@@ -0,0 +1,135 @@
+package net.ripe.db.whois.common.jdbc.driver;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.lang.reflect.Proxy;
+import java.sql.Blob;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class StatementInvocationHandlerTest {
+    private static final String SQL = "SELECT object FROM last WHERE object_id = ?";
+
+    @Mock Connection target;
+    @Mock Statement statement;
+    @Mock PreparedStatement preparedStatement;
+    @Mock ResultSet resultSet;
+    @Mock Blob blob;
+
+    private SqlMetrics sqlMetrics;
+    private Connection subject;
+
+    @Before
+    public void setup() {
+        sqlMetrics = new SqlMetrics(true, 1.0);
+        subject = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new ConnectionInvocationHandler(target, null, sqlMetrics));
+    }
+
+    @Test
+    public void statement_execution_recorded() throws SQLException {
+        when(target.createStatement()).thenReturn(statement);
+        when(statement.executeQuery("SELECT object FROM last WHERE object_id = 1")).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getBytes(1)).thenReturn(new byte[10]);
+        when(resultSet.getBlob(1)).thenReturn(blob);
+        when(blob.length()).thenReturn(20L);
+
+        final ResultSet result = subject.createStatement().executeQuery("SELECT object FROM last WHERE object_id = 1");
+        while (result.next()) {
+            result.getBytes(1);
+        }
+        result.getBlob(1);
+        result.close();
+
+        final SqlStatistics sqlStatistics = sqlMetrics.get(SQL);
+        assertThat(sqlStatistics.getExecutions(), is(1L));
+        assertThat(sqlStatistics.getErrors(), is(0L));
+        assertThat(sqlStatistics.getRows(), is(2L));
+        assertThat(sqlStatistics.getBlobBytes(), is(30L));
+    }
+
+    @Test
+    public void prepared_statement_execution_recorded() throws SQLException {
+        when(target.prepareStatement(SQL)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getBytes(1)).thenReturn(new byte[10]);
+
+        final PreparedStatement prepared = subject.prepareStatement(SQL);
+        prepared.setInt(1, 1);
+        final ResultSet result = prepared.executeQuery();
+        while (result.next()) {
+            result.getBytes(1);
+        }
+        result.close();
+
+        final SqlStatistics sqlStatistics = sqlMetrics.get(SQL);
+        assertThat(sqlStatistics.getExecutions(), is(1L));
+        assertThat(sqlStatistics.getRows(), is(1L));
+        assertThat(sqlStatistics.getBlobBytes(), is(10L));
+    }
+
+    @Test
+    public void result_set_closed_twice_recorded_once() throws SQLException {
+        when(target.prepareStatement(SQL)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+
+        final ResultSet result = subject.prepareStatement(SQL).executeQuery();
+        while (result.next()) {
+        }
+        result.close();
+        result.close();
+
+        assertThat(sqlMetrics.get(SQL).getRows(), is(1L));
+    }
+
+    @Test
+    public void failed_execution_recorded() throws SQLException {
+        when(target.prepareStatement(SQL)).thenReturn(preparedStatement);
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("deadlock"));
+
+        try {
+            subject.prepareStatement(SQL).executeUpdate();
+            fail("Expected exception");
+        } catch (Exception e) {
+            // the proxy does not unwrap the target's exception
+        }
+
+        final SqlStatistics sqlStatistics = sqlMetrics.get(SQL);
+        assertThat(sqlStatistics.getExecutions(), is(1L));
+        assertThat(sqlStatistics.getErrors(), is(1L));
+        assertThat(sqlStatistics.getRows(), is(0L));
+    }
+
+    @Test
+    public void nothing_recorded_when_disabled() throws SQLException {
+        sqlMetrics = new SqlMetrics(false, 1.0);
+        subject = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new ConnectionInvocationHandler(target, null, sqlMetrics));
+        when(target.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(SQL)).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+
+        final ResultSet result = subject.createStatement().executeQuery(SQL);
+        assertThat(Proxy.isProxyClass(result.getClass()), is(true));
+        while (result.next()) {
+        }
+        result.close();
+
+        assertThat(sqlMetrics.getStatistics(), is(empty()));
+    }
+}
@@ -0,0 +1,234 @@
+package net.ripe.db.whois.common.serials;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class SerialTailerTest {
+    private static final RpslObject MNTNER = RpslObject.parse("mntner: TEST-MNT\nsource: TEST");
+
+    private static final int GAP_TIMEOUT_MS = 100;
+
+    private final List<String> reads = new CopyOnWriteArrayList<>();
+    private final Set<Integer> missing = new CopyOnWriteArraySet<>();
+    private volatile int lastSerialId;
+
+    private SerialTailer subject;
+
+    @Before
+    public void setup() {
+        subject = new SerialTailer(mock(DataSource.class), 10, 2, GAP_TIMEOUT_MS) {
+            @Override
+            int getLastSerialId() {
+                return lastSerialId;
+            }
+
+            @Override
+            List<SerialChange> getSerialChanges(final int fromExclusive, final int toInclusive) {
+                reads.add(fromExclusive + "-" + toInclusive);
+                final List<SerialChange> changes = Lists.newArrayList();
+                for (int serialId = fromExclusive + 1; serialId <= toInclusive; serialId++) {
+                    if (missing.contains(serialId)) {
+                        continue;
+                    }
+                    changes.add(new SerialChange(serialId, SerialEntry.createSerialEntryWithoutTimestamps(Operation.UPDATE, true, serialId, MNTNER.toByteArray())));
+                }
+                return changes;
+            }
+        };
+    }
+
+    @After
+    public void teardown() {
+        subject.close();
+    }
+
+    @Test
+    public void range_read_once_for_all_subscribers() throws Exception {
+        final List<Integer> first = new CopyOnWriteArrayList<>();
+        final List<Integer> second = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription firstSubscription = subject.subscribe("first", 0, collect(first));
+        final SerialTailer.Subscription secondSubscription = subject.subscribe("second", 0, collect(second));
+
+        lastSerialId = 3;
+        subject.poll();
+        awaitCheckpoint(firstSubscription, 3);
+        awaitCheckpoint(secondSubscription, 3);
+
+        assertThat(reads, contains("0-3"));
+        assertThat(first, contains(1, 2, 3));
+        assertThat(second, contains(1, 2, 3));
+    }
+
+    @Test
+    public void subscriber_ahead_gets_only_new_changes() throws Exception {
+        final List<Integer> behind = new CopyOnWriteArrayList<>();
+        final List<Integer> ahead = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription behindSubscription = subject.subscribe("behind", 0, collect(behind));
+        final SerialTailer.Subscription aheadSubscription = subject.subscribe("ahead", 2, collect(ahead));
+
+        lastSerialId = 4;
+        subject.poll();
+        awaitCheckpoint(behindSubscription, 4);
+        awaitCheckpoint(aheadSubscription, 4);
+
+        assertThat(reads, contains("0-4"));
+        assertThat(behind, contains(1, 2, 3, 4));
+        assertThat(ahead, contains(3, 4));
+    }
+
+    @Test
+    public void failed_changes_delivered_again() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription subscription = subject.subscribe("failing", 0, (fromExclusive, toInclusive, changes) -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("first call fails");
+            }
+            return collect(delivered).changed(fromExclusive, toInclusive, changes);
+        });
+
+        lastSerialId = 2;
+        subject.poll();
+        awaitCalls(calls, 1);
+        assertThat(subscription.getCheckpoint(), is(0));
+
+        subject.poll();
+        awaitCheckpoint(subscription, 2);
+
+        assertThat(delivered, contains(1, 2));
+    }
+
+    @Test
+    public void large_ranges_read_in_batches() throws Exception {
+        final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription subscription = subject.subscribe("batches", 0, collect(delivered));
+
+        lastSerialId = 25;
+        while (subscription.getCheckpoint() < 25) {
+            subject.poll();
+            Thread.sleep(10);
+        }
+
+        assertThat(reads.subList(0, 3), contains("0-10", "10-20", "20-25"));
+        assertThat(delivered.size(), is(25));
+    }
+
+    @Test
+    public void failed_range_not_read_again_in_same_poll() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription subscription = subject.subscribe("failing", 0, (fromExclusive, toInclusive, changes) -> {
+            if (calls.incrementAndGet() == 1) {
+                return false;
+            }
+            return collect(delivered).changed(fromExclusive, toInclusive, changes);
+        });
+
+        lastSerialId = 25;
+        subject.poll();
+        awaitCalls(calls, 1);
+
+        assertThat(reads.stream().filter("0-10"::equals).count(), is(1L));
+        assertThat(subscription.getCheckpoint(), is(0));
+
+        while (subscription.getCheckpoint() < 25) {
+            subject.poll();
+            Thread.sleep(10);
+        }
+        assertThat(delivered.size(), is(25));
+    }
+
+    @Test
+    public void failing_subscription_backs_off() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        final SerialTailer.Subscription subscription = subject.subscribe("failing", 0, (fromExclusive, toInclusive, changes) -> {
+            calls.incrementAndGet();
+            return false;
+        });
+
+        lastSerialId = 2;
+        for (int poll = 1; poll <= 8; poll++) {
+            subject.poll();
+            Thread.sleep(50);
+        }
+
+        // polls 1, 2, 4 and 8
+        assertThat(calls.get(), is(4));
+        assertThat(subscription.getCheckpoint(), is(0));
+    }
+
+    @Test
+    public void range_ends_before_missing_serial() throws Exception {
+        final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription subscription = subject.subscribe("gap", 0, collect(delivered));
+
+        missing.add(2);
+        lastSerialId = 3;
+        subject.poll();
+        awaitCheckpoint(subscription, 1);
+
+        // committed after serial 3
+        missing.clear();
+        subject.poll();
+        awaitCheckpoint(subscription, 3);
+
+        assertThat(delivered, contains(1, 2, 3));
+    }
+
+    @Test
+    public void missing_serial_skipped_after_gap_timeout() throws Exception {
+        final List<Integer> delivered = new CopyOnWriteArrayList<>();
+        final SerialTailer.Subscription subscription = subject.subscribe("gap", 0, collect(delivered));
+
+        missing.add(2);
+        lastSerialId = 3;
+        subject.poll();
+        awaitCheckpoint(subscription, 1);
+
+        Thread.sleep(GAP_TIMEOUT_MS * 2);
+        subject.poll();
+        awaitCheckpoint(subscription, 3);
+
+        assertThat(delivered, contains(1, 3));
+    }
+
+    private static SerialChangeListener collect(final List<Integer> serialIds) {
+        return (fromExclusive, toInclusive, changes) -> {
+            changes.forEach(change -> serialIds.add(change.getSerialId()));
+            return true;
+        };
+    }
+
+    private static void awaitCheckpoint(final SerialTailer.Subscription subscription, final int serialId) throws InterruptedException {
+        for (int i = 0; i < 500 && subscription.getCheckpoint() < serialId; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(subscription.getCheckpoint(), is(serialId));
+    }
+
+    private static void awaitCalls(final AtomicInteger calls, final int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && calls.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        // the checkpoint is reset after the call returns
+        Thread.sleep(50);
+    }
+}
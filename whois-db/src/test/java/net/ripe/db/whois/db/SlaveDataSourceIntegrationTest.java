@@ -0,0 +1,87 @@
+package net.ripe.db.whois.db;
+
+import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.dao.jdbc.JdbcManagedAttributeDao;
+import net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectSlaveDao;
+import net.ripe.db.whois.common.jdbc.ReadOnlyRoutingDataSource;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.support.AbstractDaoIntegrationTest;
+import net.ripe.db.whois.nrtm.dao.jdbc.JdbcSlaveSerialDao;
+import net.ripe.db.whois.scheduler.task.export.dao.ExportDao;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Serials must be read from a single slave: a reader that goes to another slave halfway could miss serials, or see
+ * them twice.
+ */
+@Category(IntegrationTest.class)
+@ContextConfiguration(locations = {"classpath:applicationContext-whois-test.xml"})
+public class SlaveDataSourceIntegrationTest extends AbstractDaoIntegrationTest {
+    @Autowired @Qualifier("whoisSlaveDataSource") DataSource whoisSlaveDataSource;
+    @Autowired @Qualifier("whoisReadOnlyDataSource") DataSource whoisReadOnlyDataSource;
+    @Autowired SerialTailer serialTailer;
+    @Autowired JdbcSlaveSerialDao jdbcSlaveSerialDao;
+    @Autowired ExportDao exportDao;
+    @Autowired JdbcRpslObjectSlaveDao jdbcRpslObjectSlaveDao;
+    @Autowired JdbcManagedAttributeDao jdbcManagedAttributeDao;
+
+    @BeforeClass
+    public static void setProperty() {
+        System.setProperty("whois.db.slave.additional.urls", "${whois.db.slave.url}");
+    }
+
+    @AfterClass
+    public static void clearProperty() {
+        System.clearProperty("whois.db.slave.additional.urls");
+    }
+
+    @Test
+    public void slave_data_source_not_routed() {
+        assertThat(whoisSlaveDataSource, not(instanceOf(ReadOnlyRoutingDataSource.class)));
+    }
+
+    @Test
+    public void serial_readers_use_slave_data_source() {
+        assertThat(getDataSource(serialTailer), is(sameInstance(whoisSlaveDataSource)));
+        assertThat(getDataSource(jdbcSlaveSerialDao), is(sameInstance(whoisSlaveDataSource)));
+        assertThat(getDataSource(exportDao), is(sameInstance(whoisSlaveDataSource)));
+    }
+
+    @Test
+    public void object_lookups_use_read_only_data_source() {
+        assertThat(getDataSource(jdbcRpslObjectSlaveDao), is(sameInstance(whoisReadOnlyDataSource)));
+        assertThat(getDataSource(jdbcManagedAttributeDao), is(sameInstance(whoisReadOnlyDataSource)));
+    }
+
+    @Test
+    public void read_only_data_source_routed_over_slaves() {
+        assertThat(whoisReadOnlyDataSource, instanceOf(ReadOnlyRoutingDataSource.class));
+
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(whoisReadOnlyDataSource);
+        for (int i = 0; i < 10; i++) {
+            assertThat(jdbcTemplate.queryForObject("SELECT 1", Integer.class), is(1));
+        }
+    }
+
+    private static DataSource getDataSource(final Object bean) {
+        final JdbcTemplate jdbcTemplate = (JdbcTemplate) ReflectionTestUtils.getField(AopTestUtils.getUltimateTargetObject(bean), "jdbcTemplate");
+        return jdbcTemplate.getDataSource();
+    }
+}
@@ -0,0 +1,349 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.ip.Interval;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.attrs.Domain;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.query.QueryFlag;
+import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.CollectionUtils;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the decorated responses of queries for a single key (e.g. "-B 193.0.0.0/21" or "-r AS3333") on the main
+ * source, so queries repeated by monitoring systems are answered without searching again.
+ *
+ * A response is replayed to the response handler of the query, so ACL accounting is applied as usual. It is stored
+ * with the objects it was made of (the search results and everything read to decorate them), and using the serials
+ * it is evicted when:
+ * - one of those objects changed, or
+ * - an object changed that might now be found by the query: an inetnum, inet6num, route, route6 or domain that
+ *   overlaps the IP key, or an object of a searched type with the search key as one of its lookup keys.
+ *
+ * Tags and abuse-c validation status do not have serials, so responses also expire after a while.
+ */
+@Component
+class QueryResultCache {
+    private static final Splitter WORD_SPLITTER = Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+
+    private final SourceContext sourceContext;
+    private final SerialTailer serialTailer;
+    private final ResourceHierarchyCache resourceHierarchyCache;
+    private final boolean enabled;
+    private final int maxObjects;
+
+    private final Cache<String, Entry> cache;
+    private final AtomicLong evictions = new AtomicLong();
+    // responses are only stored if nothing was evicted while they were written
+    private final Object evictionMonitor = new Object();
+    private SerialTailer.Subscription subscription;
+    private volatile int lastSerial;
+
+    @Autowired
+    public QueryResultCache(final SourceContext sourceContext,
+                            final SerialTailer serialTailer,
+                            final ResourceHierarchyCache resourceHierarchyCache,
+                            @Value("${whois.query.result.cache.enabled:false}") final boolean enabled,
+                            @Value("${whois.query.result.cache.size:10000}") final int size,
+                            @Value("${whois.query.result.cache.max.objects:100}") final int maxObjects,
+                            @Value("${whois.query.result.cache.expire.seconds:60}") final int expireSeconds) {
+        this.sourceContext = sourceContext;
+        this.serialTailer = serialTailer;
+        this.resourceHierarchyCache = resourceHierarchyCache;
+        this.enabled = enabled;
+        this.maxObjects = maxObjects;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            subscription = serialTailer.subscribe("QueryResultCache", this::evict);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /**
+     * @param source the source the query is executed on, which is the current source
+     * @param search searches and decorates the response, if it is not cached
+     */
+    public Iterable<? extends ResponseObject> getResponse(final Query query, final Source source, final Supplier<Iterable<? extends ResponseObject>> search) {
+        final String key = getKey(query, source);
+        if (key == null) {
+            return search.get();
+        }
+
+        final Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            QueryTrace.addAttribute("whois.cache", "hit");
+            return cached.responseObjects;
+        }
+
+        QueryTrace.addAttribute("whois.cache", "miss");
+        return record(key, query, search);
+    }
+
+    /**
+     * Register the search results as objects the response is made of, as they may not be part of the decorated
+     * response (e.g. for brief or primary key queries).
+     */
+    public Iterable<? extends ResponseObject> track(final Iterable<? extends ResponseObject> searchResults) {
+        return Iterables.transform(searchResults, responseObject -> {
+            if (responseObject instanceof RpslObject) {
+                resourceHierarchyCache.addDependency((RpslObject) responseObject);
+            }
+            return responseObject;
+        });
+    }
+
+    @CheckForNull
+    private String getKey(final Query query, final Source source) {
+        if (!enabled
+                || !source.getName().equals(sourceContext.getWhoisSlaveSource().getName())
+                || query.isInverse()
+                || query.hasSubstitutions()
+                || query.hasOption(QueryFlag.SHOW_TAG_INFO)
+                || query.hasOption(QueryFlag.FILTER_TAG_INCLUDE)
+                || query.hasOption(QueryFlag.FILTER_TAG_EXCLUDE)
+                || !CollectionUtils.isEmpty(query.getPasswords())
+                || StringUtils.isNotBlank(query.getSsoToken())
+                || StringUtils.isBlank(query.getSearchValue())
+                || StringUtils.containsAny(query.getSearchValue(), " \t")) {
+            return null;
+        }
+
+        return source.getName() + "\n" + query.getOrigin() + "\n" + query.isMatchPrimaryKeyOnly() + "\n" + query.getNormalisedOptions() + "\n" + query.getSearchValue();
+    }
+
+    private Iterable<ResponseObject> record(final String key, final Query query, final Supplier<Iterable<? extends ResponseObject>> search) {
+        final long evictionsBefore = evictions.get();
+        final ResourceHierarchyCache.Dependencies dependencies = new ResourceHierarchyCache.Dependencies();
+
+        final Iterable<? extends ResponseObject> response;
+        try (ResourceHierarchyCache.Tracking ignored = resourceHierarchyCache.trackDependencies(dependencies)) {
+            response = search.get();
+        }
+
+        return () -> new AbstractIterator<ResponseObject>() {
+            private final List<ResponseObject> responseObjects = Lists.newArrayList();
+            private Iterator<? extends ResponseObject> iterator;
+            private boolean recording = true;
+
+            @Override
+            protected ResponseObject computeNext() {
+                final ResponseObject next;
+                try (ResourceHierarchyCache.Tracking ignored = recording ? resourceHierarchyCache.trackDependencies(dependencies) : null) {
+                    if (iterator == null) {
+                        iterator = response.iterator();
+                    }
+
+                    if (!iterator.hasNext()) {
+                        if (recording) {
+                            final Entry entry = new Entry(query, responseObjects, dependencies);
+                            synchronized (evictionMonitor) {
+                                // the response may be made of objects evicted while it was written
+                                if (evictions.get() == evictionsBefore) {
+                                    cache.put(key, entry);
+                                }
+                            }
+                        }
+                        return endOfData();
+                    }
+
+                    next = iterator.next();
+                }
+
+                if (recording) {
+                    if (responseObjects.size() < maxObjects) {
+                        responseObjects.add(next);
+                        if (next instanceof RpslObject) {
+                            dependencies.add((RpslObject) next);
+                        }
+                    } else {
+                        recording = false;
+                    }
+                }
+
+                return next;
+            }
+        };
+    }
+
+    boolean evict(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+        if (fromExclusive < lastSerial) {
+            // serials went back, changes may have been missed
+            clear();
+        }
+        lastSerial = toInclusive;
+
+        if (changes.isEmpty()) {
+            return true;
+        }
+
+        final Set<Integer> changedObjectIds = Sets.newHashSetWithExpectedSize(changes.size());
+        final SetMultimap<ObjectType, CIString> changedKeys = HashMultimap.create();
+        final List<RpslObject> changedObjects = Lists.newArrayListWithCapacity(changes.size());
+        for (final SerialChange change : changes) {
+            final RpslObject rpslObject = change.getRpslObject();
+            changedObjectIds.add(change.getObjectId());
+            changedKeys.put(rpslObject.getType(), rpslObject.getKey());
+            changedObjects.add(rpslObject);
+        }
+
+        synchronized (evictionMonitor) {
+            evictions.incrementAndGet();
+            cache.asMap().values().removeIf(entry -> entry.isAffected(changedObjectIds, changedKeys, changedObjects));
+        }
+        return true;
+    }
+
+    public void clear() {
+        synchronized (evictionMonitor) {
+            evictions.incrementAndGet();
+            cache.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    @CheckForNull
+    private static IpInterval<?> getInterval(final RpslObject rpslObject) {
+        try {
+            switch (rpslObject.getType()) {
+                case INETNUM:
+                case INET6NUM:
+                    return IpInterval.parse(rpslObject.getKey());
+                case ROUTE:
+                    return IpInterval.parse(rpslObject.getValueForAttribute(AttributeType.ROUTE));
+                case ROUTE6:
+                    return IpInterval.parse(rpslObject.getValueForAttribute(AttributeType.ROUTE6));
+                case DOMAIN:
+                    return Domain.parse(rpslObject.getKey()).getReverseIp();
+                default:
+                    return null;
+            }
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static boolean intersects(@Nullable final IpInterval<?> interval, final IpInterval<?> other) {
+        return interval != null && interval.getClass().equals(other.getClass()) && ((Interval<Interval>) interval).intersects(other);
+    }
+
+    private static final class Entry {
+        private final List<ResponseObject> responseObjects;
+        private final ResourceHierarchyCache.Dependencies dependencies;
+        private final CIString searchValue;
+        private final IpInterval<?> ipKey;
+        private final IpInterval<?> reverseIpKey;
+        private final Map<ObjectType, Set<AttributeType>> lookupAttributes;
+
+        private Entry(final Query query, final List<ResponseObject> responseObjects, final ResourceHierarchyCache.Dependencies dependencies) {
+            this.responseObjects = ImmutableList.copyOf(responseObjects);
+            this.dependencies = dependencies;
+            this.searchValue = CIString.ciString(query.getSearchValue());
+            this.ipKey = query.getIpKeyOrNull();
+            this.reverseIpKey = query.getIpKeyOrNullReverse();
+            this.lookupAttributes = Maps.newEnumMap(ObjectType.class);
+            for (final ObjectType objectType : query.getObjectTypes()) {
+                lookupAttributes.put(objectType, query.getLookupAttributes(objectType));
+            }
+        }
+
+        private boolean isAffected(final Set<Integer> changedObjectIds, final SetMultimap<ObjectType, CIString> changedKeys, final Collection<RpslObject> changedObjects) {
+            if (dependencies.isAffected(changedObjectIds, changedKeys)) {
+                return true;
+            }
+
+            for (final RpslObject changedObject : changedObjects) {
+                if (mightBeFound(changedObject)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean mightBeFound(final RpslObject rpslObject) {
+            final ObjectType objectType = rpslObject.getType();
+            final Set<AttributeType> attributeTypes = lookupAttributes.get(objectType);
+            if (attributeTypes == null) {
+                return false;
+            }
+
+            final IpInterval<?> interval = getInterval(rpslObject);
+            if (interval != null && intersects(objectType == ObjectType.DOMAIN ? reverseIpKey : ipKey, interval)) {
+                return true;
+            }
+
+            if (objectType == ObjectType.AS_BLOCK) {
+                return true;
+            }
+
+            // names are found by any of their words
+            for (final CIString value : rpslObject.getValuesForAttribute(attributeTypes.toArray(new AttributeType[0]))) {
+                if (value.equals(searchValue)) {
+                    return true;
+                }
+                for (final String word : WORD_SPLITTER.split(value)) {
+                    if (searchValue.equals(word)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -30,6 +30,7 @@ import net.ripe.db.whois.query.dao.InetnumDao;
 import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.filter.AttributeFilter;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -243,11 +244,7 @@ class RpslObjectSearcher {
         final Set<AttributeType> keyAttributes = objectTemplate.getKeyAttributes();
 
         final Set<RpslObjectInfo> result = Sets.newTreeSet();
-        for (final AttributeType lookupAttribute : objectTemplate.getLookupAttributes()) {
-            if (!query.matchesObjectTypeAndAttribute(type, lookupAttribute)) {
-                continue;
-            }
-
+        for (final AttributeType lookupAttribute : query.getLookupAttributes(type)) {
             if (keyAttributes.contains(lookupAttribute)) {
                 try {
                     result.add(rpslObjectDao.findByKey(type, searchValue));
@@ -302,6 +299,10 @@ class RpslObjectSearcher {
     }
 
     private Iterable<ResponseObject> proxy(final Iterable<? extends Identifiable> identifiables) {
-        return CollectionHelper.iterateProxy(rpslObjectDao, identifiables);
+        return CollectionHelper.iterateProxy((proxies, result) -> {
+            try (QueryTrace.Span ignored = QueryTrace.span("proxy.load")) {
+                rpslObjectDao.load(proxies, result);
+            }
+        }, identifiables);
     }
 }
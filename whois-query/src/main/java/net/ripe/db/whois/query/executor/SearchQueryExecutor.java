@@ -13,6 +13,7 @@ import net.ripe.db.whois.query.domain.MessageObject;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.planner.RpslResponseDecorator;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -23,14 +24,17 @@ public class SearchQueryExecutor implements QueryExecutor {
     private final SourceContext sourceContext;
     private final RpslObjectSearcher rpslObjectSearcher;
     private final RpslResponseDecorator rpslResponseDecorator;
+    private final QueryResultCache queryResultCache;
 
     @Autowired
     public SearchQueryExecutor(final SourceContext sourceContext,
                                final RpslObjectSearcher rpslObjectSearcher,
-                               final RpslResponseDecorator rpslResponseDecorator) {
+                               final RpslResponseDecorator rpslResponseDecorator,
+                               final QueryResultCache queryResultCache) {
         this.sourceContext = sourceContext;
         this.rpslObjectSearcher = rpslObjectSearcher;
         this.rpslResponseDecorator = rpslResponseDecorator;
+        this.queryResultCache = queryResultCache;
     }
 
     @Override
@@ -62,9 +66,8 @@ public class SearchQueryExecutor implements QueryExecutor {
         for (final Source source : sources) {
             try {
                 sourceContext.setCurrent(source);
-                final Iterable<? extends ResponseObject> searchResults = rpslObjectSearcher.search(query, sourceContext);
 
-                for (final ResponseObject responseObject : rpslResponseDecorator.getResponse(query, searchResults)) {
+                for (final ResponseObject responseObject : queryResultCache.getResponse(query, source, () -> search(query))) {
 
                     responseHandler.handle(responseObject);
 
@@ -85,6 +88,15 @@ public class SearchQueryExecutor implements QueryExecutor {
         }
     }
 
+    private Iterable<? extends ResponseObject> search(final Query query) {
+        final Iterable<? extends ResponseObject> searchResults;
+        try (QueryTrace.Span ignored = QueryTrace.span("search")) {
+            searchResults = QueryTrace.timed("search", rpslObjectSearcher.search(query, sourceContext));
+        }
+
+        return rpslResponseDecorator.getResponse(query, queryResultCache.track(searchResults));
+    }
+
     private Set<Source> getSources(final Query query) {
         final Set<Source> sources = Sets.newLinkedHashSet();
 
@@ -1,6 +1,7 @@
 package net.ripe.db.whois.query.executor.decorators;
 
-import net.ripe.db.whois.common.collect.IterableTransformer;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.collect.WindowedIterableTransformer;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.ResponseObject;
@@ -14,8 +15,10 @@ import net.ripe.db.whois.query.query.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /*
@@ -24,6 +27,9 @@ Tagging, merged in one class to avoid multiple DAO lookups for tags, keeping it
 
 @Component
 public class FilterTagsDecorator implements ResponseDecorator {
+    // number of response objects for which tags are looked up together
+    private static final int TAGS_WINDOW_SIZE = 100;
+
     private final TagsDao tagsDao;
 
     @Autowired
@@ -43,29 +49,33 @@ public class FilterTagsDecorator implements ResponseDecorator {
         final Set<CIString> includeArguments = query.getOptionValuesCI(QueryFlag.FILTER_TAG_INCLUDE);
         final Set<CIString> excludeArguments = query.getOptionValuesCI(QueryFlag.FILTER_TAG_EXCLUDE);
 
-        final IterableTransformer<ResponseObject> responseObjects = new IterableTransformer<ResponseObject>(input) {
+        final WindowedIterableTransformer<ResponseObject> responseObjects = new WindowedIterableTransformer<ResponseObject>(input, TAGS_WINDOW_SIZE) {
             @Override
-            public void apply(final ResponseObject input, final Deque<ResponseObject> result) {
-                if (!(input instanceof RpslObject)) {
-                    result.add(input);
-                    return;
-                }
+            public void apply(final List<ResponseObject> window, final Deque<ResponseObject> result) {
+                final Map<Integer, List<Tag>> tagsByObjectId = tagsDao.getTags(getObjectIds(window));
 
-                final RpslObject object = (RpslObject) input;
-                final List<Tag> tags = tagsDao.getTags(object.getObjectId());
+                for (final ResponseObject input : window) {
+                    if (!(input instanceof RpslObject)) {
+                        result.add(input);
+                        continue;
+                    }
 
-                if (hasInclude && !containsTag(tags, includeArguments)) {
-                    return;
-                }
+                    final RpslObject object = (RpslObject) input;
+                    final List<Tag> tags = tagsByObjectId.getOrDefault(object.getObjectId(), Collections.emptyList());
 
-                if (hasExclude && containsTag(tags, excludeArguments)) {
-                    return;
-                }
+                    if (hasInclude && !containsTag(tags, includeArguments)) {
+                        continue;
+                    }
+
+                    if (hasExclude && containsTag(tags, excludeArguments)) {
+                        continue;
+                    }
 
-                result.add(object);
+                    result.add(object);
 
-                if (showTagInfo && !tags.isEmpty()) {
-                    result.add(new TagResponseObject(object.getKey(), tags));
+                    if (showTagInfo && !tags.isEmpty()) {
+                        result.add(new TagResponseObject(object.getKey(), tags));
+                    }
                 }
             }
         };
@@ -77,6 +87,16 @@ public class FilterTagsDecorator implements ResponseDecorator {
         return responseObjects;
     }
 
+    private static Set<Integer> getObjectIds(final List<ResponseObject> window) {
+        final Set<Integer> objectIds = Sets.newHashSet();
+        for (final ResponseObject responseObject : window) {
+            if (responseObject instanceof RpslObject) {
+                objectIds.add(((RpslObject) responseObject).getObjectId());
+            }
+        }
+        return objectIds;
+    }
+
     private static boolean containsTag(List<Tag> objectTags, Set<CIString> tagsFromQuery) {
         if (objectTags.isEmpty()) {
             return false;
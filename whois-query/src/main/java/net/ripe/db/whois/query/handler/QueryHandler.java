@@ -13,6 +13,8 @@ import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.executor.QueryExecutor;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -26,16 +28,19 @@ public class QueryHandler {
     private final WhoisLog whoisLog;
     private final AccessControlListManager accessControlListManager;
     private final BasicSourceContext sourceContext;
+    private final QueryTracer queryTracer;
     private final List<QueryExecutor> queryExecutors;
 
     @Autowired
     public QueryHandler(final WhoisLog whoisLog,
                         final AccessControlListManager accessControlListManager,
                         final BasicSourceContext sourceContext,
+                        final QueryTracer queryTracer,
                         final QueryExecutor... queryExecutors) {
         this.whoisLog = whoisLog;
         this.accessControlListManager = accessControlListManager;
         this.sourceContext = sourceContext;
+        this.queryTracer = queryTracer;
         this.queryExecutors = Lists.newArrayList(queryExecutors);
     }
 
@@ -43,6 +48,9 @@ public class QueryHandler {
         new Runnable() {
             private final Stopwatch stopwatch = Stopwatch.createStarted();
 
+            // queries that are not traced from the query decoder (e.g. REST API queries) are traced here
+            private final QueryTrace ownTrace = QueryTrace.current() == null ? queryTracer.start("whois.query") : null;
+
             private InetAddress accountingAddress;
             private boolean useAcl;
             private int accountedObjects;
@@ -66,6 +74,7 @@ public class QueryHandler {
                     if (accountedObjects > 0) {
                         accessControlListManager.accountPersonalObjects(accountingAddress, accountedObjects);
                     }
+                    queryTracer.finish(ownTrace);
                 }
             }
 
@@ -81,20 +90,22 @@ public class QueryHandler {
 
             private void initAcl(final QueryExecutor queryExecutor) {
                 if (queryExecutor.isAclSupported()) {
-                    checkBlocked(remoteAddress);
+                    try (QueryTrace.Span ignored = QueryTrace.span("acl")) {
+                        checkBlocked(remoteAddress);
+
+                        if (query.hasProxyWithIp()) {
+                            if (!accessControlListManager.isAllowedToProxy(remoteAddress)) {
+                                throw new QueryException(QueryCompletionInfo.PROXY_NOT_ALLOWED, QueryMessages.notAllowedToProxy());
+                            }
 
-                    if (query.hasProxyWithIp()) {
-                        if (!accessControlListManager.isAllowedToProxy(remoteAddress)) {
-                            throw new QueryException(QueryCompletionInfo.PROXY_NOT_ALLOWED, QueryMessages.notAllowedToProxy());
+                            accountingAddress = InetAddresses.forString(query.getProxyIp());
+                            checkBlocked(accountingAddress);
+                        } else {
+                            accountingAddress = remoteAddress;
                         }
 
-                        accountingAddress = InetAddresses.forString(query.getProxyIp());
-                        checkBlocked(accountingAddress);
-                    } else {
-                        accountingAddress = remoteAddress;
+                        useAcl = !accessControlListManager.isUnlimited(accountingAddress);
                     }
-
-                    useAcl = !accessControlListManager.isUnlimited(accountingAddress);
                 }
             }
 
@@ -116,16 +127,8 @@ public class QueryHandler {
                     @Override
                     public void handle(final ResponseObject responseObject) {
                         if (responseObject instanceof RpslObject) {
-                            if (useAcl && accessControlListManager.requiresAcl((RpslObject) responseObject, sourceContext.getCurrentSource())) {
-                                if (accountingLimit == -1) {
-                                    accountingLimit = accessControlListManager.getPersonalObjects(accountingAddress);
-                                }
-
-                                if (++accountedObjects > accountingLimit) {
-                                    throw new QueryException(QueryCompletionInfo.BLOCKED, QueryMessages.accessDeniedTemporarily(accountingAddress));
-                                }
-                            } else {
-                                notAccountedObjects++;
+                            try (QueryTrace.Span ignored = QueryTrace.span("acl")) {
+                                account((RpslObject) responseObject);
                             }
                         }
                         responseHandler.handle(responseObject);
@@ -133,8 +136,37 @@ public class QueryHandler {
                 });
             }
 
+            private void account(final RpslObject rpslObject) {
+                if (useAcl && accessControlListManager.requiresAcl(rpslObject, sourceContext.getCurrentSource())) {
+                    if (accountingLimit == -1) {
+                        accountingLimit = accessControlListManager.getPersonalObjects(accountingAddress);
+                    }
+
+                    if (++accountedObjects > accountingLimit) {
+                        throw new QueryException(QueryCompletionInfo.BLOCKED, QueryMessages.accessDeniedTemporarily(accountingAddress));
+                    }
+                } else {
+                    notAccountedObjects++;
+                }
+            }
+
             private void logQuery(@Nullable final QueryCompletionInfo completionInfo) {
                 whoisLog.logQueryResult(responseHandler.getApi(), accountedObjects, notAccountedObjects, completionInfo, stopwatch.elapsed(TimeUnit.MILLISECONDS), remoteAddress, contextId, query.toString());
+
+                final QueryTrace trace = QueryTrace.current();
+                if (trace != null) {
+                    trace.setAttribute("whois.api", responseHandler.getApi());
+                    trace.setAttribute("whois.query", query);
+                    trace.setAttribute("client.address", remoteAddress.getHostAddress());
+                    trace.setAttribute("whois.objects.personal", accountedObjects);
+                    trace.setAttribute("whois.objects.non_personal", notAccountedObjects);
+                    if (completionInfo != null) {
+                        trace.setAttribute("whois.completion", completionInfo);
+                    }
+                    if (completionInfo == QueryCompletionInfo.EXCEPTION) {
+                        trace.setError();
+                    }
+                }
             }
 
         }.run();
@@ -3,6 +3,8 @@ package net.ripe.db.whois.query.pipeline;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.query.acl.AccessControlListManager;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandler;
 import org.jboss.netty.channel.ChannelHandlerContext;
@@ -17,15 +19,29 @@ import java.net.InetSocketAddress;
 public class QueryDecoder extends OneToOneDecoder {
 
     private final AccessControlListManager accessControlListManager;
+    private final QueryTracer queryTracer;
 
     @Autowired
-    public QueryDecoder(final AccessControlListManager accessControlListManager) {
+    public QueryDecoder(final AccessControlListManager accessControlListManager, final QueryTracer queryTracer) {
         this.accessControlListManager = accessControlListManager;
+        this.queryTracer = queryTracer;
     }
 
     @Override
     protected Object decode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) {
-        final Query query = Query.parse((String) msg, Query.Origin.LEGACY, isTrusted(channel));
+        // the trace is finished by the WhoisServerHandler, once the response has been written
+        final QueryTrace trace = queryTracer.start("whois.query");
+
+        final Query query;
+        try (QueryTrace.Span ignored = QueryTrace.span("parse")) {
+            query = Query.parse((String) msg, Query.Origin.LEGACY, isTrusted(channel));
+        } catch (RuntimeException e) {
+            if (trace != null) {
+                trace.setAttribute("whois.query", msg);
+                queryTracer.finish(trace);
+            }
+            throw e;
+        }
 
         for (final Message warning : query.getWarnings()) {
             channel.write(warning);
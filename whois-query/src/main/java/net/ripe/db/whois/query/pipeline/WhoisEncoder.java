@@ -2,6 +2,7 @@ package net.ripe.db.whois.query.pipeline;
 
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.query.trace.QueryTrace;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBufferOutputStream;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -23,13 +24,15 @@ public class WhoisEncoder extends OneToOneEncoder {
     @Override
     protected Object encode(final ChannelHandlerContext ctx, final Channel channel, final Object msg) throws IOException {
         if (msg instanceof ResponseObject) {
-            final ChannelBuffer result = ChannelBuffers.dynamicBuffer(DEFAULT_BUFFER_SIZE);
-            final ChannelBufferOutputStream out = new ChannelBufferOutputStream(result);
+            try (QueryTrace.Span ignored = QueryTrace.span("encode")) {
+                final ChannelBuffer result = ChannelBuffers.dynamicBuffer(DEFAULT_BUFFER_SIZE);
+                final ChannelBufferOutputStream out = new ChannelBufferOutputStream(result);
 
-            ((ResponseObject) msg).writeTo(out);
-            out.write(OBJECT_TERMINATOR);
+                ((ResponseObject) msg).writeTo(out);
+                out.write(OBJECT_TERMINATOR);
 
-            return result;
+                return result;
+            }
         } else if (msg instanceof Message) {
             return ChannelBuffers.wrappedBuffer(msg.toString().getBytes(StandardCharsets.UTF_8), OBJECT_TERMINATOR);
         }
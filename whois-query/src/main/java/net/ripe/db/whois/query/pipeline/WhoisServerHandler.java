@@ -7,7 +7,10 @@ import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.handler.QueryHandler;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.MessageEvent;
@@ -19,35 +22,64 @@ import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
  */
 public class WhoisServerHandler extends SimpleChannelUpstreamHandler {
     private final QueryHandler queryHandler;
+    private final QueryTracer queryTracer;
     private boolean closed;
 
-    public WhoisServerHandler(final QueryHandler queryHandler) {
+    public WhoisServerHandler(final QueryHandler queryHandler, final QueryTracer queryTracer) {
         this.queryHandler = queryHandler;
+        this.queryTracer = queryTracer;
     }
 
     @Override
     public void messageReceived(final ChannelHandlerContext ctx, final MessageEvent event) {
         final Query query = (Query) event.getMessage();
         final Channel channel = event.getChannel();
-        queryHandler.streamResults(query, ChannelUtil.getRemoteAddress(channel), channel.getId(), new ResponseHandler() {
-            @Override
-            public String getApi() {
-                return "QRY";
-            }
+        final QueryTrace trace = QueryTrace.current();
+        final ChannelFuture[] lastWrite = new ChannelFuture[1];
 
-            @Override
-            public void handle(final ResponseObject responseObject) {
-                if (closed) { // Prevent hammering a closed channel
-                    throw new QueryException(QueryCompletionInfo.DISCONNECTED);
+        try {
+            queryHandler.streamResults(query, ChannelUtil.getRemoteAddress(channel), channel.getId(), new ResponseHandler() {
+                @Override
+                public String getApi() {
+                    return "QRY";
                 }
 
-                channel.write(responseObject);
+                @Override
+                public void handle(final ResponseObject responseObject) {
+                    if (closed) { // Prevent hammering a closed channel
+                        throw new QueryException(QueryCompletionInfo.DISCONNECTED);
+                    }
+
+                    try (QueryTrace.Span ignored = QueryTrace.span("write")) {
+                        lastWrite[0] = channel.write(responseObject);
+                    }
+                }
+            });
+        } finally {
+            if (trace != null) {
+                finishWhenWritten(trace, lastWrite[0]);
             }
-        });
+        }
 
         channel.getPipeline().sendDownstream(new QueryCompletedEvent(channel));
     }
 
+    // the trace includes the wait for the (asynchronous) writes to be flushed to the client
+    private void finishWhenWritten(final QueryTrace trace, final ChannelFuture lastWrite) {
+        queryTracer.detach(trace);
+
+        if (lastWrite == null) {
+            queryTracer.finish(trace);
+            return;
+        }
+
+        final long flushStart = System.nanoTime();
+        lastWrite.addListener(future -> {
+            trace.record("flush", flushStart, System.nanoTime());
+            queryTracer.finish(trace);
+        });
+    }
+
     @Override
     public void channelClosed(final ChannelHandlerContext ctx, final ChannelStateEvent e) throws Exception {
         closed = true;
@@ -3,6 +3,7 @@ package net.ripe.db.whois.query.pipeline;
 import net.ripe.db.whois.common.ApplicationVersion;
 import net.ripe.db.whois.common.pipeline.MaintenanceHandler;
 import net.ripe.db.whois.query.handler.QueryHandler;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelPipeline;
@@ -58,6 +59,7 @@ public class WhoisServerPipelineFactory implements ChannelPipelineFactory {
     private final WhoisEncoder whoisEncoder;
     private final QueryDecoder queryDecoder;
     private final QueryHandler queryHandler;
+    private final QueryTracer queryTracer;
     private final ApplicationVersion applicationVersion;
 
     @Autowired
@@ -68,6 +70,7 @@ public class WhoisServerPipelineFactory implements ChannelPipelineFactory {
                                       final WhoisEncoder whoisEncoder,
                                       final ConnectionPerIpLimitHandler connectionPerIpLimitHandler,
                                       final QueryHandler queryHandler,
+                                      final QueryTracer queryTracer,
                                       final ApplicationVersion applicationVersion) {
         this.maintenanceHandler = maintenanceHandler;
         this.queryChannelsRegistry = queryChannelsRegistry;
@@ -76,6 +79,7 @@ public class WhoisServerPipelineFactory implements ChannelPipelineFactory {
         this.whoisEncoder = whoisEncoder;
         this.connectionPerIpLimitHandler = connectionPerIpLimitHandler;
         this.queryHandler = queryHandler;
+        this.queryTracer = queryTracer;
         this.applicationVersion = applicationVersion;
     }
 
@@ -109,7 +113,7 @@ public class WhoisServerPipelineFactory implements ChannelPipelineFactory {
         pipeline.addLast("connection-state", new ConnectionStateHandler());
 
         pipeline.addLast("served-by", new ServedByHandler(applicationVersion.getVersion()));
-        pipeline.addLast("whois", new WhoisServerHandler(queryHandler));
+        pipeline.addLast("whois", new WhoisServerHandler(queryHandler, queryTracer));
 
         return pipeline;
     }
@@ -10,6 +10,7 @@ import net.ripe.db.whois.common.ip.Ipv6Resource;
 import net.ripe.db.whois.common.iptree.IpEntry;
 import net.ripe.db.whois.common.iptree.Ipv4Tree;
 import net.ripe.db.whois.common.iptree.Ipv6Tree;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
 import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -40,6 +41,7 @@ public class AbuseCFinder {
     private final Maintainers maintainers;
     private final AbuseValidationStatusDao abuseValidationStatusDao;
     private final Set<CIString> mainSources;
+    private final ResourceHierarchyCache resourceHierarchyCache;
 
     @Autowired
     public AbuseCFinder(@Qualifier("jdbcRpslObjectSlaveDao") final RpslObjectDao objectDao,
@@ -49,13 +51,15 @@ public class AbuseCFinder {
                         final Ipv4Tree ipv4Tree,
                         final Ipv6Tree ipv6Tree,
                         final Maintainers maintainers,
-                        final AbuseValidationStatusDao abuseValidationStatusDao) {
+                        final AbuseValidationStatusDao abuseValidationStatusDao,
+                        final ResourceHierarchyCache resourceHierarchyCache) {
         this.objectDao = objectDao;
         this.ipv4Tree = ipv4Tree;
         this.ipv6Tree = ipv6Tree;
         this.maintainers = maintainers;
         this.abuseValidationStatusDao = abuseValidationStatusDao;
         this.mainSources = getMainSources(mainSource, nonAuthSource, grsSource);
+        this.resourceHierarchyCache = resourceHierarchyCache;
     }
 
     private Set<CIString> getMainSources(final String mainSource, final String nonAuthSource, final String grsSource) {
@@ -78,7 +82,7 @@ public class AbuseCFinder {
     }
 
     public Optional<AbuseContact> getAbuseContact(final RpslObject rpslObject) {
-        final RpslObject role = getAbuseContactRole(rpslObject);
+        final RpslObject role = resourceHierarchyCache.get("abuse-c", rpslObject, () -> getAbuseContactRole(rpslObject));
         if (role == null) {
             return Optional.empty();
         }
@@ -102,7 +106,13 @@ public class AbuseCFinder {
             }
         }
 
-        return findResponsibleOrgReference(rpslObject, false);
+        return resourceHierarchyCache.get("abuse-org", rpslObject, () -> findResponsibleOrgReference(rpslObject, false));
+    }
+
+    @Nullable
+    private RpslObject addDependency(@Nullable final RpslObject rpslObject) {
+        resourceHierarchyCache.addDependency(rpslObject);
+        return rpslObject;
     }
 
     @Nullable
@@ -227,7 +237,7 @@ public class AbuseCFinder {
     @Nullable
     private RpslObject getById(final int objectId) {
         try {
-            return objectDao.getById(objectId);
+            return addDependency(objectDao.getById(objectId));
         } catch (EmptyResultDataAccessException e) {
             LOGGER.warn("Object does not exist: {}", objectId);
             return null;
@@ -237,9 +247,10 @@ public class AbuseCFinder {
     @Nullable
     private RpslObject getByKey(final ObjectType objectType, final CIString key) {
         try {
-            return objectDao.getByKey(objectType, key);
+            return addDependency(objectDao.getByKey(objectType, key));
         } catch (EmptyResultDataAccessException e) {
             LOGGER.warn("{} object does not exist: {}", objectType.getName(), key);
+            resourceHierarchyCache.addMissingDependency(objectType, key);
             return null;
         }
     }
@@ -0,0 +1,19 @@
+package net.ripe.db.whois.query.planner;
+
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.query.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decorator that can look up the related objects of several primary objects at once.
+ */
+interface BatchPrimaryObjectDecorator extends PrimaryObjectDecorator {
+
+    /**
+     * @return the related objects, in the same order as the given primary objects
+     */
+    List<Collection<RpslObjectInfo>> decorate(Query query, List<RpslObject> rpslObjects);
+}
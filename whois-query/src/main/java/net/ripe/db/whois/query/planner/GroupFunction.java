@@ -1,9 +1,18 @@
 package net.ripe.db.whois.query.planner;
 
+import com.google.common.collect.Iterables;
 import net.ripe.db.whois.common.domain.ResponseObject;
 
+import java.util.List;
 import java.util.function.Function;
 
 interface GroupFunction extends Function<ResponseObject, Iterable<? extends ResponseObject>> {
     Iterable<? extends ResponseObject> getGroupedAfter();
+
+    /**
+     * Apply to a window of consecutive response objects, so related objects can be looked up for all of them at once.
+     */
+    default Iterable<? extends ResponseObject> applyAll(final List<? extends ResponseObject> window) {
+        return Iterables.concat(Iterables.transform(window, this::apply));
+    }
 }
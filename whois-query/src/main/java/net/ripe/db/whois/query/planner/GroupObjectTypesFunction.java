@@ -1,5 +1,7 @@
 package net.ripe.db.whois.query.planner;
 
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
@@ -9,6 +11,7 @@ import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.query.Query;
 
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -27,15 +30,22 @@ public final class GroupObjectTypesFunction implements GroupFunction {
 
     @Override
     public Iterable<ResponseObject> apply(final ResponseObject input) {
-        if (input instanceof RpslObject) {
-            for (PrimaryObjectDecorator decorator : decorators) {
-                if (decorator.appliesToQuery(query)) {
-                    relatedTo.addAll(decorator.decorate(query, (RpslObject) input));
-                }
-            }
-        }
+        final List<ResponseObject> window = Collections.singletonList(input);
+        addRelatedTo(window);
+        return window;
+    }
+
+    @Override
+    public Iterable<? extends ResponseObject> applyAll(final List<? extends ResponseObject> window) {
+        addRelatedTo(window);
+        return window;
+    }
 
-        return Collections.singletonList(input);
+    private void addRelatedTo(final List<? extends ResponseObject> window) {
+        final List<RpslObject> rpslObjects = Lists.newArrayList(Iterables.filter(window, RpslObject.class));
+        for (final SortedSet<RpslObjectInfo> related : PrimaryObjectDecorator.decorate(query, decorators, rpslObjects)) {
+            relatedTo.addAll(related);
+        }
     }
 
     @Override
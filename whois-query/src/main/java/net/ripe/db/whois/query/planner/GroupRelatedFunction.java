@@ -1,7 +1,7 @@
 package net.ripe.db.whois.query.planner;
 
 import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.collect.CollectionHelper;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
@@ -13,6 +13,7 @@ import net.ripe.db.whois.query.query.Query;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 
@@ -31,20 +32,26 @@ class GroupRelatedFunction implements GroupFunction {
 
     @Override
     public Iterable<? extends ResponseObject> apply(final ResponseObject input) {
-        if (input instanceof RpslObject) {
-            Iterable<? extends ResponseObject> result = Arrays.asList(new MessageObject(QueryMessages.relatedTo(((RpslObject) input).getKey())), input);
-
-            final SortedSet<RpslObjectInfo> relatedTo = Sets.newTreeSet();
-            for (final PrimaryObjectDecorator decorator : decorators) {
-                if (decorator.appliesToQuery(query)) {
-                    relatedTo.addAll(decorator.decorate(query, (RpslObject) input));
-                }
-            }
+        return applyAll(Collections.singletonList(input));
+    }
 
-            return Iterables.concat(result, CollectionHelper.iterateProxy(rpslObjectDao, relatedTo));
+    @Override
+    public Iterable<? extends ResponseObject> applyAll(final List<? extends ResponseObject> window) {
+        final List<RpslObject> rpslObjects = Lists.newArrayList(Iterables.filter(window, RpslObject.class));
+        final List<SortedSet<RpslObjectInfo>> relatedTo = PrimaryObjectDecorator.decorate(query, decorators, rpslObjects);
+
+        final List<Iterable<? extends ResponseObject>> result = Lists.newArrayListWithExpectedSize(window.size());
+        int idx = 0;
+        for (final ResponseObject input : window) {
+            if (input instanceof RpslObject) {
+                result.add(Arrays.asList(new MessageObject(QueryMessages.relatedTo(((RpslObject) input).getKey())), input));
+                result.add(CollectionHelper.iterateProxy(rpslObjectDao, relatedTo.get(idx++)));
+            } else {
+                result.add(Collections.singletonList(input));
+            }
         }
 
-        return Collections.singletonList(input);
+        return Iterables.concat(result);
     }
 
     @Override
@@ -1,13 +1,53 @@
 package net.ripe.db.whois.query.planner;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.dao.RpslObjectInfo;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.query.Query;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
 
 interface PrimaryObjectDecorator {
     boolean appliesToQuery(Query query);
 
     Collection<RpslObjectInfo> decorate(Query query, RpslObject rpslObject);
+
+    /**
+     * Decorate several primary objects, in one go for decorators supporting it.
+     *
+     * @return the sorted related objects, in the same order as the given primary objects
+     */
+    static List<SortedSet<RpslObjectInfo>> decorate(final Query query, final Iterable<PrimaryObjectDecorator> decorators, final List<RpslObject> rpslObjects) {
+        if (rpslObjects.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<SortedSet<RpslObjectInfo>> result = Lists.newArrayListWithExpectedSize(rpslObjects.size());
+        for (int i = 0; i < rpslObjects.size(); i++) {
+            result.add(Sets.newTreeSet());
+        }
+
+        for (final PrimaryObjectDecorator decorator : decorators) {
+            if (!decorator.appliesToQuery(query)) {
+                continue;
+            }
+
+            if (decorator instanceof BatchPrimaryObjectDecorator) {
+                final List<Collection<RpslObjectInfo>> related = ((BatchPrimaryObjectDecorator) decorator).decorate(query, rpslObjects);
+                for (int i = 0; i < rpslObjects.size(); i++) {
+                    result.get(i).addAll(related.get(i));
+                }
+            } else {
+                for (int i = 0; i < rpslObjects.size(); i++) {
+                    result.get(i).addAll(decorator.decorate(query, rpslObjects.get(i)));
+                }
+            }
+        }
+
+        return result;
+    }
 }
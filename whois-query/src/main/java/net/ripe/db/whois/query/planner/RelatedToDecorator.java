@@ -13,10 +13,11 @@ import org.springframework.stereotype.Component;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 
 @Component
-class RelatedToDecorator implements PrimaryObjectDecorator {
+class RelatedToDecorator implements BatchPrimaryObjectDecorator {
     private final static Set<ObjectType> NO_PERSONAL_EXCLUDES = Sets.newEnumSet(Lists.newArrayList(ObjectType.PERSON, ObjectType.ROLE), ObjectType.class);
 
     private final RpslObjectDao rpslObjectDao;
@@ -33,12 +34,19 @@ class RelatedToDecorator implements PrimaryObjectDecorator {
 
     @Override
     public Collection<RpslObjectInfo> decorate(final Query query, final RpslObject rpslObject) {
-        final Set<ObjectType> excludeObjectTypes = query.hasOption(QueryFlag.NO_PERSONAL)
+        // TODO: [AH] we know exactly what object types each related-to lookup refers to, so we should just have an adjusted relatedto field lookup set, not object type exclusion
+        return rpslObjectDao.relatedTo(rpslObject, getExcludeObjectTypes(query));
+    }
+
+    @Override
+    public List<Collection<RpslObjectInfo>> decorate(final Query query, final List<RpslObject> rpslObjects) {
+        return rpslObjectDao.relatedTo(rpslObjects, getExcludeObjectTypes(query));
+    }
+
+    private static Set<ObjectType> getExcludeObjectTypes(final Query query) {
+        return query.hasOption(QueryFlag.NO_PERSONAL)
                 ? NO_PERSONAL_EXCLUDES
                 : Collections.<ObjectType>emptySet();
-
-        // TODO: [AH] we know exactly what object types each related-to lookup refers to, so we should just have an adjusted relatedto field lookup set, not object type exclusion
-        return rpslObjectDao.relatedTo(rpslObject, excludeObjectTypes);
     }
 
 }
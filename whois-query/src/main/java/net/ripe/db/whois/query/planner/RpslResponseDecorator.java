@@ -19,6 +19,7 @@ import net.ripe.db.whois.query.executor.decorators.FilterPersonalDecorator;
 import net.ripe.db.whois.query.executor.decorators.FilterPlaceholdersDecorator;
 import net.ripe.db.whois.query.executor.decorators.FilterTagsDecorator;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTrace;
 import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -45,6 +46,9 @@ public class RpslResponseDecorator {
     private static final FilterAuthFunction FILTER_AUTH_FUNCTION = new FilterAuthFunction();
     private static final FilterChangedFunction FILTER_CHANGED_FUNCTION = new FilterChangedFunction();
 
+    // number of primary objects for which related objects are looked up together
+    private static final int GROUP_WINDOW_SIZE = 100;
+
     private final RpslObjectDao rpslObjectDao;
     private final FilterPersonalDecorator filterPersonalDecorator;
     private final DummifyDecorator dummifyDecorator;
@@ -91,20 +95,21 @@ public class RpslResponseDecorator {
     }
 
     public Iterable<? extends ResponseObject> getResponse(final Query query, Iterable<? extends ResponseObject> result) {
-        Iterable<? extends ResponseObject> decoratedResult = filterPlaceholdersDecorator.decorate(query, result);
-        decoratedResult = dummifyDecorator.decorate(query, decoratedResult);
+        // every stage is timed separately when the query is traced, as the result is evaluated lazily
+        Iterable<? extends ResponseObject> decoratedResult = QueryTrace.timed("decorate.placeholders", filterPlaceholdersDecorator.decorate(query, result));
+        decoratedResult = QueryTrace.timed("decorate.dummify", dummifyDecorator.decorate(query, decoratedResult));
 
-        decoratedResult = groupRelatedObjects(query, decoratedResult);
-        decoratedResult = filterTagsDecorator.decorate(query, decoratedResult);
-        decoratedResult = filterPersonalDecorator.decorate(query, decoratedResult);
-        decoratedResult = abuseCInfoDecorator.decorate(query, decoratedResult);
+        decoratedResult = QueryTrace.timed("decorate.group", groupRelatedObjects(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.tags", filterTagsDecorator.decorate(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.personal", filterPersonalDecorator.decorate(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.abuse-c", abuseCInfoDecorator.decorate(query, decoratedResult));
 
-        decoratedResult = applySyntaxFilter(query, decoratedResult);
-        decoratedResult = filterEmail(query, decoratedResult);
-        decoratedResult = filterAuth(query, decoratedResult);
-        decoratedResult = filterChanged(decoratedResult);
+        decoratedResult = QueryTrace.timed("decorate.syntax", applySyntaxFilter(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.email", filterEmail(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.auth", filterAuth(query, decoratedResult));
+        decoratedResult = QueryTrace.timed("decorate.changed", filterChanged(decoratedResult));
 
-        decoratedResult = applyOutputFilters(query, decoratedResult);
+        decoratedResult = QueryTrace.timed("decorate.output", applyOutputFilters(query, decoratedResult));
 
         return decoratedResult;
     }
@@ -126,7 +131,7 @@ public class RpslResponseDecorator {
             return primaryObjects;
         }
 
-        final Iterable<ResponseObject> groupInline = Iterables.concat(Iterables.transform(primaryObjects, groupFunction::apply));
+        final Iterable<ResponseObject> groupInline = Iterables.concat(Iterables.transform(Iterables.partition(primaryObjects, GROUP_WINDOW_SIZE), groupFunction::applyAll));
 
         return Iterables.concat(
                 groupInline,
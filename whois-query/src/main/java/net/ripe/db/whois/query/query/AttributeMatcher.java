@@ -113,17 +113,26 @@ abstract class AttributeMatcher { // TODO [AK] Figure out what can be delegated
 
     static boolean fetchableBy(final AttributeType attributeType, final Query query) {
         for (final AttributeMatcher matcher : attributeMatchers.get(attributeType)) {
-            try {
-                if (matcher.matches(query)) {
-                    return true;
-                }
-            } catch (IllegalArgumentException ignored) {
-                LOGGER.debug("{}: {}", ignored.getClass().getName(), ignored.getMessage());
+            if (matches(matcher, query)) {
+                return true;
             }
         }
 
         return false;
     }
 
+    static Collection<AttributeMatcher> getMatchers(final AttributeType attributeType) {
+        return attributeMatchers.get(attributeType);
+    }
+
+    static boolean matches(final AttributeMatcher matcher, final Query query) {
+        try {
+            return matcher.matches(query);
+        } catch (IllegalArgumentException ignored) {
+            LOGGER.debug("{}: {}", ignored.getClass().getName(), ignored.getMessage());
+            return false;
+        }
+    }
+
     abstract boolean matches(Query query);
 }
@@ -5,6 +5,7 @@ import com.google.common.collect.Sets;
 import com.google.common.net.InetAddresses;
 import joptsimple.OptionException;
 import net.ripe.db.whois.common.IllegalArgumentExceptionMessage;
+import net.ripe.db.whois.common.Latin1Conversion;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
 import net.ripe.db.whois.common.domain.CIString;
@@ -18,13 +19,11 @@ import net.ripe.db.whois.query.QueryMessages;
 import net.ripe.db.whois.query.QueryParser;
 import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
+import net.ripe.db.whois.query.trace.QueryTrace;
 import org.apache.commons.lang.StringUtils;
 
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.EnumSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -34,9 +33,6 @@ import java.util.Set;
 // TODO: [ES] class is not immutable
 public class Query {
     public static final EnumSet<ObjectType> ABUSE_CONTACT_OBJECT_TYPES = EnumSet.of(ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.AUT_NUM);
-    private static final EnumSet<ObjectType> GRS_LIMIT_TYPES = EnumSet.of(ObjectType.AUT_NUM, ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN);
-    private static final EnumSet<ObjectType> DEFAULT_TYPES_LOOKUP_IN_BOTH_DIRECTIONS = EnumSet.of(ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN);
-    private static final EnumSet<ObjectType> DEFAULT_TYPES_ALL = EnumSet.allOf(ObjectType.class);
 
     private static final List<QueryValidator> QUERY_VALIDATORS = Lists.newArrayList(
             new MatchOperationValidator(),
@@ -50,6 +46,7 @@ public class Query {
 
     private final QueryParser queryParser;
     private final Messages messages = new Messages();
+    private final QueryPlan.KeyPlan keyPlan;
 
     private final Set<String> sources;
     private final Set<ObjectType> objectTypeFilter;
@@ -67,18 +64,24 @@ public class Query {
     private boolean matchPrimaryKeyOnly;
 
     private Query(final String query, final Origin origin, final boolean trusted) {
+        final String converted = Latin1Conversion.convertString(query);
+        final QueryPlan cachedPlan = QueryPlan.getCached(converted);
+
         try {
-            queryParser = new QueryParser(query);
+            queryParser = cachedPlan != null ? cachedPlan.bind(query, converted) : new QueryParser(query);
         } catch (IllegalArgumentExceptionMessage e) {
             throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, e.getExceptionMessage());
         }
         searchKey = new SearchKey(queryParser.getSearchKey());
 
-        sources = parseSources();
-        suppliedObjectTypes = parseSuppliedObjectTypes();
-        objectTypeFilter = generateAndFilterObjectTypes();
-        attributeTypeFilter = parseAttributeTypes();
-        matchOperation = parseMatchOperations();
+        final QueryPlan plan = cachedPlan != null ? cachedPlan : QueryPlan.compile(this, converted);
+        keyPlan = plan.getKeyPlan(this);
+
+        sources = plan.getSources();
+        suppliedObjectTypes = plan.getSuppliedObjectTypes();
+        objectTypeFilter = keyPlan.getObjectTypes();
+        attributeTypeFilter = plan.getAttributeTypes();
+        matchOperation = plan.getMatchOperation();
         this.origin = origin;
         this.trusted = trusted;
     }
@@ -91,8 +94,10 @@ public class Query {
         try {
             final Query query = new Query(args.trim(), origin, trusted);
 
-            for (final QueryValidator queryValidator : QUERY_VALIDATORS) {
-                queryValidator.validate(query, query.messages);
+            try (QueryTrace.Span ignored = QueryTrace.span("validate")) {
+                for (final QueryValidator queryValidator : QUERY_VALIDATORS) {
+                    queryValidator.validate(query, query.messages);
+                }
             }
 
             final Collection<Message> errors = query.messages.getMessages(Messages.Type.ERROR);
@@ -133,6 +138,10 @@ public class Query {
         return this.origin == origin;
     }
 
+    public Origin getOrigin() {
+        return origin;
+    }
+
     public Collection<Message> getWarnings() {
         return messages.getMessages(Messages.Type.WARNING);
     }
@@ -437,122 +446,32 @@ public class Query {
         return queryParser.getOptionValuesCI(queryFlag);
     }
 
-    public boolean hasSources() {
-        return !sources.isEmpty();
-    }
-
-    public Set<String> getSources() {
-        return sources;
-    }
-
-    private Set<ObjectType> parseSuppliedObjectTypes() {
-        final Set<String> objectTypesOptions = queryParser.getOptionValues(QueryFlag.SELECT_TYPES);
-        final Set<ObjectType> objectTypes = Sets.newHashSet();
-
-        if (!objectTypesOptions.isEmpty()) {
-            for (final String objectType : objectTypesOptions) {
-                try {
-                    objectTypes.add(ObjectType.getByName(objectType));
-                } catch (IllegalArgumentException e) {
-                    throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.invalidObjectType(objectType));
-                }
-            }
-        }
-        return Collections.unmodifiableSet(objectTypes);
-    }
-
-    private Set<ObjectType> generateAndFilterObjectTypes() {
-        final Set<ObjectType> response = Sets.newTreeSet(ObjectType.COMPARATOR);    // whois query results returned in correct order depends on this comparator
-
-        if (suppliedObjectTypes.isEmpty()) {
-            if (isLookupInBothDirections()) {
-                response.addAll(DEFAULT_TYPES_LOOKUP_IN_BOTH_DIRECTIONS);
-            } else {
-                response.addAll(DEFAULT_TYPES_ALL);
+    /**
+     * @return the options independent of their order and spelling (e.g. "-rB" and "-B --no-referenced"), except the
+     * client flag, which only identifies the client
+     */
+    public String getNormalisedOptions() {
+        final StringBuilder result = new StringBuilder();
+        for (final QueryFlag queryFlag : QueryFlag.values()) {
+            if (queryFlag == QueryFlag.CLIENT || !queryParser.hasOption(queryFlag)) {
+                continue;
             }
-        } else {
-            response.addAll(suppliedObjectTypes);
-        }
-
-        if (queryParser.hasOption(QueryFlag.NO_PERSONAL)) {
-            response.remove(ObjectType.PERSON);
-            response.remove(ObjectType.ROLE);
-        }
 
-        if (queryParser.hasOption(QueryFlag.RESOURCE)) {
-            response.retainAll(GRS_LIMIT_TYPES);
-        }
-
-        if (queryParser.hasOption(QueryFlag.ABUSE_CONTACT)) {
-            response.retainAll(ABUSE_CONTACT_OBJECT_TYPES);
-        }
-
-        if (!isInverse()) {
-            nextObjectType:
-            for (Iterator<ObjectType> it = response.iterator(); it.hasNext(); ) {
-                ObjectType objectType = it.next();
-                for (final AttributeType attribute : ObjectTemplate.getTemplate(objectType).getLookupAttributes()) {
-                    if (AttributeMatcher.fetchableBy(attribute, this)) {
-                        continue nextObjectType;
-                    }
-                }
-                it.remove();
+            result.append(queryFlag.getLongFlag());
+            for (final String value : Sets.newTreeSet(queryParser.getOptionValues(queryFlag))) {
+                result.append(' ').append(value);
             }
+            result.append(' ');
         }
-
-        return Collections.unmodifiableSet(response);
+        return result.toString();
     }
 
-    private Set<String> parseSources() {
-        final Set<String> optionValues = queryParser.getOptionValues(QueryFlag.SOURCES);
-        if (optionValues.isEmpty()) {
-            return Collections.emptySet();
-        }
-
-        final Set<String> result = Sets.newLinkedHashSet();
-        for (final String source : optionValues) {
-            result.add(source.toUpperCase());
-        }
-
-        return Collections.unmodifiableSet(result);
-    }
-
-    private Set<AttributeType> parseAttributeTypes() {
-        if (!isInverse()) {
-            return Collections.emptySet();
-        }
-
-        final Set<String> attributeTypes = queryParser.getOptionValues(QueryFlag.INVERSE);
-        final Set<AttributeType> ret = Sets.newLinkedHashSet();
-        for (final String attributeType : attributeTypes) {
-            try {
-                final AttributeType type = AttributeType.getByName(attributeType);
-                if (AttributeType.PERSON.equals(type)) {
-                    ret.addAll(Arrays.asList(AttributeType.ABUSE_C, AttributeType.ADMIN_C, AttributeType.TECH_C, AttributeType.ZONE_C, AttributeType.AUTHOR, AttributeType.PING_HDL));
-                } else {
-                    ret.add(type);
-                }
-            } catch (IllegalArgumentException e) {
-                throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.invalidAttributeType(attributeType));
-            }
-        }
-
-        return Collections.unmodifiableSet(ret);
+    public boolean hasSources() {
+        return !sources.isEmpty();
     }
 
-    private MatchOperation parseMatchOperations() {
-        MatchOperation result = null;
-
-        for (final MatchOperation matchOperation : MatchOperation.values()) {
-            if (matchOperation.hasFlag() && queryParser.hasOption(matchOperation.getQueryFlag())) {
-                if (result == null) {
-                    result = matchOperation;
-                } else {
-                    throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.duplicateIpFlagsPassed());
-                }
-            }
-        }
-        return result;
+    public Set<String> getSources() {
+        return sources;
     }
 
     @Override
@@ -576,7 +495,25 @@ public class Query {
     }
 
     public boolean matchesObjectTypeAndAttribute(final ObjectType objectType, final AttributeType attributeType) {
-        return ObjectTemplate.getTemplate(objectType).getLookupAttributes().contains(attributeType) && AttributeMatcher.fetchableBy(attributeType, this);
+        return getLookupAttributes(objectType).contains(attributeType);
+    }
+
+    /**
+     * @return the lookup attributes of the object type that can be searched for with the search key
+     */
+    public Set<AttributeType> getLookupAttributes(final ObjectType objectType) {
+        final Set<AttributeType> lookupAttributes = keyPlan.getLookupAttributes(objectType);
+        if (lookupAttributes != null) {
+            return lookupAttributes;
+        }
+
+        final Set<AttributeType> result = Sets.newLinkedHashSet();
+        for (final AttributeType attributeType : ObjectTemplate.getTemplate(objectType).getLookupAttributes()) {
+            if (AttributeMatcher.fetchableBy(attributeType, this)) {
+                result.add(attributeType);
+            }
+        }
+        return result;
     }
 
     public boolean isMatchPrimaryKeyOnly() {
@@ -0,0 +1,351 @@
+package net.ripe.db.whois.query.query;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.IllegalArgumentExceptionMessage;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.query.QueryFlag;
+import net.ripe.db.whois.query.QueryMessages;
+import net.ripe.db.whois.query.QueryParser;
+import net.ripe.db.whois.query.domain.QueryCompletionInfo;
+import net.ripe.db.whois.query.domain.QueryException;
+
+import javax.annotation.CheckForNull;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Everything a query does that doesn't depend on its search value: the parsed options, the sources, attribute types
+ * and match operation, and per kind of search key (the attribute matchers it matches) the object types and lookup
+ * attributes to search.
+ *
+ * Most queries share a few shapes (the same flags and type filter, followed by a single search key), so plans are
+ * cached by the options preceding the search key. A query of a cached shape is not parsed by jopt-simple, and only
+ * the attribute matchers relevant to its object types are evaluated against its search key.
+ *
+ * Validation depends on the search value (e.g. the range of IP flags, or inverse lookups of passwords), so the query
+ * validators still run for every query.
+ */
+final class QueryPlan {
+    private static final EnumSet<ObjectType> GRS_LIMIT_TYPES = EnumSet.of(ObjectType.AUT_NUM, ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN);
+    private static final EnumSet<ObjectType> DEFAULT_TYPES_LOOKUP_IN_BOTH_DIRECTIONS = EnumSet.of(ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN);
+    private static final EnumSet<ObjectType> DEFAULT_TYPES_ALL = EnumSet.allOf(ObjectType.class);
+
+    private static final Splitter SPACE_SPLITTER = Splitter.on(' ').omitEmptyStrings();
+    private static final Joiner SPACE_JOINER = Joiner.on(' ');
+
+    private static final int MAX_PLANS = 1000;
+    private static final int MAX_KEY_PLANS = 64;
+
+    // an empty plan marks a shape whose options can't be parsed without the search key
+    private static final Cache<String, Optional<QueryPlan>> PLANS = CacheBuilder.newBuilder().maximumSize(MAX_PLANS).build();
+
+    @CheckForNull private final QueryParser options;
+    private final Set<String> sources;
+    private final Set<ObjectType> suppliedObjectTypes;
+    private final List<ObjectType> objectTypes;
+    private final Set<AttributeType> attributeTypes;
+    private final Query.MatchOperation matchOperation;
+    private final boolean filterOnSearchKey;
+    private final List<AttributeMatcher> matchers;
+    private final Map<Long, KeyPlan> keyPlans = Maps.newConcurrentMap();
+
+    private QueryPlan(final Query query, @CheckForNull final QueryParser options) {
+        this.options = options;
+        this.sources = parseSources(query);
+        this.suppliedObjectTypes = parseSuppliedObjectTypes(query);
+        this.objectTypes = generateObjectTypes(query, suppliedObjectTypes);
+        this.attributeTypes = parseAttributeTypes(query);
+        this.matchOperation = parseMatchOperations(query);
+
+        this.filterOnSearchKey = !query.isInverse();
+        final Set<AttributeMatcher> relevantMatchers = Sets.newLinkedHashSet();
+        if (filterOnSearchKey) {
+            for (final ObjectType objectType : objectTypes) {
+                for (final AttributeType attributeType : ObjectTemplate.getTemplate(objectType).getLookupAttributes()) {
+                    relevantMatchers.addAll(AttributeMatcher.getMatchers(attributeType));
+                }
+            }
+        }
+        this.matchers = ImmutableList.copyOf(relevantMatchers);
+    }
+
+    /**
+     * @param converted the query after Latin-1 conversion
+     * @return the cached plan for the shape of the query, or null if there is none
+     */
+    @CheckForNull
+    static QueryPlan getCached(final String converted) {
+        final String options = getOptions(converted);
+        if (options == null) {
+            return null;
+        }
+
+        final Optional<QueryPlan> plan = PLANS.getIfPresent(options);
+        return plan == null ? null : plan.orElse(null);
+    }
+
+    /**
+     * Compile the plan for a query that was parsed in full, and cache it if other queries of its shape can use it.
+     */
+    static QueryPlan compile(final Query query, final String converted) {
+        final String options = getOptions(converted);
+        if (options == null) {
+            return new QueryPlan(query, null);
+        }
+
+        final Optional<QueryPlan> cached = PLANS.getIfPresent(options);
+        if (cached != null) {
+            return cached.orElseGet(() -> new QueryPlan(query, null));
+        }
+
+        final QueryParser optionsParser = parseOptions(options);
+        final QueryPlan plan = new QueryPlan(query, optionsParser);
+        PLANS.put(options, optionsParser == null ? Optional.empty() : Optional.of(plan));
+        return plan;
+    }
+
+    static void clear() {
+        PLANS.invalidateAll();
+    }
+
+    /**
+     * The arguments preceding the search key, if the search key is a single argument that can't be mistaken for a flag.
+     */
+    @CheckForNull
+    private static String getOptions(final String converted) {
+        final int lastSpace = converted.lastIndexOf(' ');
+        final String searchKey = converted.substring(lastSpace + 1);
+        if (searchKey.isEmpty() || searchKey.charAt(0) == '-') {
+            return null;
+        }
+
+        return lastSpace == -1 ? "" : SPACE_JOINER.join(SPACE_SPLITTER.split(converted.substring(0, lastSpace)));
+    }
+
+    /**
+     * The options can be reused for other search keys if they parse without search key: the last flag then has all
+     * its arguments, and any following argument that isn't a flag is the search key.
+     */
+    @CheckForNull
+    private static QueryParser parseOptions(final String options) {
+        try {
+            final QueryParser queryParser = new QueryParser(options);
+            return queryParser.getSearchKey().isEmpty() ? queryParser : null;
+        } catch (IllegalArgumentExceptionMessage e) {
+            return null;
+        }
+    }
+
+    QueryParser bind(final String query, final String converted) {
+        if (options == null) {
+            throw new IllegalStateException("Plan can't be used for other queries");
+        }
+
+        return options.withSearchKey(query, converted.substring(converted.lastIndexOf(' ') + 1), !converted.equals(query));
+    }
+
+    KeyPlan getKeyPlan(final Query query) {
+        long key = 0;
+        for (int i = 0; i < matchers.size(); i++) {
+            if (AttributeMatcher.matches(matchers.get(i), query)) {
+                key |= 1L << i;
+            }
+        }
+
+        final KeyPlan cached = keyPlans.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final KeyPlan keyPlan = new KeyPlan(key);
+        if (options != null && keyPlans.size() < MAX_KEY_PLANS) {
+            keyPlans.put(key, keyPlan);
+        }
+        return keyPlan;
+    }
+
+    Set<String> getSources() {
+        return sources;
+    }
+
+    Set<ObjectType> getSuppliedObjectTypes() {
+        return suppliedObjectTypes;
+    }
+
+    Set<AttributeType> getAttributeTypes() {
+        return attributeTypes;
+    }
+
+    Query.MatchOperation getMatchOperation() {
+        return matchOperation;
+    }
+
+    private static Set<String> parseSources(final Query query) {
+        final Set<String> optionValues = query.getOptionValues(QueryFlag.SOURCES);
+        if (optionValues.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> result = Sets.newLinkedHashSet();
+        for (final String source : optionValues) {
+            result.add(source.toUpperCase());
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+
+    private static Set<ObjectType> parseSuppliedObjectTypes(final Query query) {
+        final Set<String> objectTypesOptions = query.getOptionValues(QueryFlag.SELECT_TYPES);
+        final Set<ObjectType> objectTypes = Sets.newHashSet();
+
+        if (!objectTypesOptions.isEmpty()) {
+            for (final String objectType : objectTypesOptions) {
+                try {
+                    objectTypes.add(ObjectType.getByName(objectType));
+                } catch (IllegalArgumentException e) {
+                    throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.invalidObjectType(objectType));
+                }
+            }
+        }
+        return Collections.unmodifiableSet(objectTypes);
+    }
+
+    // the object types before filtering on the search key
+    private static List<ObjectType> generateObjectTypes(final Query query, final Set<ObjectType> suppliedObjectTypes) {
+        final Set<ObjectType> response = Sets.newTreeSet(ObjectType.COMPARATOR);    // whois query results returned in correct order depends on this comparator
+
+        if (suppliedObjectTypes.isEmpty()) {
+            if (query.isLookupInBothDirections()) {
+                response.addAll(DEFAULT_TYPES_LOOKUP_IN_BOTH_DIRECTIONS);
+            } else {
+                response.addAll(DEFAULT_TYPES_ALL);
+            }
+        } else {
+            response.addAll(suppliedObjectTypes);
+        }
+
+        if (query.hasOption(QueryFlag.NO_PERSONAL)) {
+            response.remove(ObjectType.PERSON);
+            response.remove(ObjectType.ROLE);
+        }
+
+        if (query.hasOption(QueryFlag.RESOURCE)) {
+            response.retainAll(GRS_LIMIT_TYPES);
+        }
+
+        if (query.hasOption(QueryFlag.ABUSE_CONTACT)) {
+            response.retainAll(Query.ABUSE_CONTACT_OBJECT_TYPES);
+        }
+
+        return ImmutableList.copyOf(response);
+    }
+
+    private static Set<AttributeType> parseAttributeTypes(final Query query) {
+        if (!query.isInverse()) {
+            return Collections.emptySet();
+        }
+
+        final Set<String> attributeTypes = query.getOptionValues(QueryFlag.INVERSE);
+        final Set<AttributeType> ret = Sets.newLinkedHashSet();
+        for (final String attributeType : attributeTypes) {
+            try {
+                final AttributeType type = AttributeType.getByName(attributeType);
+                if (AttributeType.PERSON.equals(type)) {
+                    ret.addAll(Arrays.asList(AttributeType.ABUSE_C, AttributeType.ADMIN_C, AttributeType.TECH_C, AttributeType.ZONE_C, AttributeType.AUTHOR, AttributeType.PING_HDL));
+                } else {
+                    ret.add(type);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.invalidAttributeType(attributeType));
+            }
+        }
+
+        return Collections.unmodifiableSet(ret);
+    }
+
+    private static Query.MatchOperation parseMatchOperations(final Query query) {
+        Query.MatchOperation result = null;
+
+        for (final Query.MatchOperation matchOperation : Query.MatchOperation.values()) {
+            if (matchOperation.hasFlag() && query.hasOption(matchOperation.getQueryFlag())) {
+                if (result == null) {
+                    result = matchOperation;
+                } else {
+                    throw new QueryException(QueryCompletionInfo.PARAMETER_ERROR, QueryMessages.duplicateIpFlagsPassed());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The object types to search, and their lookup attributes, for the search keys matching the same attribute matchers.
+     */
+    final class KeyPlan {
+        private final Set<ObjectType> objectTypes;
+        private final Map<ObjectType, Set<AttributeType>> lookupAttributes;
+
+        private KeyPlan(final long key) {
+            final Set<ObjectType> objectTypes = Sets.newTreeSet(ObjectType.COMPARATOR);
+            final ImmutableMap.Builder<ObjectType, Set<AttributeType>> lookupAttributes = ImmutableMap.builder();
+
+            for (final ObjectType objectType : QueryPlan.this.objectTypes) {
+                if (!filterOnSearchKey) {
+                    objectTypes.add(objectType);
+                    continue;
+                }
+
+                final List<AttributeType> fetchable = Lists.newArrayList();
+                for (final AttributeType attributeType : ObjectTemplate.getTemplate(objectType).getLookupAttributes()) {
+                    if (matchesAny(key, attributeType)) {
+                        fetchable.add(attributeType);
+                    }
+                }
+
+                if (!fetchable.isEmpty()) {
+                    objectTypes.add(objectType);
+                }
+                lookupAttributes.put(objectType, Collections.unmodifiableSet(Sets.newLinkedHashSet(fetchable)));
+            }
+
+            this.objectTypes = Collections.unmodifiableSet(objectTypes);
+            this.lookupAttributes = lookupAttributes.build();
+        }
+
+        private boolean matchesAny(final long key, final AttributeType attributeType) {
+            for (final AttributeMatcher matcher : AttributeMatcher.getMatchers(attributeType)) {
+                if ((key & (1L << matchers.indexOf(matcher))) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Set<ObjectType> getObjectTypes() {
+            return objectTypes;
+        }
+
+        /**
+         * @return the lookup attributes matching the search key, or null if the object type was not planned
+         */
+        @CheckForNull
+        Set<AttributeType> getLookupAttributes(final ObjectType objectType) {
+            return lookupAttributes.get(objectType);
+        }
+    }
+}
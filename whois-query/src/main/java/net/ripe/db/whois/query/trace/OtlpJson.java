@@ -0,0 +1,127 @@
+package net.ripe.db.whois.query.trace;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes traces in the OTLP/JSON encoding of an ExportTraceServiceRequest, as accepted by an OpenTelemetry collector
+ * on /v1/traces, and (one request per line) by its otlpjsonfile receiver.
+ */
+final class OtlpJson {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String SCOPE_NAME = "net.ripe.db.whois.query";
+
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int SPAN_KIND_SERVER = 2;
+    private static final int STATUS_CODE_OK = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private OtlpJson() {
+    }
+
+    static String toJson(final String serviceName, final List<QueryTrace> traces) {
+        final StringWriter result = new StringWriter();
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(result)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("resourceSpans");
+            json.writeStartObject();
+
+            json.writeObjectFieldStart("resource");
+            json.writeArrayFieldStart("attributes");
+            writeAttribute(json, "service.name", serviceName);
+            json.writeEndArray();
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("scopeSpans");
+            json.writeStartObject();
+            json.writeObjectFieldStart("scope");
+            json.writeStringField("name", SCOPE_NAME);
+            json.writeEndObject();
+
+            json.writeArrayFieldStart("spans");
+            for (final QueryTrace trace : traces) {
+                writeTrace(json, trace);
+            }
+            json.writeEndArray();
+
+            json.writeEndObject();
+            json.writeEndArray();
+
+            json.writeEndObject();
+            json.writeEndArray();
+            json.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toString();
+    }
+
+    private static void writeTrace(final JsonGenerator json, final QueryTrace trace) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", trace.getTraceId());
+        json.writeStringField("spanId", trace.getSpanId());
+        json.writeStringField("name", trace.getName());
+        json.writeNumberField("kind", SPAN_KIND_SERVER);
+        json.writeStringField("startTimeUnixNano", Long.toString(trace.getStartEpochNanos()));
+        json.writeStringField("endTimeUnixNano", Long.toString(trace.getEndEpochNanos()));
+
+        json.writeArrayFieldStart("attributes");
+        for (final Map.Entry<String, String> attribute : trace.getAttributes().entrySet()) {
+            writeAttribute(json, attribute.getKey(), attribute.getValue());
+        }
+        json.writeEndArray();
+
+        json.writeObjectFieldStart("status");
+        json.writeNumberField("code", trace.isError() ? STATUS_CODE_ERROR : STATUS_CODE_OK);
+        json.writeEndObject();
+        json.writeEndObject();
+
+        int index = 0;
+        for (final QueryTrace.Stage stage : trace.getStages()) {
+            json.writeStartObject();
+            json.writeStringField("traceId", trace.getTraceId());
+            json.writeStringField("spanId", stageSpanId(trace, index++));
+            json.writeStringField("parentSpanId", trace.getSpanId());
+            json.writeStringField("name", stage.getName());
+            json.writeNumberField("kind", SPAN_KIND_INTERNAL);
+            json.writeStringField("startTimeUnixNano", Long.toString(trace.toEpochNanos(stage.getFirstNanos())));
+            json.writeStringField("endTimeUnixNano", Long.toString(trace.toEpochNanos(stage.getLastNanos())));
+
+            json.writeArrayFieldStart("attributes");
+            writeAttribute(json, "whois.self_time_ns", stage.getSelfNanos());
+            writeAttribute(json, "whois.calls", stage.getCalls());
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    // the last two bytes of the root span id are zero, so numbering the stages there keeps the span ids unique
+    private static String stageSpanId(final QueryTrace trace, final int index) {
+        return trace.getSpanId().substring(0, 12) + String.format("%04x", (index + 1) & 0xffff);
+    }
+
+    private static void writeAttribute(final JsonGenerator json, final String key, final String value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        json.writeStringField("stringValue", value);
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+
+    private static void writeAttribute(final JsonGenerator json, final String key, final long value) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("key", key);
+        json.writeObjectFieldStart("value");
+        json.writeStringField("intValue", Long.toString(value));
+        json.writeEndObject();
+        json.writeEndObject();
+    }
+}
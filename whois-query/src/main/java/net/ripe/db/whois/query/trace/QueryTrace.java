@@ -0,0 +1,296 @@
+package net.ripe.db.whois.query.trace;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records where the time of a single query is spent, as one span per stage (parse, acl, search, each decorator, ...).
+ *
+ * Query results are lazy iterables, so the stages of the decorator chain run interleaved while the result is written.
+ * Instead of a span per call, every stage therefore accumulates its self time (excluding the stages it calls into)
+ * over all its calls, from the first time it was entered until the last time it was left.
+ *
+ * A trace is bound to the thread executing the query, the static methods do nothing if no trace is bound.
+ */
+public final class QueryTrace {
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+    private static final Span NO_SPAN = () -> {};
+
+    private final String name;
+    private final String traceId;
+    private final String spanId;
+    private final long startEpochNanos;
+    private final long startNanos;
+
+    private final Map<String, Stage> stages = Maps.newLinkedHashMap();
+    private final Map<String, String> attributes = Maps.newLinkedHashMap();
+    private final Deque<Frame> active = new ArrayDeque<>();
+
+    private long endNanos;
+    private boolean error;
+
+    QueryTrace(final String name) {
+        this.name = name;
+        this.traceId = randomHex(16);
+        // the stages are numbered in the last two bytes
+        this.spanId = randomHex(6) + "0000";
+        this.startEpochNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.startNanos = System.nanoTime();
+    }
+
+    @CheckForNull
+    public static QueryTrace current() {
+        return CURRENT.get();
+    }
+
+    static void bind(@CheckForNull final QueryTrace trace) {
+        if (trace == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trace);
+        }
+    }
+
+    /**
+     * Time the stage until the returned span is closed, nested spans are excluded from its self time.
+     */
+    public static Span span(final String stage) {
+        final QueryTrace trace = CURRENT.get();
+        return trace == null ? NO_SPAN : trace.enter(stage);
+    }
+
+    /**
+     * Time the stage whenever the (lazy) iterable is iterated.
+     */
+    public static <T> Iterable<T> timed(final String stage, final Iterable<T> iterable) {
+        final QueryTrace trace = CURRENT.get();
+        if (trace == null) {
+            return iterable;
+        }
+
+        return () -> {
+            try (Span ignored = trace.enter(stage)) {
+                return new TimedIterator<>(trace, stage, iterable.iterator());
+            }
+        };
+    }
+
+    public static void addAttribute(final String key, final Object value) {
+        final QueryTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.setAttribute(key, value);
+        }
+    }
+
+    public synchronized void setAttribute(final String key, final Object value) {
+        attributes.put(key, String.valueOf(value));
+    }
+
+    public synchronized void setError() {
+        this.error = true;
+    }
+
+    /**
+     * Record a stage that was not timed on the query thread, e.g. from a channel future.
+     */
+    public synchronized void record(final String stage, final long fromNanos, final long toNanos) {
+        stages.computeIfAbsent(stage, Stage::new).add(fromNanos, toNanos, toNanos - fromNanos);
+    }
+
+    synchronized Span enter(final String stage) {
+        final Frame frame = new Frame(stage, System.nanoTime());
+        active.push(frame);
+        return () -> exit(frame);
+    }
+
+    private synchronized void exit(final Frame frame) {
+        final long now = System.nanoTime();
+        final long elapsed = now - frame.startNanos;
+
+        if (active.peek() == frame) {
+            active.pop();
+        } else {
+            active.remove(frame);
+        }
+
+        final Frame parent = active.peek();
+        if (parent != null) {
+            parent.childNanos += elapsed;
+        }
+
+        stages.computeIfAbsent(frame.stage, Stage::new).add(frame.startNanos, now, elapsed - frame.childNanos);
+    }
+
+    synchronized void end() {
+        if (endNanos == 0) {
+            endNanos = System.nanoTime();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    String getSpanId() {
+        return spanId;
+    }
+
+    public synchronized long getDurationNanos() {
+        return (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+    }
+
+    synchronized boolean isError() {
+        return error;
+    }
+
+    long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    synchronized long getEndEpochNanos() {
+        return toEpochNanos(endNanos == 0 ? System.nanoTime() : endNanos);
+    }
+
+    long toEpochNanos(final long nanos) {
+        return startEpochNanos + (nanos - startNanos);
+    }
+
+    synchronized Map<String, String> getAttributes() {
+        return ImmutableMap.copyOf(attributes);
+    }
+
+    synchronized List<Stage> getStages() {
+        final ImmutableList.Builder<Stage> result = ImmutableList.builder();
+        for (final Stage stage : stages.values()) {
+            result.add(stage.copy());
+        }
+        return result.build();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder(name).append(' ').append(TimeUnit.NANOSECONDS.toMicros(getDurationNanos())).append("us");
+        for (final Stage stage : getStages()) {
+            result.append(' ').append(stage.getName()).append('=').append(TimeUnit.NANOSECONDS.toMicros(stage.getSelfNanos())).append("us");
+        }
+        return result.toString();
+    }
+
+    private static String randomHex(final int bytes) {
+        final StringBuilder result = new StringBuilder(bytes * 2);
+        for (int i = 0; i < bytes; i++) {
+            result.append(String.format("%02x", ThreadLocalRandom.current().nextInt(256)));
+        }
+        return result.toString();
+    }
+
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    static final class Stage {
+        private final String name;
+        private long firstNanos = Long.MAX_VALUE;
+        private long lastNanos = Long.MIN_VALUE;
+        private long selfNanos;
+        private int calls;
+
+        Stage(final String name) {
+            this.name = name;
+        }
+
+        void add(final long fromNanos, final long toNanos, final long selfNanos) {
+            this.firstNanos = Math.min(firstNanos, fromNanos);
+            this.lastNanos = Math.max(lastNanos, toNanos);
+            this.selfNanos += selfNanos;
+            this.calls++;
+        }
+
+        Stage copy() {
+            final Stage result = new Stage(name);
+            result.firstNanos = firstNanos;
+            result.lastNanos = lastNanos;
+            result.selfNanos = selfNanos;
+            result.calls = calls;
+            return result;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getFirstNanos() {
+            return firstNanos;
+        }
+
+        long getLastNanos() {
+            return lastNanos;
+        }
+
+        long getSelfNanos() {
+            return selfNanos;
+        }
+
+        int getCalls() {
+            return calls;
+        }
+    }
+
+    private static final class Frame {
+        private final String stage;
+        private final long startNanos;
+        private long childNanos;
+
+        private Frame(final String stage, final long startNanos) {
+            this.stage = stage;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private static final class TimedIterator<T> implements Iterator<T> {
+        private final QueryTrace trace;
+        private final String stage;
+        private final Iterator<T> iterator;
+
+        private TimedIterator(final QueryTrace trace, final String stage, final Iterator<T> iterator) {
+            this.trace = trace;
+            this.stage = stage;
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try (Span ignored = trace.enter(stage)) {
+                return iterator.hasNext();
+            }
+        }
+
+        @Override
+        public T next() {
+            try (Span ignored = trace.enter(stage)) {
+                return iterator.next();
+            }
+        }
+
+        @Override
+        public void remove() {
+            iterator.remove();
+        }
+    }
+}
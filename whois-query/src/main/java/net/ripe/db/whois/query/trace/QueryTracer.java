@@ -0,0 +1,194 @@
+package net.ripe.db.whois.query.trace;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Starts and finishes query traces, see {@link QueryTrace}.
+ *
+ * Sampling is tail-based: every query is traced, and when it is finished the trace is kept if the query was slow or
+ * failed, or otherwise with the configured sample rate. Kept traces are exported in the background as OTLP/JSON, to
+ * a file (one export request per line) and/or an OpenTelemetry collector endpoint (e.g. http://localhost:4318/v1/traces).
+ */
+@Component
+public class QueryTracer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryTracer.class);
+
+    private static final String SERVICE_NAME = "whois";
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int TIMEOUT_MS = 5_000;
+
+    private final boolean enabled;
+    private final long slowNanos;
+    private final double sampleRate;
+    private final String file;
+    private final String endpoint;
+    private final BlockingQueue<QueryTrace> queue;
+
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private Thread exporter;
+
+    @Autowired
+    public QueryTracer(@Value("${whois.query.trace.enabled:false}") final boolean enabled,
+                       @Value("${whois.query.trace.slow.ms:1000}") final long slowMs,
+                       @Value("${whois.query.trace.sample.rate:0}") final double sampleRate,
+                       @Value("${whois.query.trace.file:}") final String file,
+                       @Value("${whois.query.trace.endpoint:}") final String endpoint,
+                       @Value("${whois.query.trace.queue.size:1000}") final int queueSize) {
+        this.enabled = enabled && (StringUtils.isNotBlank(file) || StringUtils.isNotBlank(endpoint));
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+        this.sampleRate = sampleRate;
+        this.file = file;
+        this.endpoint = endpoint;
+        this.queue = Queues.newArrayBlockingQueue(Math.max(1, queueSize));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        exporter = new Thread(this::export, "QueryTraceExporter");
+        exporter.setDaemon(true);
+        exporter.start();
+        LOGGER.info("Exporting traces of queries slower than {}ms (sample rate {}) to {}", TimeUnit.NANOSECONDS.toMillis(slowNanos), sampleRate, StringUtils.defaultIfBlank(file, endpoint));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (exporter != null) {
+            exporter.interrupt();
+        }
+    }
+
+    /**
+     * Start a trace and bind it to the current thread, replacing any trace left behind by a previous query.
+     *
+     * @return the trace, or null if tracing is disabled
+     */
+    @CheckForNull
+    public QueryTrace start(final String name) {
+        if (!enabled) {
+            return null;
+        }
+
+        final QueryTrace trace = new QueryTrace(name);
+        QueryTrace.bind(trace);
+        return trace;
+    }
+
+    /**
+     * Unbind the trace from the current thread, so it can be finished once the response has been written.
+     */
+    public void detach(@CheckForNull final QueryTrace trace) {
+        if (trace != null && QueryTrace.current() == trace) {
+            QueryTrace.bind(null);
+        }
+    }
+
+    public void finish(@CheckForNull final QueryTrace trace) {
+        if (trace == null) {
+            return;
+        }
+
+        detach(trace);
+        trace.end();
+
+        if (isSampled(trace) && !queue.offer(trace)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    boolean isSampled(final QueryTrace trace) {
+        return trace.isError()
+                || trace.getDurationNanos() >= slowNanos
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    public long getExported() {
+        return exported.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void export() {
+        final List<QueryTrace> batch = Lists.newArrayListWithCapacity(MAX_BATCH_SIZE);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+                final String json = OtlpJson.toJson(SERVICE_NAME, batch);
+                if (StringUtils.isNotBlank(file)) {
+                    writeFile(json);
+                }
+                if (StringUtils.isNotBlank(endpoint)) {
+                    post(json);
+                }
+
+                exported.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                dropped.addAndGet(batch.size());
+                LOGGER.warn("Exporting {} query traces failed: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeFile(final String json) throws IOException {
+        Files.write(Paths.get(file), (json + '\n').getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void post(final String json) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+
+            final int status = connection.getResponseCode();
+            if (status / 100 != 2) {
+                throw new IOException("collector responded " + status);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.collect.Lists;
+import com.google.common.net.InetAddresses;
+import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.query.QueryMessages;
+import net.ripe.db.whois.query.acl.AccessControlListManager;
+import net.ripe.db.whois.query.domain.QueryCompletionInfo;
+import net.ripe.db.whois.query.domain.QueryException;
+import net.ripe.db.whois.query.handler.QueryHandler;
+import net.ripe.db.whois.query.handler.WhoisLog;
+import net.ripe.db.whois.query.planner.RpslResponseDecorator;
+import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTracer;
+import org.hamcrest.Matchers;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.net.InetAddress;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cached responses are replayed through the query handler, so they are accounted as personal objects as usual.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class QueryResultCacheAclTest {
+    private static final Source SOURCE = Source.slave("TEST");
+
+    private static final RpslObject PERSON = RpslObject.parse(1, "person: Test Person\nnic-hdl: TP1-TEST\nsource: TEST");
+    private static final RpslObject ROLE = RpslObject.parse(2, "role: Test Role\nnic-hdl: TR1-TEST\nsource: TEST");
+
+    @Mock WhoisLog whoisLog;
+    @Mock AccessControlListManager accessControlListManager;
+    @Mock SourceContext sourceContext;
+    @Mock QueryTracer queryTracer;
+    @Mock RpslObjectSearcher rpslObjectSearcher;
+    @Mock RpslResponseDecorator rpslResponseDecorator;
+    @Mock SerialTailer serialTailer;
+
+    private final InetAddress remoteAddress = InetAddresses.forString("193.0.0.10");
+    private QueryHandler subject;
+
+    @Before
+    public void setUp() {
+        when(sourceContext.getWhoisSlaveSource()).thenReturn(SOURCE);
+        when(sourceContext.getCurrentSource()).thenReturn(SOURCE);
+        when(rpslObjectSearcher.search(any(Query.class), any(SourceContext.class))).thenAnswer(invocation -> Lists.newArrayList(PERSON, ROLE));
+        when(rpslResponseDecorator.getResponse(any(Query.class), any(Iterable.class))).thenAnswer(invocation -> invocation.getArguments()[1]);
+        when(accessControlListManager.canQueryPersonalObjects(remoteAddress)).thenReturn(true);
+        when(accessControlListManager.requiresAcl(any(RpslObject.class), any(Source.class))).thenReturn(true);
+
+        final QueryResultCache queryResultCache = new QueryResultCache(sourceContext, serialTailer, new ResourceHierarchyCache(sourceContext, serialTailer, false, 0), true, 100, 10, 60);
+        subject = new QueryHandler(whoisLog, accessControlListManager, sourceContext, queryTracer, new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, queryResultCache));
+    }
+
+    @Test
+    public void cached_response_hits_limit() {
+        when(accessControlListManager.getPersonalObjects(remoteAddress)).thenReturn(5, 1);
+        final Query query = Query.parse("-r TP1-TEST");
+
+        final CaptureResponseHandler responseHandler = new CaptureResponseHandler();
+        subject.streamResults(query, remoteAddress, 1, responseHandler);
+        assertThat(responseHandler.getResponseObjects(), Matchers.<ResponseObject>contains(PERSON, ROLE));
+
+        final CaptureResponseHandler cachedResponseHandler = new CaptureResponseHandler();
+        try {
+            subject.streamResults(query, remoteAddress, 1, cachedResponseHandler);
+            fail("Expected failure");
+        } catch (QueryException e) {
+            assertThat(e.getCompletionInfo(), is(QueryCompletionInfo.BLOCKED));
+            assertThat(e.getMessages(), containsInAnyOrder(QueryMessages.accessDeniedTemporarily(remoteAddress)));
+        }
+
+        assertThat(cachedResponseHandler.getResponseObjects(), Matchers.<ResponseObject>contains(PERSON));
+        verify(rpslObjectSearcher).search(any(Query.class), any(SourceContext.class));
+        verify(accessControlListManager, times(2)).accountPersonalObjects(remoteAddress, 2);
+    }
+}
@@ -0,0 +1,123 @@
+package net.ripe.db.whois.query.executor;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import net.ripe.db.whois.common.source.Source;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.query.query.Query;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class QueryResultCacheTest {
+    private static final Source SOURCE = Source.slave("TEST");
+
+    private static final RpslObject AUT_NUM = RpslObject.parse(1, "aut-num: AS3333\nsource: TEST");
+    private static final RpslObject INETNUM = RpslObject.parse(2, "inetnum: 10.0.0.0 - 10.0.0.255\nsource: TEST");
+    private static final RpslObject OTHER_INETNUM = RpslObject.parse(3, "inetnum: 192.168.0.0 - 192.168.255.255\nsource: TEST");
+
+    @Mock SourceContext sourceContext;
+    @Mock SerialTailer serialTailer;
+
+    private final AtomicInteger searches = new AtomicInteger();
+    private QueryResultCache subject;
+
+    @Before
+    public void setUp() {
+        when(sourceContext.getWhoisSlaveSource()).thenReturn(SOURCE);
+        subject = new QueryResultCache(sourceContext, serialTailer, new ResourceHierarchyCache(sourceContext, serialTailer, false, 0), true, 100, 10, 60);
+    }
+
+    @Test
+    public void response_replayed() {
+        final Query query = Query.parse("-r AS3333");
+
+        assertThat(getResponse(query, AUT_NUM), contains((ResponseObject) AUT_NUM));
+        assertThat(getResponse(Query.parse("--no-referenced AS3333"), AUT_NUM), contains((ResponseObject) AUT_NUM));
+        assertThat(searches.get(), is(1));
+    }
+
+    @Test
+    public void evicted_when_object_changed() {
+        final Query query = Query.parse("-r AS3333");
+        getResponse(query, AUT_NUM);
+
+        subject.evict(0, 1, Collections.singletonList(change(1, OTHER_INETNUM)));
+        getResponse(query, AUT_NUM);
+        assertThat(searches.get(), is(1));
+
+        subject.evict(1, 2, Collections.singletonList(change(2, AUT_NUM)));
+        getResponse(query, AUT_NUM);
+        assertThat(searches.get(), is(2));
+    }
+
+    @Test
+    public void evicted_when_object_might_be_found() {
+        final Query query = Query.parse("-r 10.0.0.1");
+        getResponse(query);
+
+        subject.evict(0, 1, Collections.singletonList(change(1, OTHER_INETNUM)));
+        getResponse(query);
+        assertThat(searches.get(), is(1));
+
+        subject.evict(1, 2, Collections.singletonList(change(2, INETNUM)));
+        getResponse(query);
+        assertThat(searches.get(), is(2));
+    }
+
+    @Test
+    public void incomplete_response_not_cached() {
+        final Query query = Query.parse("-r AS3333");
+        subject.getResponse(query, SOURCE, () -> {
+            searches.incrementAndGet();
+            return Collections.singletonList(AUT_NUM);
+        }).iterator().next();
+
+        getResponse(query, AUT_NUM);
+        assertThat(searches.get(), is(2));
+    }
+
+    @Test
+    public void other_source_not_cached() {
+        final Query query = Query.parse("-r AS3333");
+        final Source other = Source.slave("TEST-GRS");
+
+        for (int i = 0; i < 2; i++) {
+            Lists.newArrayList(subject.getResponse(query, other, () -> {
+                searches.incrementAndGet();
+                return Collections.singletonList(AUT_NUM);
+            }));
+        }
+
+        assertThat(searches.get(), is(2));
+    }
+
+    private List<ResponseObject> getResponse(final Query query, final ResponseObject... responseObjects) {
+        return Lists.newArrayList(subject.getResponse(query, SOURCE, () -> {
+            searches.incrementAndGet();
+            return Lists.newArrayList(responseObjects);
+        }));
+    }
+
+    private static SerialChange change(final int serialId, final RpslObject rpslObject) {
+        return new SerialChange(serialId, SerialEntry.createSerialEntryWithoutTimestamps(Operation.UPDATE, true, rpslObject.getObjectId(), rpslObject.toByteArray()));
+    }
+}
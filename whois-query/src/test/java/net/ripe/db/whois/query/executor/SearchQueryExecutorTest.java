@@ -2,7 +2,9 @@ package net.ripe.db.whois.query.executor;
 
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.domain.ResponseObject;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
 import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.serials.SerialTailer;
 import net.ripe.db.whois.common.source.IllegalSourceException;
 import net.ripe.db.whois.common.source.Source;
 import net.ripe.db.whois.common.source.SourceContext;
@@ -15,7 +17,6 @@ import org.hamcrest.Matchers;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -43,10 +44,13 @@ public class SearchQueryExecutorTest {
     @Mock SourceContext sourceContext;
     @Mock RpslObjectSearcher rpslObjectSearcher;
     @Mock RpslResponseDecorator rpslResponseDecorator;
-    @InjectMocks SearchQueryExecutor subject;
+    @Mock SerialTailer serialTailer;
+    @Mock ResourceHierarchyCache resourceHierarchyCache;
+    SearchQueryExecutor subject;
 
     @Before
     public void setUp() throws Exception {
+        subject = new SearchQueryExecutor(sourceContext, rpslObjectSearcher, rpslResponseDecorator, new QueryResultCache(sourceContext, serialTailer, resourceHierarchyCache, false, 0, 0, 0));
         when(rpslObjectSearcher.search(any(Query.class), any(SourceContext.class))).thenReturn((Iterable)Collections.emptyList());
         when(rpslResponseDecorator.getResponse(any(Query.class), any(Iterable.class))).thenAnswer(new Answer<Object>() {
             @Override
@@ -15,6 +15,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Collections;
 import java.util.Iterator;
 
 import static org.hamcrest.core.Is.is;
@@ -33,7 +34,7 @@ public class FilterTagsDecoratorTest {
 
     @Test
     public void unrefInfo_for_unreferenced_role() {
-        when(tagsDao.getTags(1)).thenReturn(Lists.newArrayList(new Tag(CIString.ciString("unref"), 1, "34")));
+        when(tagsDao.getTags(Collections.singleton(1))).thenReturn(Collections.singletonMap(1, Lists.newArrayList(new Tag(CIString.ciString("unref"), 1, "34"))));
         final RpslObject role = RpslObject.parse(1, "role: Test Role\nnic-hdl: TR1-TEST");
         final Query query = Query.parse("--show-tag-info TR1-TEST");
 
@@ -48,7 +49,7 @@ public class FilterTagsDecoratorTest {
 
     @Test
     public void no_unrefInfo_for_referenced_mntner() {
-        when(tagsDao.getTags(1)).thenReturn(Lists.<Tag>newArrayList());
+        when(tagsDao.getTags(Collections.singleton(1))).thenReturn(Collections.emptyMap());
         final Query query = Query.parse("--show-tag-info TEST-MNT");
 
         final RpslObject mntner = RpslObject.parse(1, "mntner: TEST-MNT");
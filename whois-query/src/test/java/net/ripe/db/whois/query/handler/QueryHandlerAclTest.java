@@ -14,6 +14,7 @@ import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.executor.QueryExecutor;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -45,6 +46,7 @@ public class QueryHandlerAclTest {
     @Mock WhoisLog whoisLog;
     @Mock AccessControlListManager accessControlListManager;
     @Mock SourceContext sourceContext;
+    @Mock QueryTracer queryTracer;
     @Mock QueryExecutor queryExecutor;
     QueryHandler subject;
 
@@ -55,7 +57,7 @@ public class QueryHandlerAclTest {
 
     @Before
     public void setUp() throws Exception {
-        subject = new QueryHandler(whoisLog, accessControlListManager, sourceContext, queryExecutor);
+        subject = new QueryHandler(whoisLog, accessControlListManager, sourceContext, queryTracer, queryExecutor);
 
         message = new MessageObject("test");
         maintainer = RpslObject.parse("mntner: DEV-MNT");
@@ -11,6 +11,7 @@ import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.domain.ResponseHandler;
 import net.ripe.db.whois.query.executor.QueryExecutor;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -35,6 +36,7 @@ public class QueryHandlerBlockedTest {
     @Mock WhoisLog whoisLog;
     @Mock AccessControlListManager accessControlListManager;
     @Mock SourceContext sourceContext;
+    @Mock QueryTracer queryTracer;
     @Mock QueryExecutor queryExecutor;
     QueryHandler subject;
 
@@ -44,7 +46,7 @@ public class QueryHandlerBlockedTest {
 
     @Before
     public void setUp() throws Exception {
-        subject = new QueryHandler(whoisLog, accessControlListManager, sourceContext, queryExecutor);
+        subject = new QueryHandler(whoisLog, accessControlListManager, sourceContext, queryTracer, queryExecutor);
         when(queryExecutor.supports(any(Query.class))).thenReturn(true);
         when(queryExecutor.isAclSupported()).thenReturn(true);
     }
@@ -7,6 +7,7 @@ import net.ripe.db.whois.query.domain.QueryCompletionInfo;
 import net.ripe.db.whois.query.domain.QueryException;
 import net.ripe.db.whois.query.handler.QueryHandler;
 import net.ripe.db.whois.query.query.Query;
+import net.ripe.db.whois.query.trace.QueryTracer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
@@ -44,6 +45,7 @@ public class WhoisServerHandlerTest {
     @Mock MessageEvent messageEvent;
 
     @Mock QueryHandler queryHandler;
+    @Mock QueryTracer queryTracer;
     @InjectMocks WhoisServerHandler subject;
 
     InetAddress inetAddress = InetAddresses.forString("10.0.0.1");
@@ -10,6 +10,7 @@ import net.ripe.db.whois.common.ip.Ipv4Resource;
 import net.ripe.db.whois.common.iptree.Ipv4Entry;
 import net.ripe.db.whois.common.iptree.Ipv4Tree;
 import net.ripe.db.whois.common.iptree.Ipv6Tree;
+import net.ripe.db.whois.common.iptree.ResourceHierarchyCache;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.query.dao.AbuseValidationStatusDao;
@@ -18,6 +19,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -41,6 +43,7 @@ public class AbuseCFinderTest {
     @Mock RpslObjectDao objectDao;
     @Mock Maintainers maintainers;
     @Mock AbuseValidationStatusDao abuseValidationStatusDao;
+    @Spy ResourceHierarchyCache resourceHierarchyCache = new ResourceHierarchyCache(null, null, false, 0);
 
     @InjectMocks AbuseCFinder subject;
 
@@ -12,7 +12,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -55,4 +57,11 @@ public class RelatedToDecoratorTest {
         verify(rpslObjectDao, times(1)).relatedTo(rpslObject, Sets.newEnumSet(Lists.newArrayList(ObjectType.PERSON, ObjectType.ROLE), ObjectType.class));
     }
 
+    @Test
+    public void decorate_window() {
+        final List<RpslObject> rpslObjects = Arrays.asList(RpslObject.parse("mntner: DEV-MNT"), RpslObject.parse("mntner: TEST-MNT"));
+        subject.decorate(Query.parse("DEV-MNT"), rpslObjects);
+
+        verify(rpslObjectDao, times(1)).relatedTo(rpslObjects, Collections.<ObjectType>emptySet());
+    }
 }
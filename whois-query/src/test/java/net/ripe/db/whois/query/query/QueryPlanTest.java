@@ -0,0 +1,72 @@
+package net.ripe.db.whois.query.query;
+
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class QueryPlanTest {
+
+    @Before
+    public void setup() {
+        QueryPlan.clear();
+    }
+
+    @Test
+    public void same_shape_different_search_key() {
+        Query.parse("-rBG -T inetnum 10.0.0.0/24");
+        final Query query = Query.parse("-rBG -T inetnum 10.0.1.0/24");
+
+        assertThat(query.getSearchValue(), is("10.0.1.0 - 10.0.1.255"));
+        assertThat(query.toString(), is("-rBG -T inetnum 10.0.1.0/24"));
+        assertThat(query.getObjectTypes(), contains(ObjectType.INETNUM));
+        assertThat(query.isGrouping(), is(false));
+        assertThat(query.isReturningReferencedObjects(), is(false));
+    }
+
+    @Test
+    public void same_shape_different_kind_of_search_key() {
+        final Query ipQuery = Query.parse("-r 10.0.0.0");
+        final Query asSetQuery = Query.parse("-r AS-TEST");
+        final Query mntnerQuery = Query.parse("-r TEST-MNT");
+
+        assertThat(ipQuery.getObjectTypes(), hasItem(ObjectType.INETNUM));
+        assertThat(ipQuery.getObjectTypes(), not(hasItem(ObjectType.AS_SET)));
+        assertThat(asSetQuery.getObjectTypes(), hasItem(ObjectType.AS_SET));
+        assertThat(mntnerQuery.getLookupAttributes(ObjectType.MNTNER), contains(AttributeType.MNTNER));
+        assertThat(ipQuery.getLookupAttributes(ObjectType.MNTNER).isEmpty(), is(true));
+    }
+
+    @Test
+    public void option_argument_is_not_search_key() {
+        Query.parse("foo -T inetnum");
+        final Query query = Query.parse("bar -T inetnum");
+
+        assertThat(query.getSearchValue(), is("bar"));
+        assertThat(query.getObjectTypes(), contains(ObjectType.INETNUM));
+    }
+
+    @Test
+    public void search_key_of_multiple_arguments() {
+        Query.parse("-T person John Smith");
+        final Query query = Query.parse("-T person Jane Smith");
+
+        assertThat(query.getSearchValue(), is("Jane Smith"));
+        assertThat(query.getObjectTypes(), contains(ObjectType.PERSON));
+    }
+
+    @Test
+    public void flag_after_search_key() {
+        Query.parse("foo -r");
+        final Query query = Query.parse("bar -r");
+
+        assertThat(query.getSearchValue(), is("bar"));
+        assertThat(query.isReturningReferencedObjects(), is(false));
+    }
+}
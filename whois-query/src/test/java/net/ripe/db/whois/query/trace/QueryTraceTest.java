@@ -0,0 +1,96 @@
+package net.ripe.db.whois.query.trace;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class QueryTraceTest {
+    private final QueryTracer subject = new QueryTracer(true, 1000, 0, "/dev/null", "", 10);
+
+    @After
+    public void tearDown() {
+        QueryTrace.bind(null);
+    }
+
+    @Test
+    public void not_traced_without_trace() {
+        final List<String> iterable = Lists.newArrayList("a");
+
+        assertThat(QueryTrace.current(), is(nullValue()));
+        assertThat(QueryTrace.timed("stage", iterable), sameInstance(iterable));
+    }
+
+    @Test
+    public void disabled() {
+        final QueryTracer disabled = new QueryTracer(false, 1000, 0, "/dev/null", "", 10);
+
+        assertThat(disabled.start("whois.query"), is(nullValue()));
+        assertThat(QueryTrace.current(), is(nullValue()));
+    }
+
+    @Test
+    public void lazy_stages_timed_exclusive() {
+        final QueryTrace trace = subject.start("whois.query");
+
+        final Iterable<String> search = QueryTrace.timed("search", Lists.newArrayList("a", "b", "c"));
+        final Iterable<String> decorate = QueryTrace.timed("decorate", search);
+        for (final String ignored : decorate) {
+            try (QueryTrace.Span span = QueryTrace.span("write")) {
+                // nothing
+            }
+        }
+        subject.finish(trace);
+
+        assertThat(QueryTrace.current(), is(nullValue()));
+
+        final List<String> names = Lists.newArrayList();
+        long selfNanos = 0;
+        for (final QueryTrace.Stage stage : trace.getStages()) {
+            names.add(stage.getName());
+            selfNanos += stage.getSelfNanos();
+        }
+
+        assertThat(names, contains("search", "decorate", "write"));
+        assertThat(trace.getStages().get(2).getCalls(), is(3));
+        assertThat(selfNanos, lessThanOrEqualTo(trace.getDurationNanos()));
+    }
+
+    @Test
+    public void slow_and_failed_queries_sampled() {
+        final QueryTrace fast = new QueryTrace("whois.query");
+        fast.end();
+        assertThat(subject.isSampled(fast), is(false));
+
+        final QueryTrace failed = new QueryTrace("whois.query");
+        failed.setError();
+        failed.end();
+        assertThat(subject.isSampled(failed), is(true));
+
+        final QueryTracer slow = new QueryTracer(true, 0, 0, "/dev/null", "", 10);
+        assertThat(slow.isSampled(fast), is(true));
+    }
+
+    @Test
+    public void otlp_json() {
+        final QueryTrace trace = new QueryTrace("whois.query");
+        trace.setAttribute("whois.query", "-B 10.0.0.0");
+        trace.record("flush", System.nanoTime(), System.nanoTime());
+        trace.end();
+
+        final String json = OtlpJson.toJson("whois", Lists.newArrayList(trace));
+
+        assertThat(json, containsString("\"traceId\":\"" + trace.getTraceId() + "\""));
+        assertThat(json, containsString("\"parentSpanId\":\"" + trace.getSpanId() + "\",\"name\":\"flush\""));
+        assertThat(json, containsString("{\"key\":\"whois.query\",\"value\":{\"stringValue\":\"-B 10.0.0.0\"}}"));
+    }
+}
@@ -1,6 +1,9 @@
 package net.ripe.db.whois.common.rpsl;
 
 import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import net.ripe.db.whois.common.generated.AggrBndryParser;
 import net.ripe.db.whois.common.generated.AggrMtdParser;
 import net.ripe.db.whois.common.generated.ComponentsParser;
@@ -34,6 +37,7 @@ import net.ripe.db.whois.common.rpsl.attrs.OrgType;
 import net.ripe.db.whois.common.rpsl.attrs.RangeOperation;
 
 import java.util.HashMap;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -73,10 +77,10 @@ public interface AttributeSyntax extends Documented {
             "name components of a hierarchical as-name have to be as-set\n" +
             "names. The total length should not exceed 80 characters (octets).\n");
 
-    AttributeSyntax AGGR_BNDRY_SYNTAX = new AttributeSyntaxParser(new AggrBndryParser(), "" +
+    AttributeSyntax AGGR_BNDRY_SYNTAX = new AttributeSyntaxParser(() -> new AggrBndryParser(), "" +
             "[<as-expression>]\n");
 
-    AttributeSyntax AGGR_MTD_SYNTAX = new AttributeSyntaxParser(new AggrMtdParser(), "" +
+    AttributeSyntax AGGR_MTD_SYNTAX = new AttributeSyntaxParser(() -> new AggrMtdParser(), "" +
             "inbound | outbound [<as-expression>]\n");
 
     AttributeSyntax AUTH_SCHEME_SYNTAX = new AttributeSyntaxRegexp(
@@ -128,7 +132,7 @@ public interface AttributeSyntax extends Documented {
 
     AttributeSyntax COMPONENTS_SYNTAX = new ComponentsSyntax();
 
-    AttributeSyntax DEFAULT_SYNTAX = new AttributeSyntaxParser(new DefaultParser(), "" +
+    AttributeSyntax DEFAULT_SYNTAX = new AttributeSyntaxParser(() -> new DefaultParser(), "" +
             "to <peering> [action <action>] [networks <filter>]");
 
     AttributeSyntax DOMAIN_SYNTAX = new AttributeSyntaxParser(new AttributeParser.DomainParser(), "" +
@@ -155,7 +159,7 @@ public interface AttributeSyntax extends Documented {
 
     AttributeSyntax EXPORT_COMPS_SYNTAX = new ExportCompsSyntax();
 
-    AttributeSyntax EXPORT_SYNTAX = new AttributeSyntaxParser(new ExportParser(), "" +
+    AttributeSyntax EXPORT_SYNTAX = new AttributeSyntaxParser(() -> new ExportParser(), "" +
             "[protocol <protocol-1>] [into <protocol-1>]\n" +
             "to <peering-1> [action <action-1>]\n" +
             "    .\n" +
@@ -164,7 +168,7 @@ public interface AttributeSyntax extends Documented {
             "to <peering-N> [action <action-N>]\n" +
             "announce <filter>\n");
 
-    AttributeSyntax FILTER_SYNTAX = new AttributeSyntaxParser(new FilterParser(), "" +
+    AttributeSyntax FILTER_SYNTAX = new AttributeSyntaxParser(() -> new FilterParser(), "" +
             "Logical expression which when applied to a set of routes\n" +
             "returns a subset of these routes. Please refer to RFC 2622\n" +
             "for more information.\n");
@@ -190,7 +194,7 @@ public interface AttributeSyntax extends Documented {
 
     AttributeSyntax GEOLOC_SYNTAX = new GeolocSyntax();
     AttributeSyntax HOLES_SYNTAX = new RoutePrefixSyntax();
-    AttributeSyntax IMPORT_SYNTAX = new AttributeSyntaxParser(new ImportParser(), "" +
+    AttributeSyntax IMPORT_SYNTAX = new AttributeSyntaxParser(() -> new ImportParser(), "" +
             "[protocol <protocol-1>] [into <protocol-1>]\n" +
             "from <peering-1> [action <action-1>]\n" +
             "    .\n" +
@@ -206,12 +210,12 @@ public interface AttributeSyntax extends Documented {
             "254 characters (octets).\n"
     );
 
-    AttributeSyntax IFADDR_SYNTAX = new AttributeSyntaxParser(new IfaddrParser(), "" +
+    AttributeSyntax IFADDR_SYNTAX = new AttributeSyntaxParser(() -> new IfaddrParser(), "" +
             "<ipv4-address> masklen <integer> [action <action>]");
 
     AttributeSyntax INJECT_SYNTAX = new InjectSyntax();
 
-    AttributeSyntax INTERFACE_SYNTAX = new AttributeSyntaxParser(new InterfaceParser(), "" +
+    AttributeSyntax INTERFACE_SYNTAX = new AttributeSyntaxParser(() -> new InterfaceParser(), "" +
             "afi <afi> <ipv4-address> masklen <integer> [action <action>]\n" +
             "afi <afi> <ipv6-address> masklen <integer> [action <action>]\n" +
             "          [tunnel <remote-endpoint-address>,<encapsulation>]\n");
@@ -257,10 +261,10 @@ public interface AttributeSyntax extends Documented {
         put(ObjectType.ROUTE6, "<mnt-name> [ { list of <ipv6-address>/<prefix> } | ANY ]\n");
     }}));
 
-    AttributeSyntax MP_DEFAULT_SYNTAX = new AttributeSyntaxParser(new MpDefaultParser(), "" +
+    AttributeSyntax MP_DEFAULT_SYNTAX = new AttributeSyntaxParser(() -> new MpDefaultParser(), "" +
             "to <peering> [action <action>] [networks <filter>]\n");
 
-    AttributeSyntax MP_EXPORT_SYNTAX = new AttributeSyntaxParser(new MpExportParser(), "" +
+    AttributeSyntax MP_EXPORT_SYNTAX = new AttributeSyntaxParser(() -> new MpExportParser(), "" +
             "[protocol <protocol-1>] [into <protocol-1>]\n" +
             "afi <afi-list>\n" +
             "to <peering-1> [action <action-1>]\n" +
@@ -270,7 +274,7 @@ public interface AttributeSyntax extends Documented {
             "to <peering-N> [action <action-N>]\n" +
             "announce <filter>\n");
 
-    AttributeSyntax EXPORT_VIA_SYNTAX = new AttributeSyntaxParser(new ExportViaParser(), "" +
+    AttributeSyntax EXPORT_VIA_SYNTAX = new AttributeSyntaxParser(() -> new ExportViaParser(), "" +
             "[protocol <protocol-1>] [into <protocol-2>]   \n" +
             "afi <afi-list>\n" +
             "<peering-1>\n" +
@@ -282,12 +286,12 @@ public interface AttributeSyntax extends Documented {
             "to <peering-M> [action <action-1>; <action-2>; ... <action-N>;]\n" +
             "announce <filter>\n");
 
-    AttributeSyntax MP_FILTER_SYNTAX = new AttributeSyntaxParser(new MpFilterParser(), "" +
+    AttributeSyntax MP_FILTER_SYNTAX = new AttributeSyntaxParser(() -> new MpFilterParser(), "" +
             "Logical expression which when applied to a set of multiprotocol\n" +
             "routes returns a subset of these routes. Please refer to RPSLng\n" +
             "Internet Draft for more information.\n");
 
-    AttributeSyntax MP_IMPORT_SYNTAX = new AttributeSyntaxParser(new MpImportParser(), "" +
+    AttributeSyntax MP_IMPORT_SYNTAX = new AttributeSyntaxParser(() -> new MpImportParser(), "" +
             "[protocol <protocol-1>] [into <protocol-1>]\n" +
             "afi <afi-list>\n" +
             "from <peering-1> [action <action-1>]\n" +
@@ -298,7 +302,7 @@ public interface AttributeSyntax extends Documented {
             "accept (<filter>|<filter> except <importexpression>|\n" +
             "        <filter> refine <importexpression>)\n");
 
-    AttributeSyntax IMPORT_VIA_SYNTAX = new AttributeSyntaxParser(new ImportViaParser(), "" +
+    AttributeSyntax IMPORT_VIA_SYNTAX = new AttributeSyntaxParser(() -> new ImportViaParser(), "" +
             "[protocol <protocol-1>] [into <protocol-2>]\n" +
             "afi <afi-list>\n" +
             "<peering-1>\n" +
@@ -313,7 +317,7 @@ public interface AttributeSyntax extends Documented {
 
     AttributeSyntax MP_MEMBERS_SYNTAX = new MembersSyntax(true);
 
-    AttributeSyntax MP_PEER_SYNTAX = new AttributeSyntaxParser(new MpPeerParser(), new Multiple(new HashMap<ObjectType, String>() {{
+    AttributeSyntax MP_PEER_SYNTAX = new AttributeSyntaxParser(() -> new MpPeerParser(), new Multiple(new HashMap<ObjectType, String>() {{
         put(ObjectType.INET_RTR, "" +
                 "<protocol> afi <afi> <ipv4- or ipv6- address> <options>\n" +
                 "| <protocol> <inet-rtr-name> <options>\n" +
@@ -325,7 +329,7 @@ public interface AttributeSyntax extends Documented {
 
     }}));
 
-    AttributeSyntax MP_PEERING_SYNTAX = new AttributeSyntaxParser(new MpPeeringParser(), "" +
+    AttributeSyntax MP_PEERING_SYNTAX = new AttributeSyntaxParser(() -> new MpPeeringParser(), "" +
             "<as-expression> [<mp-router-expression-1>] [at <mp-router-expression-2>] | <peering-set-name>\n");
 
     AttributeSyntax NETNAME_SYNTAX = new AttributeSyntaxRegexp(80, Pattern.compile("(?i)^[A-Z]([A-Z0-9_-]*[A-Z0-9])?$"), "" +
@@ -400,13 +404,13 @@ public interface AttributeSyntax extends Documented {
 
     AttributeSyntax ORG_TYPE_SYNTAX = new OrgTypeSyntax();
 
-    AttributeSyntax PEER_SYNTAX = new AttributeSyntaxParser(new PeerParser(), "" +
+    AttributeSyntax PEER_SYNTAX = new AttributeSyntaxParser(() -> new PeerParser(), "" +
             "<protocol> <ipv4-address> <options>\n" +
             "| <protocol> <inet-rtr-name> <options>\n" +
             "| <protocol> <rtr-set-name> <options>\n" +
             "| <protocol> <peering-set-name> <options>\n");
 
-    AttributeSyntax PEERING_SYNTAX = new AttributeSyntaxParser(new PeeringParser(), "" +
+    AttributeSyntax PEERING_SYNTAX = new AttributeSyntaxParser(() -> new PeeringParser(), "" +
             "<peering>\n");
 
     AttributeSyntax PERSON_ROLE_NAME_SYNTAX = new PersonRoleSyntax();
@@ -942,13 +946,16 @@ public interface AttributeSyntax extends Documented {
     }
 
     class ComponentsSyntax implements AttributeSyntax {
+        private static final AttributeSyntax ROUTE_COMPONENTS_SYNTAX = new AttributeSyntaxParser(() -> new ComponentsParser());
+        private static final AttributeSyntax ROUTE6_COMPONENTS_SYNTAX = new AttributeSyntaxParser(() -> new ComponentsR6Parser());
+
         @Override
         public boolean matches(final ObjectType objectType, final String value) {
             switch (objectType) {
                 case ROUTE:
-                    return new AttributeSyntaxParser(new ComponentsParser()).matches(objectType, value);
+                    return ROUTE_COMPONENTS_SYNTAX.matches(objectType, value);
                 case ROUTE6:
-                    return new AttributeSyntaxParser(new ComponentsR6Parser()).matches(objectType, value);
+                    return ROUTE6_COMPONENTS_SYNTAX.matches(objectType, value);
                 default:
                     return false;
             }
@@ -968,13 +975,16 @@ public interface AttributeSyntax extends Documented {
 
 
     class ExportCompsSyntax implements AttributeSyntax {
+        private static final AttributeSyntax ROUTE_FILTER_SYNTAX = new AttributeSyntaxParser(() -> new FilterParser());
+        private static final AttributeSyntax ROUTE6_FILTER_SYNTAX = new AttributeSyntaxParser(() -> new V6FilterParser());
+
         @Override
         public boolean matches(final ObjectType objectType, final String value) {
             switch (objectType) {
                 case ROUTE:
-                    return new AttributeSyntaxParser(new FilterParser()).matches(objectType, value);
+                    return ROUTE_FILTER_SYNTAX.matches(objectType, value);
                 case ROUTE6:
-                    return new AttributeSyntaxParser(new V6FilterParser()).matches(objectType, value);
+                    return ROUTE6_FILTER_SYNTAX.matches(objectType, value);
                 default:
                     return false;
             }
@@ -1000,14 +1010,17 @@ public interface AttributeSyntax extends Documented {
     }
 
     class InjectSyntax implements AttributeSyntax {
+        private static final AttributeSyntax ROUTE_INJECT_SYNTAX = new AttributeSyntaxParser(() -> new InjectParser());
+        private static final AttributeSyntax ROUTE6_INJECT_SYNTAX = new AttributeSyntaxParser(() -> new InjectR6Parser());
+
         @Override
         public boolean matches(final ObjectType objectType, final String value) {
             switch (objectType) {
                 case ROUTE:
-                    return new AttributeSyntaxParser(new InjectParser()).matches(objectType, value);
+                    return ROUTE_INJECT_SYNTAX.matches(objectType, value);
 
                 case ROUTE6:
-                    return new AttributeSyntaxParser(new InjectR6Parser()).matches(objectType, value);
+                    return ROUTE6_INJECT_SYNTAX.matches(objectType, value);
 
                 default:
                     return false;
@@ -1023,27 +1036,82 @@ public interface AttributeSyntax extends Documented {
         }
     }
 
+    /**
+     * Syntax checked by an {@link AttributeParser}.
+     *
+     * The generated (byacc/jflex) parsers keep their state in the parser instance, so they are passed as a supplier
+     * and every thread gets its own instance. Parsers passed as instance must not keep state.
+     *
+     * Policy attributes are costly to parse, and the same values occur over and over (e.g. in GRS imports), so the
+     * results of the generated parsers are remembered in a bounded cache. The simple parsers are not cached, so their
+     * (often unique) values don't evict the policy expressions. The result of a parser does not depend on the object
+     * type, and the generated lexers skip all whitespace between tokens, so the cache is keyed on the syntax and the
+     * value with its whitespace normalised.
+     */
     class AttributeSyntaxParser implements AttributeSyntax {
-        private final AttributeParser attributeParser;
+        private static final int CACHE_SIZE = 100_000;
+        private static final int MAX_CACHED_VALUE_LENGTH = 1_000;
+        private static final Pattern WHITESPACE = Pattern.compile("[ \\t\\n]+");
+
+        private static final Cache<CacheKey, Boolean> RESULTS = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_SIZE)
+                .recordStats()
+                .build();
+
+        private final ThreadLocal<AttributeParser<?>> attributeParser;
         private final Documented description;
+        private final boolean cached;
 
-        public AttributeSyntaxParser(final AttributeParser attributeParser) {
+        public AttributeSyntaxParser(final AttributeParser<?> attributeParser) {
             this(attributeParser, "");
         }
 
-        public AttributeSyntaxParser(final AttributeParser attributeParser, final String description) {
+        public AttributeSyntaxParser(final AttributeParser<?> attributeParser, final String description) {
             this(attributeParser, new Single(description));
         }
 
-        public AttributeSyntaxParser(final AttributeParser attributeParser, final Documented description) {
-            this.attributeParser = attributeParser;
+        public AttributeSyntaxParser(final AttributeParser<?> attributeParser, final Documented description) {
+            this(() -> attributeParser, description, false);
+        }
+
+        public AttributeSyntaxParser(final Supplier<? extends AttributeParser<?>> attributeParserSupplier) {
+            this(attributeParserSupplier, "");
+        }
+
+        public AttributeSyntaxParser(final Supplier<? extends AttributeParser<?>> attributeParserSupplier, final String description) {
+            this(attributeParserSupplier, new Single(description));
+        }
+
+        public AttributeSyntaxParser(final Supplier<? extends AttributeParser<?>> attributeParserSupplier, final Documented description) {
+            this(attributeParserSupplier, description, true);
+        }
+
+        private AttributeSyntaxParser(final Supplier<? extends AttributeParser<?>> attributeParserSupplier, final Documented description, final boolean cached) {
+            this.attributeParser = ThreadLocal.withInitial(attributeParserSupplier);
             this.description = description;
+            this.cached = cached;
         }
 
         @Override
         public boolean matches(final ObjectType objectType, final String value) {
+            if (!cached || value.length() > MAX_CACHED_VALUE_LENGTH) {
+                return parse(value);
+            }
+
+            final CacheKey cacheKey = new CacheKey(this, normalise(value));
+            final Boolean cached = RESULTS.getIfPresent(cacheKey);
+            if (cached != null) {
+                return cached;
+            }
+
+            final boolean result = parse(value);
+            RESULTS.put(cacheKey, result);
+            return result;
+        }
+
+        private boolean parse(final String value) {
             try {
-                attributeParser.parse(value);
+                attributeParser.get().parse(value);
                 return true;
             } catch (IllegalArgumentException ignored) {
                 return false;
@@ -1054,6 +1122,53 @@ public interface AttributeSyntax extends Documented {
         public String getDescription(final ObjectType objectType) {
             return description.getDescription(objectType);
         }
+
+        static String normalise(final String value) {
+            final String result = WHITESPACE.matcher(value).replaceAll(" ");
+            final int begin = result.startsWith(" ") ? 1 : 0;
+            final int end = result.endsWith(" ") ? result.length() - 1 : result.length();
+            return begin < end ? result.substring(begin, end) : "";
+        }
+
+        public static CacheStats getCacheStats() {
+            return RESULTS.stats();
+        }
+
+        public static long getCacheSize() {
+            return RESULTS.size();
+        }
+
+        public static void clearCache() {
+            RESULTS.invalidateAll();
+        }
+
+        private static final class CacheKey {
+            private final AttributeSyntaxParser syntax;
+            private final String value;
+
+            private CacheKey(final AttributeSyntaxParser syntax, final String value) {
+                this.syntax = syntax;
+                this.value = value;
+            }
+
+            @Override
+            public boolean equals(final Object o) {
+                if (this == o) {
+                    return true;
+                }
+                if (o == null || getClass() != o.getClass()) {
+                    return false;
+                }
+
+                final CacheKey that = (CacheKey) o;
+                return syntax == that.syntax && value.equals(that.value);
+            }
+
+            @Override
+            public int hashCode() {
+                return 31 * System.identityHashCode(syntax) + value.hashCode();
+            }
+        }
     }
 
     boolean matches(ObjectType objectType, String value);
@@ -1,7 +1,13 @@
 package net.ripe.db.whois.common.rpsl;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -1303,6 +1309,59 @@ public class AttributeSyntaxTest {
         verifySuccess(ObjectType.AS_SET, AttributeType.TECH_C, "HIA1-ARIN");
     }
 
+    @Test
+    public void parser_results_are_cached() {
+        final String value = "from AS1 accept ANY";
+        final long hits = AttributeSyntax.AttributeSyntaxParser.getCacheStats().hitCount();
+
+        verifySuccess(ObjectType.AUT_NUM, AttributeType.IMPORT, value);
+        verifySuccess(ObjectType.AUT_NUM, AttributeType.IMPORT, value);
+        verifyFailure(ObjectType.AUT_NUM, AttributeType.EXPORT, value);
+        verifyFailure(ObjectType.AUT_NUM, AttributeType.EXPORT, value);
+
+        assertThat(AttributeSyntax.AttributeSyntaxParser.getCacheStats().hitCount() - hits >= 2, is(true));
+    }
+
+    @Test
+    public void parser_results_cached_on_normalised_whitespace() {
+        final long hits = AttributeSyntax.AttributeSyntaxParser.getCacheStats().hitCount();
+
+        assertThat(AttributeSyntax.IMPORT_SYNTAX.matches(ObjectType.AUT_NUM, "from AS64496 accept AS64497"), is(true));
+        assertThat(AttributeSyntax.IMPORT_SYNTAX.matches(ObjectType.AUT_NUM, "  from\tAS64496   accept\n AS64497 "), is(true));
+
+        assertThat(AttributeSyntax.AttributeSyntaxParser.getCacheStats().hitCount() - hits, is(1L));
+        assertThat(AttributeSyntax.AttributeSyntaxParser.normalise(" from\tAS2  accept\n AS3\n"), is("from AS2 accept AS3"));
+    }
+
+    @Test
+    public void simple_parser_results_not_cached() {
+        final long size = AttributeSyntax.AttributeSyntaxParser.getCacheSize();
+
+        verifySuccess(ObjectType.ROUTE, AttributeType.ROUTE, "10.1.2.0/24");
+        verifySuccess(ObjectType.DOMAIN, AttributeType.NSERVER, "ns1.example.net");
+
+        assertThat(AttributeSyntax.AttributeSyntaxParser.getCacheSize(), is(size));
+    }
+
+    @Test
+    public void parsers_are_used_in_parallel() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<Boolean>> results = Lists.newArrayList();
+            for (int i = 0; i < 1000; i++) {
+                final String value = String.format("from AS%d accept AS%d", i, i + 1);
+                final String invalid = String.format("from AS%d accept", i);
+                results.add(executorService.submit(() -> AttributeSyntax.IMPORT_SYNTAX.matches(ObjectType.AUT_NUM, value) && !AttributeSyntax.IMPORT_SYNTAX.matches(ObjectType.AUT_NUM, invalid)));
+            }
+
+            for (final Future<Boolean> result : results) {
+                assertThat(result.get(), is(true));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     private void verifySuccess(final ObjectType objectType, final AttributeType attributeType, final String value) {
         verify(objectType, attributeType, value, false);
     }
@@ -1,6 +1,7 @@
 package net.ripe.db.whois.scheduler.task.export;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
 import net.ripe.db.whois.common.dao.TagsDao;
 import net.ripe.db.whois.common.domain.Tag;
 import net.ripe.db.whois.common.rpsl.RpslObject;
@@ -19,7 +20,9 @@ import org.springframework.util.FileSystemUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
@@ -107,6 +110,7 @@ class RpslObjectsExporter {
             final TextFileExporter textFileExporter = new TextFileExporter(exportFileWriters);
             try {
                 exportDao.exportObjects(textFileExporter);
+                textFileExporter.flush();
             } finally {
                 textFileExporter.logNrExported();
             }
@@ -119,7 +123,9 @@ class RpslObjectsExporter {
 
     private final class TextFileExporter implements ExportCallbackHandler {
         private static final int LOG_EVERY = 500000;
+        private static final int WINDOW_SIZE = 1000;
         private final Iterable<ExportFileWriter> exportFileWriters;
+        private final List<RpslObject> window = Lists.newArrayListWithExpectedSize(WINDOW_SIZE);
 
         private int lastLogged = -1;
         private int nrExported = 0;
@@ -130,18 +136,43 @@ class RpslObjectsExporter {
 
         @Override
         public void exportObject(final RpslObject object) {
-            final List<Tag> tags = tagsDao.getTags(object.getObjectId());
-            for (final ExportFileWriter exportFileWriter : exportFileWriters) {
-                try {
-                    exportFileWriter.write(object, tags);
-                } catch (IOException e) {
-                    throw new RuntimeException("Exporting to " + exportFileWriter, e);
-                }
+            window.add(object);
+            if (window.size() == WINDOW_SIZE) {
+                flush();
+            }
+        }
+
+        public void flush() {
+            if (window.isEmpty()) {
+                return;
+            }
+
+            // objects are exported in object id order, so the tags of a window are in a small range of the tags table
+            int fromObjectId = Integer.MAX_VALUE;
+            int toObjectId = Integer.MIN_VALUE;
+            for (final RpslObject object : window) {
+                fromObjectId = Math.min(fromObjectId, object.getObjectId());
+                toObjectId = Math.max(toObjectId, object.getObjectId());
             }
 
-            if (++nrExported % LOG_EVERY == 0) {
-                logNrExported();
+            final Map<Integer, List<Tag>> tagsByObjectId = tagsDao.getTagsInRange(fromObjectId, toObjectId);
+
+            for (final RpslObject object : window) {
+                final List<Tag> tags = tagsByObjectId.getOrDefault(object.getObjectId(), Collections.emptyList());
+                for (final ExportFileWriter exportFileWriter : exportFileWriters) {
+                    try {
+                        exportFileWriter.write(object, tags);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Exporting to " + exportFileWriter, e);
+                    }
+                }
+
+                if (++nrExported % LOG_EVERY == 0) {
+                    logNrExported();
+                }
             }
+
+            window.clear();
         }
 
         public void logNrExported() {
@@ -3,5 +3,8 @@ package net.ripe.db.whois.scheduler.task.export.dao;
 public interface ExportDao {
     int getMaxSerial();
 
+    /**
+     * Export all objects, in object id order.
+     */
     void exportObjects(ExportCallbackHandler exportCallbackHandler);
 }
@@ -35,7 +35,8 @@ class JdbcExportDao implements ExportDao {
         JdbcStreamingHelper.executeStreaming(jdbcTemplate,
                 "SELECT object_id, object " +
                         "FROM last " +
-                        "WHERE sequence_id != 0 ",
+                        "WHERE sequence_id != 0 " +
+                        "ORDER BY object_id",
                 new ExportRowCallbackHandler(exportCallbackHandler));
     }
 
@@ -22,6 +22,7 @@ public class Bootstrap implements DailyScheduledTask {
 
     private final LoaderRisky loaderRisky;
     private final LoaderSafe loaderSafe;
+    private final LoaderBulk loaderBulk;
     private final SourceContext sourceContext;
 
     private final FullTextIndex fullTextIndex;
@@ -29,11 +30,15 @@ public class Bootstrap implements DailyScheduledTask {
     @Value("${bootstrap.dumpfile:}")
     private String[] dumpFileLocation;
 
+    @Value("${bootstrap.bulk:false}")
+    private boolean bulk;
+
     @Autowired
-    public Bootstrap(final LoaderRisky loaderRisky, final LoaderSafe loaderSafe,
+    public Bootstrap(final LoaderRisky loaderRisky, final LoaderSafe loaderSafe, final LoaderBulk loaderBulk,
                      final SourceContext sourceContext, final FullTextIndex fullTextIndex) {
         this.loaderRisky = loaderRisky;
         this.loaderSafe = loaderSafe;
+        this.loaderBulk = loaderBulk;
         this.sourceContext = sourceContext;
         this.fullTextIndex = fullTextIndex;
     }
@@ -42,19 +47,24 @@ public class Bootstrap implements DailyScheduledTask {
         this.dumpFileLocation = testDumpFileLocation;
     }
 
+    public void setBulk(final boolean bulk) {
+        this.bulk = bulk;
+    }
+
     public String bootstrap() {
         if (dumpFileLocation == null || dumpFileLocation.length == 0 || dumpFileLocation[0] == null || dumpFileLocation[0].length() == 0) {
             return "Bootstrap is not enabled (dump file undefined)";
         }
         try {
             sourceContext.setCurrentSourceToWhoisMaster();
-            loaderRisky.resetDatabase();
+            final Loader loader = bulk ? loaderBulk : loaderRisky;
+            loader.resetDatabase();
 
             // wait until trees pick up empty DB to avoid case where few updates done and new objects added to text dump result in
             // treeupdaters not recognising rebuild is needed
             Uninterruptibles.sleepUninterruptibly(IpTreeUpdater.TREE_UPDATE_IN_SECONDS, TimeUnit.SECONDS);
 
-            final String result = loaderRisky.loadSplitFiles(dumpFileLocation);
+            final String result = loader.loadSplitFiles(dumpFileLocation);
 
             fullTextIndex.rebuild();
 
@@ -72,6 +82,10 @@ public class Bootstrap implements DailyScheduledTask {
         return loadTextDump(dumpfile, loaderRisky);
     }
 
+    public String loadTextDumpBulk(String[] dumpfile) {
+        return loadTextDump(dumpfile, loaderBulk);
+    }
+
     private String loadTextDump(String[] dumpfile, final Loader loader) {
         try {
             sourceContext.setCurrentSourceToWhoisMaster();
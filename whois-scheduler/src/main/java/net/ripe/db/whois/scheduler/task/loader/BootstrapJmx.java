@@ -43,6 +43,16 @@ public class BootstrapJmx extends JmxBase {
         return invokeOperation("Load dump", comment, () -> bootstrap.loadTextDumpRisky(filenames.split(",")));
     }
 
+    @ManagedOperation(description = "Load text dump into empty main database, \n" +
+            "fast bulk mode in a single pass, non transactional, it DOES NOT use global update lock!)")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "comment", description = "Optional comment for invoking the operation"),
+            @ManagedOperationParameter(name = "filenames", description = "Comma separated list of paths to the dump files")
+    })
+    public String loadDumpBulk(final String comment, final String filenames) {
+        return invokeOperation("Load dump", comment, () -> bootstrap.loadTextDumpBulk(filenames.split(",")));
+    }
+
     @ManagedOperation(description = "Run nightly bootstrap (destructive, deletes database before load)  (DOES NOT use global update lock!)")
     @ManagedOperationParameters({
             @ManagedOperationParameter(name = "comment", description = "Optional comment for invoking the operation")
@@ -0,0 +1,264 @@
+package net.ripe.db.whois.scheduler.task.loader;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.dao.RpslObjectInfo;
+import net.ripe.db.whois.common.dao.jdbc.domain.ObjectTypeIds;
+import net.ripe.db.whois.common.dao.jdbc.index.BatchIndexWriter;
+import net.ripe.db.whois.common.dao.jdbc.index.ReferenceResolver;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.io.RpslObjectFileReader;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.rpsl.RpslObjectBuilder;
+import net.ripe.db.whois.common.rpsl.RpslObjectFilter;
+import org.apache.commons.lang.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.sql.DataSource;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.deleteFromTables;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.insertIntoTablesIgnoreMissing;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.loadScripts;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.now;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.sanityCheck;
+import static net.ripe.db.whois.common.dao.jdbc.JdbcRpslObjectOperations.truncateTables;
+
+/**
+ * Single pass bulk loader for an empty database.
+ *
+ * All objects are read into memory up front, so object ids can be assigned before anything is written and references
+ * can be resolved in memory. The last and serials tables and the index tables are then written in JDBC batches.
+ * No history is created, every object gets a single serial.
+ */
+@Component
+public class LoaderBulk implements Loader {
+    private static final int BATCH_SIZE = BatchIndexWriter.DEFAULT_BATCH_SIZE;
+
+    private final JdbcTemplate whoisTemplate;
+    private final ObjectLoader objectLoader;
+    private final AttributeSanitizer attributeSanitizer;
+    private final DateTimeProvider dateTimeProvider;
+
+    @Autowired
+    public LoaderBulk(@Qualifier("sourceAwareDataSource") final DataSource dataSource,
+                      final ObjectLoader objectLoader,
+                      final AttributeSanitizer attributeSanitizer,
+                      final DateTimeProvider dateTimeProvider) {
+        this.objectLoader = objectLoader;
+        this.attributeSanitizer = attributeSanitizer;
+        this.dateTimeProvider = dateTimeProvider;
+        this.whoisTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @Override
+    public void resetDatabase() {
+        sanityCheck(whoisTemplate);
+        truncateTables(whoisTemplate);
+        loadScripts(whoisTemplate, "whois_data.sql");
+    }
+
+    @Override
+    public String loadSplitFiles(final String... filenames) {
+        final Result result = new Result();
+        try {
+            validateFiles(Arrays.asList(filenames));
+
+            if (whoisTemplate.queryForObject("SELECT COUNT(*) FROM last", Integer.class) > 0) {
+                throw new IllegalStateException("Bulk load needs an empty database, reset the database first");
+            }
+
+            final List<RpslObject> objects = Lists.newArrayList();
+            for (final String filename : filenames) {
+                objects.addAll(readObjects(result, filename));
+            }
+
+            loadObjects(result, assignObjectIds(result, objects));
+        } catch (Exception e) {
+            result.addText(String.format("\n%s\n", e.getMessage()));
+        } finally {
+            result.addText(String.format("FINISHED\n%d succeeded\n%d failed\n", result.getSuccess(), result.getFailPass1()));
+            if (result.getFailPass1() > 0) {
+                result.addText("Ran in non transactional, bulk mode: no rollback for DB changes\n");
+            }
+        }
+        return result.toString();
+    }
+
+    private List<RpslObject> readObjects(final Result result, final String filename) {
+        final List<String> fullObjects;
+        try {
+            fullObjects = Lists.newArrayList(new RpslObjectFileReader(filename));
+        } catch (Exception e) {
+            result.addText(String.format("Error reading '%s': %s\n", filename, e.getMessage()));
+            return Collections.emptyList();
+        }
+
+        return fullObjects.parallelStream()
+                .map(fullObject -> parseObject(result, fullObject))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    @CheckForNull
+    private RpslObject parseObject(final Result result, final String fullObject) {
+        try {
+            final RpslObject rpslObject = attributeSanitizer.sanitize(RpslObject.parse(fullObject), new ObjectMessages());
+            objectLoader.checkForReservedNicHandle(rpslObject);
+            return rpslObject;
+        } catch (Exception e) {
+            result.addFail(String.format("Error in '%s': %s\n", StringUtils.substringBefore(fullObject, "\n"), e), 1);
+            return null;
+        }
+    }
+
+    private Map<RpslObjectInfo, RpslObject> assignObjectIds(final Result result, final List<RpslObject> objects) {
+        final Map<RpslObjectInfo, RpslObject> objectsById = Maps.newLinkedHashMap();
+        final Map<ObjectType, Set<CIString>> keys = Maps.newEnumMap(ObjectType.class);
+
+        int objectId = 1;
+        for (final RpslObject object : objects) {
+            if (!keys.computeIfAbsent(object.getType(), type -> Sets.newHashSet()).add(object.getKey())) {
+                result.addFail(String.format("Error in '%s': duplicate object\n", object.getFormattedKey()), 1);
+                continue;
+            }
+
+            objectsById.put(new RpslObjectInfo(objectId++, object.getType(), object.getKey()), object);
+        }
+
+        return objectsById;
+    }
+
+    private void loadObjects(final Result result, final Map<RpslObjectInfo, RpslObject> objectsById) {
+        final ReferenceResolver referenceResolver = createReferenceResolver(objectsById.keySet());
+
+        // sadly Executors don't offer a bounded/blocking submit() implementation
+        final int numThreads = Runtime.getRuntime().availableProcessors();
+        final ArrayBlockingQueue<Runnable> workQueue = new ArrayBlockingQueue<>(numThreads * 4);
+        final ExecutorService executorService = new ThreadPoolExecutor(numThreads, numThreads,
+                0L, TimeUnit.MILLISECONDS, workQueue, new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            for (final List<RpslObjectInfo> batch : Lists.partition(Lists.newArrayList(objectsById.keySet()), BATCH_SIZE)) {
+                executorService.submit(() -> loadBatch(result, batch, objectsById, referenceResolver));
+            }
+        } finally {
+            executorService.shutdown();
+            try {
+                executorService.awaitTermination(1, TimeUnit.HOURS);
+            } catch (InterruptedException e) {
+                result.addText(e.getMessage() + "\n");
+            }
+        }
+    }
+
+    private static ReferenceResolver createReferenceResolver(final Set<RpslObjectInfo> objectInfos) {
+        final Map<ObjectType, Map<CIString, RpslObjectInfo>> objectInfosByKey = Maps.newEnumMap(ObjectType.class);
+        for (final RpslObjectInfo objectInfo : objectInfos) {
+            objectInfosByKey.computeIfAbsent(objectInfo.getObjectType(), type -> Maps.newHashMap()).put(CIString.ciString(objectInfo.getKey()), objectInfo);
+        }
+
+        return (objectType, keys) -> {
+            final Map<CIString, RpslObjectInfo> objectInfosOfType = objectInfosByKey.getOrDefault(objectType, Collections.emptyMap());
+            final Map<CIString, RpslObjectInfo> references = Maps.newHashMap();
+            for (final CIString key : keys) {
+                final RpslObjectInfo reference = objectInfosOfType.get(key);
+                if (reference != null) {
+                    references.put(key, reference);
+                }
+            }
+            return references;
+        };
+    }
+
+    private void loadBatch(final Result result, final List<RpslObjectInfo> batch, final Map<RpslObjectInfo, RpslObject> objectsById, final ReferenceResolver referenceResolver) {
+        try {
+            final int timestamp = now(dateTimeProvider);
+            final List<Object[]> lastArgs = Lists.newArrayListWithExpectedSize(batch.size());
+            final List<Object[]> serialsArgs = Lists.newArrayListWithExpectedSize(batch.size());
+            final BatchIndexWriter indexWriter = new BatchIndexWriter(whoisTemplate, referenceResolver, BATCH_SIZE);
+
+            for (final RpslObjectInfo objectInfo : batch) {
+                final RpslObject object = objectsById.get(objectInfo);
+                lastArgs.add(new Object[]{objectInfo.getObjectId(), object.toByteArray(), timestamp, ObjectTypeIds.getId(objectInfo.getObjectType()), objectInfo.getKey()});
+                serialsArgs.add(new Object[]{objectInfo.getObjectId(), Operation.UPDATE.getCode()});
+                indexWriter.addToIndex(objectInfo, object);
+            }
+
+            whoisTemplate.batchUpdate("INSERT INTO last (object_id, object, timestamp, sequence_id, object_type, pkey) VALUES (?, ?, ?, 1, ?, ?)", lastArgs);
+            whoisTemplate.batchUpdate("INSERT INTO serials (object_id, sequence_id, atlast, operation) VALUES (?, 1, 1, ?)", serialsArgs);
+            final Map<Integer, Set<CIString>> missingReferences = indexWriter.flush();
+
+            for (final RpslObjectInfo objectInfo : batch) {
+                final RpslObject object = objectsById.get(objectInfo);
+                final Set<CIString> missing = missingReferences.get(objectInfo.getObjectId());
+                if (missing != null) {
+                    replaceWithSkeleton(objectInfo, object);
+                    result.addFail(String.format("Error in '%s': Missing references: %s\n", object.getFormattedKey(), missing), 1);
+                    continue;
+                }
+
+                try {
+                    objectLoader.claimIds(object);
+                    result.addSuccess();
+                } catch (Exception e) {
+                    result.addFail(String.format("Error in '%s': %s\n", object.getFormattedKey(), e), 1);
+                }
+            }
+        } catch (Exception e) {
+            result.addFail(String.format("Error loading objects %d to %d: %s\n", batch.get(0).getObjectId(), batch.get(batch.size() - 1).getObjectId(), e), 1);
+            for (int i = 1; i < batch.size(); i++) {
+                result.addFail("", 1);
+            }
+        }
+    }
+
+    // same outcome as a failed second pass in the other loaders: keep only the key attributes
+    private void replaceWithSkeleton(final RpslObjectInfo objectInfo, final RpslObject object) {
+        final RpslObject skeleton = RpslObjectFilter.keepKeyAttributesOnly(new RpslObjectBuilder(object)).get();
+        whoisTemplate.update("UPDATE last SET object = ? WHERE object_id = ?", skeleton.toByteArray(), objectInfo.getObjectId());
+        deleteFromTables(whoisTemplate, objectInfo);
+        insertIntoTablesIgnoreMissing(whoisTemplate, objectInfo, skeleton);
+    }
+
+    @Override
+    public void validateFiles(final List<String> filenames) {
+
+        if (filenames == null || filenames.size() == 0) {
+            throw new IllegalArgumentException("no file arguments provided");
+        }
+
+        for (final String filename : filenames) {
+            final File file = new File(filename);
+
+            if (!file.isFile()) {
+                throw new IllegalArgumentException(String.format("Argument '%s' is not a file\n", filename));
+            }
+
+            if (!file.exists()) {
+                throw new IllegalArgumentException(String.format("Argument '%s' does not exist\n", filename));
+            }
+        }
+    }
+}
@@ -27,7 +27,6 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.when;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -106,7 +105,7 @@ public class RpslObjectsToTextExporterTest {
             }
         }).when(exportDao).exportObjects(any(ExportCallbackHandler.class));
 
-        when(tagsDao.getTags(anyInt())).thenReturn(emptyList);
+        when(tagsDao.getTagsInRange(2, 3)).thenReturn(Collections.emptyMap());
 
         subject.export();
 
@@ -144,7 +143,7 @@ public class RpslObjectsToTextExporterTest {
 
         Mockito.doThrow(IOException.class).when(exportFileWriter).write(rpslObject1, emptyList);
 
-        when(tagsDao.getTags(2)).thenReturn(emptyList);
+        when(tagsDao.getTagsInRange(2, 3)).thenReturn(Collections.emptyMap());
 
         try {
             subject.export();
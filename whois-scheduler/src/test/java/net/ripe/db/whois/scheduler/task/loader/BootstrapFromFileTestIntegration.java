@@ -209,6 +209,43 @@ public class BootstrapFromFileTestIntegration extends AbstractSchedulerIntegrati
         assertThat(diff.getAdded().getAll(), hasSize(0));
     }
 
+    @Test
+    public void bootstrap_bulk() throws IOException {
+        bootstrap.setBulk(true);
+        try {
+            bootstrap.setDumpFileLocation(applicationContext.getResource("TEST_BOOTSTRAP_LOAD_DUMP.db").getURI().getPath());
+
+            final String result = bootstrap.bootstrap();
+
+            assertThat(result, containsString("FINISHED\n3 succeeded\n0 failed\n"));
+
+            final Database database = new Database(whoisTemplate);
+            assertThat(database.getTable("last"), hasSize(3));
+            assertThat(database.getTable("serials"), hasSize(3));
+            assertThat(database.getTable("history"), hasSize(0));
+            assertThat(database.getTable("mntner"), hasSize(1));
+            assertThat(database.getTable("nic_hdl"), hasSize(1));
+            assertThat(database.getTable("person_role"), hasSize(2));
+            assertThat(database.getTable("mnt_by"), hasSize(3));
+            assertThat(database.getTable("admin_c"), hasSize(2));
+            assertThat(database.getTable("tech_c"), hasSize(2));
+        } finally {
+            bootstrap.setBulk(false);
+        }
+    }
+
+    @Test
+    public void split_file_added_bulk_needs_empty_database() throws IOException {
+        bootstrapInitialObjects();
+
+        final String[] dumpFiles = {applicationContext.getResource("TEST_ADDITIONAL_LOAD_DUMP.db").getURI().getPath()};
+
+        final String additionalLoadResults = bootstrap.loadTextDumpBulk(dumpFiles);
+
+        assertThat(additionalLoadResults, containsString("Bulk load needs an empty database"));
+        assertThat(new Database(whoisTemplate).getTable("last"), hasSize(3));
+    }
+
     public void bootstrapInitialObjects() throws IOException {
 
         bootstrap.setDumpFileLocation(applicationContext.getResource("TEST_BOOTSTRAP_LOAD_DUMP.db").getURI().getPath());
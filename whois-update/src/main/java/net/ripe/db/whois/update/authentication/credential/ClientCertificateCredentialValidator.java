@@ -1,14 +1,12 @@
 package net.ripe.db.whois.update.authentication.credential;
 
 import net.ripe.db.whois.common.DateTimeProvider;
-import net.ripe.db.whois.common.dao.RpslObjectDao;
-import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.domain.ClientCertificateCredential;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
 import net.ripe.db.whois.update.domain.X509Credential;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
 import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.slf4j.Logger;
@@ -26,18 +24,18 @@ public class ClientCertificateCredentialValidator implements CredentialValidator
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ClientCertificateCredentialValidator.class);
 
-    private final RpslObjectDao rpslObjectDao;
+    private final KeyCertCache keyCertCache;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
 
     private final boolean enabled;
 
     @Autowired
-    public ClientCertificateCredentialValidator(final RpslObjectDao rpslObjectDao,
+    public ClientCertificateCredentialValidator(final KeyCertCache keyCertCache,
                                                 final DateTimeProvider dateTimeProvider,
                                                 final LoggerContext loggerContext,
                                                 final @Value("${client.cert.auth.enabled:false}") boolean enabled) {
-        this.rpslObjectDao = rpslObjectDao;
+        this.keyCertCache = keyCertCache;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
         this.enabled = enabled;
@@ -96,8 +94,7 @@ public class ClientCertificateCredentialValidator implements CredentialValidator
     @CheckForNull
     protected X509CertificateWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
-            final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return X509CertificateWrapper.parse(object);
+            return keyCertCache.getX509Certificate(keyId);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
@@ -2,7 +2,6 @@ package net.ripe.db.whois.update.authentication.credential;
 
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
-import net.ripe.db.whois.common.rpsl.PasswordHelper;
 import net.ripe.db.whois.update.domain.PasswordCredential;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
@@ -39,9 +38,8 @@ class PasswordCredentialValidator implements CredentialValidator<PasswordCredent
 
         for (final PasswordCredential offeredCredential : offeredCredentials) {
             try {
-                String offeredPassword = offeredCredential.getPassword();
                 String knownPassword = knownCredential.getPassword();
-                if (PasswordHelper.authenticateMd5Passwords(knownPassword, offeredPassword)) {
+                if (offeredCredential.authenticate(knownPassword)) {
                     loggerContext.logString(
                             update.getUpdate(),
                             getClass().getCanonicalName(),
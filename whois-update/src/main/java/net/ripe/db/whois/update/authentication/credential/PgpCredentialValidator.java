@@ -3,14 +3,12 @@ package net.ripe.db.whois.update.authentication.credential;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.common.Message;
 import net.ripe.db.whois.common.Messages;
-import net.ripe.db.whois.common.dao.RpslObjectDao;
-import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.domain.PgpCredential;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
 import net.ripe.db.whois.update.keycert.PgpPublicKeyWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.bouncycastle.openpgp.PGPPublicKey;
@@ -25,13 +23,13 @@ import java.util.List;
 @Component
 class PgpCredentialValidator implements CredentialValidator<PgpCredential, PgpCredential> {
 
-    private final RpslObjectDao rpslObjectDao;
+    private final KeyCertCache keyCertCache;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
 
     @Autowired
-    public PgpCredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, LoggerContext loggerContext) {
-        this.rpslObjectDao = rpslObjectDao;
+    public PgpCredentialValidator(final KeyCertCache keyCertCache, final DateTimeProvider dateTimeProvider, LoggerContext loggerContext) {
+        this.keyCertCache = keyCertCache;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
     }
@@ -114,8 +112,7 @@ class PgpCredentialValidator implements CredentialValidator<PgpCredential, PgpCr
     @CheckForNull
     protected PgpPublicKeyWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
-            final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return PgpPublicKeyWrapper.parse(object);
+            return keyCertCache.getPgpPublicKey(keyId);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
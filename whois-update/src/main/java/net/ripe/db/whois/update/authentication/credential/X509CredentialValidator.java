@@ -1,12 +1,10 @@
 package net.ripe.db.whois.update.authentication.credential;
 
 import net.ripe.db.whois.common.DateTimeProvider;
-import net.ripe.db.whois.common.dao.RpslObjectDao;
-import net.ripe.db.whois.common.rpsl.ObjectType;
-import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.UpdateMessages;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
 import net.ripe.db.whois.update.domain.X509Credential;
 import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
@@ -20,13 +18,13 @@ import java.util.Collection;
 @Component
 public class X509CredentialValidator implements CredentialValidator<X509Credential, X509Credential> {
 
-    private final RpslObjectDao rpslObjectDao;
+    private final KeyCertCache keyCertCache;
     private final DateTimeProvider dateTimeProvider;
     private final LoggerContext loggerContext;
 
     @Autowired
-    public X509CredentialValidator(final RpslObjectDao rpslObjectDao, final DateTimeProvider dateTimeProvider, final LoggerContext loggerContext) {
-        this.rpslObjectDao = rpslObjectDao;
+    public X509CredentialValidator(final KeyCertCache keyCertCache, final DateTimeProvider dateTimeProvider, final LoggerContext loggerContext) {
+        this.keyCertCache = keyCertCache;
         this.dateTimeProvider = dateTimeProvider;
         this.loggerContext = loggerContext;
     }
@@ -93,8 +91,7 @@ public class X509CredentialValidator implements CredentialValidator<X509Credenti
     @CheckForNull
     protected X509CertificateWrapper getKeyWrapper(final PreparedUpdate update, final UpdateContext updateContext, final String keyId) {
         try {
-            final RpslObject object = rpslObjectDao.getByKey(ObjectType.KEY_CERT, keyId);
-            return X509CertificateWrapper.parse(object);
+            return keyCertCache.getX509Certificate(keyId);
         } catch (EmptyResultDataAccessException e) {
             updateContext.addMessage(update, UpdateMessages.keyNotFound(keyId));
             log(update, String.format("Unable to find %s: %s", keyId, e.getMessage()));
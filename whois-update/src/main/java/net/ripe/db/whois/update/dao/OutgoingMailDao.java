@@ -0,0 +1,109 @@
+package net.ripe.db.whois.update.dao;
+
+import net.ripe.db.whois.common.DateTimeProvider;
+import net.ripe.db.whois.common.domain.Hosts;
+import net.ripe.db.whois.common.domain.Timestamp;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outgoing mail waiting to be delivered, in the mailupdates database.
+ *
+ * Messages are claimed by a host before delivery, so several hosts can deliver from the same table. A claim that is
+ * not released within the claim timeout (e.g. because the host went away) is taken over by the next host.
+ */
+@Repository
+public class OutgoingMailDao {
+    private final JdbcTemplate jdbcTemplate;
+    private final DateTimeProvider dateTimeProvider;
+
+    @Autowired
+    public OutgoingMailDao(@Qualifier("mailupdatesDataSource") final DataSource dataSource,
+                           final DateTimeProvider dateTimeProvider) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.dateTimeProvider = dateTimeProvider;
+    }
+
+    public void addMessage(final byte[] message) {
+        jdbcTemplate.update("INSERT INTO outgoing_mail (message, next_attempt) VALUES (?, ?)", message, now());
+    }
+
+    public List<OutgoingMail> claimMessages(final int limit, final long claimTimeoutSeconds) {
+        final String uuid = UUID.randomUUID().toString();
+        final long now = now();
+
+        final int rows = jdbcTemplate.update("" +
+                        "UPDATE outgoing_mail " +
+                        "SET claim_host = ?, claim_uuid = ?, changed = ? " +
+                        "WHERE next_attempt <= ? " +
+                        "AND (claim_uuid IS NULL OR changed < ?) " +
+                        "ORDER BY id " +
+                        "LIMIT ?",
+                Hosts.getInstanceName(),
+                uuid,
+                now,
+                now,
+                now - claimTimeoutSeconds,
+                limit);
+
+        if (rows == 0) {
+            return Collections.emptyList();
+        }
+
+        return jdbcTemplate.query(
+                "SELECT id, message, attempts FROM outgoing_mail WHERE claim_uuid = ? ORDER BY id",
+                (rs, rowNum) -> new OutgoingMail(rs.getInt(1), rs.getBytes(2), rs.getInt(3)),
+                uuid);
+    }
+
+    public void deleteMessage(final int id) {
+        jdbcTemplate.update("DELETE FROM outgoing_mail WHERE id = ?", id);
+    }
+
+    public void retryMessage(final int id, final int attempts, final long delaySeconds) {
+        final long now = now();
+        jdbcTemplate.update("" +
+                        "UPDATE outgoing_mail " +
+                        "SET attempts = ?, next_attempt = ?, claim_host = NULL, claim_uuid = NULL, changed = ? " +
+                        "WHERE id = ?",
+                attempts,
+                now + delaySeconds,
+                now,
+                id);
+    }
+
+    private long now() {
+        return Timestamp.from(dateTimeProvider.getCurrentDateTime()).getValue();
+    }
+
+    public static final class OutgoingMail {
+        private final int id;
+        private final byte[] message;
+        private final int attempts;
+
+        public OutgoingMail(final int id, final byte[] message, final int attempts) {
+            this.id = id;
+            this.message = message;
+            this.attempts = attempts;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public byte[] getMessage() {
+            return message;
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+    }
+}
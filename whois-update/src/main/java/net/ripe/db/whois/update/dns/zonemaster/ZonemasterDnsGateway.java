@@ -1,10 +1,17 @@
 package net.ripe.db.whois.update.dns.zonemaster;
 
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
-import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import net.ripe.db.whois.common.Message;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.profiles.DeployedProfile;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.dns.DnsCheckRequest;
 import net.ripe.db.whois.update.dns.DnsCheckResponse;
 import net.ripe.db.whois.update.dns.DnsGateway;
@@ -17,136 +24,253 @@ import net.ripe.db.whois.update.dns.zonemaster.domain.TestProgressResponse;
 import net.ripe.db.whois.update.domain.UpdateMessages;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.ws.rs.ProcessingException;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static net.ripe.db.whois.common.Messages.Type.ERROR;
 
+/**
+ * Runs DNS checks on Zonemaster without blocking a thread per check: requests are sent with the asynchronous client,
+ * and the test progress is polled from a scheduler, chaining each step on the completion of the previous one.
+ *
+ * Results without errors are cached by domain, nameservers and DS records, so a domain object that is resubmitted (or
+ * retried) within the cache TTL is not checked again. Checks that report errors, or that fail on Zonemaster itself
+ * (errors and timeouts), are only shared while they are running: a fixed DNS setup is checked again on resubmission.
+ */
 @DeployedProfile
 @Component
 public class ZonemasterDnsGateway implements DnsGateway {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ZonemasterDnsGateway.class);
 
-    private static final int TEST_PROGRESS_SLEEP_SECONDS = 5;
-    private static final int TEST_PROGRESS_MAXIMUM_RETRIES = ((60 * 5) / TEST_PROGRESS_SLEEP_SECONDS);
+    private static final int TEST_PROGRESS_MAXIMUM_SECONDS = 60 * 5;
+    private static final int CACHE_MAXIMUM_SIZE = 10_000;
 
     private static final String PERCENTAGE_COMPLETE = "100";
 
     private static final ImmutableList<String> ERROR_LEVELS = ImmutableList.of("CRITICAL", "ERROR");
 
     private final ZonemasterRestClient zonemasterRestClient;
+    private final long pollIntervalMs;
+    private final int maximumPolls;
+    private final Cache<DnsCheckKey, CompletableFuture<DnsCheckResponse>> results;
+    private final ScheduledExecutorService scheduler;
 
-    public ZonemasterDnsGateway(final ZonemasterRestClient zonemasterRestClient) {
+    @Autowired
+    public ZonemasterDnsGateway(final ZonemasterRestClient zonemasterRestClient,
+                                @Value("${whois.zonemaster.poll.interval.ms:5000}") final long pollIntervalMs,
+                                @Value("${whois.zonemaster.cache.ttl.seconds:600}") final long cacheTtlSeconds) {
         this.zonemasterRestClient = zonemasterRestClient;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maximumPolls = (int) Math.max(1, TimeUnit.SECONDS.toMillis(TEST_PROGRESS_MAXIMUM_SECONDS) / Math.max(1, pollIntervalMs));
+        this.results = CacheBuilder.newBuilder()
+                .maximumSize(CACHE_MAXIMUM_SIZE)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "ZonemasterProgress");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
     }
 
     @Override
     public Map<DnsCheckRequest, DnsCheckResponse> performDnsChecks(final Set<DnsCheckRequest> dnsCheckRequests) {
-        return dnsCheckRequests
-            .parallelStream()
-            .collect(Collectors.toMap(
-                dnsCheckRequest -> dnsCheckRequest,
-                new ZonemasterFunction()));
+        final Map<DnsCheckRequest, CompletableFuture<DnsCheckResponse>> checks = Maps.newLinkedHashMap();
+        for (final DnsCheckRequest dnsCheckRequest : dnsCheckRequests) {
+            checks.put(dnsCheckRequest, performDnsCheck(dnsCheckRequest));
+        }
+
+        final Map<DnsCheckRequest, DnsCheckResponse> responses = Maps.newLinkedHashMap();
+        for (final Map.Entry<DnsCheckRequest, CompletableFuture<DnsCheckResponse>> check : checks.entrySet()) {
+            responses.put(check.getKey(), check.getValue().join());
+        }
+        return responses;
     }
 
-    private class ZonemasterFunction implements Function<DnsCheckRequest, DnsCheckResponse> {
+    /**
+     * @return the (possibly cached) response, the returned future never completes exceptionally
+     */
+    public CompletableFuture<DnsCheckResponse> performDnsCheck(final DnsCheckRequest dnsCheckRequest) {
+        final DnsCheckKey key = new DnsCheckKey(dnsCheckRequest);
 
-        @Override
-        public DnsCheckResponse apply(final DnsCheckRequest dnsCheckRequest) {
-            try {
-                final String id = makeRequest(dnsCheckRequest);
-                testProgressUntilComplete(id);
-                final GetTestResultsResponse testResults = getResults(id);
-                return new DnsCheckResponse(getErrorsFromResults(testResults));
-            } catch (ZonemasterTimeoutException e) {
-                LOGGER.error("Timeout performing DNS check using zonemaster");
-                return new DnsCheckResponse(UpdateMessages.dnsCheckTimeout());
-            } catch (ZonemasterException e) {
-                LOGGER.error("Error from Zonemaster: {}", e.getMessage());
-                return new DnsCheckResponse(UpdateMessages.dnsCheckError());
-            } catch (ProcessingException e) {
-                LOGGER.error("Error making request to Zonemaster, due to {}: {}", e.getClass().getName(), e.getMessage());
-                return new DnsCheckResponse(UpdateMessages.dnsCheckError());
-            } catch (Exception e) {
-                LOGGER.error(e.getMessage(), e);
-                return new DnsCheckResponse(UpdateMessages.dnsCheckError());
-            }
+        final CompletableFuture<DnsCheckResponse> check;
+        try {
+            check = results.get(key, () -> startCheck(dnsCheckRequest));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            return CompletableFuture.completedFuture(toErrorResponse(e.getCause()));
         }
 
-        /**
-         * Call start_domain_test API method.
-         * @return check instance id
-         */
-        private String makeRequest(final DnsCheckRequest dnsCheckRequest) {
-            final StartDomainTestRequest request = new StartDomainTestRequest(dnsCheckRequest);
+        return check
+            .whenComplete((response, throwable) -> {
+                if (throwable != null || !response.getMessages().isEmpty()) {
+                    results.asMap().remove(key, check);
+                }
+            })
+            .exceptionally(this::toErrorResponse);
+    }
 
-            final StartDomainTestResponse response = zonemasterRestClient
-                .sendRequest(request)
-                .readEntity(StartDomainTestResponse.class);
+    private CompletableFuture<DnsCheckResponse> startCheck(final DnsCheckRequest dnsCheckRequest) {
+        return makeRequest(dnsCheckRequest)
+            .thenCompose(id -> testProgressUntilComplete(id, 0))
+            .thenCompose(this::getResults)
+            .thenApply(testResults -> new DnsCheckResponse(getErrorsFromResults(testResults)));
+    }
 
-            if (response.getError() != null) {
-                throw new ZonemasterException(response.getError().getMessage());
-            }
+    private DnsCheckResponse toErrorResponse(final Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
 
-            return response.getResult();
+        if (cause instanceof ZonemasterTimeoutException) {
+            LOGGER.error("Timeout performing DNS check using zonemaster");
+            return new DnsCheckResponse(UpdateMessages.dnsCheckTimeout());
+        } else if (cause instanceof ZonemasterException) {
+            LOGGER.error("Error from Zonemaster: {}", cause.getMessage());
+            return new DnsCheckResponse(UpdateMessages.dnsCheckError());
+        } else if (cause instanceof ProcessingException) {
+            LOGGER.error("Error making request to Zonemaster, due to {}: {}", cause.getClass().getName(), cause.getMessage());
+            return new DnsCheckResponse(UpdateMessages.dnsCheckError());
+        } else {
+            LOGGER.error(cause.getMessage(), cause);
+            return new DnsCheckResponse(UpdateMessages.dnsCheckError());
         }
+    }
 
-        private void testProgressUntilComplete(final String id) {
-            for (int retries = 0; retries < TEST_PROGRESS_MAXIMUM_RETRIES ; retries++) {
-                Uninterruptibles.sleepUninterruptibly(TEST_PROGRESS_SLEEP_SECONDS, TimeUnit.SECONDS);
-                if (PERCENTAGE_COMPLETE.equals(testProgress(id))) {
-                    return;
+    /**
+     * Call start_domain_test API method.
+     * @return check instance id
+     */
+    private CompletableFuture<String> makeRequest(final DnsCheckRequest dnsCheckRequest) {
+        return zonemasterRestClient
+            .sendRequestAsync(new StartDomainTestRequest(dnsCheckRequest))
+            .thenApply(response -> {
+                final StartDomainTestResponse startDomainTestResponse = response.readEntity(StartDomainTestResponse.class);
+                if (startDomainTestResponse.getError() != null) {
+                    throw new ZonemasterException(startDomainTestResponse.getError().getMessage());
                 }
-            }
-            throw new ZonemasterTimeoutException("Request timeout for id " + id);
+                return startDomainTestResponse.getResult();
+            });
+    }
+
+    /**
+     * Poll the test_progress API method from the scheduler, until the check is complete.
+     * @return check instance id
+     */
+    private CompletableFuture<String> testProgressUntilComplete(final String id, final int polls) {
+        if (polls >= maximumPolls) {
+            final CompletableFuture<String> timeout = new CompletableFuture<>();
+            timeout.completeExceptionally(new ZonemasterTimeoutException("Request timeout for id " + id));
+            return timeout;
         }
 
-        /**
-         * Call test_progress API method.
-         * @return percentage complete
-         */
-        private String testProgress(final String id) {
-            final TestProgressResponse response = zonemasterRestClient
-                .sendRequest(new TestProgressRequest(id))
-                .readEntity(TestProgressResponse.class);
+        final CompletableFuture<String> progress = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            testProgress(id).whenComplete((percentage, throwable) -> {
+                if (throwable != null) {
+                    progress.completeExceptionally(throwable);
+                } else {
+                    progress.complete(percentage);
+                }
+            });
+        }, pollIntervalMs, TimeUnit.MILLISECONDS);
+
+        return progress.thenCompose(percentage -> PERCENTAGE_COMPLETE.equals(percentage) ?
+            CompletableFuture.completedFuture(id) :
+            testProgressUntilComplete(id, polls + 1));
+    }
+
+    /**
+     * Call test_progress API method.
+     * @return percentage complete
+     */
+    private CompletableFuture<String> testProgress(final String id) {
+        return zonemasterRestClient
+            .sendRequestAsync(new TestProgressRequest(id))
+            .thenApply(response -> {
+                final TestProgressResponse testProgressResponse = response.readEntity(TestProgressResponse.class);
+                if (testProgressResponse.getError() != null) {
+                    throw new ZonemasterException(testProgressResponse.getError().getMessage());
+                }
+                return testProgressResponse.getResult();
+            });
+    }
+
+    /**
+     * Call get_test_results API method.
+     * @param id
+     * @return API response
+     */
+    private CompletableFuture<GetTestResultsResponse> getResults(final String id) {
+        return zonemasterRestClient
+            .sendRequestAsync(new GetTestResultsRequest(id))
+            .thenApply(response -> {
+                final GetTestResultsResponse getTestResultsResponse = response.readEntity(GetTestResultsResponse.class);
+                if (getTestResultsResponse.getError() != null) {
+                    throw new ZonemasterException(getTestResultsResponse.getError().getMessage());
+                }
+                return getTestResultsResponse;
+            });
+    }
+
+    private List<Message> getErrorsFromResults(final GetTestResultsResponse testResults) {
+        return testResults.getResult().getResults().stream()
+            .filter(m->ERROR_LEVELS.contains(m.getLevel()))
+            .map(m->new Message(ERROR, m.getMessage()))
+            .collect(Collectors.toList());
+    }
 
-            if (response.getError() != null) {
-                throw new ZonemasterException(response.getError().getMessage());
-            }
+    /**
+     * The domain, nameservers and DS records of a check; the order of the attributes doesn't matter.
+     */
+    private static final class DnsCheckKey {
+        private final CIString domain;
+        private final Set<CIString> nameservers;
+        private final Set<CIString> dsRdata;
 
-            return response.getResult();
+        private DnsCheckKey(final DnsCheckRequest dnsCheckRequest) {
+            final RpslObject rpslObject = dnsCheckRequest.getUpdate().getSubmittedObject();
+            this.domain = CIString.ciString(dnsCheckRequest.getDomain());
+            this.nameservers = ImmutableSet.copyOf(rpslObject.getValuesForAttribute(AttributeType.NSERVER));
+            this.dsRdata = ImmutableSet.copyOf(rpslObject.getValuesForAttribute(AttributeType.DS_RDATA));
         }
 
-        /**
-         * Call get_test_results API method.
-         * @param id
-         * @return API response
-         */
-        private GetTestResultsResponse getResults(final String id) {
-            final GetTestResultsResponse response = zonemasterRestClient
-                .sendRequest(new GetTestResultsRequest(id))
-                .readEntity(GetTestResultsResponse.class);
-
-            if (response.getError() != null) {
-                throw new ZonemasterException(response.getError().getMessage());
-            }
-
-            return response;
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            final DnsCheckKey that = (DnsCheckKey) o;
+
+            return Objects.equals(domain, that.domain) &&
+                Objects.equals(nameservers, that.nameservers) &&
+                Objects.equals(dsRdata, that.dsRdata);
         }
 
-        private List<Message> getErrorsFromResults(final GetTestResultsResponse testResults) {
-            return testResults.getResult().getResults().stream()
-                .filter(m->ERROR_LEVELS.contains(m.getLevel()))
-                .map(m->new Message(ERROR, m.getMessage()))
-                .collect(Collectors.toList());
+        @Override
+        public int hashCode() {
+            return Objects.hash(domain, nameservers, dsRdata);
         }
     }
 
@@ -10,23 +10,29 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.InvocationCallback;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import java.util.concurrent.CompletableFuture;
 
 
 @Component
 public class ZonemasterRestClient {
 
     private Client client;
+    private Client asyncClient;
     private String baseUrl;
 
     @Autowired
-    public ZonemasterRestClient(@Value("${whois.zonemaster.baseUrl:}") final String baseUrl) {
+    public ZonemasterRestClient(@Value("${whois.zonemaster.baseUrl:}") final String baseUrl,
+                                @Value("${whois.zonemaster.async.threads:8}") final int asyncThreads) {
         this.baseUrl = baseUrl;
         this.client = createClient();
+        this.asyncClient = createClient().property(ClientProperties.ASYNC_THREADPOOL_SIZE, asyncThreads);
     }
 
     public Response sendRequest(final ZonemasterRequest request) {
@@ -36,6 +42,38 @@ public class ZonemasterRestClient {
             .post(Entity.entity(request, MediaType.APPLICATION_JSON));
     }
 
+    /**
+     * Send the request without waiting for the response. The returned future is completed from the thread pool of
+     * the asynchronous client, so callbacks on it should not block.
+     */
+    public CompletableFuture<Response> sendRequestAsync(final ZonemasterRequest request) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+
+        asyncClient
+            .target(baseUrl)
+            .request(MediaType.APPLICATION_JSON_TYPE)
+            .async()
+            .post(Entity.entity(request, MediaType.APPLICATION_JSON), new InvocationCallback<Response>() {
+                @Override
+                public void completed(final Response response) {
+                    future.complete(response);
+                }
+
+                @Override
+                public void failed(final Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            });
+
+        return future;
+    }
+
+    @PreDestroy
+    public void close() {
+        client.close();
+        asyncClient.close();
+    }
+
     private static Client createClient() {
         final JacksonJaxbJsonProvider jsonProvider = new JacksonJaxbJsonProvider();
         jsonProvider.configure(DeserializationFeature.UNWRAP_ROOT_VALUE, false);
@@ -1,10 +1,17 @@
 package net.ripe.db.whois.update.domain;
 
+import net.ripe.db.whois.common.rpsl.PasswordHelper;
+
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PasswordCredential implements Credential {
     private final String password;
 
+    // result per known (hashed) password, an offered password is hashed once per maintainer password per request
+    private final Map<String, Boolean> authenticated = new ConcurrentHashMap<>();
+
     public PasswordCredential(final String password) {
         this.password = password;
     }
@@ -13,6 +20,14 @@ public class PasswordCredential implements Credential {
         return password;
     }
 
+    /**
+     * @param knownPassword the MD5-PW value of an auth attribute
+     * @return true if this offered password matches
+     */
+    public boolean authenticate(final String knownPassword) {
+        return authenticated.computeIfAbsent(knownPassword, known -> PasswordHelper.authenticateMd5Passwords(known, password));
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
@@ -3,17 +3,23 @@ package net.ripe.db.whois.update.domain;
 import net.ripe.db.whois.common.DateTimeProvider;
 import net.ripe.db.whois.update.keycert.PgpSignedMessage;
 import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.util.encoders.Hex;
 
 import javax.annotation.Nullable;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PgpCredential implements Credential {
 
     private final PgpSignedMessage message;
     private final String keyId;
 
+    // verification result per public key fingerprint, a signature is verified once per request
+    private final Map<String, Boolean> verified = new ConcurrentHashMap<>();
+
     PgpCredential(final PgpSignedMessage message) {
         this.message = message;
         this.keyId = null;
@@ -50,7 +56,7 @@ public class PgpCredential implements Credential {
     }
 
     public boolean verify(final PGPPublicKey publicKey) {
-        return message.verify(publicKey);
+        return verified.computeIfAbsent(Hex.toHexString(publicKey.getFingerprint()), fingerprint -> message.verify(publicKey));
     }
 
     public boolean verifySigningTime(final DateTimeProvider dateTimeProvider) {
@@ -34,6 +34,7 @@ public class UpdateContext {
     private final Map<CIString, GeneratedKey> generatedKeys = Maps.newHashMap();
     private final Map<Update, Context> contexts = Maps.newLinkedHashMap();
     private final Map<DnsCheckRequest, DnsCheckResponse> dnsCheckResponses = Maps.newHashMap();
+    private final Map<Update, PreValidation> preValidations = Maps.newHashMap();
     private final Map<String, String> ssoTranslation = Maps.newHashMap();
     private final LoggerContext loggerContext;
 
@@ -77,6 +78,26 @@ public class UpdateContext {
         }
     }
 
+    public void addPreValidation(final Update update, final RpslObject sanitizedObject, final ObjectMessages objectMessages) {
+        preValidations.put(update, new PreValidation(sanitizedObject, objectMessages));
+    }
+
+    /**
+     * Adds the messages found during pre-validation to the messages of the update.
+     *
+     * @return the sanitized and syntax checked submitted object, or null if the update was not pre-validated
+     */
+    @CheckForNull
+    public RpslObject applyPreValidation(final UpdateContainer updateContainer) {
+        final PreValidation preValidation = preValidations.get(updateContainer.getUpdate());
+        if (preValidation == null) {
+            return null;
+        }
+
+        getOrCreateContext(updateContainer).objectMessages.addAll(preValidation.objectMessages);
+        return preValidation.sanitizedObject;
+    }
+
     public void addSsoTranslationResult(final String username, final String uuid) {
         final String duplicateUuid = ssoTranslation.put(username, uuid);
         if (duplicateUuid != null) {
@@ -338,4 +359,14 @@ public class UpdateContext {
         private int versionId = -1;
         private Origin origin;
     }
+
+    private static class PreValidation {
+        private final RpslObject sanitizedObject;
+        private final ObjectMessages objectMessages;
+
+        private PreValidation(final RpslObject sanitizedObject, final ObjectMessages objectMessages) {
+            this.sanitizedObject = sanitizedObject;
+            this.objectMessages = objectMessages;
+        }
+    }
 }
@@ -5,13 +5,18 @@ import net.ripe.db.whois.update.keycert.X509SignedMessage;
 
 import javax.annotation.Nullable;
 import java.security.cert.X509Certificate;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class X509Credential implements Credential {
 
     private final X509SignedMessage signedMessage;
     private final String keyId;
 
+    // verification result per certificate, a signature is verified once per request
+    private final Map<X509Certificate, Boolean> verified = new ConcurrentHashMap<>();
+
     private X509Credential(final String signedData, final String signature) {
         this.signedMessage = new X509SignedMessage(signedData, signature);
         this.keyId = null;
@@ -40,7 +45,7 @@ public class X509Credential implements Credential {
             throw new IllegalStateException("No signed message to verify.");
         }
 
-        return signedMessage.verify(certificate);
+        return verified.computeIfAbsent(certificate, signedMessage::verify);
     }
 
     public boolean verifySigningTime(final DateTimeProvider dateTimeProvider) {
@@ -0,0 +1,265 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.ObjectTemplate;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.update.domain.Credentials;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.PasswordCredential;
+import net.ripe.db.whois.update.domain.PgpCredential;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.domain.X509Credential;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
+import net.ripe.db.whois.update.keycert.PgpPublicKeyWrapper;
+import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Does the work of an update that does not depend on database state changed by other updates, in parallel and before
+ * the update lock is taken: sanitizing and syntax checking the submitted objects, and verifying the offered signatures
+ * and passwords against the key-certs and maintainers they will most likely be checked against.
+ *
+ * Verification results are remembered by the offered credentials, so authentication under the update lock only does
+ * the work again if the key-cert or maintainer has changed in the meantime.
+ *
+ * With less than two threads configured, or once the thread pool is shut down, updates are pre-validated one by one
+ * on the request thread.
+ */
+@Component
+public class PreValidationHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreValidationHandler.class);
+
+    private final AttributeSanitizer attributeSanitizer;
+    private final RpslObjectDao rpslObjectDao;
+    private final KeyCertCache keyCertCache;
+    private final SourceContext sourceContext;
+    private final int nrThreads;
+
+    private ExecutorService executorService;
+
+    @Autowired
+    public PreValidationHandler(final AttributeSanitizer attributeSanitizer,
+                                final RpslObjectDao rpslObjectDao,
+                                final KeyCertCache keyCertCache,
+                                final SourceContext sourceContext,
+                                @Value("${whois.update.prevalidation.threads:4}") final int nrThreads) {
+        this.attributeSanitizer = attributeSanitizer;
+        this.rpslObjectDao = rpslObjectDao;
+        this.keyCertCache = keyCertCache;
+        this.sourceContext = sourceContext;
+        this.nrThreads = nrThreads;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (nrThreads < 2) {
+            return;
+        }
+
+        executorService = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+            final ThreadGroup threadGroup = new ThreadGroup(Thread.currentThread().getThreadGroup(), "PreValidation");
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(threadGroup, r, String.format("PreValidation-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public void preValidate(final UpdateRequest updateRequest, final UpdateContext updateContext) {
+        final Collection<Update> updates = updateRequest.getUpdates();
+
+        final List<Future<PreValidation>> futures = Lists.newArrayListWithExpectedSize(updates.size());
+        for (final Update update : updates) {
+            futures.add(submit(update));
+        }
+
+        // update context is not thread safe, only touch it from the request thread
+        for (final Future<PreValidation> future : futures) {
+            try {
+                final PreValidation preValidation = future.get();
+                updateContext.addPreValidation(preValidation.update, preValidation.sanitizedObject, preValidation.objectMessages);
+            } catch (ExecutionException e) {
+                // the update is validated again under the update lock, which will report the problem
+                LOGGER.warn("Pre-validation failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Future<PreValidation> submit(final Update update) {
+        if (executorService != null) {
+            try {
+                return executorService.submit(() -> preValidate(update));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Pre-validation rejected, validating on request thread");
+            }
+        }
+
+        final FutureTask<PreValidation> task = new FutureTask<>(() -> preValidate(update));
+        task.run();
+        return task;
+    }
+
+    private PreValidation preValidate(final Update update) {
+        final ObjectMessages objectMessages = new ObjectMessages();
+        final RpslObject sanitizedObject = validateSyntax(update, objectMessages);
+
+        sourceContext.setCurrentSourceToWhoisMaster();
+        try {
+            verifyCredentials(update, sanitizedObject);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Unable to verify credentials for {}", update.getSubmittedObject().getFormattedKey(), e);
+        } finally {
+            sourceContext.removeCurrentSource();
+        }
+
+        return new PreValidation(update, sanitizedObject, objectMessages);
+    }
+
+    RpslObject validateSyntax(final Update update, final ObjectMessages objectMessages) {
+        final RpslObject sanitizedObject = attributeSanitizer.sanitize(update.getSubmittedObject(), objectMessages);
+
+        if (!Operation.DELETE.equals(update.getOperation())) {
+            final ObjectTemplate objectTemplate = ObjectTemplate.getTemplate(sanitizedObject.getType());
+            objectTemplate.validateStructure(sanitizedObject, objectMessages);
+            objectTemplate.validateSyntax(sanitizedObject, objectMessages, true);
+        }
+
+        return sanitizedObject;
+    }
+
+    private void verifyCredentials(final Update update, final RpslObject sanitizedObject) {
+        final Credentials credentials = update.getCredentials();
+
+        // a PGP signature names its key-cert
+        for (final PgpCredential pgpCredential : credentials.ofType(PgpCredential.class)) {
+            final PgpPublicKeyWrapper publicKeyWrapper = getPgpPublicKey("PGPKEY-" + pgpCredential.getKeyId());
+            if (publicKeyWrapper != null) {
+                verify(pgpCredential, publicKeyWrapper);
+            }
+        }
+
+        // X.509 signatures and passwords are checked against the maintainers of the object
+        final Set<X509Credential> x509Credentials = credentials.ofType(X509Credential.class);
+        final Set<PasswordCredential> passwordCredentials = credentials.ofType(PasswordCredential.class);
+        if (x509Credentials.isEmpty() && passwordCredentials.isEmpty()) {
+            return;
+        }
+
+        for (final RpslObject maintainer : rpslObjectDao.getByKeys(ObjectType.MNTNER, sanitizedObject.getValuesForAttribute(AttributeType.MNT_BY))) {
+            for (final CIString auth : maintainer.getValuesForAttribute(AttributeType.AUTH)) {
+                if (auth.startsWith("md5-pw")) {
+                    for (final PasswordCredential passwordCredential : passwordCredentials) {
+                        passwordCredential.authenticate(auth.toString());
+                    }
+                } else if (auth.startsWith("x509") && !x509Credentials.isEmpty()) {
+                    final X509CertificateWrapper certificateWrapper = getX509Certificate(auth.toString());
+                    if (certificateWrapper != null) {
+                        for (final X509Credential x509Credential : x509Credentials) {
+                            verify(x509Credential, certificateWrapper);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @CheckForNull
+    private PgpPublicKeyWrapper getPgpPublicKey(final String keyId) {
+        try {
+            return keyCertCache.getPgpPublicKey(keyId);
+        } catch (EmptyResultDataAccessException | IllegalArgumentException e) {
+            LOGGER.debug("Unable to get {}: {}", keyId, e.getMessage());
+            return null;
+        }
+    }
+
+    @CheckForNull
+    private X509CertificateWrapper getX509Certificate(final String keyId) {
+        try {
+            return keyCertCache.getX509Certificate(keyId);
+        } catch (EmptyResultDataAccessException | IllegalArgumentException e) {
+            LOGGER.debug("Unable to get {}: {}", keyId, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void verify(final PgpCredential pgpCredential, final PgpPublicKeyWrapper publicKeyWrapper) {
+        try {
+            if (pgpCredential.verify(publicKeyWrapper.getPublicKey())) {
+                return;
+            }
+
+            for (final PGPPublicKey subKey : publicKeyWrapper.getSubKeys()) {
+                if (pgpCredential.verify(subKey)) {
+                    return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Unable to verify signature with {}", pgpCredential.getKeyId(), e);
+        }
+    }
+
+    private static void verify(final X509Credential x509Credential, final X509CertificateWrapper certificateWrapper) {
+        try {
+            x509Credential.verify(certificateWrapper.getCertificate());
+        } catch (IllegalArgumentException e) {
+            LOGGER.debug("Unable to verify signature", e);
+        }
+    }
+
+    private static final class PreValidation {
+        private final Update update;
+        private final RpslObject sanitizedObject;
+        private final ObjectMessages objectMessages;
+
+        private PreValidation(final Update update, final RpslObject sanitizedObject, final ObjectMessages objectMessages) {
+            this.update = update;
+            this.sanitizedObject = sanitizedObject;
+            this.objectMessages = objectMessages;
+        }
+    }
+}
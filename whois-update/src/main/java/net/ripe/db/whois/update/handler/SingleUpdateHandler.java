@@ -1,15 +1,20 @@
 package net.ripe.db.whois.update.handler;
 
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Longs;
 import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.dao.UpdateLockDao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.iptree.IpTreeUpdater;
 import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.AttributeType;
 import net.ripe.db.whois.common.rpsl.ObjectMessages;
 import net.ripe.db.whois.common.rpsl.ObjectTemplate;
 import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.rpsl.RpslObjectFilter;
+import net.ripe.db.whois.common.rpsl.attrs.AttributeParseException;
 import net.ripe.db.whois.update.authentication.Authenticator;
 import net.ripe.db.whois.update.domain.Action;
 import net.ripe.db.whois.update.domain.Keyword;
@@ -23,6 +28,7 @@ import net.ripe.db.whois.update.domain.UpdateMessages;
 import net.ripe.db.whois.update.generator.AttributeGenerator;
 import net.ripe.db.whois.update.handler.transform.Transformer;
 import net.ripe.db.whois.update.sso.SsoTranslator;
+import org.apache.commons.lang.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
@@ -36,10 +42,19 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Set;
 
+import static net.ripe.db.whois.common.domain.CIString.ciString;
 
 @Component
 public class SingleUpdateHandler {
+    // updates of these types take the exclusive lock: the IP tree is updated by serial, so they must not commit out of
+    // order, and an as-block is checked for overlap with as-blocks that have other keys
+    private static final Set<ObjectType> EXCLUSIVE_LOCK_TYPES = Sets.immutableEnumSet(ObjectType.INETNUM, ObjectType.INET6NUM, ObjectType.ROUTE, ObjectType.ROUTE6, ObjectType.DOMAIN, ObjectType.AS_BLOCK);
+
+    // claiming an auto key reads and rewrites the ranges of all keys claimed before
+    private static final Set<AttributeType> AUTO_KEY_ATTRIBUTES = Sets.immutableEnumSet(AttributeType.NIC_HDL, AttributeType.ORGANISATION, AttributeType.KEY_CERT);
+
     private final AttributeSanitizer attributeSanitizer;
     private final List<AttributeGenerator> attributeGenerators;
     private final Transformer[] transformers;
@@ -49,6 +64,7 @@ public class SingleUpdateHandler {
     private final UpdateObjectHandler updateObjectHandler;
     private final IpTreeUpdater ipTreeUpdater;
     private final SsoTranslator ssoTranslator;
+    private final PreValidationHandler preValidationHandler;
 
     @Value("#{T(net.ripe.db.whois.common.domain.CIString).ciString('${whois.source}')}")
     private CIString source;
@@ -56,6 +72,9 @@ public class SingleUpdateHandler {
     @Value("#{T(net.ripe.db.whois.common.domain.CIString).ciString('${whois.nonauth.source}')}")
     private CIString nonAuthSource;
 
+    @Value("${whois.update.lock.resources:false}")
+    private boolean lockResources;
+
     @Autowired
     public SingleUpdateHandler(final List<AttributeGenerator> attributeGenerators,
                                final Transformer[] transformers,
@@ -65,7 +84,8 @@ public class SingleUpdateHandler {
                                final UpdateObjectHandler updateObjectHandler,
                                final RpslObjectDao rpslObjectDao,
                                final IpTreeUpdater ipTreeUpdater,
-                               final SsoTranslator ssoTranslator) {
+                               final SsoTranslator ssoTranslator,
+                               final PreValidationHandler preValidationHandler) {
         this.attributeGenerators = attributeGenerators;
         // sort AttributeGenerators so they are executed in a predictable order
         this.attributeGenerators.sort((lhs, rhs) -> lhs.getClass().getName().compareToIgnoreCase(rhs.getClass().getName()));
@@ -77,11 +97,12 @@ public class SingleUpdateHandler {
         this.updateObjectHandler = updateObjectHandler;
         this.ipTreeUpdater = ipTreeUpdater;
         this.ssoTranslator = ssoTranslator;
+        this.preValidationHandler = preValidationHandler;
     }
 
     @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRED)
     public void handle(final Origin origin, final Keyword keyword, final Update update, final UpdateContext updateContext) {
-        updateLockDao.setUpdateLock();
+        final boolean resourcesLocked = setUpdateLock(update);
         ipTreeUpdater.updateTransactional();
 
         if (updateContext.isDryRun()) {
@@ -92,6 +113,7 @@ public class SingleUpdateHandler {
 
         final OverrideOptions overrideOptions = OverrideOptions.parse(update, updateContext);
         final RpslObject originalObject = getOriginalObject(update, updateContext, overrideOptions);
+
         RpslObject updatedObject = getUpdatedObject(update, updateContext, keyword);
 
         Action action = getAction(originalObject, updatedObject, update, updateContext, keyword, overrideOptions);
@@ -152,10 +174,79 @@ public class SingleUpdateHandler {
         if (updateContext.isDryRun() && !updateContext.isBatchUpdate()) {
             throw new UpdateAbortedException();
         } else {
+            if (resourcesLocked) {
+                updateLockDao.setSerialLock();
+            }
             updateObjectHandler.execute(preparedUpdate, updateContext);
         }
     }
 
+    /**
+     * All resources are locked at once, in ascending order: taking more locks later could deadlock with other updates.
+     *
+     * @return true if resources were locked, false if the exclusive lock was taken
+     */
+    boolean setUpdateLock(final Update update) {
+        if (lockResources && !EXCLUSIVE_LOCK_TYPES.contains(update.getType())) {
+            updateLockDao.setUpdateLock(getLockResources(update));
+            return true;
+        }
+
+        updateLockDao.setUpdateLock();
+        return false;
+    }
+
+    // the primary key, the parent as-block and all objects referenced by the submitted and the original object
+    Set<CIString> getLockResources(final Update update) {
+        final RpslObject submittedObject = update.getSubmittedObject();
+        final CIString key = attributeSanitizer.sanitizeKey(submittedObject);
+        final Set<CIString> resources = Sets.newHashSet();
+        resources.add(key);
+
+        for (final AttributeType keyAttribute : ObjectTemplate.getTemplate(submittedObject.getType()).getKeyAttributes()) {
+            if (AUTO_KEY_ATTRIBUTES.contains(keyAttribute)) {
+                resources.add(ciString("AUTO-KEY " + keyAttribute.getName()));
+            }
+        }
+
+        if (submittedObject.getType() == ObjectType.AUT_NUM) {
+            final Long number = Longs.tryParse(StringUtils.removeStartIgnoreCase(submittedObject.getKey().toString(), "AS"));
+            final RpslObject asBlock = (number == null) ? null : rpslObjectDao.findAsBlock(number, number);
+            if (asBlock != null) {
+                resources.add(asBlock.getKey());
+            }
+        }
+
+        resources.addAll(getReferences(submittedObject));
+
+        // a modify or delete also changes the references of the original object. It is read before it is locked: if
+        // a concurrent update added references in between, this update removes them, and a concurrent delete of such
+        // a reference still sees it referenced by the committed original
+        final RpslObject originalObject = rpslObjectDao.getByKeyOrNull(submittedObject.getType(), key);
+        if (originalObject != null) {
+            resources.addAll(getReferences(originalObject));
+        }
+
+        return resources;
+    }
+
+    private static Set<CIString> getReferences(final RpslObject rpslObject) {
+        final Set<CIString> references = Sets.newHashSet();
+        for (final RpslAttribute attribute : rpslObject.getAttributes()) {
+            final AttributeType attributeType = attribute.getType();
+            if (attributeType == null || attributeType.getReferences().isEmpty()) {
+                continue;
+            }
+
+            try {
+                references.addAll(attribute.getReferenceValues());
+            } catch (AttributeParseException e) {
+                // invalid syntax, will be reported by validation
+            }
+        }
+        return references;
+    }
+
     @CheckForNull
     private RpslObject getOriginalObject(final Update update, final UpdateContext updateContext, final OverrideOptions overrideOptions) {
         RpslObject originalObject;
@@ -191,9 +282,7 @@ public class SingleUpdateHandler {
 
     @Nonnull
     private RpslObject getUpdatedObject(final Update update, final UpdateContext updateContext, final Keyword keyword) {
-        RpslObject updatedObject = update.getSubmittedObject();
-
-        if (RpslObjectFilter.isFiltered(updatedObject)) {
+        if (RpslObjectFilter.isFiltered(update.getSubmittedObject())) {
             updateContext.addMessage(update, UpdateMessages.filteredNotAllowed());
         }
 
@@ -205,17 +294,14 @@ public class SingleUpdateHandler {
             if (update.getDeleteReasons().size() > 1) {
                 updateContext.addMessage(update, UpdateMessages.multipleReasonsSpecified(update.getOperation()));
             }
+        }
 
-            updatedObject = attributeSanitizer.sanitize(updatedObject, updateContext.getMessages(update));
-        } else {
-            final ObjectMessages messages = updateContext.getMessages(update);
-            updatedObject = attributeSanitizer.sanitize(updatedObject, messages);
-
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateStructure(updatedObject, messages);
-            ObjectTemplate.getTemplate(updatedObject.getType()).validateSyntax(updatedObject, messages, true);
+        final RpslObject preValidatedObject = updateContext.applyPreValidation(update);
+        if (preValidatedObject != null) {
+            return preValidatedObject;
         }
 
-        return updatedObject;
+        return preValidationHandler.validateSyntax(update, updateContext.getMessages(update));
     }
 
     private Action getAction(@Nullable final RpslObject originalObject,
@@ -0,0 +1,206 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.ip.IpInterval;
+import net.ripe.db.whois.common.ip.Ipv4Resource;
+import net.ripe.db.whois.common.ip.Ipv6Resource;
+import net.ripe.db.whois.common.rpsl.AttributeType;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslAttribute;
+import net.ripe.db.whois.common.rpsl.attrs.AttributeParseException;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Update;
+
+import javax.annotation.CheckForNull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Orders the updates of a request, so referenced objects (maintainers, contacts, organisations, AUTO- keys) and less
+ * specific IP objects are created before the objects depending on them, and deleted after them.
+ *
+ * Updates that do not depend on each other keep the order in which they were submitted, as do updates in a cycle.
+ */
+final class UpdateOrderPlanner {
+    private UpdateOrderPlanner() {
+    }
+
+    static List<Update> plan(final List<Update> updates) {
+        final Graph graph = new Graph(updates);
+
+        final Map<CIString, List<Integer>> updatesByKey = Maps.newHashMap();
+        for (int index = 0; index < updates.size(); index++) {
+            updatesByKey.computeIfAbsent(updates.get(index).getSubmittedObject().getKey(), key -> Lists.newArrayList()).add(index);
+        }
+
+        for (int index = 0; index < updates.size(); index++) {
+            for (final RpslAttribute attribute : updates.get(index).getSubmittedObject().getAttributes()) {
+                final AttributeType attributeType = attribute.getType();
+                if (attributeType == null || attributeType.getReferences().isEmpty()) {
+                    continue;
+                }
+
+                for (final CIString value : getReferenceValues(attribute)) {
+                    for (final Integer referenced : updatesByKey.getOrDefault(value, Collections.emptyList())) {
+                        if (attributeType.getReferences().contains(updates.get(referenced).getType())) {
+                            graph.addDependency(index, referenced);
+                        }
+                    }
+                }
+            }
+        }
+
+        final List<IpInterval<?>> ipIntervals = Lists.newArrayListWithExpectedSize(updates.size());
+        for (final Update update : updates) {
+            ipIntervals.add(getIpInterval(update));
+        }
+
+        for (int parent = 0; parent < updates.size(); parent++) {
+            for (int child = 0; child < updates.size(); child++) {
+                if (parent != child && isParent(updates.get(parent), ipIntervals.get(parent), updates.get(child), ipIntervals.get(child))) {
+                    graph.addDependency(child, parent);
+                }
+            }
+        }
+
+        return graph.sort();
+    }
+
+    private static Set<CIString> getReferenceValues(final RpslAttribute attribute) {
+        try {
+            return attribute.getReferenceValues();
+        } catch (AttributeParseException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    @CheckForNull
+    private static IpInterval<?> getIpInterval(final Update update) {
+        try {
+            switch (update.getType()) {
+                case INETNUM:
+                case INET6NUM:
+                case ROUTE:
+                case ROUTE6:
+                    return IpInterval.parse(update.getSubmittedObject().getTypeAttribute().getCleanValue());
+                case DOMAIN:
+                    return IpInterval.parseReverseDomain(update.getSubmittedObject().getKey().toString());
+                default:
+                    return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // an inetnum is the parent of a route or domain with the same range, other objects need a less specific range
+    private static boolean isParent(final Update parent, @CheckForNull final IpInterval<?> parentInterval, final Update child, @CheckForNull final IpInterval<?> childInterval) {
+        if (parentInterval == null || childInterval == null) {
+            return false;
+        }
+
+        final boolean contains;
+        if (parentInterval instanceof Ipv4Resource && childInterval instanceof Ipv4Resource) {
+            contains = ((Ipv4Resource) parentInterval).contains((Ipv4Resource) childInterval);
+        } else if (parentInterval instanceof Ipv6Resource && childInterval instanceof Ipv6Resource) {
+            contains = ((Ipv6Resource) parentInterval).contains((Ipv6Resource) childInterval);
+        } else {
+            contains = false;
+        }
+
+        if (!contains) {
+            return false;
+        }
+
+        if (!parentInterval.equals(childInterval)) {
+            return true;
+        }
+
+        final boolean parentIsInetnum = parent.getType() == ObjectType.INETNUM || parent.getType() == ObjectType.INET6NUM;
+        final boolean childIsInetnum = child.getType() == ObjectType.INETNUM || child.getType() == ObjectType.INET6NUM;
+        return parentIsInetnum && !childIsInetnum;
+    }
+
+    private static final class Graph {
+        private final List<Update> updates;
+        private final List<Set<Integer>> successors;
+        private final int[] predecessorCount;
+
+        private Graph(final List<Update> updates) {
+            this.updates = updates;
+            this.successors = Lists.newArrayListWithExpectedSize(updates.size());
+            for (int index = 0; index < updates.size(); index++) {
+                successors.add(Sets.newHashSet());
+            }
+            this.predecessorCount = new int[updates.size()];
+        }
+
+        // a dependency is handled first, unless it is deleted: then objects still referring to it are handled first
+        private void addDependency(final int update, final int dependency) {
+            if (update == dependency) {
+                return;
+            }
+
+            if (isDelete(dependency)) {
+                addEdge(update, dependency);
+            } else if (!isDelete(update)) {
+                addEdge(dependency, update);
+            }
+        }
+
+        private boolean isDelete(final int index) {
+            return Operation.DELETE.equals(updates.get(index).getOperation());
+        }
+
+        private void addEdge(final int from, final int to) {
+            if (successors.get(from).add(to)) {
+                predecessorCount[to]++;
+            }
+        }
+
+        private List<Update> sort() {
+            final List<Update> result = Lists.newArrayListWithExpectedSize(updates.size());
+            final boolean[] sorted = new boolean[updates.size()];
+
+            final PriorityQueue<Integer> available = new PriorityQueue<>();
+            for (int index = 0; index < updates.size(); index++) {
+                if (predecessorCount[index] == 0) {
+                    available.add(index);
+                }
+            }
+
+            int firstUnsorted = 0;
+            while (result.size() < updates.size()) {
+                if (available.isEmpty()) {
+                    // cycle: continue with the first update submitted, the others in the cycle will be attempted again
+                    while (sorted[firstUnsorted]) {
+                        firstUnsorted++;
+                    }
+                    available.add(firstUnsorted);
+                }
+
+                final int index = available.poll();
+                if (sorted[index]) {
+                    continue;
+                }
+
+                result.add(updates.get(index));
+                sorted[index] = true;
+
+                for (final Integer successor : successors.get(index)) {
+                    if (--predecessorCount[successor] == 0) {
+                        available.add(successor);
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+}
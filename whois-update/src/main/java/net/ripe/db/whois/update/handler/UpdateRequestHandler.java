@@ -39,6 +39,7 @@ public class UpdateRequestHandler {
     private final SsoTranslator ssoTranslator;
     private final UpdateNotifier updateNotifier;
     private final UpdateLog updateLog;
+    private final PreValidationHandler preValidationHandler;
 
     @Autowired
     public UpdateRequestHandler(final SourceContext sourceContext,
@@ -49,7 +50,8 @@ public class UpdateRequestHandler {
                                 final DnsChecker dnsChecker,
                                 final SsoTranslator ssoTranslator,
                                 final UpdateNotifier updateNotifier,
-                                final UpdateLog updateLog) {
+                                final UpdateLog updateLog,
+                                final PreValidationHandler preValidationHandler) {
         this.sourceContext = sourceContext;
         this.responseFactory = responseFactory;
         this.singleUpdateHandler = singleUpdateHandler;
@@ -59,6 +61,7 @@ public class UpdateRequestHandler {
         this.ssoTranslator = ssoTranslator;
         this.updateNotifier = updateNotifier;
         this.updateLog = updateLog;
+        this.preValidationHandler = preValidationHandler;
     }
 
     public UpdateResponse handle(final UpdateRequest updateRequest, final UpdateContext updateContext) {
@@ -88,6 +91,8 @@ public class UpdateRequestHandler {
                 ssoTranslator.populateCacheAuthToUuid(updateContext, update);
             }
 
+            preValidationHandler.preValidate(updateRequest, updateContext);
+
             final UpdateResponse updateResponse;
 
             if (updateContext.isBatchUpdate()) {
@@ -130,23 +135,20 @@ public class UpdateRequestHandler {
     }
 
     private void processUpdateQueueOneByOne(final UpdateRequest updateRequest, final UpdateContext updateContext) {
-        Collection<Update> updates = updateRequest.getUpdates();
+        Collection<Update> updates = UpdateOrderPlanner.plan(Lists.newArrayList(updateRequest.getUpdates()));
 
-        if (updates.size() == 1) {
-            attemptUpdatesOneByOne(updateRequest, updateContext, updates);
-        } else {
-            while (!updates.isEmpty()) {
-                final Collection<Update> reattemptQueue = attemptUpdatesOneByOne(updateRequest, updateContext, updates);
+        // failed updates are attempted again as long as the previous attempt changed anything
+        while (!updates.isEmpty()) {
+            final Collection<Update> reattemptQueue = attemptUpdatesOneByOne(updateRequest, updateContext, updates);
 
-                if (reattemptQueue.size() == updates.size()) {
-                    break;
-                }
+            if (reattemptQueue.size() == updates.size()) {
+                break;
+            }
 
-                updates = reattemptQueue;
+            updates = reattemptQueue;
 
-                for (final Update update : updates) {
-                    updateContext.prepareForReattempt(update);
-                }
+            for (final Update update : updates) {
+                updateContext.prepareForReattempt(update);
             }
         }
     }
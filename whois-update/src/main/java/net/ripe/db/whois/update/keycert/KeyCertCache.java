@@ -0,0 +1,103 @@
+package net.ripe.db.whois.update.keycert;
+
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
+import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Parsed public keys and certificates of key-cert objects, so a key-cert is not parsed again for every update it
+ * authenticates.
+ *
+ * Entries are looked up by object id and sequence id, so a key-cert that has changed is never served from the cache.
+ * Key-certs updated or deleted are evicted as their serials are published by the {@link SerialTailer}.
+ */
+@Component
+public class KeyCertCache {
+    private final RpslObjectDao rpslObjectDao;
+    private final RpslObjectUpdateDao rpslObjectUpdateDao;
+    private final SerialTailer serialTailer;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private SerialTailer.Subscription subscription;
+
+    @Autowired
+    public KeyCertCache(final RpslObjectDao rpslObjectDao,
+                        final RpslObjectUpdateDao rpslObjectUpdateDao,
+                        final SerialTailer serialTailer) {
+        this.rpslObjectDao = rpslObjectDao;
+        this.rpslObjectUpdateDao = rpslObjectUpdateDao;
+        this.serialTailer = serialTailer;
+    }
+
+    @PostConstruct
+    public void init() {
+        subscription = serialTailer.subscribe("KeyCertCache", this::evict);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        subscription.close();
+    }
+
+    /**
+     * @throws org.springframework.dao.EmptyResultDataAccessException if the key-cert does not exist
+     * @throws IllegalArgumentException if the key-cert does not contain a valid PGP public key
+     */
+    public PgpPublicKeyWrapper getPgpPublicKey(final String keyId) {
+        return get(keyId, PgpPublicKeyWrapper.class, PgpPublicKeyWrapper::parse);
+    }
+
+    /**
+     * @throws org.springframework.dao.EmptyResultDataAccessException if the key-cert does not exist
+     * @throws IllegalArgumentException if the key-cert does not contain a valid X.509 certificate
+     */
+    public X509CertificateWrapper getX509Certificate(final String keyId) {
+        return get(keyId, X509CertificateWrapper.class, X509CertificateWrapper::parse);
+    }
+
+    private <T extends KeyWrapper> T get(final String keyId, final Class<T> type, final Function<RpslObject, T> parser) {
+        final RpslObjectUpdateInfo objectInfo = rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, keyId);
+
+        final Entry entry = entries.get(objectInfo.getObjectId());
+        if (entry != null && entry.sequenceId == objectInfo.getSequenceId() && type.isInstance(entry.keyWrapper)) {
+            return type.cast(entry.keyWrapper);
+        }
+
+        final T keyWrapper = parser.apply(rpslObjectDao.getById(objectInfo.getObjectId()));
+        entries.put(objectInfo.getObjectId(), new Entry(objectInfo.getSequenceId(), keyWrapper));
+        return keyWrapper;
+    }
+
+    // entries are only ever served for the sequence they were parsed from, evicting is housekeeping
+    boolean evict(final int fromExclusive, final int toInclusive, final List<SerialChange> changes) {
+        if (!entries.isEmpty()) {
+            for (final SerialChange change : changes) {
+                entries.remove(change.getObjectId());
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry {
+        private final int sequenceId;
+        private final KeyWrapper keyWrapper;
+
+        private Entry(final int sequenceId, final KeyWrapper keyWrapper) {
+            this.sequenceId = sequenceId;
+            this.keyWrapper = keyWrapper;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package net.ripe.db.whois.update.log;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Append-only store for the audit logs of update requests.
+ *
+ * Instead of a directory with a handful of small files per request, the (compressed) files of all requests of a day
+ * are appended to rolling segment files by a background writer. An index per day records the request, name and
+ * location of every file, so the files of a request can still be found and read.
+ *
+ * {@link #export(LocalDate, File)} writes the files of a day in the per-request directory layout.
+ *
+ * Queued files are written before the application context is closed, or the JVM exits on a signal.
+ */
+@Component
+public class AuditLogSegmentStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogSegmentStore.class);
+
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String INDEX_FILENAME = "index.txt";
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final Splitter INDEX_SPLITTER = Splitter.on('\t');
+    private static final int QUEUE_SIZE = 10_000;
+
+    private final String baseDir;
+    private final boolean enabled;
+    private final long maxSegmentSize;
+
+    private ExecutorService writer;
+    private Thread shutdownHook;
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    // only accessed by the writer, while holding the lock on this
+    private String currentDay;
+    private int currentSegment;
+    private long currentSegmentSize;
+    private File currentSegmentFile;
+    private OutputStream segmentOutputStream;
+    private Writer indexWriter;
+
+    @Autowired
+    public AuditLogSegmentStore(@Value("${dir.update.audit.log}") final String baseDir,
+                                @Value("${dir.update.audit.log.segments:false}") final boolean enabled,
+                                @Value("${dir.update.audit.log.segment.size:268435456}") final long maxSegmentSize) {
+        this.baseDir = baseDir;
+        this.enabled = enabled;
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        // when the queue is full, the update thread writes the record itself
+        writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(QUEUE_SIZE),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "AuditLogSegmentWriter");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        // the writer is a daemon thread, so without the hook queued records are lost when the JVM exits
+        shutdownHook = new Thread(this::stop, "AuditLogSegmentFlush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writer == null || !stopped.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // already shutting down
+        }
+
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOGGER.warn("Audit log records still queued after one minute, giving up");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            closeSegment();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a file of an update request for writing.
+     *
+     * @param day      the day of the request, as yyyyMMdd
+     * @param updateId the name of the directory of the request in the per-request layout
+     * @param name     the name of the file in the per-request layout
+     * @param content  the file contents
+     * @return the segment file the contents are written to, once written
+     */
+    public Future<File> append(final String day, final String updateId, final String name, final byte[] content) {
+        return writer.submit(() -> write(day, updateId, name, content));
+    }
+
+    private synchronized File write(final String day, final String updateId, final String name, final byte[] content) {
+        try {
+            if (!day.equals(currentDay) || currentSegmentSize >= maxSegmentSize) {
+                openSegment(day);
+            }
+
+            segmentOutputStream.write(content);
+            segmentOutputStream.flush();
+
+            indexWriter.write(String.format("%s\t%s\t%d\t%d\t%d\n", updateId, name, currentSegment, currentSegmentSize, content.length));
+            indexWriter.flush();
+
+            currentSegmentSize += content.length;
+            return currentSegmentFile;
+        } catch (IOException e) {
+            LOGGER.error("Unable to write {} of {} to audit log segment", name, updateId, e);
+            closeSegment();
+            throw new IllegalStateException("Unable to write " + name + " of " + updateId + " to audit log segment", e);
+        }
+    }
+
+    private void openSegment(final String day) throws IOException {
+        final boolean sameDay = day.equals(currentDay);
+        closeSegment();
+
+        final File dir = new File(baseDir, day);
+        if (!dir.mkdirs() && !dir.exists()) {
+            throw new IOException("Unable to create directory: " + dir.getAbsolutePath());
+        }
+
+        int segment = sameDay ? currentSegment + 1 : getLastSegment(dir);
+        File segmentFile = getSegmentFile(dir, segment);
+        if (segmentFile.length() >= maxSegmentSize) {
+            segmentFile = getSegmentFile(dir, ++segment);
+        }
+
+        segmentOutputStream = new BufferedOutputStream(new FileOutputStream(segmentFile, true));
+        indexWriter = new OutputStreamWriter(new FileOutputStream(new File(dir, INDEX_FILENAME), true), StandardCharsets.UTF_8);
+
+        currentDay = day;
+        currentSegment = segment;
+        currentSegmentSize = segmentFile.length();
+        currentSegmentFile = segmentFile;
+    }
+
+    private void closeSegment() {
+        closeQuietly(segmentOutputStream);
+        closeQuietly(indexWriter);
+        segmentOutputStream = null;
+        indexWriter = null;
+        currentDay = null;
+        currentSegmentFile = null;
+    }
+
+    private static int getLastSegment(final File dir) {
+        int result = 1;
+        final File[] files = dir.listFiles((file, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files != null) {
+            for (final File file : files) {
+                try {
+                    result = Math.max(result, Integer.parseInt(file.getName().substring(0, file.getName().length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    LOGGER.debug("Ignoring {}", file);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static File getSegmentFile(final File dir, final int segment) {
+        return new File(dir, String.format("%04d%s", segment, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * @return the names of the files written for an update request, excluding records still queued for writing
+     */
+    public List<String> getNames(final LocalDate date, final String updateId) {
+        final List<String> result = Lists.newArrayList();
+        for (final IndexEntry indexEntry : readIndex(date)) {
+            if (indexEntry.updateId.equals(updateId)) {
+                result.add(indexEntry.name);
+            }
+        }
+
+        return result;
+    }
+
+    @CheckForNull
+    public byte[] read(final LocalDate date, final String updateId, final String name) throws IOException {
+        for (final IndexEntry indexEntry : readIndex(date)) {
+            if (indexEntry.updateId.equals(updateId) && indexEntry.name.equals(name)) {
+                return read(new File(baseDir, DATE_FORMAT.format(date)), indexEntry);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Write all files of a day in the per-request directory layout: targetDir/yyyyMMdd/request/file.
+     *
+     * @return the number of files written
+     */
+    public int export(final LocalDate date, final File targetDir) throws IOException {
+        final String day = DATE_FORMAT.format(date);
+        final File dir = new File(baseDir, day);
+
+        int count = 0;
+        for (final IndexEntry indexEntry : readIndex(date)) {
+            final File requestDir = new File(new File(targetDir, day), indexEntry.updateId);
+            if (!requestDir.mkdirs() && !requestDir.exists()) {
+                throw new IOException("Unable to create directory: " + requestDir.getAbsolutePath());
+            }
+
+            Files.write(new File(requestDir, indexEntry.name).toPath(), read(dir, indexEntry));
+            count++;
+        }
+
+        return count;
+    }
+
+    private static byte[] read(final File dir, final IndexEntry indexEntry) throws IOException {
+        try (final RandomAccessFile segmentFile = new RandomAccessFile(getSegmentFile(dir, indexEntry.segment), "r")) {
+            final byte[] result = new byte[indexEntry.length];
+            segmentFile.seek(indexEntry.offset);
+            segmentFile.readFully(result);
+            return result;
+        }
+    }
+
+    private List<IndexEntry> readIndex(final LocalDate date) {
+        final File indexFile = new File(new File(baseDir, DATE_FORMAT.format(date)), INDEX_FILENAME);
+
+        final List<IndexEntry> result = Lists.newArrayList();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final List<String> fields = INDEX_SPLITTER.splitToList(line);
+                if (fields.size() != 5) {
+                    // the last line may be partially written
+                    continue;
+                }
+
+                result.add(new IndexEntry(fields.get(0), fields.get(1), Integer.parseInt(fields.get(2)), Long.parseLong(fields.get(3)), Integer.parseInt(fields.get(4))));
+            }
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Unable to read " + indexFile.getAbsolutePath(), e);
+        }
+
+        return result;
+    }
+
+    private static void closeQuietly(@CheckForNull final Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                LOGGER.error("Closing audit log segment", e);
+            }
+        }
+    }
+
+    private static final class IndexEntry {
+        private final String updateId;
+        private final String name;
+        private final int segment;
+        private final long offset;
+        private final int length;
+
+        private IndexEntry(final String updateId, final String name, final int segment, final long offset, final int length) {
+            this.updateId = updateId;
+            this.name = name;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package net.ripe.db.whois.update.log;
+
+import net.ripe.db.whois.common.jmx.JmxBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.time.LocalDate;
+
+@Component
+@ManagedResource(objectName = JmxBase.OBJECT_NAME_BASE + "AuditLogSegments", description = "Update audit log segments")
+public class AuditLogSegmentStoreJmx extends JmxBase {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuditLogSegmentStoreJmx.class);
+
+    private final AuditLogSegmentStore auditLogSegmentStore;
+
+    @Autowired
+    public AuditLogSegmentStoreJmx(final AuditLogSegmentStore auditLogSegmentStore) {
+        super(LOGGER);
+        this.auditLogSegmentStore = auditLogSegmentStore;
+    }
+
+    @ManagedOperation(description = "Export the audit logs of a day in the per-update directory layout")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "date", description = "Date of the audit logs (yyyyMMdd)"),
+            @ManagedOperationParameter(name = "targetDir", description = "Directory to export to"),
+    })
+    public String export(final String date, final String targetDir) {
+        return invokeOperation("Export audit logs", date, () -> {
+            final int count = auditLogSegmentStore.export(LocalDate.parse(date, AuditLogSegmentStore.DATE_FORMAT), new File(targetDir));
+            return String.format("Exported %d files to %s", count, targetDir);
+        });
+    }
+}
@@ -23,6 +23,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -50,6 +51,8 @@ public class LoggerContext {
 
     @Value("${dir.update.audit.log}") private String baseDir;
 
+    private AuditLogSegmentStore segmentStore;
+
     public void setBaseDir(final String baseDir) {
         this.baseDir = baseDir;
     }
@@ -59,6 +62,11 @@ public class LoggerContext {
         this.dateTimeProvider = dateTimeProvider;
     }
 
+    @Autowired(required = false)
+    void setSegmentStore(final AuditLogSegmentStore segmentStore) {
+        this.segmentStore = segmentStore;
+    }
+
     @PostConstruct
     public void start() {
         checkDirs();
@@ -79,8 +87,14 @@ public class LoggerContext {
 
     public void init(final String folderName) {
         final LocalDateTime now = dateTimeProvider.getCurrentDateTime();
-        final File dir = getCreatedDir(baseDir + FILE_SEPARATOR + DATE_FORMAT.format(now) + FILE_SEPARATOR + trim(TIME_FORMAT.format(now) + "." + sanitize(folderName), MAXIMUM_FILENAME_LENGTH));
-        init(dir);
+        final String dirName = baseDir + FILE_SEPARATOR + DATE_FORMAT.format(now) + FILE_SEPARATOR + trim(TIME_FORMAT.format(now) + "." + sanitize(folderName), MAXIMUM_FILENAME_LENGTH);
+
+        // with the segment store, the directory only names the files of the update in its index
+        init(isSegmented() ? new File(dirName) : getCreatedDir(dirName));
+    }
+
+    private boolean isSegmented() {
+        return segmentStore != null && segmentStore.isEnabled();
     }
 
     void init(final File dir) {
@@ -112,6 +126,10 @@ public class LoggerContext {
         return new File(dir, name);
     }
 
+    /**
+     * @return the file written, or with the segment store the name of the file in the per-request layout: the
+     * contents are queued, and appended to a segment in the background
+     */
     public File log(final String name, final LogCallback callback) {
         final File file = getFile(name);
 
@@ -129,6 +147,14 @@ public class LoggerContext {
     }
 
     private OutputStream getOutputstream(final File file) {
+        if (isSegmented()) {
+            try {
+                return new GZIPOutputStream(new SegmentRecordOutputStream(file));
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to write to " + file.getAbsolutePath(), e);
+            }
+        }
+
         FileOutputStream os = null;
         try {
             os = new FileOutputStream(file);
@@ -276,6 +302,25 @@ public class LoggerContext {
         return filename.substring(0, maxLength - 1);
     }
 
+    // collects a file in memory, and queues it in the segment store when closed (without waiting for the write)
+    private final class SegmentRecordOutputStream extends ByteArrayOutputStream {
+        private final File file;
+        private boolean closed;
+
+        private SegmentRecordOutputStream(final File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                final File dir = file.getParentFile();
+                segmentStore.append(dir.getParentFile().getName(), dir.getName(), file.getName(), toByteArray());
+            }
+        }
+    }
+
     private static final class Context {
         private final File baseDir;
         private final AtomicInteger fileNumber;
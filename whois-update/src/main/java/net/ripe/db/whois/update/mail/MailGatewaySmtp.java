@@ -10,7 +10,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
@@ -19,6 +21,7 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.mail.MessagingException;
+import javax.mail.Session;
 import javax.mail.internet.MimeMessage;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -31,6 +34,7 @@ public class MailGatewaySmtp implements MailGateway {
     private final LoggerContext loggerContext;
     private final MailConfiguration mailConfiguration;
     private final JavaMailSender mailSender;
+    private final MailOutbox mailOutbox;
 
     @Value("${mail.smtp.enabled}")
     private boolean outgoingMailEnabled;
@@ -39,10 +43,11 @@ public class MailGatewaySmtp implements MailGateway {
     private boolean retrySending;
 
     @Autowired
-    public MailGatewaySmtp(final LoggerContext loggerContext, final MailConfiguration mailConfiguration, final JavaMailSender mailSender) {
+    public MailGatewaySmtp(final LoggerContext loggerContext, final MailConfiguration mailConfiguration, final JavaMailSender mailSender, final MailOutbox mailOutbox) {
         this.loggerContext = loggerContext;
         this.mailConfiguration = mailConfiguration;
         this.mailSender = mailSender;
+        this.mailOutbox = mailOutbox;
     }
 
     @Override
@@ -73,31 +78,42 @@ public class MailGatewaySmtp implements MailGateway {
                 throw new MailSendException("Refusing outgoing email: " + text);
             }
 
-            sendEmailAttempt(to, replyTo, subject, text);
+            if (!mailOutbox.isEnabled()) {
+                sendEmailAttempt(to, replyTo, subject, text);
+                return;
+            }
+
+            try {
+                enqueueEmail(to, replyTo, subject, text);
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to queue mail to {}, sending it now: {}", to, e.getMessage());
+                sendEmailAttempt(to, replyTo, subject, text);
+            }
         } catch (MailException e) {
             loggerContext.log(new Message(Messages.Type.ERROR, "Unable to send mail to {} with subject {}", to, subject), e);
             LOGGER.error("Unable to send mail message to: {}", to, e);
         }
     }
 
+    // the message is stored on the update thread, and delivered in the background
+    private void enqueueEmail(final String to, final String replyTo, final String subject, final String text) {
+        final MimeMessage mimeMessage = new MimeMessage((Session) null);
+        try {
+            prepare(mimeMessage, to, replyTo, subject, text);
+        } catch (MessagingException e) {
+            throw new MailPreparationException("Unable to prepare mail to " + to, e);
+        }
+
+        mailOutbox.enqueue(mimeMessage);
+    }
+
     @RetryFor(value = MailSendException.class, attempts = 20, intervalMs = 10000)
     private void sendEmailAttempt(final String to, final String replyTo, final String subject, final String text) {
         try {
             mailSender.send(new MimeMessagePreparator() {
                 @Override
                 public void prepare(final MimeMessage mimeMessage) throws MessagingException {
-                    final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_NO, "UTF-8");
-                    message.setFrom(mailConfiguration.getFrom());
-                    message.setTo(to);
-                    if (!StringUtils.isEmpty(replyTo))
-                        message.setReplyTo(replyTo);
-                    message.setSubject(subject);
-                    message.setText(text);
-
-                    mimeMessage.addHeader("Precedence", "bulk");
-                    mimeMessage.addHeader("Auto-Submitted", "auto-generated");
-
-                    loggerContext.log("msg-out.txt", new MailMessageLogCallback(mimeMessage));
+                    MailGatewaySmtp.this.prepare(mimeMessage, to, replyTo, subject, text);
                 }
             });
         } catch (MailSendException e) {
@@ -108,4 +124,19 @@ public class MailGatewaySmtp implements MailGateway {
             }
         }
     }
+
+    private void prepare(final MimeMessage mimeMessage, final String to, final String replyTo, final String subject, final String text) throws MessagingException {
+        final MimeMessageHelper message = new MimeMessageHelper(mimeMessage, MimeMessageHelper.MULTIPART_MODE_NO, "UTF-8");
+        message.setFrom(mailConfiguration.getFrom());
+        message.setTo(to);
+        if (!StringUtils.isEmpty(replyTo))
+            message.setReplyTo(replyTo);
+        message.setSubject(subject);
+        message.setText(text);
+
+        mimeMessage.addHeader("Precedence", "bulk");
+        mimeMessage.addHeader("Auto-Submitted", "auto-generated");
+
+        loggerContext.log("msg-out.txt", new MailMessageLogCallback(mimeMessage));
+    }
 }
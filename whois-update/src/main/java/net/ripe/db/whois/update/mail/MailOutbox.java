@@ -0,0 +1,221 @@
+package net.ripe.db.whois.update.mail;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.ripe.db.whois.update.dao.OutgoingMailDao;
+import net.ripe.db.whois.update.dao.OutgoingMailDao.OutgoingMail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Persistent queue of outgoing mail, delivered in the background.
+ *
+ * Messages are stored in the outgoing_mail table, so they survive a restart, and picked up by a pool of delivery
+ * workers. Each worker claims a batch of messages and sends them over a single SMTP connection. Messages that could
+ * not be delivered are attempted again later, with an increasing delay, until the maximum number of attempts.
+ */
+@Component
+public class MailOutbox {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MailOutbox.class);
+
+    private static final long RETRY_DELAY_SECONDS = 10;
+    private static final long MAXIMUM_RETRY_DELAY_SECONDS = 60 * 60;
+    private static final long CLAIM_TIMEOUT_SECONDS = 10 * 60;
+
+    private final OutgoingMailDao outgoingMailDao;
+    private final JavaMailSender mailSender;
+    private final boolean enabled;
+    private final int nrThreads;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long pollIntervalMs;
+
+    private final Object signal = new Object();
+    private volatile boolean running;
+    private ExecutorService executorService;
+
+    @Autowired
+    public MailOutbox(final OutgoingMailDao outgoingMailDao,
+                      final JavaMailSender mailSender,
+                      @Value("${mail.smtp.outbox.enabled:false}") final boolean enabled,
+                      @Value("${mail.smtp.outbox.threads:2}") final int nrThreads,
+                      @Value("${mail.smtp.outbox.batch.size:50}") final int batchSize,
+                      @Value("${mail.smtp.outbox.attempts:20}") final int maxAttempts,
+                      @Value("${mail.smtp.outbox.poll.interval.msecs:1000}") final long pollIntervalMs) {
+        this.outgoingMailDao = outgoingMailDao;
+        this.mailSender = mailSender;
+        this.enabled = enabled;
+        this.nrThreads = nrThreads;
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.pollIntervalMs = pollIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        running = true;
+        executorService = Executors.newFixedThreadPool(nrThreads, new ThreadFactory() {
+            final ThreadGroup threadGroup = new ThreadGroup(Thread.currentThread().getThreadGroup(), "MailOutbox");
+            final AtomicInteger threadNum = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(threadGroup, r, String.format("MailOutbox-%s", threadNum.incrementAndGet()));
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        for (int i = 0; i < nrThreads; i++) {
+            executorService.submit(this::deliverUntilStopped);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void enqueue(final MimeMessage mimeMessage) {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            mimeMessage.writeTo(outputStream);
+        } catch (MessagingException | IOException e) {
+            throw new MailPreparationException("Invalid mime message", e);
+        }
+
+        outgoingMailDao.addMessage(outputStream.toByteArray());
+
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void deliverUntilStopped() {
+        while (running) {
+            int delivered = 0;
+            try {
+                delivered = deliver();
+            } catch (DataAccessException e) {
+                LOGGER.warn("Unable to claim outgoing mail: {}", e.getMessage());
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected", e);
+            }
+
+            if (delivered == 0) {
+                try {
+                    synchronized (signal) {
+                        signal.wait(pollIntervalMs);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Claim and send one batch of messages.
+     *
+     * @return the number of messages claimed
+     */
+    int deliver() {
+        final List<OutgoingMail> outgoingMails = outgoingMailDao.claimMessages(batchSize, CLAIM_TIMEOUT_SECONDS);
+        if (outgoingMails.isEmpty()) {
+            return 0;
+        }
+
+        final Map<MimeMessage, OutgoingMail> messages = Maps.newIdentityHashMap();
+        for (final OutgoingMail outgoingMail : outgoingMails) {
+            try {
+                messages.put(new MimeMessage(null, new ByteArrayInputStream(outgoingMail.getMessage())), outgoingMail);
+            } catch (MessagingException e) {
+                LOGGER.error("Discarding invalid outgoing mail {}", outgoingMail.getId(), e);
+                outgoingMailDao.deleteMessage(outgoingMail.getId());
+            }
+        }
+
+        final List<MimeMessage> mimeMessages = Lists.newArrayList(messages.keySet());
+        final Map<Object, Exception> failedMessages = Maps.newIdentityHashMap();
+        try {
+            // one connection for the whole batch
+            mailSender.send(mimeMessages.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            failedMessages.putAll(e.getFailedMessages());
+            if (failedMessages.isEmpty()) {
+                // failure not specific to any message
+                for (final MimeMessage mimeMessage : mimeMessages) {
+                    failedMessages.put(mimeMessage, e);
+                }
+            }
+        } catch (MailException e) {
+            LOGGER.warn("Unable to send outgoing mail: {}", e.getMessage());
+            for (final MimeMessage mimeMessage : mimeMessages) {
+                failedMessages.put(mimeMessage, e);
+            }
+        }
+
+        for (final Map.Entry<MimeMessage, OutgoingMail> entry : messages.entrySet()) {
+            final OutgoingMail outgoingMail = entry.getValue();
+            final Exception failure = failedMessages.get(entry.getKey());
+
+            if (failure == null) {
+                outgoingMailDao.deleteMessage(outgoingMail.getId());
+            } else {
+                retry(outgoingMail, failure);
+            }
+        }
+
+        return outgoingMails.size();
+    }
+
+    private void retry(final OutgoingMail outgoingMail, final Exception failure) {
+        final int attempts = outgoingMail.getAttempts() + 1;
+        if (attempts >= maxAttempts) {
+            LOGGER.error("Giving up on outgoing mail {} after {} attempts", outgoingMail.getId(), attempts, failure);
+            outgoingMailDao.deleteMessage(outgoingMail.getId());
+            return;
+        }
+
+        LOGGER.info("Unable to send outgoing mail {} (attempt {}): {}", outgoingMail.getId(), attempts, failure.getMessage());
+        outgoingMailDao.retryMessage(outgoingMail.getId(), attempts, getRetryDelaySeconds(attempts));
+    }
+
+    static long getRetryDelaySeconds(final int attempts) {
+        return Math.min(MAXIMUM_RETRY_DELAY_SECONDS, RETRY_DELAY_SECONDS << Math.min(attempts - 1, 20));
+    }
+}
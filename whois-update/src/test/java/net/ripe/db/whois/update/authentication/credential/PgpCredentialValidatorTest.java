@@ -2,10 +2,8 @@ package net.ripe.db.whois.update.authentication.credential;
 
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.DateTimeProvider;
-import net.ripe.db.whois.common.dao.RpslObjectDao;
 import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.common.rpsl.AttributeType;
-import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslAttribute;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.rpsl.RpslObjectBuilder;
@@ -15,6 +13,8 @@ import net.ripe.db.whois.update.domain.PgpCredential;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.Update;
 import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
+import net.ripe.db.whois.update.keycert.PgpPublicKeyWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.hamcrest.core.Is;
 import org.junit.Before;
@@ -44,7 +44,7 @@ public class PgpCredentialValidatorTest {
     @Mock private PreparedUpdate preparedUpdate;
     @Mock private Update update;
     @Mock private UpdateContext updateContext;
-    @Mock private RpslObjectDao rpslObjectDao;
+    @Mock private KeyCertCache keyCertCache;
     @Mock private DateTimeProvider dateTimeProvider;
     @Mock private LoggerContext loggerContext;
     @InjectMocks private PgpCredentialValidator subject;
@@ -127,7 +127,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential offeredCredential = PgpCredential.createOfferedCredential(message);
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
 
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, KEYCERT_OBJECT.getKey().toString())).thenReturn(KEYCERT_OBJECT);
+        when(keyCertCache.getPgpPublicKey(KEYCERT_OBJECT.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(KEYCERT_OBJECT));
         when(preparedUpdate.getUpdate()).thenReturn(createUpdate());
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(true));
         verify(loggerContext).logString(any(Update.class), anyString(), anyString());
@@ -162,7 +162,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential offeredCredential = PgpCredential.createOfferedCredential(message, Charset.forName("ISO-8859-7"));
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
 
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, KEYCERT_OBJECT.getKey().toString())).thenReturn(KEYCERT_OBJECT);
+        when(keyCertCache.getPgpPublicKey(KEYCERT_OBJECT.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(KEYCERT_OBJECT));
         when(preparedUpdate.getUpdate()).thenReturn(createUpdate());
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(true));
         verify(loggerContext).logString(any(Update.class), anyString(), anyString());
@@ -203,7 +203,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
         final Update update = createUpdate();
         when(preparedUpdate.getUpdate()).thenReturn(update);
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, KEYCERT_OBJECT.getKey().toString())).thenReturn(KEYCERT_OBJECT);
+        when(keyCertCache.getPgpPublicKey(KEYCERT_OBJECT.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(KEYCERT_OBJECT));
 
         subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential);
 
@@ -227,7 +227,7 @@ public class PgpCredentialValidatorTest {
                 "-----END PGP SIGNATURE-----\n");
 
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, KEYCERT_OBJECT.getKey().toString())).thenReturn(KEYCERT_OBJECT);
+        when(keyCertCache.getPgpPublicKey(KEYCERT_OBJECT.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(KEYCERT_OBJECT));
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(false));
     }
 
@@ -264,7 +264,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential offeredCredential = PgpCredential.createOfferedCredential(message);
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
 
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, KEYCERT_OBJECT.getKey().toString())).thenThrow(new EmptyResultDataAccessException(1));
+        when(keyCertCache.getPgpPublicKey(KEYCERT_OBJECT.getKey().toString())).thenThrow(new EmptyResultDataAccessException(1));
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(false));
     }
 
@@ -302,7 +302,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
 
         final RpslObject emptyKeycertObject = new RpslObjectBuilder(KEYCERT_OBJECT).removeAttributeType(AttributeType.CERTIF).get();
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, emptyKeycertObject.getKey().toString())).thenReturn(emptyKeycertObject);
+        when(keyCertCache.getPgpPublicKey(emptyKeycertObject.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(emptyKeycertObject));
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(false));
     }
 
@@ -373,7 +373,7 @@ public class PgpCredentialValidatorTest {
         final PgpCredential knownCredential = PgpCredential.createKnownCredential("PGPKEY-5763950D");
 
         final RpslObject keycertObject = RpslObject.parse("key-cert: PGPKEY-5763950D");
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, keycertObject.getKey().toString())).thenReturn(keycertObject);
+        when(keyCertCache.getPgpPublicKey(keycertObject.getKey().toString())).thenAnswer(invocation -> PgpPublicKeyWrapper.parse(keycertObject));
 
         assertThat(subject.hasValidCredential(preparedUpdate, updateContext, Sets.newHashSet(offeredCredential), knownCredential), is(false));
 
@@ -3,12 +3,12 @@ package net.ripe.db.whois.update.authentication.credential;
 
 import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.DateTimeProvider;
-import net.ripe.db.whois.common.dao.RpslObjectDao;
-import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.update.domain.PreparedUpdate;
 import net.ripe.db.whois.update.domain.UpdateContext;
 import net.ripe.db.whois.update.domain.X509Credential;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
+import net.ripe.db.whois.update.keycert.X509CertificateWrapper;
 import net.ripe.db.whois.update.log.LoggerContext;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,7 +32,7 @@ public class X509CredentialValidatorTest {
 
     @Mock private PreparedUpdate update;
     @Mock private UpdateContext updateContext;
-    @Mock private RpslObjectDao rpslObjectDao;
+    @Mock private KeyCertCache keyCertCache;
     @Mock private X509Credential offeredCredential;
     @Mock private X509Credential knownCredential;
     @Mock private DateTimeProvider dateTimeProvider;
@@ -42,8 +42,8 @@ public class X509CredentialValidatorTest {
     @Before
     public void setup() {
         when(dateTimeProvider.getCurrentDateTime()).thenReturn(LocalDateTime.now());
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, "X509-1")).thenAnswer(invocation ->
-                    RpslObject.parse("" +
+        when(keyCertCache.getX509Certificate("X509-1")).thenAnswer(invocation ->
+                    X509CertificateWrapper.parse(RpslObject.parse("" +
                         "key-cert:       AUTO-1\n" +
                         "method:         X509\n" +
                         "owner:          /C=NL/ST=Noord-Holland/O=RIPE NCC/OU=DB/CN=Edward Shryane/EMAILADDRESS=eshryane@ripe.net\n" +
@@ -71,7 +71,7 @@ public class X509CredentialValidatorTest {
                         "certif:         mlPZDYRpwo6Jz9TAdeFWisLWBspnl83R1tQepKTXObjVVCmhsA==\n" +
                         "certif:         -----END CERTIFICATE-----\n" +
                         "mnt-by:         OWNER-MNT\n" +
-                        "source:         TEST\n"));
+                        "source:         TEST\n")));
         when(knownCredential.getKeyId()).thenReturn("X509-1");
         when(offeredCredential.verify(any(X509Certificate.class))).thenReturn(true);
     }
@@ -85,7 +85,7 @@ public class X509CredentialValidatorTest {
 
     @Test
     public void authentication_keycert_not_found() {
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, "X509-1")).thenThrow(new EmptyResultDataAccessException(1));
+        when(keyCertCache.getX509Certificate("X509-1")).thenThrow(new EmptyResultDataAccessException(1));
 
         final boolean result = subject.hasValidCredential(update, updateContext, Sets.newHashSet(offeredCredential), knownCredential);
 
@@ -94,12 +94,12 @@ public class X509CredentialValidatorTest {
 
     @Test
     public void authentication_keycert_is_invalid() {
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, "X509-1")).thenAnswer(invocation ->
-                     RpslObject.parse(
+        when(keyCertCache.getX509Certificate("X509-1")).thenAnswer(invocation ->
+                     X509CertificateWrapper.parse(RpslObject.parse(
                         "key-cert:       AUTO-1\n" +
                         "method:         X509\n" +
                         "mnt-by:         OWNER-MNT\n" +
-                        "source:         TEST\n"));
+                        "source:         TEST\n")));
 
         final boolean result = subject.hasValidCredential(update, updateContext, Sets.newHashSet(offeredCredential), knownCredential);
 
@@ -142,11 +142,11 @@ public class X509CredentialValidatorTest {
 
     @Test
     public void knownCredentialIsInvalid() {
-        when(rpslObjectDao.getByKey(ObjectType.KEY_CERT, "X509-1")).thenAnswer(
-            invocation -> RpslObject.parse("" +
+        when(keyCertCache.getX509Certificate("X509-1")).thenAnswer(
+            invocation -> X509CertificateWrapper.parse(RpslObject.parse("" +
                         "key-cert:       AUTO-1\n" +
                         "method:         X509\n" +
-                        "source:         TEST\n"));
+                        "source:         TEST\n")));
         when(knownCredential.getKeyId()).thenReturn("X509-1");
 
         final boolean result = subject.hasValidCredential(update, updateContext, Sets.newHashSet(offeredCredential), knownCredential);
@@ -1,6 +1,7 @@
 package net.ripe.db.whois.update.database;
 
 import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.domain.CIString;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
@@ -10,6 +11,7 @@ import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.sql.DataSource;
+import java.util.Set;
 
 @Component
 public class UpdateLockHelper {
@@ -42,4 +44,30 @@ public class UpdateLockHelper {
 
         setMntnerValue(getMntnerValue() + ".");
     }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testResourceUpdateLock(final Set<CIString> resources) {
+        jdbcTemplate.queryForObject("SELECT count(*) FROM mntner", Integer.class);
+
+        updateLockDao.setUpdateLock(resources);
+
+        setMntnerValue(getMntnerValue() + ".");
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testResourceUpdateLock(final Set<CIString> resources, final Runnable whileLocked) {
+        updateLockDao.setUpdateLock(resources);
+
+        whileLocked.run();
+    }
+
+    @Transactional(isolation = Isolation.READ_COMMITTED, propagation = Propagation.REQUIRES_NEW)
+    public void testSerialLock(final Set<CIString> resources, final Runnable beforeCommit) {
+        updateLockDao.setUpdateLock(resources);
+        updateLockDao.setSerialLock();
+
+        jdbcTemplate.update("INSERT INTO serials (object_id, sequence_id, atlast, operation) VALUES (1, 1, 1, 1)");
+
+        beforeCommit.run();
+    }
 }
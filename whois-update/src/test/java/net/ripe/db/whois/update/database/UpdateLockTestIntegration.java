@@ -1,6 +1,8 @@
 package net.ripe.db.whois.update.database;
 
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.IntegrationTest;
+import net.ripe.db.whois.common.domain.CIString;
 import net.ripe.db.whois.update.dao.AbstractUpdateDaoIntegrationTest;
 import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
@@ -8,10 +10,17 @@ import org.junit.Test;
 import org.junit.experimental.categories.Category;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
+import static net.ripe.db.whois.common.domain.CIString.ciSet;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -54,20 +63,110 @@ public class UpdateLockTestIntegration extends AbstractUpdateDaoIntegrationTest
         assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
     }
 
+    @Test
+    public void test_resource_update_lock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int cnt = 0; cnt < threads; ++cnt) {
+            // every update locks the same maintainer, so they still run one after another
+            UpdateLockWorker updateLockWorker = new UpdateLockWorker(updateLockHelper, ciSet("DEV-MNT", "AS-TEST" + cnt));
+            executor.execute(updateLockWorker);
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS), is(true));
+        assertThat(getMntnerValue(), is("Dot: " + StringUtils.repeat(".", threads)));
+    }
+
+    @Test
+    public void test_resource_update_lock_unrelated_resources_concurrently() throws Exception {
+        // both updates must hold their lock at the same time to pass the barrier
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final Runnable whileLocked = () -> {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        final Future<?> first = executor.submit(() -> updateLockHelper.testResourceUpdateLock(ciSet("FIRST-MNT"), whileLocked));
+        final Future<?> second = executor.submit(() -> updateLockHelper.testResourceUpdateLock(ciSet("SECOND-MNT"), whileLocked));
+        executor.shutdown();
+
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void test_serials_committed_in_order() throws Exception {
+        final int updates = threads * 5;
+        final int lastSerialBefore = getLastSerial();
+
+        // every update locks unrelated resources, and waits a while before it commits its serial
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int cnt = 0; cnt < updates; ++cnt) {
+            final Set<CIString> resources = ciSet("AS-TEST" + cnt);
+            executor.execute(() -> updateLockHelper.testSerialLock(resources, () -> sleep(ThreadLocalRandom.current().nextInt(10))));
+        }
+        executor.shutdown();
+
+        // a reader that has seen a serial must never see a lower serial committed later
+        int lastSeen = lastSerialBefore;
+        final Set<Integer> seen = Sets.newHashSet();
+        boolean done = false;
+        while (!done) {
+            done = executor.isTerminated();
+
+            final List<Integer> serials = whoisTemplate.queryForList("SELECT serial_id FROM serials WHERE serial_id > ?", Integer.class, lastSerialBefore);
+            for (final Integer serial : serials) {
+                if (seen.add(serial)) {
+                    assertThat("serial " + serial + " committed after " + lastSeen, serial > lastSeen, is(true));
+                }
+            }
+            for (final Integer serial : serials) {
+                lastSeen = Math.max(lastSeen, serial);
+            }
+        }
+
+        assertThat(seen, hasSize(updates));
+    }
+
+    private int getLastSerial() {
+        return whoisTemplate.queryForObject("SELECT IFNULL(MAX(serial_id), 0) FROM serials", Integer.class);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private String getMntnerValue() {
         return whoisTemplate.queryForObject("SELECT mntner FROM mntner WHERE object_id = 1", String.class);
     }
 
     private static class UpdateLockWorker implements Runnable {
         UpdateLockHelper updateLockHelper;
+        Set<CIString> resources;
 
         UpdateLockWorker(UpdateLockHelper updateLockHelper) {
+            this(updateLockHelper, null);
+        }
+
+        UpdateLockWorker(UpdateLockHelper updateLockHelper, Set<CIString> resources) {
             this.updateLockHelper = updateLockHelper;
+            this.resources = resources;
         }
 
         @Override
         public void run() {
-            updateLockHelper.testUpdateLock();
+            if (resources == null) {
+                updateLockHelper.testUpdateLock();
+            } else {
+                updateLockHelper.testResourceUpdateLock(resources);
+            }
         }
     }
 }
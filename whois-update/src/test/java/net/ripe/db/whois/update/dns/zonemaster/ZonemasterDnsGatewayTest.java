@@ -12,25 +12,28 @@ import net.ripe.db.whois.update.dns.zonemaster.domain.StartDomainTestResponse;
 import net.ripe.db.whois.update.dns.zonemaster.domain.TestProgressResponse;
 import net.ripe.db.whois.update.dns.zonemaster.domain.ZonemasterRequest;
 import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateMessages;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.core.Response;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-// TODO: [ES] slow unit tests (takes ~30s)
 @RunWith(MockitoJUnitRunner.class)
 public class ZonemasterDnsGatewayTest {
 
@@ -50,12 +53,14 @@ public class ZonemasterDnsGatewayTest {
     private GetTestResultsResponse.Result result;
     @Mock
     private GetTestResultsResponse.Result.Message message;
-    @InjectMocks
+
     private ZonemasterDnsGateway subject;
 
     @Before
     public void setup() {
-        when(restClient.sendRequest(any(ZonemasterRequest.class))).thenReturn(response);
+        subject = new ZonemasterDnsGateway(restClient, 1, 60);
+
+        when(restClient.sendRequestAsync(any(ZonemasterRequest.class))).thenReturn(CompletableFuture.completedFuture(response));
         when(response.readEntity(StartDomainTestResponse.class)).thenReturn(startDomainTestResponse);
         when(response.readEntity(TestProgressResponse.class)).thenReturn(testProgressResponse);
         when(response.readEntity(GetTestResultsResponse.class)).thenReturn(getTestResultsResponse);
@@ -132,8 +137,78 @@ public class ZonemasterDnsGatewayTest {
         assertThat(response.values(), hasSize(12));
     }
 
+    @Test
+    public void result_cached_for_same_nameservers_and_ds_rdata() {
+        mock(RpslObject.parse("" +
+                "domain:   22.0.193.in-addr.arpa\n" +
+                "nserver:  ns1.ripe.net\n" +
+                "nserver:  ns2.ripe.net\n"));
+        when(startDomainTestResponse.getResult()).thenReturn("1");
+        when(testProgressResponse.getResult()).thenReturn("100");
+
+        subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+
+        mock(RpslObject.parse("" +
+                "domain:   22.0.193.in-addr.arpa\n" +
+                "nserver:  NS2.ripe.net\n" +
+                "nserver:  ns1.ripe.net\n"));
+        final Map<DnsCheckRequest, DnsCheckResponse> response =
+            subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+
+        assertThat(response.values(), hasSize(1));
+        // start_domain_test, test_progress and get_test_results for the first check only
+        verify(restClient, times(3)).sendRequestAsync(any(ZonemasterRequest.class));
+    }
+
+    @Test
+    public void error_not_cached() {
+        mock(RpslObject.parse("domain: 22.0.193.in-addr.arpa"));
+        when(restClient.sendRequestAsync(any(ZonemasterRequest.class)))
+            .thenReturn(failed(new ProcessingException("connection refused")))
+            .thenReturn(CompletableFuture.completedFuture(response));
+        when(startDomainTestResponse.getResult()).thenReturn("1");
+        when(testProgressResponse.getResult()).thenReturn("100");
+
+        final Map<DnsCheckRequest, DnsCheckResponse> failed =
+            subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+        final Map<DnsCheckRequest, DnsCheckResponse> checked =
+            subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+
+        assertThat(failed.values().iterator().next().getMessages(), contains(UpdateMessages.dnsCheckError()));
+        assertThat(checked.values().iterator().next().getMessages(), hasSize(0));
+        verify(restClient, times(4)).sendRequestAsync(any(ZonemasterRequest.class));
+    }
+
+    @Test
+    public void result_with_errors_not_cached() {
+        mock(RpslObject.parse("" +
+                "domain:   22.0.193.in-addr.arpa\n" +
+                "nserver:  ns1.ripe.net\n"));
+        when(startDomainTestResponse.getResult()).thenReturn("1");
+        when(testProgressResponse.getResult()).thenReturn("100");
+        when(result.getResults()).thenReturn(Lists.newArrayList(message)).thenReturn(Lists.newArrayList());
+        when(message.getMessage()).thenReturn("nameserver not responding");
+        when(message.getLevel()).thenReturn("ERROR");
+
+        final Map<DnsCheckRequest, DnsCheckResponse> failed =
+            subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+        // DNS fixed, object resubmitted unchanged
+        final Map<DnsCheckRequest, DnsCheckResponse> checked =
+            subject.performDnsChecks(Sets.newHashSet(new DnsCheckRequest(update, "22.0.193.in-addr.arpa", null)));
+
+        assertThat(failed.values().iterator().next().getMessages(), contains(new Message(Messages.Type.ERROR, "nameserver not responding")));
+        assertThat(checked.values().iterator().next().getMessages(), hasSize(0));
+        verify(restClient, times(6)).sendRequestAsync(any(ZonemasterRequest.class));
+    }
+
     // helper methods
 
+    private static CompletableFuture<Response> failed(final Throwable throwable) {
+        final CompletableFuture<Response> future = new CompletableFuture<>();
+        future.completeExceptionally(throwable);
+        return future;
+    }
+
     private void mock(final RpslObject rpslObject) {
         when(update.getSubmittedObject()).thenReturn(rpslObject);
     }
@@ -0,0 +1,166 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectMessages;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.source.SourceContext;
+import net.ripe.db.whois.update.domain.Credentials;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.domain.UpdateContext;
+import net.ripe.db.whois.update.domain.UpdateRequest;
+import net.ripe.db.whois.update.keycert.KeyCertCache;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PreValidationHandlerTest {
+    private static final RpslObject FIRST = RpslObject.parse("mntner: FIRST-MNT");
+    private static final RpslObject SECOND = RpslObject.parse("mntner: SECOND-MNT");
+    private static final RpslObject THIRD = RpslObject.parse("mntner: THIRD-MNT");
+
+    @Mock AttributeSanitizer attributeSanitizer;
+    @Mock RpslObjectDao rpslObjectDao;
+    @Mock KeyCertCache keyCertCache;
+    @Mock SourceContext sourceContext;
+    @Mock UpdateRequest updateRequest;
+    @Mock UpdateContext updateContext;
+
+    private PreValidationHandler subject;
+
+    @After
+    public void tearDown() {
+        if (subject != null) {
+            subject.stop();
+        }
+    }
+
+    @Test
+    public void results_added_in_submitted_order() throws Exception {
+        subject = createSubject(4);
+
+        final Update first = createUpdate(FIRST);
+        final Update second = createUpdate(SECOND);
+        final Update third = createUpdate(THIRD);
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(first, second, third));
+
+        // the first update finishes last
+        final CountDownLatch othersDone = new CountDownLatch(2);
+        when(attributeSanitizer.sanitize(any(RpslObject.class), any(ObjectMessages.class))).thenAnswer(invocation -> {
+            final RpslObject rpslObject = invocation.getArgument(0);
+            if (rpslObject.equals(FIRST)) {
+                othersDone.await(5, TimeUnit.SECONDS);
+            } else {
+                othersDone.countDown();
+            }
+            return rpslObject;
+        });
+
+        subject.preValidate(updateRequest, updateContext);
+
+        final InOrder inOrder = inOrder(updateContext);
+        inOrder.verify(updateContext).addPreValidation(eq(first), eq(FIRST), any(ObjectMessages.class));
+        inOrder.verify(updateContext).addPreValidation(eq(second), eq(SECOND), any(ObjectMessages.class));
+        inOrder.verify(updateContext).addPreValidation(eq(third), eq(THIRD), any(ObjectMessages.class));
+    }
+
+    @Test
+    public void failed_pre_validation_left_for_update_lock() {
+        subject = createSubject(4);
+
+        final Update first = createUpdate(FIRST);
+        final Update second = createUpdate(SECOND);
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(first, second));
+        when(attributeSanitizer.sanitize(eq(FIRST), any(ObjectMessages.class))).thenThrow(new IllegalStateException("sanitize"));
+        when(attributeSanitizer.sanitize(eq(SECOND), any(ObjectMessages.class))).thenReturn(SECOND);
+
+        subject.preValidate(updateRequest, updateContext);
+
+        verify(updateContext, never()).addPreValidation(eq(first), any(RpslObject.class), any(ObjectMessages.class));
+        verify(updateContext).addPreValidation(eq(second), eq(SECOND), any(ObjectMessages.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void validate_syntax_under_update_lock_propagates_errors() {
+        subject = createSubject(4);
+
+        final Update update = createUpdate(FIRST);
+        when(attributeSanitizer.sanitize(eq(FIRST), any(ObjectMessages.class))).thenThrow(new IllegalStateException("sanitize"));
+
+        subject.validateSyntax(update, new ObjectMessages());
+    }
+
+    @Test
+    public void sequential_with_single_thread() {
+        subject = createSubject(1);
+        assertPreValidatedOnRequestThread();
+    }
+
+    @Test
+    public void sequential_after_stop() {
+        subject = createSubject(4);
+        subject.stop();
+        assertPreValidatedOnRequestThread();
+    }
+
+    private void assertPreValidatedOnRequestThread() {
+        final Update first = createUpdate(FIRST);
+        final Update second = createUpdate(SECOND);
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(first, second));
+
+        final Set<Thread> threads = Sets.newConcurrentHashSet();
+        final List<RpslObject> sanitized = Lists.newArrayList();
+        when(attributeSanitizer.sanitize(any(RpslObject.class), any(ObjectMessages.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread());
+            sanitized.add(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+
+        subject.preValidate(updateRequest, updateContext);
+
+        assertThat(threads, contains(Thread.currentThread()));
+        assertThat(sanitized, contains(FIRST, SECOND));
+        verify(updateContext).addPreValidation(eq(first), eq(FIRST), any(ObjectMessages.class));
+        verify(updateContext).addPreValidation(eq(second), eq(SECOND), any(ObjectMessages.class));
+        assertThat(threads.size(), is(1));
+    }
+
+    private PreValidationHandler createSubject(final int nrThreads) {
+        final PreValidationHandler preValidationHandler = new PreValidationHandler(attributeSanitizer, rpslObjectDao, keyCertCache, sourceContext, nrThreads);
+        preValidationHandler.init();
+        return preValidationHandler;
+    }
+
+    private static Update createUpdate(final RpslObject rpslObject) {
+        final Update update = mock(Update.class);
+        when(update.getSubmittedObject()).thenReturn(rpslObject);
+        // a failed update is not validated any further
+        lenient().when(update.getOperation()).thenReturn(Operation.DELETE);
+        lenient().when(update.getCredentials()).thenReturn(new Credentials());
+        return update;
+    }
+}
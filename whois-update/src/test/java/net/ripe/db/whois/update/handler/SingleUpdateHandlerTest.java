@@ -0,0 +1,97 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.dao.UpdateLockDao;
+import net.ripe.db.whois.common.domain.CIString;
+import net.ripe.db.whois.common.iptree.IpTreeUpdater;
+import net.ripe.db.whois.common.rpsl.AttributeSanitizer;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.authentication.Authenticator;
+import net.ripe.db.whois.update.domain.Update;
+import net.ripe.db.whois.update.handler.transform.Transformer;
+import net.ripe.db.whois.update.sso.SsoTranslator;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static net.ripe.db.whois.common.domain.CIString.ciSet;
+import static net.ripe.db.whois.common.domain.CIString.ciString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SingleUpdateHandlerTest {
+    @Mock AttributeSanitizer attributeSanitizer;
+    @Mock UpdateLockDao updateLockDao;
+    @Mock Authenticator authenticator;
+    @Mock UpdateObjectHandler updateObjectHandler;
+    @Mock RpslObjectDao rpslObjectDao;
+    @Mock IpTreeUpdater ipTreeUpdater;
+    @Mock SsoTranslator ssoTranslator;
+    @Mock PreValidationHandler preValidationHandler;
+    @Mock Update update;
+
+    private SingleUpdateHandler subject;
+
+    @Before
+    public void setUp() {
+        subject = new SingleUpdateHandler(Lists.newArrayList(), new Transformer[0], attributeSanitizer, updateLockDao, authenticator, updateObjectHandler, rpslObjectDao, ipTreeUpdater, ssoTranslator, preValidationHandler);
+        ReflectionTestUtils.setField(subject, "lockResources", true);
+    }
+
+    @Test
+    public void lock_resources_once() {
+        final RpslObject submitted = RpslObject.parse("mntner: TEST-MNT\nadmin-c: NEW-TEST\nmnt-by: TEST-MNT\nsource: TEST");
+        final RpslObject original = RpslObject.parse("mntner: TEST-MNT\nadmin-c: OLD-TEST\nmnt-by: TEST-MNT\nsource: TEST");
+        when(update.getType()).thenReturn(ObjectType.MNTNER);
+        when(update.getSubmittedObject()).thenReturn(submitted);
+        when(attributeSanitizer.sanitizeKey(submitted)).thenReturn(ciString("TEST-MNT"));
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.MNTNER, ciString("TEST-MNT"))).thenReturn(original);
+
+        assertThat(subject.setUpdateLock(update), is(true));
+
+        verify(updateLockDao).setUpdateLock(ciSet("TEST-MNT", "NEW-TEST", "OLD-TEST"));
+        verify(updateLockDao, never()).setUpdateLock();
+    }
+
+    @Test
+    public void as_block_takes_exclusive_lock() {
+        when(update.getType()).thenReturn(ObjectType.AS_BLOCK);
+
+        assertThat(subject.setUpdateLock(update), is(false));
+
+        verify(updateLockDao).setUpdateLock();
+        verify(updateLockDao, never()).setUpdateLock(anySet());
+    }
+
+    @Test
+    public void lock_resources_of_created_object() {
+        final RpslObject submitted = RpslObject.parse("mntner: TEST-MNT\nadmin-c: NEW-TEST\nmnt-by: TEST-MNT\nsource: TEST");
+        when(update.getSubmittedObject()).thenReturn(submitted);
+        when(attributeSanitizer.sanitizeKey(submitted)).thenReturn(ciString("TEST-MNT"));
+
+        assertThat(subject.getLockResources(update), containsInAnyOrder(ciString("TEST-MNT"), ciString("NEW-TEST")));
+    }
+
+    @Test
+    public void lock_resources_of_modified_object_include_original_references() {
+        final RpslObject submitted = RpslObject.parse("mntner: TEST-MNT\nadmin-c: NEW-TEST\nmnt-by: TEST-MNT\nsource: TEST");
+        final RpslObject original = RpslObject.parse("mntner: TEST-MNT\nadmin-c: OLD-TEST\nmnt-by: OTHER-MNT\nsource: TEST");
+        when(update.getSubmittedObject()).thenReturn(submitted);
+        when(attributeSanitizer.sanitizeKey(submitted)).thenReturn(ciString("TEST-MNT"));
+        when(rpslObjectDao.getByKeyOrNull(ObjectType.MNTNER, ciString("TEST-MNT"))).thenReturn(original);
+
+        assertThat(subject.getLockResources(update), containsInAnyOrder(
+                ciString("TEST-MNT"), ciString("NEW-TEST"), ciString("OLD-TEST"), ciString("OTHER-MNT")));
+    }
+}
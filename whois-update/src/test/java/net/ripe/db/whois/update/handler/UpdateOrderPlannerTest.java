@@ -0,0 +1,66 @@
+package net.ripe.db.whois.update.handler;
+
+import com.google.common.collect.Lists;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.update.domain.Operation;
+import net.ripe.db.whois.update.domain.Paragraph;
+import net.ripe.db.whois.update.domain.Update;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+
+public class UpdateOrderPlannerTest {
+
+    @Test
+    public void independent_updates_keep_submitted_order() {
+        final Update first = update("mntner: FIRST-MNT\nsource: TEST");
+        final Update second = update("mntner: SECOND-MNT\nsource: TEST");
+
+        assertThat(UpdateOrderPlanner.plan(Lists.newArrayList(first, second)), contains(first, second));
+    }
+
+    @Test
+    public void referenced_objects_first() {
+        final Update inetnum = update("inetnum: 10.0.0.0 - 10.0.0.255\nadmin-c: AUTO-1\nmnt-by: OWNER-MNT\norg: AUTO-2\nsource: TEST");
+        final Update person = update("person: Test Person\nnic-hdl: AUTO-1\nmnt-by: OWNER-MNT\nsource: TEST");
+        final Update organisation = update("organisation: AUTO-2\nmnt-by: OWNER-MNT\nsource: TEST");
+        final Update mntner = update("mntner: OWNER-MNT\nmnt-by: OWNER-MNT\nsource: TEST");
+
+        assertThat(UpdateOrderPlanner.plan(Lists.newArrayList(inetnum, person, organisation, mntner)), contains(mntner, person, organisation, inetnum));
+    }
+
+    @Test
+    public void parent_before_child() {
+        final Update route = update("route: 10.0.0.0/24\norigin: AS3333\nsource: TEST");
+        final Update child = update("inetnum: 10.0.0.0 - 10.0.0.255\nsource: TEST");
+        final Update parent = update("inetnum: 10.0.0.0 - 10.255.255.255\nsource: TEST");
+
+        assertThat(UpdateOrderPlanner.plan(Lists.newArrayList(route, child, parent)), contains(parent, child, route));
+    }
+
+    @Test
+    public void deleted_after_referencing_objects() {
+        final Update mntner = delete("mntner: OLD-MNT\nsource: TEST");
+        final Update person = delete("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: OLD-MNT\nsource: TEST");
+
+        assertThat(UpdateOrderPlanner.plan(Lists.newArrayList(mntner, person)), contains(person, mntner));
+    }
+
+    @Test
+    public void cycle_keeps_submitted_order() {
+        final Update person = update("person: Test Person\nnic-hdl: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        final Update mntner = update("mntner: OWNER-MNT\nadmin-c: TP1-TEST\nmnt-by: OWNER-MNT\nsource: TEST");
+        final Update other = update("mntner: OTHER-MNT\nadmin-c: TP1-TEST\nsource: TEST");
+
+        assertThat(UpdateOrderPlanner.plan(Lists.newArrayList(other, person, mntner)), contains(other, person, mntner));
+    }
+
+    private static Update update(final String object) {
+        return new Update(new Paragraph(object), Operation.UNSPECIFIED, Lists.newArrayList(), RpslObject.parse(object));
+    }
+
+    private static Update delete(final String object) {
+        return new Update(new Paragraph(object), Operation.DELETE, Lists.newArrayList("reason"), RpslObject.parse(object));
+    }
+}
@@ -1,6 +1,8 @@
 package net.ripe.db.whois.update.handler;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import net.ripe.db.whois.common.rpsl.ObjectType;
 import net.ripe.db.whois.common.rpsl.RpslObject;
 import net.ripe.db.whois.common.source.SourceContext;
@@ -28,11 +30,18 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -53,6 +62,7 @@ public class UpdateRequestHandlerTest {
     @Mock UpdateNotifier updateNotifier;
     @Mock UpdateLog updateLog;
     @Mock SsoTranslator ssoTranslator;
+    @Mock PreValidationHandler preValidationHandler;
 
     @InjectMocks UpdateRequestHandler subject;
 
@@ -129,6 +139,52 @@ public class UpdateRequestHandlerTest {
         verify(singleUpdateHandler).handle(origin, Keyword.NONE, update, updateContext);
     }
 
+    @Test
+    public void dependency_chain_in_reverse_order() {
+        final Update first = mock(Update.class);
+        final Update second = mock(Update.class);
+        when(first.getSubmittedObject()).thenReturn(RpslObject.parse("mntner: FIRST-MNT"));
+        when(first.getType()).thenReturn(ObjectType.MNTNER);
+        when(second.getSubmittedObject()).thenReturn(RpslObject.parse("mntner: SECOND-MNT"));
+        when(second.getType()).thenReturn(ObjectType.MNTNER);
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(second, first, update));
+        when(ack.getUpdateStatus()).thenReturn(UpdateStatus.SUCCESS);
+
+        // each update depends on the update submitted after it, which the planner does not know about
+        final Set<Update> succeeded = Sets.newHashSet();
+        final Map<Update, Update> dependencies = ImmutableMap.of(second, first, first, update);
+        doAnswer(invocation -> {
+            final Update attempted = invocation.getArgument(2);
+            final Update dependency = dependencies.get(attempted);
+            if (dependency != null && !succeeded.contains(dependency)) {
+                throw new UpdateFailedException();
+            }
+            succeeded.add(attempted);
+            return null;
+        }).when(singleUpdateHandler).handle(any(Origin.class), any(Keyword.class), any(Update.class), any(UpdateContext.class));
+
+        subject.handle(updateRequest, updateContext);
+
+        assertThat(succeeded, containsInAnyOrder(update, first, second));
+        verify(singleUpdateHandler, times(1)).handle(origin, Keyword.NONE, update, updateContext);
+        verify(singleUpdateHandler, times(2)).handle(origin, Keyword.NONE, first, updateContext);
+        verify(singleUpdateHandler, times(3)).handle(origin, Keyword.NONE, second, updateContext);
+        verify(updateContext, times(2)).prepareForReattempt(second);
+        verify(updateContext).prepareForReattempt(first);
+    }
+
+    @Test
+    public void failed_updates_not_attempted_again_without_success() {
+        when(updateRequest.getUpdates()).thenReturn(Lists.newArrayList(update));
+        when(ack.getUpdateStatus()).thenReturn(UpdateStatus.FAILED);
+        doThrow(new UpdateFailedException()).when(singleUpdateHandler).handle(origin, Keyword.NONE, update, updateContext);
+
+        subject.handle(updateRequest, updateContext);
+
+        verify(singleUpdateHandler).handle(origin, Keyword.NONE, update, updateContext);
+        verify(updateContext, never()).prepareForReattempt(update);
+    }
+
     @Test
     public void help() {
         when(responseFactory.createHelpResponse(updateContext, origin)).thenReturn("help");
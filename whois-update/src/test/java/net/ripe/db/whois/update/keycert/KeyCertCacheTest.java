@@ -0,0 +1,102 @@
+package net.ripe.db.whois.update.keycert;
+
+import net.ripe.db.whois.common.dao.RpslObjectDao;
+import net.ripe.db.whois.common.dao.RpslObjectUpdateDao;
+import net.ripe.db.whois.common.dao.RpslObjectUpdateInfo;
+import net.ripe.db.whois.common.domain.serials.Operation;
+import net.ripe.db.whois.common.domain.serials.SerialChange;
+import net.ripe.db.whois.common.domain.serials.SerialEntry;
+import net.ripe.db.whois.common.rpsl.ObjectType;
+import net.ripe.db.whois.common.rpsl.RpslObject;
+import net.ripe.db.whois.common.serials.SerialTailer;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.EmptyResultDataAccessException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class KeyCertCacheTest {
+    @Mock RpslObjectDao rpslObjectDao;
+    @Mock RpslObjectUpdateDao rpslObjectUpdateDao;
+    @Mock SerialTailer serialTailer;
+
+    private KeyCertCache subject;
+    private RpslObject pgpKeycert;
+
+    @Before
+    public void setup() throws IOException {
+        subject = new KeyCertCache(rpslObjectDao, rpslObjectUpdateDao, serialTailer);
+        pgpKeycert = RpslObject.parse(IOUtils.toString(new ClassPathResource("keycerts/PGPKEY-28F6CD6C.TXT").getInputStream(), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void same_sequence_parsed_once() {
+        when(rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, "PGPKEY-28F6CD6C")).thenReturn(new RpslObjectUpdateInfo(1, 1, ObjectType.KEY_CERT, "PGPKEY-28F6CD6C"));
+        when(rpslObjectDao.getById(1)).thenReturn(pgpKeycert);
+
+        final PgpPublicKeyWrapper first = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+        final PgpPublicKeyWrapper second = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+
+        assertThat(second, is(sameInstance(first)));
+        verify(rpslObjectDao, times(1)).getById(1);
+    }
+
+    @Test
+    public void new_sequence_parsed_again() {
+        when(rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, "PGPKEY-28F6CD6C")).thenReturn(
+                new RpslObjectUpdateInfo(1, 1, ObjectType.KEY_CERT, "PGPKEY-28F6CD6C"),
+                new RpslObjectUpdateInfo(1, 2, ObjectType.KEY_CERT, "PGPKEY-28F6CD6C"));
+        when(rpslObjectDao.getById(1)).thenReturn(pgpKeycert);
+
+        final PgpPublicKeyWrapper first = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+        final PgpPublicKeyWrapper second = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+
+        assertThat(second, is(not(sameInstance(first))));
+        verify(rpslObjectDao, times(2)).getById(1);
+    }
+
+    @Test
+    public void changed_key_cert_evicted() {
+        when(rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, "PGPKEY-28F6CD6C")).thenReturn(new RpslObjectUpdateInfo(1, 1, ObjectType.KEY_CERT, "PGPKEY-28F6CD6C"));
+        when(rpslObjectDao.getById(1)).thenReturn(pgpKeycert);
+
+        final PgpPublicKeyWrapper first = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+        subject.evict(10, 11, Collections.singletonList(new SerialChange(11, SerialEntry.createSerialEntryWithoutTimestamps(Operation.UPDATE, true, 1, pgpKeycert.toByteArray()))));
+        final PgpPublicKeyWrapper second = subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+
+        assertThat(second, is(not(sameInstance(first))));
+        verify(rpslObjectDao, times(2)).getById(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrong_key_type() {
+        when(rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, "PGPKEY-28F6CD6C")).thenReturn(new RpslObjectUpdateInfo(1, 1, ObjectType.KEY_CERT, "PGPKEY-28F6CD6C"));
+        when(rpslObjectDao.getById(1)).thenReturn(pgpKeycert);
+
+        subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+        subject.getX509Certificate("PGPKEY-28F6CD6C");
+    }
+
+    @Test(expected = EmptyResultDataAccessException.class)
+    public void key_not_found() {
+        when(rpslObjectUpdateDao.lookupObject(ObjectType.KEY_CERT, "PGPKEY-28F6CD6C")).thenThrow(new EmptyResultDataAccessException(1));
+
+        subject.getPgpPublicKey("PGPKEY-28F6CD6C");
+    }
+}
@@ -0,0 +1,138 @@
+package net.ripe.db.whois.update.log;
+
+import net.ripe.db.whois.common.DateTimeProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.util.FileCopyUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditLogSegmentStoreTest {
+    private static final LocalDate DATE = LocalDate.of(2013, 4, 15);
+
+    @Mock DateTimeProvider dateTimeProvider;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AuditLogSegmentStore subject;
+
+    @Before
+    public void setUp() {
+        subject = new AuditLogSegmentStore(folder.getRoot().getAbsolutePath(), true, 16);
+        subject.start();
+    }
+
+    @After
+    public void tearDown() {
+        subject.stop();
+    }
+
+    @Test
+    public void append_and_read() throws IOException {
+        subject.append("20130415", "120000.first", "000.audit.xml.gz", bytes("first audit"));
+        subject.append("20130415", "120001.second", "000.audit.xml.gz", bytes("second audit"));
+        subject.append("20130415", "120000.first", "001.ack.txt.gz", bytes("first ack"));
+        subject.stop();
+
+        assertThat(subject.getNames(DATE, "120000.first"), contains("000.audit.xml.gz", "001.ack.txt.gz"));
+        assertThat(new String(subject.read(DATE, "120000.first", "001.ack.txt.gz"), StandardCharsets.UTF_8), is("first ack"));
+        assertThat(new String(subject.read(DATE, "120001.second", "000.audit.xml.gz"), StandardCharsets.UTF_8), is("second audit"));
+        assertThat(subject.read(DATE, "120001.second", "001.ack.txt.gz"), is(nullValue()));
+    }
+
+    @Test
+    public void segments_roll_over() {
+        subject.append("20130415", "120000.first", "000.audit.xml.gz", bytes("more than sixteen bytes"));
+        subject.append("20130415", "120000.first", "001.ack.txt.gz", bytes("ack"));
+        subject.stop();
+
+        assertThat(new File(folder.getRoot(), "20130415/0001.segment").length(), is(23L));
+        assertThat(new File(folder.getRoot(), "20130415/0002.segment").length(), is(3L));
+    }
+
+    @Test
+    public void append_returns_segment_file_written() throws Exception {
+        final File segmentFile = subject.append("20130415", "120000.first", "000.audit.xml.gz", bytes("first audit")).get();
+
+        assertThat(segmentFile, is(new File(folder.getRoot(), "20130415/0001.segment")));
+        assertThat(segmentFile.length(), is(11L));
+    }
+
+    @Test
+    public void queued_records_written_on_stop() {
+        for (int i = 0; i < 1000; i++) {
+            subject.append("20130415", "120000.first", String.format("%03d.ack.txt.gz", i), bytes("ack"));
+        }
+        subject.stop();
+
+        assertThat(subject.getNames(DATE, "120000.first"), hasSize(1000));
+    }
+
+    @Test
+    public void export() throws IOException {
+        subject.append("20130415", "120000.first", "000.audit.xml.gz", bytes("first audit"));
+        subject.append("20130416", "120000.other", "000.audit.xml.gz", bytes("other day"));
+        subject.stop();
+
+        final File exportDir = folder.newFolder("export");
+        assertThat(subject.export(DATE, exportDir), is(1));
+
+        assertThat(new String(Files.readAllBytes(new File(exportDir, "20130415/120000.first/000.audit.xml.gz").toPath()), StandardCharsets.UTF_8), is("first audit"));
+        assertThat(new File(exportDir, "20130416").exists(), is(false));
+    }
+
+    @Test
+    public void logger_context_writes_to_segments() throws IOException {
+        when(dateTimeProvider.getCurrentDateTime()).thenReturn(LocalDateTime.of(2013, 4, 15, 12, 0, 0));
+
+        final LoggerContext loggerContext = new LoggerContext(dateTimeProvider);
+        loggerContext.setBaseDir(folder.getRoot().getAbsolutePath());
+        loggerContext.setSegmentStore(subject);
+
+        // need to reinit static threadlocal
+        try {
+            loggerContext.remove();
+        } catch (IllegalStateException ignored) {}
+        loggerContext.init("update");
+        final File written = loggerContext.log("ack.txt", outputStream -> outputStream.write(bytes("acknowledgement")));
+        assertThat(written.getName(), is("001.ack.txt.gz"));
+        loggerContext.remove();
+        subject.stop();
+
+        assertThat(new File(folder.getRoot(), "20130415/120000.update").exists(), is(false));
+        assertThat(subject.getNames(DATE, "120000.update"), contains("001.ack.txt.gz", "000.audit.xml.gz"));
+        assertThat(gunzip(subject.read(DATE, "120000.update", "001.ack.txt.gz")), is("acknowledgement"));
+        assertThat(gunzip(subject.read(DATE, "120000.update", "000.audit.xml.gz")), containsString("<dbupdate"));
+    }
+
+    private static byte[] bytes(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String gunzip(final byte[] compressed) throws IOException {
+        return new String(FileCopyUtils.copyToByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))), StandardCharsets.UTF_8);
+    }
+}
@@ -28,6 +28,7 @@ public class MailGatewaySmtpTest {
     @Mock LoggerContext loggerContext;
     @Mock MailConfiguration mailConfiguration;
     @Mock JavaMailSender mailSender;
+    @Mock MailOutbox mailOutbox;
     @InjectMocks private MailGatewaySmtp subject;
 
     @Before
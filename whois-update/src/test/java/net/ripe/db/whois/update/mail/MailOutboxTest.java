@@ -0,0 +1,134 @@
+package net.ripe.db.whois.update.mail;
+
+import net.ripe.db.whois.update.dao.OutgoingMailDao;
+import net.ripe.db.whois.update.dao.OutgoingMailDao.OutgoingMail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MailOutboxTest {
+    @Mock OutgoingMailDao outgoingMailDao;
+    @Mock JavaMailSender mailSender;
+
+    private MailOutbox subject;
+
+    @Before
+    public void setUp() {
+        subject = new MailOutbox(outgoingMailDao, mailSender, false, 1, 50, 3, 1000);
+    }
+
+    @Test
+    public void enqueue() throws Exception {
+        subject.enqueue(message("user@ripe.net"));
+
+        final ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+        verify(outgoingMailDao).addMessage(captor.capture());
+        assertThat(new String(captor.getValue()).contains("To: user@ripe.net"), is(true));
+    }
+
+    @Test
+    public void deliver_nothing_claimed() {
+        when(outgoingMailDao.claimMessages(anyInt(), anyLong())).thenReturn(Collections.emptyList());
+
+        assertThat(subject.deliver(), is(0));
+        verify(mailSender, never()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    public void deliver_batch() throws Exception {
+        when(outgoingMailDao.claimMessages(anyInt(), anyLong())).thenReturn(Arrays.asList(
+                new OutgoingMail(1, bytes(message("first@ripe.net")), 0),
+                new OutgoingMail(2, bytes(message("second@ripe.net")), 0)));
+
+        assertThat(subject.deliver(), is(2));
+
+        final ArgumentCaptor<MimeMessage[]> captor = ArgumentCaptor.forClass(MimeMessage[].class);
+        verify(mailSender).send(captor.capture());
+        assertThat(captor.getValue().length, is(2));
+        verify(outgoingMailDao).deleteMessage(1);
+        verify(outgoingMailDao).deleteMessage(2);
+    }
+
+    @Test
+    public void deliver_failed_message_is_retried() throws Exception {
+        when(outgoingMailDao.claimMessages(anyInt(), anyLong())).thenReturn(Arrays.asList(
+                new OutgoingMail(1, bytes(message("first@ripe.net")), 0),
+                new OutgoingMail(2, bytes(message("second@ripe.net")), 1)));
+        doAnswer(invocation -> {
+            final MimeMessage[] messages = invocation.getArgument(0);
+            for (final MimeMessage message : messages) {
+                if (message.getRecipients(MimeMessage.RecipientType.TO)[0].toString().equals("second@ripe.net")) {
+                    throw new MailSendException(Collections.<Object, Exception>singletonMap(message, new MessagingException("rejected")));
+                }
+            }
+            return null;
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        subject.deliver();
+
+        verify(outgoingMailDao).deleteMessage(1);
+        verify(outgoingMailDao).retryMessage(2, 2, 20);
+    }
+
+    @Test
+    public void deliver_gives_up_after_max_attempts() throws Exception {
+        when(outgoingMailDao.claimMessages(anyInt(), anyLong())).thenReturn(Collections.singletonList(
+                new OutgoingMail(1, bytes(message("first@ripe.net")), 2)));
+        doAnswer(invocation -> {
+            throw new MailSendException("connection refused");
+        }).when(mailSender).send(any(MimeMessage[].class));
+
+        subject.deliver();
+
+        verify(outgoingMailDao).deleteMessage(1);
+        verify(outgoingMailDao, never()).retryMessage(anyInt(), anyInt(), anyLong());
+    }
+
+    @Test
+    public void retry_delay() {
+        assertThat(MailOutbox.getRetryDelaySeconds(1), is(10L));
+        assertThat(MailOutbox.getRetryDelaySeconds(2), is(20L));
+        assertThat(MailOutbox.getRetryDelaySeconds(5), is(160L));
+        assertThat(MailOutbox.getRetryDelaySeconds(20), is(3600L));
+    }
+
+    private static MimeMessage message(final String to) throws MessagingException {
+        final MimeMessage message = new MimeMessage((Session) null);
+        message.setFrom(new InternetAddress("test-dbm@ripe.net"));
+        message.setRecipient(MimeMessage.RecipientType.TO, new InternetAddress(to));
+        message.setSubject("subject");
+        message.setText("text");
+        return message;
+    }
+
+    private static byte[] bytes(final MimeMessage message) throws IOException, MessagingException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        message.writeTo(outputStream);
+        return outputStream.toByteArray();
+    }
+}
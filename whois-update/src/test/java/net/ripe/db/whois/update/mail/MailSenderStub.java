@@ -47,6 +47,11 @@ public class MailSenderStub extends MailSenderBase implements Stub {
         }
     }
 
+    @Override
+    public void send(MimeMessage[] mimeMessages) {
+        messages.addAll(Arrays.asList(mimeMessages));
+    }
+
     public MimeMessage getMessage(final String to) throws MessagingException {
         final GetResponse getResponse = new GetResponse(to);
 